@@ -73,6 +73,7 @@ if [ -e ${TORNADO_ROOT}/.git ]; then
 fi
 
 ${TORNADO_CMD} -Xms8G -Ddevices=${DEVICES} -Dstartsize=2 -Dendsize=16777216 uk.ac.manchester.tornado.benchmarks.DataMovement > "${BENCHMARKS_ROOT}/data-movement.csv"
+${TORNADO_CMD} -Xms8G -Ddevices=${DEVICES} -Dstartsize=1024 -Dendsize=16777216 uk.ac.manchester.tornado.benchmarks.CompressedDataMovement > "${BENCHMARKS_ROOT}/compressed-data-movement.csv"
 
 for bm in ${BENCHMARKS}; do
 	for (( i=0; i<${ITERATIONS}; i++ )); do
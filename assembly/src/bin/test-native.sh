@@ -3,6 +3,7 @@
 echo -e "\nTesting the Native OpenCL API\n"
 tornado uk.ac.manchester.tornado.drivers.opencl.tests.TestOpenCLJITCompiler
 tornado uk.ac.manchester.tornado.drivers.opencl.tests.TestOpenCLTornadoCompiler
+tornado uk.ac.manchester.tornado.drivers.opencl.tests.TestOCLEventsPool
 
 
 echo " " 
@@ -86,6 +86,10 @@ __BENCHMARKS__ = [
 	"dgemm",
 	"mandelbrot",
 	"dft",
+	"coalescing",
+	"scan",
+	"sort",
+	"fft",
 ]
 
 def getSize():
@@ -98,6 +102,9 @@ allSizes = {
 	"montecarlo": [[512, 1024, 2048, 4096, 8192, 16384, 32798, 65536, 1048576], [__MAX_ITERATIONS__]],
 	"nbody": [[512, 1024, 2048, 4096, 16384, 327684], [__MAX_ITERATIONS__]],
 	"saxpy": [[512, 1024, 2048, 4096, 8192, 16384, 32798, 65536, 131072, 262144, 524288, 1048576, 2097152, 4194304], [__MAX_ITERATIONS__]],
+	"scan": [[4096, 65536, 1048576, 4194304, 16777216, 33554432, 67108864], [__MAX_ITERATIONS__]],
+	"sort": [[4096, 65536, 1048576, 4194304, 16777216], [__MAX_ITERATIONS__]],
+	"fft": [[1024, 4096, 16384, 65536, 262144, 1048576], [__MAX_ITERATIONS__]],
 	"sgemm": [[128, 256, 512, 1024, 2048], [__MAX_ITERATIONS__]],
 	"blackscholes": [[512, 1024, 2048, 4096, 8192, 16384, 32798, 65536, 1048576, 4194304], [__MAX_ITERATIONS__]],
 	"dft": [[256, 512, 1024, 2048, 4096, 8192], [__MAX_ITERATIONS__]],
@@ -109,6 +116,9 @@ mediumSizes = {
 	"montecarlo": [[512, 1024, 2048, 4096, 8192], ["getSize()"]],
 	"nbody": [[512, 1024, 2048, 4096], ["getSize()"]],
 	"saxpy": [[512, 1024, 2048, 4096, 8192, 16384, 32798, 65536, 131072, 262144, 524288, 1048576, 2097152], ["getSize()"]],
+	"scan": [[4096, 65536, 1048576, 4194304, 16777216], ["getSize()"]],
+	"sort": [[4096, 65536, 1048576, 4194304], ["getSize()"]],
+	"fft": [[1024, 4096, 16384, 65536], ["getSize()"]],
 	"sgemm": [[128, 256, 512, 1024, 2048], ["getSize()"]],
 	"blackscholes": [[512, 1024, 2048, 4096, 8192, 16384, 32798, 65536], ["getSize()"]],
 	"dft": [[256, 512, 1024, 2048, 4096], ["getSize()"]],
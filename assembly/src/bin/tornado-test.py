@@ -36,15 +36,24 @@ import time
 __TEST_THE_WORLD__ = [
 	"uk.ac.manchester.tornado.unittests.TestHello",
 	"uk.ac.manchester.tornado.unittests.arrays.TestArrays",
+	"uk.ac.manchester.tornado.unittests.arrays.TestLargeVectors",
 	"uk.ac.manchester.tornado.unittests.functional.TestLambdas",
 	"uk.ac.manchester.tornado.unittests.vectortypes.TestFloats",
+	"uk.ac.manchester.tornado.unittests.vectortypes.TestStructureOfArrays",
 	"uk.ac.manchester.tornado.unittests.vectortypes.TestDoubles",
 	"uk.ac.manchester.tornado.unittests.vectortypes.TestInts",
 	"uk.ac.manchester.tornado.unittests.vectortypes.TestVectorAllocation",
+	"uk.ac.manchester.tornado.unittests.vectortypes.TestAutoVectorisation",
+	"uk.ac.manchester.tornado.unittests.vectortypes.TestHalfFloats",
 	"uk.ac.manchester.tornado.unittests.prebuilt.PrebuiltTest",
 	"uk.ac.manchester.tornado.unittests.virtualization.TestsVirtualLayer",
 	"uk.ac.manchester.tornado.unittests.tasks.TestSingleTaskSingleDevice",
 	"uk.ac.manchester.tornado.unittests.tasks.TestMultipleTasksSingleDevice",
+	"uk.ac.manchester.tornado.unittests.tasks.TestMultipleQueues",
+	"uk.ac.manchester.tornado.unittests.tasks.TestMultipleComputeQueues",
+	"uk.ac.manchester.tornado.unittests.tasks.TestCommandReplay",
+	"uk.ac.manchester.tornado.unittests.tasks.TestAsyncExecution",
+	"uk.ac.manchester.tornado.unittests.tasks.TestSharedCompilation",
 	"uk.ac.manchester.tornado.unittests.images.TestImages",
 	"uk.ac.manchester.tornado.unittests.images.TestResizeImage",
 	"uk.ac.manchester.tornado.unittests.branching.TestConditionals",
@@ -58,11 +67,19 @@ __TEST_THE_WORLD__ = [
 	"uk.ac.manchester.tornado.unittests.reductions.InstanceReduction",
 	"uk.ac.manchester.tornado.unittests.instances.TestInstances",
 	"uk.ac.manchester.tornado.unittests.matrices.TestMatrixTypes",
+	"uk.ac.manchester.tornado.unittests.matrices.TestMatrixMarket",
+	"uk.ac.manchester.tornado.unittests.matrices.TestSparseMatrices",
+	"uk.ac.manchester.tornado.unittests.matrices.TestBlas",
 	"uk.ac.manchester.tornado.unittests.api.TestAPI",
 	"uk.ac.manchester.tornado.unittests.math.TestMath",
 	"uk.ac.manchester.tornado.unittests.batches.TestBatches",
 	"uk.ac.manchester.tornado.unittests.lambdas.TestLambdas",
 	"uk.ac.manchester.tornado.unittests.flatmap.TestFlatMap",
+	"uk.ac.manchester.tornado.unittests.algorithms.TestScan",
+	"uk.ac.manchester.tornado.unittests.algorithms.TestCompaction",
+	"uk.ac.manchester.tornado.unittests.algorithms.TestRadixSort",
+	"uk.ac.manchester.tornado.unittests.algorithms.TestFFT",
+	"uk.ac.manchester.tornado.unittests.random.TestPhilox",
 	"uk.ac.manchester.tornado.unittests.logic.TestLogic",
 	"uk.ac.manchester.tornado.unittests.reductions.TestReductionsAutomatic",
 	"uk.ac.manchester.tornado.unittests.fields.TestFields",
@@ -71,16 +88,27 @@ __TEST_THE_WORLD__ = [
 	"uk.ac.manchester.tornado.unittests.bitsets.BitSetTests",
 	"uk.ac.manchester.tornado.unittests.fails.TestFails",
     "uk.ac.manchester.tornado.unittests.math.TestTornadoMathCollection",
+    "uk.ac.manchester.tornado.unittests.math.TestPrecisionPolicies",
     "uk.ac.manchester.tornado.unittests.arrays.TestNewArrays",
 	"uk.ac.manchester.tornado.unittests.dynsize.Resize",
 	"uk.ac.manchester.tornado.unittests.loops.TestLoopTransformations",
     "uk.ac.manchester.tornado.unittests.numpromotion.TestNumericPromotion",
 	"uk.ac.manchester.tornado.unittests.fails.CodeFail",
 	"uk.ac.manchester.tornado.unittests.codegen.CodeGen",
+	"uk.ac.manchester.tornado.unittests.codegen.TestInlining",
 	"uk.ac.manchester.tornado.unittests.grid.TestGrid",
 	"uk.ac.manchester.tornado.unittests.dynamic.TestDynamic",
+	"uk.ac.manchester.tornado.unittests.transfers.TestCompressedTransfers",
 ]
 
+## JVM options required by some test classes. Format: class : options
+__TEST_JVM_OPTIONS__ = {
+	"uk.ac.manchester.tornado.unittests.codegen.TestInlining" : "-Dtornado.inlining.registers=4 ",
+	"uk.ac.manchester.tornado.unittests.tasks.TestCommandReplay" : "-Dtornado.vm.capture=True ",
+	"uk.ac.manchester.tornado.unittests.tasks.TestMultipleQueues" : "-Dtornado.vm.queues.compute=2 -Dtornado.vm.queues.copy=1 ",
+	"uk.ac.manchester.tornado.unittests.tasks.TestMultipleComputeQueues" : "-Dtornado.vm.queues.compute=2 -Dtornado.vm.queues.copy=0 ",
+}
+
 ## List of tests that can be ignored. Format: class#testMethod
 __TORNADO_TESTS_WHITE_LIST__ = [
 	"",
@@ -159,6 +187,13 @@ def composeAllOptions(args):
 	return options
 
 
+def getTestOptions(testClass):
+	""" Returns the JVM options required by a test class, the test
+		class can also be given as class#testMethod
+	"""
+	return __TEST_JVM_OPTIONS__.get(testClass.split("#")[0], "")
+
+
 def runSingleCommand(cmd, args):
 	""" Run a command without processing the result of which tests 
 		are passed and failed. This method is used to pass a single 
@@ -240,11 +275,12 @@ def runTests(args):
 	cmd = TORNADO_CMD + options
 
 	if (javaVersion == JDK_11_VERSION):
-		cmd += " -m " + __MAIN_TORNADO_TEST_RUNNER_MODULE__ + __MAIN_TORNADO_TEST_RUNNER__
+		runner = " -m " + __MAIN_TORNADO_TEST_RUNNER_MODULE__ + __MAIN_TORNADO_TEST_RUNNER__
 	else:
-		cmd += " " + __MAIN_TORNADO_TEST_RUNNER__
+		runner = " " + __MAIN_TORNADO_TEST_RUNNER__
 
 	if (args.testClass != None):
+		cmd = cmd + getTestOptions(args.testClass) + runner
 		if (args.fast):
 			cmd = cmd + " " + args.testClass
 			os.system(cmd)
@@ -253,7 +289,7 @@ def runTests(args):
 	else:
 		start = time.time()
 		for t in __TEST_THE_WORLD__:
-			command = cmd + t
+			command = cmd + getTestOptions(t) + runner + t
 			if (args.fast):
 				os.system(command)
 			else:
@@ -283,18 +319,17 @@ def runTests(args):
 def runWithJUnit(args):
 	""" Run the tests using JUNIT """
 
-	cmd = TORNADO_CMD
 	if (javaVersion == JDK_11_VERSION):
-		cmd += " -m " + __MAIN_TORNADO_JUNIT_MODULE__ + __MAIN_TORNADO_JUNIT__
+		runner = " -m " + __MAIN_TORNADO_JUNIT_MODULE__ + __MAIN_TORNADO_JUNIT__
 	else:
-		cmd += " " + __MAIN_TORNADO_JUNIT__
+		runner = " " + __MAIN_TORNADO_JUNIT__
 
 	if (args.testClass != None):
-		cmd = cmd + args.testClass
+		cmd = TORNADO_CMD + getTestOptions(args.testClass) + runner + args.testClass
 		os.system(cmd)
 	else:	
 		for t in __TEST_THE_WORLD__:
-			command = cmd + t
+			command = TORNADO_CMD + getTestOptions(t) + runner + t
 			os.system(command)
 
 
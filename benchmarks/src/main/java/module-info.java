@@ -16,6 +16,8 @@ module tornado.benchmarks {
     exports uk.ac.manchester.tornado.benchmarks.blackscholes.generated;
     exports uk.ac.manchester.tornado.benchmarks.blurFilter;
     exports uk.ac.manchester.tornado.benchmarks.blurFilter.generated;
+    exports uk.ac.manchester.tornado.benchmarks.coalescing;
+    exports uk.ac.manchester.tornado.benchmarks.coalescing.generated;
     exports uk.ac.manchester.tornado.benchmarks.convolvearray;
     exports uk.ac.manchester.tornado.benchmarks.convolvearray.generated;
     exports uk.ac.manchester.tornado.benchmarks.convolveimage;
@@ -31,6 +33,8 @@ module tornado.benchmarks {
     exports uk.ac.manchester.tornado.benchmarks.dotvector.generated;
     exports uk.ac.manchester.tornado.benchmarks.euler;
     exports uk.ac.manchester.tornado.benchmarks.euler.generated;
+    exports uk.ac.manchester.tornado.benchmarks.fft;
+    exports uk.ac.manchester.tornado.benchmarks.fft.generated;
     exports uk.ac.manchester.tornado.benchmarks.hilbert;
     exports uk.ac.manchester.tornado.benchmarks.hilbert.generated;
     exports uk.ac.manchester.tornado.benchmarks.mandelbrot;
@@ -47,6 +51,10 @@ module tornado.benchmarks {
     exports uk.ac.manchester.tornado.benchmarks.rotatevector.generated;
     exports uk.ac.manchester.tornado.benchmarks.saxpy;
     exports uk.ac.manchester.tornado.benchmarks.saxpy.generated;
+    exports uk.ac.manchester.tornado.benchmarks.scan;
+    exports uk.ac.manchester.tornado.benchmarks.scan.generated;
+    exports uk.ac.manchester.tornado.benchmarks.sort;
+    exports uk.ac.manchester.tornado.benchmarks.sort.generated;
     exports uk.ac.manchester.tornado.benchmarks.sgemm;
     exports uk.ac.manchester.tornado.benchmarks.sgemm.generated;
     exports uk.ac.manchester.tornado.benchmarks.sgemv;
@@ -59,4 +59,14 @@ public final class BenchmarkUtils {
     public static void createImage(final ImageFloat image) {
         createImage(image.asBuffer().array(), image.X(), image.Y());
     }
+
+    public static int[] createKeys(final int size) {
+        final Random rand = new Random();
+        rand.setSeed(7);
+        final int[] keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = rand.nextInt();
+        }
+        return keys;
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package uk.ac.manchester.tornado.benchmarks;
+
+import java.util.Random;
+
+import uk.ac.manchester.tornado.api.TornadoDriver;
+import uk.ac.manchester.tornado.api.TornadoRuntimeCI;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
+import uk.ac.manchester.tornado.api.mm.TornadoDeviceObjectState;
+import uk.ac.manchester.tornado.api.mm.TornadoGlobalObjectState;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+
+/**
+ * Measures the effective host-to-device bandwidth (raw bytes of the array over
+ * elapsed time) of compressed transfers compared with raw copies.
+ */
+public class CompressedDataMovement {
+
+    private static int[] createArray(String pattern, int size) {
+        final int[] array = new int[size];
+        final Random random = new Random(7);
+        switch (pattern) {
+            case "mask":
+                for (int i = 0; i < size; i++) {
+                    array[i] = ((i / 4096) % 4 == 0) ? 1 : 0;
+                }
+                break;
+            case "sorted":
+                for (int i = 1; i < size; i++) {
+                    array[i] = array[i - 1] + random.nextInt(8);
+                }
+                break;
+            case "narrow":
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt(256);
+                }
+                break;
+            case "random":
+                for (int i = 0; i < size; i++) {
+                    array[i] = random.nextInt();
+                }
+                break;
+            default:
+                System.err.printf("pattern %s is not supported", pattern);
+                System.exit(-1);
+        }
+        return array;
+    }
+
+    private static TornadoDevice resolveDevice(TornadoRuntimeCI runtime, String device) {
+        final String[] ids = device.split(":");
+        final TornadoDriver driver = runtime.getDriver(Integer.parseInt(ids[0]));
+        return driver.getDevice(Integer.parseInt(ids[1]));
+    }
+
+    private static double streamIn(TornadoDevice device, int[] array, TornadoDeviceObjectState deviceState, int iterations) {
+        // Warm-up: builds the decode kernel and allocates the staging region
+        device.streamIn(array, 0, 0, deviceState, null);
+        device.sync();
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            device.streamIn(array, 0, 0, deviceState, null);
+        }
+        device.sync();
+        final long end = System.nanoTime();
+        return (end - start) * 1e-9;
+    }
+
+    public static void main(String args[]) {
+        final int startSize = Integer.parseInt(System.getProperty("startsize", "1024"));
+        final int endSize = Integer.parseInt(System.getProperty("endsize", "16777216"));
+        final int iterations = Integer.parseInt(System.getProperty("iterations", "100"));
+        final String[] patterns = System.getProperty("patterns", "mask,sorted,narrow,random").split(",");
+        final String[] codecs = System.getProperty("codecs", "RLE,DELTA,BITPACK").split(",");
+
+        final String[] devices = System.getProperty("devices", "0:0").split(",");
+
+        System.out.println("device,pattern,codec,numelements,numbytes,iterations,rawElapsed,codecElapsed,rawBandwidthGBs,codecBandwidthGBs,speedup");
+
+        for (final String deviceStr : devices) {
+            TornadoRuntimeCI runtime = TornadoRuntime.getTornadoRuntime();
+            final TornadoDevice device = resolveDevice(runtime, deviceStr);
+
+            for (final String pattern : patterns) {
+                for (final String codecName : codecs) {
+                    final TransferCodec codec = TransferCodec.valueOf(codecName);
+                    for (int size = startSize; size <= endSize; size <<= 1) {
+
+                        final int[] array = createArray(pattern, size);
+                        final TornadoGlobalObjectState globalState = runtime.resolveObject(array);
+                        final TornadoDeviceObjectState deviceState = globalState.getDeviceState(device);
+
+                        device.ensureAllocated(array, 0, deviceState);
+
+                        deviceState.setTransferCodec(TransferCodec.NONE);
+                        final double rawElapsed = streamIn(device, array, deviceState, iterations);
+
+                        deviceState.setTransferCodec(codec);
+                        final double codecElapsed = streamIn(device, array, deviceState, iterations);
+
+                        final long numBytes = (long) size * Integer.BYTES;
+                        final double rawBandwidth = (numBytes * iterations) / rawElapsed * 1e-9;
+                        final double codecBandwidth = (numBytes * iterations) / codecElapsed * 1e-9;
+
+                        System.out.printf("%s,%s,%s,%d,%d,%d,%.9f,%.9f,%.3f,%.3f,%.3f\n", device.getDeviceName(), pattern, codec, size, numBytes, iterations, rawElapsed, codecElapsed, rawBandwidth,
+                                codecBandwidth, rawElapsed / codecElapsed);
+                        runtime.clearObjectState();
+                        device.reset();
+                    }
+                }
+            }
+        }
+    }
+
+}
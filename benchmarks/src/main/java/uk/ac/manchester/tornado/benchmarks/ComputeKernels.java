@@ -232,6 +232,18 @@ public class ComputeKernels {
         }
     }
 
+    /**
+     * Scales a matrix stored in row-major order with the loop over the columns
+     * outermost, so the innermost parallel loop walks the strided dimension.
+     */
+    public static void scaleColumnsFirst(final float[] input, final float[] output, final float alpha, final int size) {
+        for (@Parallel int j = 0; j < size; j++) {
+            for (@Parallel int i = 0; i < size; i++) {
+                output[i * size + j] = alpha * input[i * size + j];
+            }
+        }
+    }
+
     public static void channelConvolution(int[] channel, int[] channelBlurred, final int numRows, final int numCols, float[] filter, final int filterWidth) {
         // Dealing with an even width filter is trickier
         assert (filterWidth % 2 == 1);
@@ -316,4 +328,12 @@ public class ComputeKernels {
             }
         }
     }
+
+    public static void prefixSum(float[] input, float[] output) {
+        float acc = 0.0f;
+        for (int i = 0; i < input.length; i++) {
+            acc += input[i];
+            output[i] = acc;
+        }
+    }
 }
\ No newline at end of file
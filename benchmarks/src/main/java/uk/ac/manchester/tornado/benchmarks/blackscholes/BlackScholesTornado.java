@@ -21,6 +21,7 @@ import static uk.ac.manchester.tornado.api.collections.math.TornadoMath.abs;
 import static uk.ac.manchester.tornado.benchmarks.ComputeKernels.blackscholes;
 
 import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.collections.random.Philox;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
 import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
 import uk.ac.manchester.tornado.benchmarks.ComputeKernels;
@@ -69,7 +70,7 @@ public class BlackScholesTornado extends BenchmarkDriver {
 
     @Override
     public boolean validate(TornadoDevice device) {
-        float[] randArrayTor,callTor,putTor,calSeq,putSeq;
+        float[] randArrayTor,callTor,putTor,randArraySeq,calSeq,putSeq;
         boolean val;
 
         val = true;
@@ -77,14 +78,15 @@ public class BlackScholesTornado extends BenchmarkDriver {
         randArrayTor = new float[size];
         callTor = new float[size];
         putTor = new float[size];
+        randArraySeq = new float[size];
         calSeq = new float[size];
         putSeq = new float[size];
 
-        for (int i = 0; i < size; i++) {
-            randArrayTor[i] = (float) Math.random();
-        }
-
+        // The random inputs are generated on the device, and the same values
+        // on the host
+        final long seed = System.nanoTime();
         graph = new TaskSchedule("benchmark");
+        graph.task("rng", Philox::fillUniform, randArrayTor, seed, 0L);
         graph.task("t0", ComputeKernels::blackscholes, randArrayTor, putTor, callTor);
 
         graph.warmup();
@@ -92,7 +94,8 @@ public class BlackScholesTornado extends BenchmarkDriver {
         graph.syncObjects(putTor, callTor);
         graph.clearProfiles();
 
-        blackscholes(randArrayTor, putSeq, calSeq);
+        Philox.fillUniformOnHost(randArraySeq, seed, 0L);
+        blackscholes(randArraySeq, putSeq, calSeq);
 
         for (int i = 0; i < size; i++) {
             if (abs(putTor[i] - putSeq[i]) > 0.01) {
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.benchmarks.coalescing;
+
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkRunner;
+
+/**
+ * Scales a matrix whose parallel loops are nested so that adjacent threads
+ * access elements of different rows. In the coalesced mode, the compiler
+ * interchanges the loops so that adjacent threads access adjacent elements.
+ * The uncoalesced mode keeps the order of the loops.
+ */
+public class Benchmark extends BenchmarkRunner {
+
+    private int size;
+    private boolean coalesced;
+
+    @Override
+    public void parseArgs(String[] args) {
+        coalesced = true;
+        if (args.length >= 2) {
+            iterations = Integer.parseInt(args[0]);
+            size = Integer.parseInt(args[1]);
+            if (args.length == 3) {
+                coalesced = !args[2].equalsIgnoreCase("uncoalesced");
+            }
+        } else if (args.length == 1) {
+            System.out.printf("Two arguments are needed: <iterations> <size> [coalesced|uncoalesced]");
+        } else {
+            iterations = 131;
+            size = 4096;
+        }
+    }
+
+    @Override
+    protected String getName() {
+        return "coalescing";
+    }
+
+    @Override
+    protected String getIdString() {
+        return String.format("%s-%d-%d-%s", getName(), iterations, size, coalesced ? "coalesced" : "uncoalesced");
+    }
+
+    @Override
+    protected String getConfigString() {
+        return String.format("size=%d, coalesced=%b", size, coalesced);
+    }
+
+    @Override
+    protected BenchmarkDriver getJavaDriver() {
+        return new CoalescingJava(size, iterations);
+    }
+
+    @Override
+    protected BenchmarkDriver getTornadoDriver() {
+        return new CoalescingTornado(size, iterations, coalesced);
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.benchmarks.coalescing;
+
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+import uk.ac.manchester.tornado.benchmarks.ComputeKernels;
+
+public class CoalescingJava extends BenchmarkDriver {
+
+    private int size;
+    private float[] input;
+    private float[] output;
+
+    public CoalescingJava(int size, int iterations) {
+        super(iterations);
+        this.size = size;
+    }
+
+    @Override
+    public void setUp() {
+        input = new float[size * size];
+        output = new float[size * size];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i % 1024;
+        }
+    }
+
+    @Override
+    public void tearDown() {
+        input = null;
+        output = null;
+        super.tearDown();
+    }
+
+    @Override
+    public boolean validate(TornadoDevice device) {
+        return true;
+    }
+
+    @Override
+    public void benchmarkMethod(TornadoDevice device) {
+        ComputeKernels.scaleColumnsFirst(input, output, 2.0f, size);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.benchmarks.coalescing;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+import uk.ac.manchester.tornado.benchmarks.ComputeKernels;
+
+public class CoalescingTornado extends BenchmarkDriver {
+
+    private int size;
+    private boolean coalesced;
+    private float[] input;
+    private float[] output;
+    private TaskSchedule s0;
+
+    public CoalescingTornado(int size, int iterations, boolean coalesced) {
+        super(iterations);
+        this.size = size;
+        this.coalesced = coalesced;
+    }
+
+    @Override
+    public void setUp() {
+        input = new float[size * size];
+        output = new float[size * size];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i % 1024;
+        }
+
+        TornadoRuntime.setProperty("s0.t0.loops.interchange", Boolean.toString(coalesced));
+        // @formatter:off
+        s0 = new TaskSchedule("s0")
+                .streamIn(input)
+                .task("t0", ComputeKernels::scaleColumnsFirst, input, output, 2.0f, size)
+                .streamOut(output);
+        // @formatter:on
+        s0.warmup();
+    }
+
+    @Override
+    public void tearDown() {
+        s0.dumpProfiles();
+        input = null;
+        output = null;
+        s0.getDevice().reset();
+        super.tearDown();
+    }
+
+    @Override
+    public boolean validate(TornadoDevice device) {
+        float[] result = new float[size * size];
+        // @formatter:off
+        TaskSchedule check = new TaskSchedule("s0")
+                .task("t0", ComputeKernels::scaleColumnsFirst, input, result, 2.0f, size)
+                .streamOut(result);
+        // @formatter:on
+        check.mapAllTo(device);
+        check.execute();
+
+        float[] seq = new float[size * size];
+        ComputeKernels.scaleColumnsFirst(input, seq, 2.0f, size);
+        for (int i = 0; i < seq.length; i++) {
+            if (Math.abs(result[i] - seq[i]) > 0.01f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void benchmarkMethod(TornadoDevice device) {
+        s0.mapAllTo(device);
+        s0.execute();
+    }
+}
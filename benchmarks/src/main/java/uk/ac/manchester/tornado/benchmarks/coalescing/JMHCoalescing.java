@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.benchmarks.coalescing;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.benchmarks.ComputeKernels;
+
+/**
+ * Throughput of the same kernel with the loops interchanged by the compiler
+ * (coalesced accesses) and in the order written by the user (uncoalesced
+ * accesses).
+ */
+public class JMHCoalescing {
+
+    @State(Scope.Thread)
+    public static class BenchmarkSetup {
+        private int size = Integer.parseInt(System.getProperty("x", "4096"));
+        private float[] input;
+        private float[] output;
+        private TaskSchedule coalesced;
+        private TaskSchedule uncoalesced;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            input = new float[size * size];
+            output = new float[size * size];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = i % 1024;
+            }
+
+            TornadoRuntime.setProperty("uncoalesced.t0.loops.interchange", "False");
+            // @formatter:off
+            coalesced = new TaskSchedule("coalesced")
+                    .streamIn(input)
+                    .task("t0", ComputeKernels::scaleColumnsFirst, input, output, 2.0f, size)
+                    .streamOut(output);
+            uncoalesced = new TaskSchedule("uncoalesced")
+                    .streamIn(input)
+                    .task("t0", ComputeKernels::scaleColumnsFirst, input, output, 2.0f, size)
+                    .streamOut(output);
+            // @formatter:on
+            coalesced.warmup();
+            uncoalesced.warmup();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 2, time = 30, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 30, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Fork(1)
+    public void coalescedTornado(BenchmarkSetup state, Blackhole blackhole) {
+        TaskSchedule t = state.coalesced;
+        t.execute();
+        blackhole.consume(t);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 2, time = 30, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 30, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Fork(1)
+    public void uncoalescedTornado(BenchmarkSetup state, Blackhole blackhole) {
+        TaskSchedule t = state.uncoalesced;
+        t.execute();
+        blackhole.consume(t);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder() //
+                .include(JMHCoalescing.class.getName() + ".*") //
+                .mode(Mode.Throughput) //
+                .timeUnit(TimeUnit.SECONDS) //
+                .warmupTime(TimeValue.seconds(30)) //
+                .warmupIterations(2) //
+                .measurementTime(TimeValue.seconds(30)) //
+                .measurementIterations(5) //
+                .forks(1) //
+                .build();
+        new Runner(opt).run();
+    }
+}
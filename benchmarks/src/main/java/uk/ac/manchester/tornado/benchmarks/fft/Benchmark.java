@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.benchmarks.fft;
+
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkRunner;
+
+/**
+ * Forward FFT of {@code size} complex doubles, with the input of the
+ * {@code dft} benchmark. The Java version is the ForkJoin host version of
+ * {@code FFT}. The Tornado version is validated against
+ * {@code ComputeKernels.computeDFT} up to {@link #MAX_DFT_SIZE} elements,
+ * and against the host version above.
+ */
+public class Benchmark extends BenchmarkRunner {
+
+    static final int MAX_DFT_SIZE = 16384;
+
+    private int size;
+
+    static double[] createInput(int size) {
+        final double[] data = new double[2 * size];
+        for (int i = 0; i < size; i++) {
+            data[2 * i] = 1 / (double) (i + 2);
+            data[2 * i + 1] = 1 / (double) (i + 2);
+        }
+        return data;
+    }
+
+    @Override
+    public void parseArgs(String[] args) {
+        if (args.length == 2) {
+            iterations = Integer.parseInt(args[0]);
+            size = Integer.parseInt(args[1]);
+        } else {
+            iterations = 131;
+            size = 1048576;
+        }
+    }
+
+    @Override
+    protected String getName() {
+        return "fft";
+    }
+
+    @Override
+    protected String getIdString() {
+        return String.format("%s-%d-%d", getName(), iterations, size);
+    }
+
+    @Override
+    protected String getConfigString() {
+        return String.format("size=%d", size);
+    }
+
+    @Override
+    protected BenchmarkDriver getJavaDriver() {
+        return new FFTJava(iterations, size);
+    }
+
+    @Override
+    protected BenchmarkDriver getTornadoDriver() {
+        return new FFTTornado(iterations, size);
+    }
+
+}
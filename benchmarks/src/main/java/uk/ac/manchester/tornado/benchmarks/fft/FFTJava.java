@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.benchmarks.fft;
+
+import static uk.ac.manchester.tornado.benchmarks.fft.Benchmark.createInput;
+
+import uk.ac.manchester.tornado.api.collections.algorithms.FFT;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+
+public class FFTJava extends BenchmarkDriver {
+
+    private final int size;
+
+    private double[] input;
+    private double[] data;
+
+    public FFTJava(int iterations, int size) {
+        super(iterations);
+        this.size = size;
+    }
+
+    @Override
+    public void setUp() {
+        input = createInput(size);
+        data = new double[2 * size];
+    }
+
+    @Override
+    public void tearDown() {
+        input = null;
+        data = null;
+        super.tearDown();
+    }
+
+    @Override
+    public void benchmarkMethod(TornadoDevice device) {
+        System.arraycopy(input, 0, data, 0, data.length);
+        FFT.fftOnHost(data, false);
+    }
+
+    @Override
+    public void barrier() {
+
+    }
+
+    @Override
+    public boolean validate(TornadoDevice device) {
+        return true;
+    }
+
+    public void printSummary() {
+        System.out.printf("id=java-forkjoin, elapsed=%f, per iteration=%f\n", getElapsed(), getElapsedPerIteration());
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.benchmarks.fft;
+
+import static uk.ac.manchester.tornado.api.collections.math.TornadoMath.abs;
+import static uk.ac.manchester.tornado.benchmarks.fft.Benchmark.MAX_DFT_SIZE;
+import static uk.ac.manchester.tornado.benchmarks.fft.Benchmark.createInput;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.collections.algorithms.FFT;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+import uk.ac.manchester.tornado.benchmarks.ComputeKernels;
+
+public class FFTTornado extends BenchmarkDriver {
+
+    private final int size;
+
+    private double[] input;
+    private double[] data;
+
+    private TaskSchedule graph;
+
+    public FFTTornado(int iterations, int size) {
+        super(iterations);
+        this.size = size;
+    }
+
+    @Override
+    public void setUp() {
+        input = createInput(size);
+        data = input.clone();
+
+        graph = FFT.createSchedule("benchmark", data, size, 1, false);
+        graph.warmup();
+    }
+
+    @Override
+    public void tearDown() {
+        graph.dumpProfiles();
+
+        input = null;
+        data = null;
+
+        graph.getDevice().reset();
+        super.tearDown();
+    }
+
+    @Override
+    public void benchmarkMethod(TornadoDevice device) {
+        System.arraycopy(input, 0, data, 0, data.length);
+        graph.mapAllTo(device);
+        graph.execute();
+    }
+
+    @Override
+    public boolean validate(TornadoDevice device) {
+        final double[] expected = new double[2 * size];
+        if (size <= MAX_DFT_SIZE) {
+            final double[] inReal = new double[size];
+            final double[] inImag = new double[size];
+            final double[] outReal = new double[size];
+            final double[] outImag = new double[size];
+            for (int i = 0; i < size; i++) {
+                inReal[i] = input[2 * i];
+                inImag[i] = input[2 * i + 1];
+            }
+            ComputeKernels.computeDFT(inReal, inImag, outReal, outImag);
+            for (int i = 0; i < size; i++) {
+                expected[2 * i] = outReal[i];
+                expected[2 * i + 1] = outImag[i];
+            }
+        } else {
+            System.arraycopy(input, 0, expected, 0, expected.length);
+            FFT.fftOnHost(expected, false);
+        }
+
+        benchmarkMethod(device);
+        graph.syncObjects(data);
+        graph.clearProfiles();
+
+        boolean validation = true;
+        for (int i = 0; i < expected.length; i++) {
+            if (abs(expected[i] - data[i]) > 0.01) {
+                validation = false;
+                break;
+            }
+        }
+        System.out.print("Is correct?: " + validation + "\n");
+        return validation;
+    }
+}
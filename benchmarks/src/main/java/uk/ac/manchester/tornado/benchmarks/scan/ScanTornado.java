@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.benchmarks.scan;
+
+import java.util.Arrays;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.collections.algorithms.Scan;
+import uk.ac.manchester.tornado.api.collections.algorithms.ScanOperator;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+
+public class ScanTornado extends BenchmarkDriver {
+
+    private final int numElements;
+
+    private float[] input;
+    private float[] output;
+
+    private TaskSchedule graph;
+
+    public ScanTornado(int iterations, int numElements) {
+        super(iterations);
+        this.numElements = numElements;
+    }
+
+    @Override
+    public void setUp() {
+        input = new float[numElements];
+        output = new float[numElements];
+        for (int i = 0; i < numElements; i++) {
+            input[i] = (i % 100) * 0.01f;
+        }
+
+        graph = Scan.createSchedule("benchmark", input, output, ScanOperator.ADD, true);
+        graph.warmup();
+    }
+
+    @Override
+    public void tearDown() {
+        graph.dumpProfiles();
+
+        input = null;
+        output = null;
+
+        graph.getDevice().reset();
+        super.tearDown();
+    }
+
+    @Override
+    public void benchmarkMethod(TornadoDevice device) {
+        graph.mapAllTo(device);
+        graph.execute();
+    }
+
+    @Override
+    public boolean validate(TornadoDevice device) {
+        final float[] result = new float[numElements];
+
+        benchmarkMethod(device);
+        graph.syncObjects(output);
+        graph.clearProfiles();
+
+        // The host version scans the same tiles, so the sums are identical
+        Scan.inclusiveOnHost(input, result, ScanOperator.ADD);
+        return Arrays.equals(result, output);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.benchmarks.sort;
+
+import java.util.Arrays;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.collections.algorithms.RadixSort;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkUtils;
+
+public class SortTornado extends BenchmarkDriver {
+
+    private final int numElements;
+
+    private int[] input;
+    private int[] keys;
+
+    private TaskSchedule graph;
+
+    public SortTornado(int iterations, int numElements) {
+        super(iterations);
+        this.numElements = numElements;
+    }
+
+    @Override
+    public void setUp() {
+        input = BenchmarkUtils.createKeys(numElements);
+        keys = input.clone();
+
+        graph = RadixSort.createSchedule("benchmark", keys);
+        graph.warmup();
+    }
+
+    @Override
+    public void tearDown() {
+        graph.dumpProfiles();
+
+        input = null;
+        keys = null;
+
+        graph.getDevice().reset();
+        super.tearDown();
+    }
+
+    @Override
+    public void benchmarkMethod(TornadoDevice device) {
+        System.arraycopy(input, 0, keys, 0, numElements);
+        graph.mapAllTo(device);
+        graph.execute();
+    }
+
+    @Override
+    public boolean validate(TornadoDevice device) {
+        final int[] result = input.clone();
+
+        benchmarkMethod(device);
+        graph.syncObjects(keys);
+        graph.clearProfiles();
+
+        Arrays.sort(result);
+        return Arrays.equals(result, keys);
+    }
+}
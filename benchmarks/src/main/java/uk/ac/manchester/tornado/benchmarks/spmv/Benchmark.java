@@ -19,14 +19,22 @@ package uk.ac.manchester.tornado.benchmarks.spmv;
 
 import java.util.Random;
 
+import uk.ac.manchester.tornado.api.TaskSchedule;
 import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
 import uk.ac.manchester.tornado.benchmarks.BenchmarkRunner;
+import uk.ac.manchester.tornado.benchmarks.LinearAlgebraArrays;
+import uk.ac.manchester.tornado.matrix.SparseFormat;
+import uk.ac.manchester.tornado.matrix.SparseMatrixMath;
 import uk.ac.manchester.tornado.matrix.SparseMatrixUtils;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.COOMatrix;
 import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.CSRMatrix;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.ELLMatrix;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.SELLMatrix;
 
 public class Benchmark extends BenchmarkRunner {
 
     private CSRMatrix<float[]> matrix;
+    private SparseFormat format;
     private String path;
 
     public static void initData(final float[] v) {
@@ -37,6 +45,47 @@ public class Benchmark extends BenchmarkRunner {
         }
     }
 
+    /**
+     * Format of the matrix on the device, set with
+     * {@code -Dspmv.format=csr|ell|sell|coo|auto}. With {@code auto}, the
+     * format is selected from the row lengths by {@link SparseFormat#select}.
+     */
+    public static SparseFormat getFormat(CSRMatrix<float[]> matrix) {
+        final String name = System.getProperty("spmv.format", "csr");
+        return "auto".equalsIgnoreCase(name) ? SparseFormat.select(matrix) : SparseFormat.fromString(name);
+    }
+
+    /**
+     * Creates the task-schedule of the benchmark, which copies the matrix in
+     * the given format and the vectors to the device on every execution.
+     */
+    public static TaskSchedule createSchedule(CSRMatrix<float[]> matrix, SparseFormat format, float[] v, float[] y) {
+        final TaskSchedule schedule = new TaskSchedule("benchmark");
+        switch (format) {
+            case ELL:
+                final ELLMatrix<float[]> ell = SparseMatrixUtils.toELL(matrix);
+                schedule.streamIn(ell.vals, ell.cols, v, y);
+                SparseMatrixMath.addTasks(schedule, "spmv", ell, v, y);
+                break;
+            case SELL:
+                final SELLMatrix<float[]> sell = SparseMatrixUtils.toSELL(matrix, SparseFormat.DEFAULT_SLICE_HEIGHT, SparseFormat.DEFAULT_SIGMA);
+                schedule.streamIn(sell.vals, sell.cols, sell.sliceOffsets, sell.perm, v, y);
+                SparseMatrixMath.addTasks(schedule, "spmv", sell, v, y);
+                break;
+            case COO:
+                final COOMatrix<float[]> coo = SparseMatrixUtils.toCOO(matrix);
+                final int numChunks = SparseMatrixMath.numChunks(coo.vals.length);
+                schedule.streamIn(coo.vals, coo.cols, coo.rows, v, y);
+                SparseMatrixMath.addTasks(schedule, "spmv", coo, v, y, new int[2 * numChunks], new float[2 * numChunks]);
+                break;
+            default:
+                schedule.streamIn(matrix.vals, matrix.cols, matrix.rows, v, y);
+                schedule.task("spmv", LinearAlgebraArrays::spmv, matrix.vals, matrix.cols, matrix.rows, v, matrix.size, y);
+                break;
+        }
+        return schedule.streamOut(y);
+    }
+
     @Override
     public void parseArgs(String[] args) {
         if (args.length == 2) {
@@ -49,6 +98,7 @@ public class Benchmark extends BenchmarkRunner {
             matrix = SparseMatrixUtils.loadMatrixF(Benchmark.class.getResourceAsStream(path));
             iterations = Integer.parseInt(System.getProperty("spmv.iterations", "1400"));
         }
+        format = getFormat(matrix);
     }
 
     @Override
@@ -58,12 +108,12 @@ public class Benchmark extends BenchmarkRunner {
 
     @Override
     protected String getIdString() {
-        return String.format("%s-%d-%d-%s", getName(), iterations, matrix.size, path);
+        return String.format("%s-%d-%d-%s-%s", getName(), iterations, matrix.size, path, format.name().toLowerCase());
     }
 
     @Override
     protected String getConfigString() {
-        return String.format("matrix=%s", path);
+        return String.format("matrix=%s, format=%s", path, format.name().toLowerCase());
     }
 
     @Override
@@ -73,7 +123,7 @@ public class Benchmark extends BenchmarkRunner {
 
     @Override
     protected BenchmarkDriver getTornadoDriver() {
-        return new SpmvTornado(iterations, matrix);
+        return new SpmvTornado(iterations, matrix, format);
     }
 
 }
@@ -35,12 +35,13 @@ import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 import org.openjdk.jmh.runner.options.TimeValue;
 import uk.ac.manchester.tornado.api.TaskSchedule;
-import uk.ac.manchester.tornado.benchmarks.LinearAlgebraArrays;
 import uk.ac.manchester.tornado.matrix.SparseMatrixUtils;
 
 import java.util.concurrent.TimeUnit;
 
 import static uk.ac.manchester.tornado.benchmarks.LinearAlgebraArrays.spmv;
+import static uk.ac.manchester.tornado.benchmarks.spmv.Benchmark.createSchedule;
+import static uk.ac.manchester.tornado.benchmarks.spmv.Benchmark.getFormat;
 import static uk.ac.manchester.tornado.benchmarks.spmv.Benchmark.initData;
 
 public class JMHSpmv {
@@ -59,10 +60,7 @@ public class JMHSpmv {
             v = new float[matrix.size];
             y = new float[matrix.size];
             initData(v);
-            ts = new TaskSchedule("benchmark") //
-                    .streamIn(matrix.vals, matrix.cols, matrix.rows, v, y) //
-                    .task("spmv", LinearAlgebraArrays::spmv, matrix.vals, matrix.cols, matrix.rows, v, matrix.size, y) //
-                    .streamOut(y);
+            ts = createSchedule(matrix, getFormat(matrix), v, y);
             ts.warmup();
         }
     }
@@ -19,25 +19,28 @@ package uk.ac.manchester.tornado.benchmarks.spmv;
 
 import static uk.ac.manchester.tornado.api.collections.math.TornadoMath.findULPDistance;
 import static uk.ac.manchester.tornado.benchmarks.LinearAlgebraArrays.spmv;
+import static uk.ac.manchester.tornado.benchmarks.spmv.Benchmark.createSchedule;
 import static uk.ac.manchester.tornado.benchmarks.spmv.Benchmark.initData;
 
 import uk.ac.manchester.tornado.api.TaskSchedule;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
 import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
-import uk.ac.manchester.tornado.benchmarks.LinearAlgebraArrays;
+import uk.ac.manchester.tornado.matrix.SparseFormat;
 import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.CSRMatrix;
 
 public class SpmvTornado extends BenchmarkDriver {
 
     private final CSRMatrix<float[]> matrix;
+    private final SparseFormat format;
 
     private float[] v,y;
 
     private TaskSchedule graph;
 
-    public SpmvTornado(int iterations, CSRMatrix<float[]> matrix) {
+    public SpmvTornado(int iterations, CSRMatrix<float[]> matrix, SparseFormat format) {
         super(iterations);
         this.matrix = matrix;
+        this.format = format;
     }
 
     @Override
@@ -45,10 +48,7 @@ public class SpmvTornado extends BenchmarkDriver {
         v = new float[matrix.size];
         y = new float[matrix.size];
         initData(v);
-        graph = new TaskSchedule("benchmark") //
-                .streamIn(matrix.vals, matrix.cols, matrix.rows, v, y) //
-                .task("spmv", LinearAlgebraArrays::spmv, matrix.vals, matrix.cols, matrix.rows, v, matrix.size, y) //
-                .streamOut(y);
+        graph = createSchedule(matrix, format, v, y);
         graph.warmup();
     }
 
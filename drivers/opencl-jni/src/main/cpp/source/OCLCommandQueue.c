@@ -33,6 +33,7 @@
 #endif
 
 #include <stdio.h>
+#include <stdlib.h>
 #include "macros.h"
 #include "utils.h"
 
@@ -264,3 +265,112 @@ JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQ
 
     return (jlong) event;
 }
+
+/*
+ * Opcodes of the recorded command graphs, they must match the ones in
+ * OCLCommandGraph.java
+ */
+#define GRAPH_OP_WRITE   1
+#define GRAPH_OP_READ    2
+#define GRAPH_OP_ARG     3
+#define GRAPH_OP_NDRANGE 4
+#define GRAPH_OP_TASK    5
+
+#define GRAPH_FLAG_OFFSET 1
+#define GRAPH_FLAG_LOCAL  2
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    clEnqueueCommandGraph
+ * Signature: (J[JI[Ljava/lang/Object;[B)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueCommandGraph
+(JNIEnv *env, jclass clazz, jlong queue_id, jlongArray commandsArray, jint length, jobjectArray arrays, jbyteArray blobsArray) {
+    OPENCL_PROLOGUE;
+
+    jlong *commands = (*env)->GetLongArrayElements(env, commandsArray, NULL);
+    jbyte *blobs = (*env)->GetByteArrayElements(env, blobsArray, NULL);
+
+    cl_command_queue queue = (cl_command_queue) queue_id;
+    cl_event lastEvent = NULL;
+    error_id = CL_SUCCESS;
+
+    int pc = 0;
+    while (pc < length && error_id == CL_SUCCESS) {
+        cl_event event = NULL;
+        jlong op = commands[pc];
+        if (op == GRAPH_OP_WRITE || op == GRAPH_OP_READ) {
+            cl_bool blocking = commands[pc + 1] ? CL_TRUE : CL_FALSE;
+            cl_mem buffer = (cl_mem) commands[pc + 2];
+            size_t offset = (size_t) commands[pc + 3];
+            size_t bytes = (size_t) commands[pc + 4];
+            jlong hostOffset = commands[pc + 5];
+            jobject array = (*env)->GetObjectArrayElement(env, arrays, (jsize) commands[pc + 6]);
+            jbyte *host = (*env)->GetPrimitiveArrayCritical(env, (jarray) array, NULL);
+            if (op == GRAPH_OP_WRITE) {
+                OPENCL_SOFT_ERROR("clEnqueueWriteBuffer",
+                        clEnqueueWriteBuffer(queue, buffer, blocking, offset, bytes, &host[hostOffset], 0, NULL, &event), 0);
+                (*env)->ReleasePrimitiveArrayCritical(env, (jarray) array, host, JNI_ABORT);
+            } else {
+                OPENCL_SOFT_ERROR("clEnqueueReadBuffer",
+                        clEnqueueReadBuffer(queue, buffer, blocking, offset, bytes, &host[hostOffset], 0, NULL, &event), 0);
+                (*env)->ReleasePrimitiveArrayCritical(env, (jarray) array, host, 0);
+            }
+            (*env)->DeleteLocalRef(env, array);
+            pc += 7;
+        } else if (op == GRAPH_OP_ARG) {
+            cl_kernel kernel = (cl_kernel) commands[pc + 1];
+            jlong blobOffset = commands[pc + 4];
+            OPENCL_SOFT_ERROR("clSetKernelArg",
+                    clSetKernelArg(kernel, (cl_uint) commands[pc + 2], (size_t) commands[pc + 3], (blobOffset == -1) ? NULL : &blobs[blobOffset]), 0);
+            pc += 5;
+        } else if (op == GRAPH_OP_NDRANGE) {
+            cl_kernel kernel = (cl_kernel) commands[pc + 1];
+            cl_uint dim = (cl_uint) commands[pc + 2];
+            jlong flags = commands[pc + 3];
+            size_t workOffset[3], global[3], local[3];
+            for (int i = 0; i < 3; i++) {
+                workOffset[i] = (size_t) commands[pc + 4 + i];
+                global[i] = (size_t) commands[pc + 7 + i];
+                local[i] = (size_t) commands[pc + 10 + i];
+            }
+            OPENCL_SOFT_ERROR("clEnqueueNDRangeKernel",
+                    clEnqueueNDRangeKernel(queue, kernel, dim, (flags & GRAPH_FLAG_OFFSET) ? workOffset : NULL, global, (flags & GRAPH_FLAG_LOCAL) ? local : NULL, 0, NULL, &event), 0);
+            pc += 13;
+        } else if (op == GRAPH_OP_TASK) {
+            OPENCL_SOFT_ERROR("clEnqueueTask",
+                    clEnqueueTask(queue, (cl_kernel) commands[pc + 1], 0, NULL, &event), 0);
+            pc += 2;
+        } else {
+            printf("[ERROR] clEnqueueCommandGraph: invalid command %ld\n", (long) op);
+            error_id = CL_INVALID_VALUE;
+            break;
+        }
+
+        if (event != NULL) {
+            if (lastEvent != NULL) {
+                clReleaseEvent(lastEvent);
+            }
+            lastEvent = event;
+        }
+    }
+
+    (*env)->ReleaseByteArrayElements(env, blobsArray, blobs, JNI_ABORT);
+    (*env)->ReleaseLongArrayElements(env, commandsArray, commands, JNI_ABORT);
+
+    if (error_id != CL_SUCCESS) {
+        // The commands enqueued before the failure are left to complete, the
+        // caller does not get an event for them
+        if (lastEvent != NULL) {
+            clReleaseEvent(lastEvent);
+        }
+        cls = (*env)->FindClass(env, OCLEXCEPTION);
+        if (cls != NULL) {
+            (*env)->ThrowNew(env, cls, getOpenCLError("clEnqueueCommandGraph", error_id));
+            (*env)->DeleteLocalRef(env, cls);
+        }
+        return (jlong) -1;
+    }
+
+    return (jlong) lastEvent;
+}
@@ -265,6 +265,14 @@ extern "C" {
     JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueBarrierWithWaitList
     (JNIEnv *, jclass, jlong, jlongArray);
 
+    /*
+     * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+     * Method:    clEnqueueCommandGraph
+     * Signature: (J[JI[Ljava/lang/Object;[B)J
+     */
+    JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueCommandGraph
+    (JNIEnv *, jclass, jlong, jlongArray, jint, jobjectArray, jbyteArray);
+
     /*
      * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
      * Method:    clFlush
@@ -113,3 +113,98 @@ JNIEXPORT void JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLEvent_clR
     OPENCL_SOFT_ERROR("clReleaseEvent",
             clReleaseEvent((const cl_event) event),);
 }
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLEvent
+ * Method:    clGetEventsProfilingInfo
+ * Signature: ([JI[J)V
+ *
+ * Waits once for all the events and stores the start and end timestamps of
+ * event i in times[2 * i] and times[2 * i + 1].
+ */
+JNIEXPORT void JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLEvent_clGetEventsProfilingInfo
+(JNIEnv *env, jclass clazz, jlongArray eventsArray, jint count, jlongArray timesArray) {
+    OPENCL_PROLOGUE;
+
+    jlong *events = (*env)->GetLongArrayElements(env, eventsArray, NULL);
+    jlong *times = (*env)->GetLongArrayElements(env, timesArray, NULL);
+
+    OPENCL_SOFT_ERROR("clWaitForEvents",
+            clWaitForEvents((cl_uint) count, (const cl_event *) events),);
+
+    for (int i = 0; i < count; i++) {
+        cl_ulong start = 0;
+        cl_ulong end = 0;
+        OPENCL_SOFT_ERROR("clGetEventProfilingInfo",
+                clGetEventProfilingInfo((cl_event) events[i], CL_PROFILING_COMMAND_START, sizeof(cl_ulong), &start, NULL),);
+        OPENCL_SOFT_ERROR("clGetEventProfilingInfo",
+                clGetEventProfilingInfo((cl_event) events[i], CL_PROFILING_COMMAND_END, sizeof(cl_ulong), &end, NULL),);
+        times[2 * i] = (jlong) start;
+        times[2 * i + 1] = (jlong) end;
+    }
+
+    (*env)->ReleaseLongArrayElements(env, eventsArray, events, JNI_ABORT);
+    (*env)->ReleaseLongArrayElements(env, timesArray, times, 0);
+}
+
+static JavaVM *callbackVM = NULL;
+
+/*
+ * Invoked by the OpenCL runtime, from one of its own threads, once the event
+ * reaches CL_COMPLETE or fails. It attaches the thread to the JVM and calls
+ * IntConsumer.accept with the execution status of the event.
+ */
+static void CL_CALLBACK eventCallback(cl_event event, cl_int status, void *userData) {
+    JNIEnv *env;
+    jobject callback = (jobject) userData;
+
+    if ((*callbackVM)->AttachCurrentThreadAsDaemon(callbackVM, (void **) &env, NULL) != JNI_OK) {
+        printf("[ERROR] clSetEventCallback: could not attach the callback thread to the JVM\n");
+        clReleaseEvent(event);
+        return;
+    }
+
+    jclass klass = (*env)->GetObjectClass(env, callback);
+    jmethodID accept = (*env)->GetMethodID(env, klass, "accept", "(I)V");
+    if (accept != NULL) {
+        (*env)->CallVoidMethod(env, callback, accept, (jint) status);
+    }
+    if ((*env)->ExceptionCheck(env)) {
+        (*env)->ExceptionDescribe(env);
+        (*env)->ExceptionClear(env);
+    }
+    (*env)->DeleteLocalRef(env, klass);
+    (*env)->DeleteGlobalRef(env, callback);
+    clReleaseEvent(event);
+}
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLEvent
+ * Method:    clSetEventCallback
+ * Signature: (JLjava/util/function/IntConsumer;)V
+ *
+ * The event is retained until the callback runs, so the caller may release it
+ * at any time.
+ */
+JNIEXPORT void JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLEvent_clSetEventCallback
+(JNIEnv *env, jclass clazz, jlong event, jobject callback) {
+    OPENCL_PROLOGUE;
+
+    if (callbackVM == NULL) {
+        (*env)->GetJavaVM(env, &callbackVM);
+    }
+
+    OPENCL_ERROR("clRetainEvent", clRetainEvent((cl_event) event),);
+    jobject globalCallback = (*env)->NewGlobalRef(env, callback);
+
+    error_id = clSetEventCallback((cl_event) event, CL_COMPLETE, eventCallback, (void *) globalCallback);
+    if (error_id != CL_SUCCESS) {
+        clReleaseEvent((cl_event) event);
+        (*env)->DeleteGlobalRef(env, globalCallback);
+        cls = (*env)->FindClass(env, OCLEXCEPTION);
+        if (cls != NULL) {
+            (*env)->ThrowNew(env, cls, getOpenCLError("clSetEventCallback", error_id));
+            (*env)->DeleteLocalRef(env, cls);
+        }
+    }
+}
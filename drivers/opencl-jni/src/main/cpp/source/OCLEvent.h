@@ -63,6 +63,22 @@ extern "C" {
     JNIEXPORT void JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLEvent_clReleaseEvent
     (JNIEnv *, jclass, jlong);
 
+    /*
+     * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLEvent
+     * Method:    clGetEventsProfilingInfo
+     * Signature: ([JI[J)V
+     */
+    JNIEXPORT void JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLEvent_clGetEventsProfilingInfo
+    (JNIEnv *, jclass, jlongArray, jint, jlongArray);
+
+    /*
+     * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLEvent
+     * Method:    clSetEventCallback
+     * Signature: (JLjava/util/function/IntConsumer;)V
+     */
+    JNIEXPORT void JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLEvent_clSetEventCallback
+    (JNIEnv *, jclass, jlong, jobject);
+
 #ifdef __cplusplus
 }
 #endif
@@ -0,0 +1,210 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Juan Fumero
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.manchester.tornado.runtime.common.TornadoCommandGraph;
+
+/**
+ * Commands recorded from an {@link OCLCommandQueue}, encoded so they can be
+ * replayed by a single native call (see
+ * {@link OCLCommandQueue#enqueueCommandGraph(OCLCommandGraph)}).
+ *
+ * <p>
+ * Each command is stored in a flat long[] as follows:
+ * <ul>
+ * <li>WRITE/READ: {@code op, blocking, buffer, offset, bytes, hostOffset,
+ * arrayIndex}</li>
+ * <li>ARG: {@code op, kernel, index, size, blobOffset} (blobOffset is -1 for a
+ * null value)</li>
+ * <li>NDRANGE: {@code op, kernel, dim, flags, offset[3], global[3],
+ * local[3]}</li>
+ * <li>TASK: {@code op, kernel}</li>
+ * </ul>
+ * Host arrays are referenced, not copied, so a replay always moves the current
+ * contents of the arrays.
+ */
+public class OCLCommandGraph implements TornadoCommandGraph {
+
+    // These values must match the ones in OCLCommandQueue.c
+    static final int OP_WRITE = 1;
+    static final int OP_READ = 2;
+    static final int OP_ARG = 3;
+    static final int OP_NDRANGE = 4;
+    static final int OP_TASK = 5;
+
+    private static final int FLAG_OFFSET = 1;
+    private static final int FLAG_LOCAL = 2;
+
+    private long[] commands;
+    private int position;
+    private int numCommands;
+    private final List<Object> arrays;
+    private byte[] blobs;
+    private int blobPosition;
+    private boolean supported;
+    private Object[] arrayTable;
+
+    public OCLCommandGraph() {
+        commands = new long[256];
+        blobs = new byte[256];
+        arrays = new ArrayList<>();
+        supported = true;
+    }
+
+    private void ensureCapacity(int words) {
+        if (position + words > commands.length) {
+            commands = Arrays.copyOf(commands, Math.max(commands.length * 2, position + words));
+        }
+    }
+
+    private int addArray(Object array) {
+        for (int i = 0; i < arrays.size(); i++) {
+            if (arrays.get(i) == array) {
+                return i;
+            }
+        }
+        arrays.add(array);
+        return arrays.size() - 1;
+    }
+
+    private int addBlob(byte[] value, long size) {
+        if (value == null) {
+            return -1;
+        }
+        final int length = (int) size;
+        if (blobPosition + length > blobs.length) {
+            blobs = Arrays.copyOf(blobs, Math.max(blobs.length * 2, blobPosition + length));
+        }
+        final int offset = blobPosition;
+        System.arraycopy(value, 0, blobs, offset, length);
+        blobPosition += length;
+        return offset;
+    }
+
+    private void put(long value) {
+        commands[position++] = value;
+    }
+
+    void recordTransfer(int op, long devicePtr, boolean blocking, long offset, long bytes, Object array, long hostOffset) {
+        ensureCapacity(7);
+        put(op);
+        put(blocking ? 1 : 0);
+        put(devicePtr);
+        put(offset);
+        put(bytes);
+        put(hostOffset);
+        put(addArray(array));
+        numCommands++;
+    }
+
+    void recordKernelArg(long kernelId, int index, long size, byte[] value) {
+        ensureCapacity(5);
+        put(OP_ARG);
+        put(kernelId);
+        put(index);
+        put(size);
+        put(addBlob(value, size));
+        numCommands++;
+    }
+
+    private void putDims(long[] values, int dim) {
+        for (int i = 0; i < 3; i++) {
+            put((values != null && i < dim) ? values[i] : 0);
+        }
+    }
+
+    void recordNDRangeKernel(long kernelId, int dim, long[] globalWorkOffset, long[] globalWorkSize, long[] localWorkSize) {
+        if (dim > 3) {
+            supported = false;
+            return;
+        }
+        ensureCapacity(13);
+        put(OP_NDRANGE);
+        put(kernelId);
+        put(dim);
+        put(((globalWorkOffset != null) ? FLAG_OFFSET : 0) | ((localWorkSize != null) ? FLAG_LOCAL : 0));
+        putDims(globalWorkOffset, dim);
+        putDims(globalWorkSize, dim);
+        putDims(localWorkSize, dim);
+        numCommands++;
+    }
+
+    void recordTask(long kernelId) {
+        ensureCapacity(2);
+        put(OP_TASK);
+        put(kernelId);
+        numCommands++;
+    }
+
+    /**
+     * Marks the graph as not replayable, e.g., a command that cannot be encoded
+     * has been enqueued while capturing.
+     */
+    void markUnsupported() {
+        supported = false;
+    }
+
+    boolean isSupported() {
+        return supported;
+    }
+
+    long[] getCommands() {
+        return commands;
+    }
+
+    int getCommandsLength() {
+        return position;
+    }
+
+    /**
+     * Called once the capture is finished, no more commands can be recorded.
+     */
+    void seal() {
+        arrayTable = arrays.toArray();
+    }
+
+    Object[] getArrays() {
+        return arrayTable;
+    }
+
+    byte[] getBlobs() {
+        return blobs;
+    }
+
+    @Override
+    public int getNumCommands() {
+        return numCommands;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("command graph: %d commands, %d host arrays, %d bytes of kernel arguments", numCommands, arrays.size(), blobPosition);
+    }
+}
@@ -54,6 +54,15 @@ public class OCLCommandQueue extends TornadoLogger {
     private final ByteBuffer buffer;
     private final long properties;
     private final int openclVersion;
+    private OCLCommandGraph capture;
+    private volatile int lastEvent;
+
+    /*
+     * Wait list of the next command of this queue, built by
+     * OCLEventsWrapper.serialiseEvents. Each queue has its own list, since the
+     * commands of different queues are enqueued from different threads.
+     */
+    private final long[] waitEventsBuffer;
 
     public OCLCommandQueue(long id, long properties, int version) {
         this.id = id;
@@ -61,6 +70,24 @@ public class OCLCommandQueue extends TornadoLogger {
         this.buffer = ByteBuffer.allocate(128);
         this.buffer.order(OpenCL.BYTE_ORDER);
         this.openclVersion = version;
+        this.lastEvent = -1;
+        this.waitEventsBuffer = new long[MAX_WAIT_EVENTS];
+    }
+
+    /**
+     * @return local id of the last event registered for a command of this queue,
+     *         or -1 if none.
+     */
+    int getLastEvent() {
+        return lastEvent;
+    }
+
+    void setLastEvent(int localEventId) {
+        this.lastEvent = localEventId;
+    }
+
+    long[] getWaitEventsBuffer() {
+        return waitEventsBuffer;
     }
 
     native static void clReleaseCommandQueue(long queueId) throws OCLException;
@@ -138,6 +165,25 @@ public class OCLCommandQueue extends TornadoLogger {
 
     native static void clFlush(long queueId) throws OCLException;
 
+    /**
+     * Enqueues all the commands of a recorded command graph.
+     *
+     * @param queueId
+     * @param commands
+     *            encoded commands, see {@link OCLCommandGraph}
+     * @param length
+     *            number of valid entries in commands
+     * @param arrays
+     *            host arrays referenced by the copies
+     * @param blobs
+     *            kernel argument values
+     *
+     * @return eventId of the last command
+     *
+     * @throws OCLException
+     */
+    native static long clEnqueueCommandGraph(long queueId, long[] commands, int length, Object[] arrays, byte[] blobs) throws OCLException;
+
     native static void clFinish(long queueId) throws OCLException;
 
     @Deprecated
@@ -211,7 +257,57 @@ public class OCLCommandQueue extends TornadoLogger {
         return id;
     }
 
+    /**
+     * Starts recording every copy and kernel launch enqueued on this queue.
+     */
+    public void startCapture() {
+        capture = new OCLCommandGraph();
+    }
+
+    /**
+     * Stops recording.
+     *
+     * @return the recorded graph, or null if it cannot be replayed.
+     */
+    public OCLCommandGraph stopCapture() {
+        final OCLCommandGraph graph = capture;
+        capture = null;
+        if (graph == null || !graph.isSupported() || graph.getNumCommands() == 0) {
+            return null;
+        }
+        graph.seal();
+        return graph;
+    }
+
+    boolean isCapturing() {
+        return capture != null;
+    }
+
+    void recordKernelArg(long kernelId, int index, long size, byte[] value) {
+        if (capture != null) {
+            capture.recordKernelArg(kernelId, index, size, value);
+        }
+    }
+
+    void markCaptureUnsupported() {
+        if (capture != null) {
+            capture.markUnsupported();
+        }
+    }
+
+    public long enqueueCommandGraph(OCLCommandGraph graph) {
+        try {
+            return clEnqueueCommandGraph(id, graph.getCommands(), graph.getCommandsLength(), graph.getArrays(), graph.getBlobs());
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return -1;
+    }
+
     public long enqueueTask(OCLKernel kernel, long[] waitEvents) {
+        if (capture != null) {
+            capture.recordTask(kernel.getId());
+        }
         try {
             return clEnqueueTask(id, kernel.getId(), waitEvents);
         } catch (OCLException e) {
@@ -225,6 +321,9 @@ public class OCLCommandQueue extends TornadoLogger {
     }
 
     public long enqueueNDRangeKernel(OCLKernel kernel, int dim, long[] globalWorkOffset, long[] globalWorkSize, long[] localWorkSize, long[] waitEvents) {
+        if (capture != null) {
+            capture.recordNDRangeKernel(kernel.getId(), dim, (openclVersion > 100) ? globalWorkOffset : null, globalWorkSize, localWorkSize);
+        }
         try {
             return clEnqueueNDRangeKernel(id, kernel.getId(), dim, (openclVersion > 100) ? globalWorkOffset : null, globalWorkSize, localWorkSize, waitEvents);
         } catch (OCLException e) {
@@ -239,6 +338,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, byte[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_WRITE, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return writeArrayToDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -249,6 +351,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, char[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_WRITE, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return writeArrayToDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -259,6 +364,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, int[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_WRITE, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return writeArrayToDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -269,6 +377,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, short[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_WRITE, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return writeArrayToDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -279,6 +390,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, long[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_WRITE, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return writeArrayToDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -289,6 +403,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, float[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_WRITE, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return writeArrayToDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -299,6 +416,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, double[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_WRITE, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return writeArrayToDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -309,6 +429,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, byte[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_READ, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return readArrayFromDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -319,6 +442,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, char[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_READ, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return readArrayFromDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -329,6 +455,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, int[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_READ, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return readArrayFromDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -339,6 +468,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, short[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "array is null");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_READ, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return readArrayFromDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -349,6 +481,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, long[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "array is null");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_READ, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return readArrayFromDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -359,6 +494,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, float[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "array is null");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_READ, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return readArrayFromDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -369,6 +507,9 @@ public class OCLCommandQueue extends TornadoLogger {
 
     public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, double[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "array is null");
+        if (capture != null) {
+            capture.recordTransfer(OCLCommandGraph.OP_READ, devicePtr, blocking, offset, bytes, array, hostOffset);
+        }
         try {
             return readArrayFromDevice(id, array, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
         } catch (OCLException e) {
@@ -36,6 +36,7 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.ENABLE_PROFILING;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import uk.ac.manchester.tornado.api.exceptions.TornadoInternalError;
@@ -43,6 +44,7 @@ import uk.ac.manchester.tornado.drivers.opencl.exceptions.OCLException;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 
 public class OCLContext extends TornadoLogger {
 
@@ -75,6 +77,7 @@ public class OCLContext extends TornadoLogger {
     private final List<OCLDevice> devices;
     private final List<OCLDeviceContext> deviceContexts;
     private final OCLCommandQueue[] queues;
+    private final List<OCLCommandQueue> extraQueues;
     private final List<OCLProgram> programs;
     private final long[] allocatedRegions;
     private int allocatedRegionCount;
@@ -88,7 +91,9 @@ public class OCLContext extends TornadoLogger {
         this.devices = devices;
         this.deviceContexts = new ArrayList<>(devices.size());
         this.queues = new OCLCommandQueue[devices.size()];
-        this.programs = new ArrayList<>();
+        this.extraQueues = new ArrayList<>();
+        // Programs are built concurrently by the compiler threads of the TornadoVM
+        this.programs = Collections.synchronizedList(new ArrayList<>());
         this.allocatedRegions = new long[MAX_ALLOCATED_REGIONS];
         this.allocatedRegionCount = 0;
         Arrays.fill(this.allocatedRegions, -1);
@@ -141,24 +146,26 @@ public class OCLContext extends TornadoLogger {
         return queues;
     }
 
-    public void createCommandQueue(int index, long properties) {
-        OCLDevice device = devices.get(index);
-        long queueId;
-        try {
-            queueId = clCreateCommandQueue(id, device.getId(), properties);
+    private OCLCommandQueue newCommandQueue(OCLDevice device, long properties) throws OCLException {
+        final long queueId = clCreateCommandQueue(id, device.getId(), properties);
+
+        final int platformVersion = Integer.parseInt(platform.getVersion().split(" ")[1].replace(".", "")) * 10;
+        final int deviceVersion = Integer.parseInt(device.getVersion().split(" ")[1].replace(".", "")) * 10;
+        info("platform: version=%s (%s) on %s", platformVersion, platform.getVersion(), device.getDeviceName());
+        info("device  : version=%s (%s) on %s", deviceVersion, device.getVersion(), device.getDeviceName());
 
-            final int platformVersion = Integer.parseInt(platform.getVersion().split(" ")[1].replace(".", "")) * 10;
-            final int deviceVersion = Integer.parseInt(device.getVersion().split(" ")[1].replace(".", "")) * 10;
-            info("platform: version=%s (%s) on %s", platformVersion, platform.getVersion(), device.getDeviceName());
-            info("device  : version=%s (%s) on %s", deviceVersion, device.getVersion(), device.getDeviceName());
+        return new OCLCommandQueue(queueId, properties, deviceVersion);
+    }
 
-            queues[index] = new OCLCommandQueue(queueId, properties, deviceVersion);
+    public void createCommandQueue(int index, long properties) {
+        try {
+            queues[index] = newCommandQueue(devices.get(index), properties);
         } catch (OCLException e) {
             error(e.getMessage());
         }
     }
 
-    public void createCommandQueue(int index) {
+    private static long defaultQueueProperties() {
         long properties = 0;
         if (ENABLE_PROFILING) {
             properties |= CL_QUEUE_PROFILING_ENABLE;
@@ -167,7 +174,35 @@ public class OCLContext extends TornadoLogger {
         if (ENABLE_OOO_EXECUTION) {
             properties |= CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE;
         }
-        createCommandQueue(index, properties);
+        return properties;
+    }
+
+    public void createCommandQueue(int index) {
+        createCommandQueue(index, defaultQueueProperties());
+    }
+
+    /**
+     * Creates the queues of a device context: the default queue of the device
+     * followed by the additional compute and copy queues requested with
+     * {@link TornadoOptions#VM_COMPUTE_QUEUES} and
+     * {@link TornadoOptions#VM_COPY_QUEUES}. If the driver cannot create them,
+     * only the default queue is used.
+     */
+    private OCLCommandQueue[] createDeviceQueues(int index) {
+        createCommandQueue(index);
+        final int numQueues = TornadoOptions.VM_COMPUTE_QUEUES + TornadoOptions.VM_COPY_QUEUES;
+        final OCLCommandQueue[] deviceQueues = new OCLCommandQueue[numQueues];
+        deviceQueues[0] = queues[index];
+        try {
+            for (int i = 1; i < numQueues; i++) {
+                deviceQueues[i] = newCommandQueue(devices.get(index), defaultQueueProperties());
+                extraQueues.add(deviceQueues[i]);
+            }
+        } catch (OCLException e) {
+            error(e.getMessage());
+            return new OCLCommandQueue[] { queues[index] };
+        }
+        return deviceQueues;
     }
 
     public void createAllCommandQueues(long properties) {
@@ -235,6 +270,9 @@ public class OCLContext extends TornadoLogger {
                     queue.cleanup();
                 }
             }
+            for (OCLCommandQueue queue : extraQueues) {
+                queue.cleanup();
+            }
 
             long t3 = System.nanoTime();
             clReleaseContext(id);
@@ -260,8 +298,7 @@ public class OCLContext extends TornadoLogger {
 
     public OCLDeviceContext createDeviceContext(int index) {
         debug("creating device context for device: %s", devices.get(index).toString());
-        createCommandQueue(index);
-        final OCLDeviceContext deviceContext = new OCLDeviceContext(devices.get(index), queues[index], this);
+        final OCLDeviceContext deviceContext = new OCLDeviceContext(devices.get(index), createDeviceQueues(index), this);
         deviceContexts.add(deviceContext);
         return deviceContext;
     }
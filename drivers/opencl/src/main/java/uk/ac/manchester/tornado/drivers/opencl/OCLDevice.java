@@ -237,6 +237,18 @@ public class OCLDevice extends TornadoLogger implements TornadoTargetDevice {
         return maxComputeUnits;
     }
 
+    /**
+     * Preferred width of the vectors of one element type, e.g.,
+     * {@link OCLDeviceInfo#CL_DEVICE_PREFERRED_VECTOR_WIDTH_FLOAT}.
+     */
+    public int getDevicePreferredVectorWidth(OCLDeviceInfo preferredVectorWidth) {
+        Arrays.fill(buffer.array(), (byte) 0);
+        buffer.clear();
+        clGetDeviceInfo(id, preferredVectorWidth.getValue(), buffer.array());
+
+        return buffer.getInt();
+    }
+
     @Override
     public int getDeviceMaxClockFrequency() {
         Arrays.fill(buffer.array(), (byte) 0);
@@ -28,20 +28,26 @@
 package uk.ac.manchester.tornado.drivers.opencl;
 
 import static uk.ac.manchester.tornado.drivers.opencl.OCLCommandQueue.EMPTY_EVENT;
+import static uk.ac.manchester.tornado.drivers.opencl.enums.OCLCommandQueueProperties.CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.USE_SYNC_FLUSH;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.getProperty;
 
 import java.nio.ByteOrder;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
 import uk.ac.manchester.tornado.api.TornadoDeviceContext;
+import uk.ac.manchester.tornado.api.profiler.ProfilerType;
+import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 import uk.ac.manchester.tornado.api.common.Event;
 import uk.ac.manchester.tornado.drivers.opencl.enums.OCLDeviceType;
 import uk.ac.manchester.tornado.drivers.opencl.enums.OCLMemFlags;
 import uk.ac.manchester.tornado.drivers.opencl.graal.OCLInstalledCode;
 import uk.ac.manchester.tornado.drivers.opencl.graal.compiler.OCLCompilationResult;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLMemoryManager;
+import uk.ac.manchester.tornado.drivers.opencl.mm.OCLTransferDecoder;
 import uk.ac.manchester.tornado.drivers.opencl.runtime.OCLTornadoDevice;
 import uk.ac.manchester.tornado.runtime.common.Initialisable;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
@@ -49,6 +55,7 @@ import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 import static uk.ac.manchester.tornado.drivers.opencl.OCLEvent.DEFAULT_TAG;
+import static uk.ac.manchester.tornado.drivers.opencl.OCLEvent.DESC_COMMAND_GRAPH;
 import static uk.ac.manchester.tornado.drivers.opencl.OCLEvent.DESC_PARALLEL_KERNEL;
 import static uk.ac.manchester.tornado.drivers.opencl.OCLEvent.DESC_READ_BYTE;
 import static uk.ac.manchester.tornado.drivers.opencl.OCLEvent.DESC_READ_DOUBLE;
@@ -73,25 +80,43 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
     private static final boolean PRINT_OCL_KERNEL_TIME = Boolean.parseBoolean(getProperty("tornado.opencl.timer.kernel", "False").toLowerCase());
 
     private final OCLDevice device;
-    private final OCLCommandQueue queue;
+    private final OCLCommandQueue[] queues;
+    /*
+     * Index of the queue selected by the QUEUE bytecodes. Each execution of a
+     * TornadoVM enqueues its bytecodes from a single thread, so the selection is
+     * kept per thread: concurrent executions (executeAsync), the completion
+     * thread of asynchronous reads and the compiler threads never see each
+     * other's queue. Threads that have not selected a queue use queue 0.
+     */
+    private final ThreadLocal<Integer> selectedQueue;
+
+    /**
+     * Number of command graphs replayed. A replay sets the kernel arguments it
+     * recorded, so the arguments that an installed code last set on a kernel
+     * are only current while this number is unchanged.
+     */
+    private final AtomicLong commandGraphReplays = new AtomicLong();
     private final OCLContext context;
     private final OCLMemoryManager memoryManager;
     private boolean needsBump;
     private final long bumpBuffer;
 
     private final OCLCodeCache codeCache;
+    private final OCLTransferDecoder transferDecoder;
     private boolean wasReset;
     private boolean useRelativeAddresses;
     private boolean printOnce = true;
 
     private final OCLEventsWrapper eventsWrapper;
 
-    protected OCLDeviceContext(OCLDevice device, OCLCommandQueue queue, OCLContext context) {
+    protected OCLDeviceContext(OCLDevice device, OCLCommandQueue[] queues, OCLContext context) {
         this.device = device;
-        this.queue = queue;
+        this.queues = queues;
+        this.selectedQueue = ThreadLocal.withInitial(() -> 0);
         this.context = context;
         this.memoryManager = new OCLMemoryManager(this);
         this.codeCache = new OCLCodeCache(this);
+        this.transferDecoder = new OCLTransferDecoder(this);
 
         setRelativeAddressesFlag();
 
@@ -147,11 +172,56 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
         return memoryManager;
     }
 
+    public OCLTransferDecoder getTransferDecoder() {
+        return transferDecoder;
+    }
+
     public void sync() {
-        if (USE_SYNC_FLUSH) {
-            queue.flush();
+        for (OCLCommandQueue commandQueue : queues) {
+            if (USE_SYNC_FLUSH) {
+                commandQueue.flush();
+            }
+            commandQueue.finish();
+        }
+    }
+
+    /**
+     * Selects the queue used by the next commands. Queues are in-order, so the
+     * dependencies on the commands of other queues are enforced with a barrier
+     * that waits for the last command of each of those queues.
+     *
+     * @param index
+     *            Index of the queue.
+     * @param waitMask
+     *            Bit mask of the queues to wait for.
+     */
+    public void selectQueue(int index, int waitMask) {
+        final int queueIndex = index % queues.length;
+        selectedQueue.set(queueIndex);
+        final OCLCommandQueue queue = queues[queueIndex];
+        final long[] waitEvents = (waitMask != 0) ? eventsWrapper.serialiseLastEvents(queues, waitMask & ~(1 << queueIndex)) : null;
+        if (waitEvents != null) {
+            final long oclEvent = queue.enqueueBarrier(waitEvents);
+            if (queue.getOpenclVersion() >= 120) {
+                eventsWrapper.registerEvent(oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG, queue);
+            }
         }
-        queue.finish();
+    }
+
+    private OCLCommandQueue queue() {
+        return queues[selectedQueue.get()];
+    }
+
+    /**
+     * @return index of the queue used by the next commands of the calling
+     *         thread.
+     */
+    public int getQueueIndex() {
+        return selectedQueue.get();
+    }
+
+    public int getNumQueues() {
+        return queues.length;
     }
 
     public long getDeviceId() {
@@ -159,13 +229,13 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
     }
 
     public int enqueueBarrier() {
-        long oclEvent = queue.enqueueBarrier();
-        return (queue.getOpenclVersion() < 120) ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG, queue);
+        long oclEvent = queue().enqueueBarrier();
+        return (queue().getOpenclVersion() < 120) ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG, queue());
     }
 
     public int enqueueMarker() {
-        long oclEvent = queue.enqueueMarker();
-        return queue.getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_MARKER, DEFAULT_TAG, queue);
+        long oclEvent = queue().enqueueMarker();
+        return queue().getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_MARKER, DEFAULT_TAG, queue());
     }
 
     public OCLProgram createProgramWithSource(byte[] source, long[] lengths) {
@@ -177,21 +247,75 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
     }
 
     public void printEvents() {
-        queue.printEvents();
+        queue().printEvents();
     }
 
     public int enqueueTask(OCLKernel kernel, int[] events) {
-        return eventsWrapper.registerEvent(queue.enqueueTask(kernel, eventsWrapper.serialiseEvents(events, queue) ? eventsWrapper.waitEventsBuffer : null), DESC_SERIAL_KERNEL, kernel.getId(), queue);
+        return eventsWrapper.registerEvent(queue().enqueueTask(kernel, eventsWrapper.serialiseEvents(events, queue())), DESC_SERIAL_KERNEL, kernel.getId(), queue());
     }
 
     public int enqueueTask(OCLKernel kernel) {
-        return eventsWrapper.registerEvent(queue.enqueueTask(kernel, null), DESC_SERIAL_KERNEL, kernel.getId(), queue);
+        return eventsWrapper.registerEvent(queue().enqueueTask(kernel, null), DESC_SERIAL_KERNEL, kernel.getId(), queue());
     }
 
     public int enqueueNDRangeKernel(OCLKernel kernel, int dim, long[] globalWorkOffset, long[] globalWorkSize, long[] localWorkSize, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueNDRangeKernel(kernel, dim, globalWorkOffset, globalWorkSize, localWorkSize, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_PARALLEL_KERNEL, kernel.getId(), queue);
+                queue().enqueueNDRangeKernel(kernel, dim, globalWorkOffset, globalWorkSize, localWorkSize, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_PARALLEL_KERNEL, kernel.getId(), queue());
+    }
+
+    /**
+     * Starts recording the commands enqueued on this device. Recording is only
+     * supported when the device uses a single in-order queue, where the commands
+     * of the graph can be replayed without explicit event dependencies.
+     *
+     * @return true if the capture has started.
+     */
+    public boolean startCommandCapture() {
+        if (queues.length > 1 || (queue().getProperties() & CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE) != 0) {
+            return false;
+        }
+        queue().startCapture();
+        return true;
+    }
+
+    public boolean isCapturingCommands() {
+        return queue().isCapturing();
+    }
+
+    public OCLCommandGraph stopCommandCapture() {
+        return queue().stopCapture();
+    }
+
+    /**
+     * Prevents the commands being captured from being replayed, e.g. because
+     * their host data is rebuilt on every execution.
+     */
+    public void markCommandCaptureUnsupported() {
+        queue().markCaptureUnsupported();
+    }
+
+    public long getCommandGraphReplays() {
+        return commandGraphReplays.get();
+    }
+
+    void recordKernelArg(long kernelId, int index, long size, byte[] value) {
+        queue().recordKernelArg(kernelId, index, size, value);
+    }
+
+    /**
+     * Enqueues the commands of a captured graph.
+     *
+     * @return the event of the last command, or -1 if a command could not be
+     *         enqueued.
+     */
+    public int enqueueCommandGraph(OCLCommandGraph graph) {
+        commandGraphReplays.incrementAndGet();
+        final long oclEvent = queue().enqueueCommandGraph(graph);
+        if (oclEvent == -1) {
+            return -1;
+        }
+        return eventsWrapper.registerEvent(oclEvent, DESC_COMMAND_GRAPH, graph.getNumCommands(), queue());
     }
 
     public ByteOrder getByteOrder() {
@@ -203,44 +327,44 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
      */
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, byte[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_BYTE, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_BYTE, offset, queue());
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, char[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_BYTE, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_BYTE, offset, queue());
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, int[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_INT, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_INT, offset, queue());
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, long[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_LONG, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_LONG, offset, queue());
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, short[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_SHORT, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_SHORT, offset, queue());
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, float[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_FLOAT, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_FLOAT, offset, queue());
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, double[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_DOUBLE, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_DOUBLE, offset, queue());
     }
 
     /*
@@ -249,44 +373,44 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
      */
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, byte[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_BYTE, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_BYTE, offset, queue());
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, char[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_BYTE, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_BYTE, offset, queue());
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, int[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_INT, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_INT, offset, queue());
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, long[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_LONG, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_LONG, offset, queue());
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, float[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_FLOAT, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_FLOAT, offset, queue());
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, double[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_DOUBLE, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_DOUBLE, offset, queue());
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, short[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_SHORT, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_SHORT, offset, queue());
     }
 
     /*
@@ -294,44 +418,44 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
      */
     public void writeBuffer(long bufferId, long offset, long bytes, byte[] array, long hostOffset, int[] waitEvents) {
         eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_BYTE, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_BYTE, offset, queue());
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, char[] array, long hostOffset, int[] waitEvents) {
         eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_BYTE, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_BYTE, offset, queue());
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, int[] array, long hostOffset, int[] waitEvents) {
         eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_INT, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_INT, offset, queue());
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, long[] array, long hostOffset, int[] waitEvents) {
         eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_LONG, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_LONG, offset, queue());
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, short[] array, long hostOffset, int[] waitEvents) {
         eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_SHORT, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_SHORT, offset, queue());
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, float[] array, long hostOffset, int[] waitEvents) {
         eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_FLOAT, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_FLOAT, offset, queue());
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, double[] array, long hostOffset, int[] waitEvents) {
         eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_DOUBLE, offset, queue);
+                queue().enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_WRITE_DOUBLE, offset, queue());
     }
 
     /*
@@ -339,55 +463,55 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
      */
     public int readBuffer(long bufferId, long offset, long bytes, byte[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_BYTE, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_BYTE, offset, queue());
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, char[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_BYTE, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_BYTE, offset, queue());
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, int[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_INT, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_INT, offset, queue());
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, long[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_LONG, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_LONG, offset, queue());
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, float[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_FLOAT, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_FLOAT, offset, queue());
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, double[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_DOUBLE, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_DOUBLE, offset, queue());
 
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, short[] array, long hostOffset, int[] waitEvents) {
         return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_SHORT, offset, queue);
+                queue().enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue())),
+                DESC_READ_SHORT, offset, queue());
     }
 
     public int enqueueBarrier(int[] events) {
-        long oclEvent = queue.enqueueBarrier(eventsWrapper.serialiseEvents(events, queue) ? eventsWrapper.waitEventsBuffer : null);
-        return queue.getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG, queue);
+        long oclEvent = queue().enqueueBarrier(eventsWrapper.serialiseEvents(events, queue()));
+        return queue().getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG, queue());
     }
 
     public int enqueueMarker(int[] events) {
-        long oclEvent = queue.enqueueMarker(eventsWrapper.serialiseEvents(events, queue) ? eventsWrapper.waitEventsBuffer : null);
-        return queue.getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_MARKER, DEFAULT_TAG, queue);
+        long oclEvent = queue().enqueueMarker(eventsWrapper.serialiseEvents(events, queue()));
+        return queue().getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_MARKER, DEFAULT_TAG, queue());
     }
 
     @Override
@@ -398,6 +522,7 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
     public void reset() {
         eventsWrapper.reset();
         memoryManager.reset();
+        transferDecoder.reset();
         codeCache.reset();
         wasReset = true;
     }
@@ -460,6 +585,11 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
         return useRelativeAddresses;
     }
 
+    @Override
+    public long getEncodedTransfers() {
+        return transferDecoder.getEncodedTransfers();
+    }
+
     public long getBumpBuffer() {
         return bumpBuffer;
     }
@@ -468,23 +598,69 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, To
         eventsWrapper.retainEvent(localEventId);
     }
 
+    public void releaseEvent(int localEventId) {
+        eventsWrapper.releaseEvent(localEventId);
+    }
+
+    /**
+     * Adds the execution time of an event to a profiler timer once
+     * {@link #resolveProfiledEvents()} is called.
+     */
+    public void profileEvent(int localEventId, TornadoProfiler profiler, ProfilerType type) {
+        eventsWrapper.profileEvent(localEventId, profiler, type, null);
+    }
+
+    /**
+     * Adds the execution time of a kernel to the total kernel time and to the
+     * kernel time of the task once {@link #resolveProfiledEvents()} is called.
+     */
+    public void profileKernelEvent(int localEventId, TornadoProfiler profiler, String taskId) {
+        eventsWrapper.profileEvent(localEventId, profiler, ProfilerType.TOTAL_KERNEL_TIME, taskId);
+    }
+
+    public void resolveProfiledEvents() {
+        eventsWrapper.resolveProfiledEvents();
+    }
+
+    /**
+     * Calls the callback with the execution status of an event once it
+     * completes, without waiting for it. The callback runs on a thread of the
+     * OpenCL runtime, so it must not enqueue blocking commands. Without an event
+     * (OpenCL < 1.2 markers), the device is synchronised and the callback is
+     * called straight away.
+     */
+    public void whenEventComplete(int localEventId, IntConsumer callback) {
+        if (localEventId == -1) {
+            sync();
+            callback.accept(0);
+            return;
+        }
+        eventsWrapper.setEventCallback(localEventId, callback);
+        // Callbacks are only triggered for commands submitted to the device
+        flush();
+    }
+
     public Event resolveEvent(int event) {
         if (event == -1) {
             return EMPTY_EVENT;
         }
-        return new OCLEvent(eventsWrapper, queue, event, eventsWrapper.getOCLEvent(event));
+        return new OCLEvent(eventsWrapper, queue(), event, eventsWrapper.getOCLEvent(event));
     }
 
     public void flush() {
-        queue.flush();
+        for (OCLCommandQueue commandQueue : queues) {
+            commandQueue.flush();
+        }
     }
 
     public void finish() {
-        queue.finish();
+        for (OCLCommandQueue commandQueue : queues) {
+            commandQueue.finish();
+        }
     }
 
     public void flushEvents() {
-        queue.flushEvents();
+        queue().flushEvents();
     }
 
     public boolean isKernelAvailable() {
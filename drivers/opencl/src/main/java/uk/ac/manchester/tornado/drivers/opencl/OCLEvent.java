@@ -36,6 +36,7 @@ import static uk.ac.manchester.tornado.drivers.opencl.enums.OCLProfilingInfo.CL_
 import static uk.ac.manchester.tornado.runtime.common.Tornado.ENABLE_PROFILING;
 
 import java.nio.ByteBuffer;
+import java.util.function.IntConsumer;
 
 import uk.ac.manchester.tornado.api.common.Event;
 import uk.ac.manchester.tornado.api.enums.TornadoExecutionStatus;
@@ -67,7 +68,8 @@ public class OCLEvent extends TornadoLogger implements Event {
             "readFromDevice - double[]",
             "sync - marker",
             "sync - barrier",
-            "none"
+            "none",
+            "command graph"
     };
     // @formatter:on
 
@@ -88,6 +90,7 @@ public class OCLEvent extends TornadoLogger implements Event {
     protected static final int DESC_SYNC_MARKER = 14;
     protected static final int DESC_SYNC_BARRIER = 15;
     protected static final int EVENT_NONE = 16;
+    protected static final int DESC_COMMAND_GRAPH = 17;
 
     private static final long[] internalBuffer = new long[2];
 
@@ -127,6 +130,10 @@ public class OCLEvent extends TornadoLogger implements Event {
 
     native static void clReleaseEvent(long eventId) throws OCLException;
 
+    native static void clGetEventsProfilingInfo(long[] events, int count, long[] times) throws OCLException;
+
+    native static void clSetEventCallback(long eventId, IntConsumer callback) throws OCLException;
+
     private long readEventTime(OCLProfilingInfo eventType) {
         if (!ENABLE_PROFILING) {
             return -1;
@@ -23,60 +23,136 @@
 
 package uk.ac.manchester.tornado.drivers.opencl;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.BitSet;
-import java.util.List;
-
 import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.guarantee;
 import static uk.ac.manchester.tornado.drivers.opencl.OCLEvent.EVENT_DESCRIPTIONS;
 import static uk.ac.manchester.tornado.drivers.opencl.enums.OCLCommandQueueProperties.CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.ENABLE_PROFILING;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.EVENT_WINDOW;
-import static uk.ac.manchester.tornado.runtime.common.Tornado.MAX_WAIT_EVENTS;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.error;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.fatal;
-import static uk.ac.manchester.tornado.runtime.common.Tornado.getProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import uk.ac.manchester.tornado.api.profiler.ProfilerType;
+import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
+import uk.ac.manchester.tornado.drivers.opencl.exceptions.OCLException;
 
 /**
  * Class which holds mapping between OpenCL events and TornadoVM local events
  * and handles event registration and serialization. Also contains extra
  * information such as events description and tag.
+ * <p>
+ * Events live in a bounded pool of {@code tornado.opencl.eventwindow} slots.
+ * Free slots are kept in a lock-free list, and every slot is reference
+ * counted: the pool keeps a reference to the most recent events (half of the
+ * pool), and {@link #retainEvent} adds one more. The OpenCL event is released
+ * and its slot recycled when the last reference is dropped, so retained events
+ * are never overwritten.
  * 
  * Only one instance of this class is created per device.
  */
 class OCLEventsWrapper {
 
-    private static final boolean CIRCULAR_EVENTS = Boolean.parseBoolean(getProperty("tornado.opencl.circularevents", "True"));
+    private static final int EMPTY = -1;
 
     private final long[] events;
     private final int[] descriptors;
     private final long[] tags;
-    private final BitSet retain;
     private final OCLCommandQueue[] eventQueues;
-    private int eventIndex;
 
-    private final OCLEvent internalEvent;
-    protected final long[] waitEventsBuffer;
+    private final AtomicIntegerArray refCounts;
+
+    // Free-list: head is (version << 32 | slot) to avoid ABA
+    private final AtomicIntegerArray nextFree;
+    private final AtomicLong freeHead;
+
+    // Most recent events, each holding one reference
+    private final AtomicIntegerArray recentEvents;
+    private final AtomicLong recentCursor;
+
+    private final List<ProfiledEvent> profiledEvents;
+
+    /**
+     * Event whose execution time is accumulated into a profiler once it is
+     * resolved with {@link #resolveProfiledEvents()}.
+     */
+    private static class ProfiledEvent {
+        private final int localId;
+        private final TornadoProfiler profiler;
+        private final ProfilerType type;
+        private final String taskId;
+
+        ProfiledEvent(int localId, TornadoProfiler profiler, ProfilerType type, String taskId) {
+            this.localId = localId;
+            this.profiler = profiler;
+            this.type = type;
+            this.taskId = taskId;
+        }
+    }
 
     protected OCLEventsWrapper() {
-        this.retain = new BitSet(EVENT_WINDOW);
-        this.retain.clear();
         this.events = new long[EVENT_WINDOW];
         this.descriptors = new int[EVENT_WINDOW];
         this.tags = new long[EVENT_WINDOW];
         this.eventQueues = new OCLCommandQueue[EVENT_WINDOW];
-        this.eventIndex = 0;
-        this.waitEventsBuffer = new long[MAX_WAIT_EVENTS];
-        this.internalEvent = new OCLEvent();
+        this.refCounts = new AtomicIntegerArray(EVENT_WINDOW);
+        this.nextFree = new AtomicIntegerArray(EVENT_WINDOW);
+        this.freeHead = new AtomicLong();
+        this.recentEvents = new AtomicIntegerArray(Math.max(1, EVENT_WINDOW / 2));
+        this.recentCursor = new AtomicLong();
+        this.profiledEvents = new ArrayList<>();
+        initFreeList();
     }
 
-    protected int registerEvent(long oclEventId, int descriptorId, long tag, OCLCommandQueue queue) {
-        if (retain.get(eventIndex)) {
-            findNextEventSlot();
+    private void initFreeList() {
+        for (int i = 0; i < EVENT_WINDOW; i++) {
+            nextFree.set(i, (i + 1 < EVENT_WINDOW) ? i + 1 : EMPTY);
+        }
+        freeHead.set(0);
+        for (int i = 0; i < recentEvents.length(); i++) {
+            recentEvents.set(i, EMPTY);
         }
-        final int currentEvent = eventIndex;
-        guarantee(!retain.get(currentEvent), "overwriting retained event");
+        recentCursor.set(0);
+    }
+
+    private static int slotOf(long head) {
+        return (int) head;
+    }
+
+    private static long nextHead(long head, int slot) {
+        return ((head >>> 32) + 1) << 32 | (slot & 0xFFFFFFFFL);
+    }
+
+    private int popFreeSlot() {
+        while (true) {
+            final long head = freeHead.get();
+            final int slot = slotOf(head);
+            if (slot == EMPTY) {
+                return EMPTY;
+            }
+            if (freeHead.compareAndSet(head, nextHead(head, nextFree.get(slot)))) {
+                return slot;
+            }
+        }
+    }
+
+    private void pushFreeSlot(int slot) {
+        while (true) {
+            final long head = freeHead.get();
+            nextFree.set(slot, slotOf(head));
+            if (freeHead.compareAndSet(head, nextHead(head, slot))) {
+                return;
+            }
+        }
+    }
 
+    protected int registerEvent(long oclEventId, int descriptorId, long tag, OCLCommandQueue queue) {
         /*
          * OpenCL can produce an out of resources error which results in an invalid event
          * (-1). If this happens, then we log a fatal exception and gracefully exit.
@@ -87,42 +163,44 @@ class OCLEventsWrapper {
             System.exit(-1);
         }
 
-        if (events[currentEvent] > 0 && !retain.get(currentEvent)) {
-            internalEvent.setEventId(currentEvent, events[currentEvent]);
-            releaseEvent(currentEvent);
-            internalEvent.release();
-        }
+        final int currentEvent = popFreeSlot();
+        guarantee(currentEvent != EMPTY, "event pool is full (capacity=%d)", EVENT_WINDOW);
+
         events[currentEvent] = oclEventId;
         descriptors[currentEvent] = descriptorId;
         tags[currentEvent] = tag;
         eventQueues[currentEvent] = queue;
+        refCounts.set(currentEvent, 1);
+        queue.setLastEvent(currentEvent);
 
-        findNextEventSlot();
-        return currentEvent;
-    }
-
-    private void findNextEventSlot() {
-        eventIndex = retain.nextClearBit(eventIndex + 1);
-
-        if (CIRCULAR_EVENTS && (eventIndex >= events.length)) {
-            eventIndex = 0;
+        // The new event takes the place of the oldest recent event
+        final int position = (int) (recentCursor.getAndIncrement() % recentEvents.length());
+        final int oldest = recentEvents.getAndSet(position, currentEvent);
+        if (oldest != EMPTY) {
+            releaseEvent(oldest);
         }
-
-        guarantee(eventIndex != -1, "event window is full (retained=%d, capacity=%d)", retain.cardinality(), EVENT_WINDOW);
+        return currentEvent;
     }
 
-    protected boolean serialiseEvents(int[] dependencies, OCLCommandQueue queue) {
+    /**
+     * Builds the wait list of a command in the buffer of its queue. Wait lists
+     * are only needed with out-of-order queues.
+     *
+     * @return the wait list, or null if there is no event to wait for.
+     */
+    protected long[] serialiseEvents(int[] dependencies, OCLCommandQueue queue) {
         boolean outOfOrderQueue = (queue.getProperties() & CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE) == 1;
         if (dependencies == null || dependencies.length == 0 || !outOfOrderQueue) {
-            return false;
+            return null;
         }
 
+        final long[] waitEventsBuffer = queue.getWaitEventsBuffer();
         Arrays.fill(waitEventsBuffer, 0);
 
         int index = 0;
         for (int i = 0; i < dependencies.length; i++) {
             final int value = dependencies[i];
-            if (value != -1) {
+            if (value != -1 && refCounts.get(value) > 0) {
                 index++;
                 waitEventsBuffer[index] = events[value];
                 debug("[%d] 0x%x - %s 0x%x\n", index, events[value], EVENT_DESCRIPTIONS[descriptors[value]], tags[value]);
@@ -130,14 +208,40 @@ class OCLEventsWrapper {
             }
         }
         waitEventsBuffer[0] = index;
-        return (index > 0);
+        return (index > 0) ? waitEventsBuffer : null;
+    }
+
+    /**
+     * Builds a wait list with the last event of every queue selected by the
+     * mask. Unlike {@link #serialiseEvents}, this is also used with in-order
+     * queues, since the waits cross queues. The list is not shared with other
+     * threads.
+     *
+     * @return the wait list, or null if there is no event to wait for.
+     */
+    protected long[] serialiseLastEvents(OCLCommandQueue[] queues, int waitMask) {
+        final long[] waitEvents = new long[queues.length + 1];
+        int index = 0;
+        for (int i = 0; i < queues.length; i++) {
+            if ((waitMask & (1 << i)) == 0) {
+                continue;
+            }
+            final int value = queues[i].getLastEvent();
+            // The slot may have been recycled for an event of another queue
+            if (value != -1 && refCounts.get(value) > 0 && eventQueues[value] == queues[i]) {
+                index++;
+                waitEvents[index] = events[value];
+            }
+        }
+        waitEvents[0] = index;
+        return (index > 0) ? waitEvents : null;
     }
 
     public List<OCLEvent> getEvents() {
         List<OCLEvent> result = new ArrayList<>();
-        for (int i = 0; i < eventIndex; i++) {
+        for (int i = 0; i < events.length; i++) {
             final long eventId = events[i];
-            if (eventId <= 0) {
+            if (eventId <= 0 || refCounts.get(i) <= 0) {
                 continue;
             }
             result.add(new OCLEvent(this, eventQueues[i], i, eventId));
@@ -145,17 +249,117 @@ class OCLEventsWrapper {
         return result;
     }
 
-    protected void reset() {
-        Arrays.fill(events, 0);
-        eventIndex = 0;
+    /**
+     * Releases every event of the pool.
+     */
+    protected synchronized void reset() {
+        for (int i = 0; i < events.length; i++) {
+            if (refCounts.getAndSet(i, 0) > 0) {
+                releaseOCLEvent(i);
+            }
+        }
+        profiledEvents.clear();
+        initFreeList();
     }
 
     protected void retainEvent(int localEventID) {
-        retain.set(localEventID);
+        while (true) {
+            final int count = refCounts.get(localEventID);
+            guarantee(count > 0, "retaining a released event: %d", localEventID);
+            if (refCounts.compareAndSet(localEventID, count, count + 1)) {
+                return;
+            }
+        }
     }
 
+    /**
+     * Drops one reference to an event. The OpenCL event is released and its slot
+     * recycled when no references are left.
+     */
     protected void releaseEvent(int localEventID) {
-        retain.clear(localEventID);
+        if (refCounts.decrementAndGet(localEventID) == 0) {
+            releaseOCLEvent(localEventID);
+            pushFreeSlot(localEventID);
+        }
+    }
+
+    /**
+     * Releases the OpenCL event of a slot. It runs concurrently from the threads
+     * that release events, so it only touches the slot it is given.
+     */
+    private void releaseOCLEvent(int localEventID) {
+        final long oclEvent = events[localEventID];
+        events[localEventID] = 0;
+        if (oclEvent > 0) {
+            try {
+                OCLEvent.clReleaseEvent(oclEvent);
+            } catch (OCLException e) {
+                error(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Defers the profiling of an event until {@link #resolveProfiledEvents()}, so
+     * the thread that enqueues commands does not wait for each of them.
+     *
+     * @param taskId
+     *            If not null, the time is also registered as the kernel time of
+     *            this task.
+     */
+    protected synchronized void profileEvent(int localEventID, TornadoProfiler profiler, ProfilerType type, String taskId) {
+        if (localEventID == -1) {
+            return;
+        }
+        retainEvent(localEventID);
+        profiledEvents.add(new ProfiledEvent(localEventID, profiler, type, taskId));
+    }
+
+    /**
+     * Collects the timestamps of all the deferred events in a single native call,
+     * which waits once for the events that have not completed yet, and adds their
+     * execution times to the profilers.
+     */
+    protected synchronized void resolveProfiledEvents() {
+        final int count = profiledEvents.size();
+        if (count == 0) {
+            return;
+        }
+        final long[] oclEvents = new long[count];
+        final long[] times = new long[count * 2];
+        for (int i = 0; i < count; i++) {
+            oclEvents[i] = events[profiledEvents.get(i).localId];
+        }
+        if (ENABLE_PROFILING) {
+            try {
+                OCLEvent.clGetEventsProfilingInfo(oclEvents, count, times);
+            } catch (OCLException e) {
+                fatal(e.getMessage());
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            final ProfiledEvent profiledEvent = profiledEvents.get(i);
+            final long time = times[2 * i + 1] - times[2 * i];
+            profiledEvent.profiler.sum(profiledEvent.type, time);
+            if (profiledEvent.taskId != null) {
+                profiledEvent.profiler.setTaskTimer(ProfilerType.TASK_KERNEL_TIME, profiledEvent.taskId, time);
+            }
+            releaseEvent(profiledEvent.localId);
+        }
+        profiledEvents.clear();
+    }
+
+    /**
+     * Registers a callback that the OpenCL runtime calls, from one of its own
+     * threads, with the execution status of the event once it completes. The
+     * callback must not enqueue blocking commands.
+     */
+    protected void setEventCallback(int localEventID, IntConsumer callback) {
+        try {
+            OCLEvent.clSetEventCallback(events[localEventID], callback);
+        } catch (OCLException e) {
+            fatal(e.getMessage());
+        }
     }
 
     protected long getOCLEvent(int localEventID) {
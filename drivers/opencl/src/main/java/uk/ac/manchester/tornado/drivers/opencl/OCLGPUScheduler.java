@@ -25,6 +25,7 @@
  */
 package uk.ac.manchester.tornado.drivers.opencl;
 
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 public class OCLGPUScheduler extends OCLKernelScheduler {
@@ -63,6 +64,11 @@ public class OCLGPUScheduler extends OCLKernelScheduler {
     public void calculateLocalWork(final TaskMetaData meta) {
         final long[] localWork = meta.getLocalWork();
 
+        if (meta.getDims() > 1 && meta.hasDataReuse() && TornadoOptions.REUSE_WORKGROUP_EDGE > 0) {
+            calculateSquareLocalWork(meta);
+            return;
+        }
+
         switch (meta.getDims()) {
             case 3:
                 localWork[2] = 1;
@@ -81,6 +87,30 @@ public class OCLGPUScheduler extends OCLKernelScheduler {
         }
     }
 
+    /**
+     * Work-items that read the same elements are grouped in square work-groups,
+     * so the elements they share are more likely to be served by the caches.
+     */
+    private void calculateSquareLocalWork(final TaskMetaData meta) {
+        final long[] localWork = meta.getLocalWork();
+        final long edge = Math.min(TornadoOptions.REUSE_WORKGROUP_EDGE, (long) Math.sqrt(maxWorkGroupSize));
+        for (int i = 0; i < meta.getDims(); i++) {
+            if (i < 2) {
+                localWork[i] = calculateEdgeSize(Math.min(edge, maxWorkItemSizes[i]), meta.getGlobalWork()[i]);
+            } else {
+                localWork[i] = 1;
+            }
+        }
+    }
+
+    private static long calculateEdgeSize(long edge, long globalWorkSize) {
+        long value = Math.max(1, Math.min(edge, globalWorkSize));
+        while (globalWorkSize % value != 0) {
+            value--;
+        }
+        return value;
+    }
+
     private int calculateGroupSize(long maxBlockSize, long globalWorkSize) {
         if (maxBlockSize == globalWorkSize) {
             maxBlockSize /= 4;
@@ -62,6 +62,7 @@ public class OCLKernel extends TornadoLogger {
     public void setArg(int index, ByteBuffer buffer) {
         try {
             clSetKernelArg(id, index, buffer.position(), buffer.array());
+            deviceContext.recordKernelArg(id, index, buffer.position(), buffer.array());
         } catch (OCLException e) {
             error(e.getMessage());
         }
@@ -70,6 +71,7 @@ public class OCLKernel extends TornadoLogger {
     public void setArgUnused(int index) {
         try {
             clSetKernelArg(id, index, 8, null);
+            deviceContext.recordKernelArg(id, index, 8, null);
         } catch (OCLException e) {
             error(e.getMessage());
         }
@@ -86,6 +88,7 @@ public class OCLKernel extends TornadoLogger {
         guarantee(size <= maxSize, "local allocation is too large for device");
         try {
             clSetKernelArg(id, index, size, null);
+            deviceContext.recordKernelArg(id, index, size, null);
         } catch (OCLException e) {
             error(e.getMessage());
         }
@@ -34,7 +34,6 @@ import jdk.vm.ci.code.InstalledCode;
 import jdk.vm.ci.code.InvalidInstalledCodeException;
 import uk.ac.manchester.tornado.api.common.Event;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
-import uk.ac.manchester.tornado.api.profiler.ProfilerType;
 import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
 import uk.ac.manchester.tornado.drivers.opencl.OCLGPUScheduler;
 import uk.ac.manchester.tornado.drivers.opencl.OCLKernel;
@@ -64,6 +63,16 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
     private final OCLKernelScheduler scheduler;
     private final int[] internalEvents = new int[1];
 
+    /*
+     * Call stack and metadata whose arguments are currently set on the kernel.
+     * The kernel may be shared by several tasks, and command graph replays set
+     * the arguments they recorded, so the arguments are set again when a
+     * different task launches the kernel or a graph has been replayed since.
+     */
+    private OCLCallStack boundStack;
+    private TaskMetaData boundMeta;
+    private long boundReplays;
+
     private final long[] singleThreadGlobalWorkSize = new long[] { 1 };
     private final long[] singleThreadLocalWorkSize = new long[] { 1 };
 
@@ -114,6 +123,8 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         debug("\tstack    : buffer id=0x%x, address=0x%x relative=0x%x", stack.toBuffer(), stack.toAbsoluteAddress(), stack.toRelativeAddress());
 
         setKernelArgs(stack, meta);
+        boundStack = null;
+        boundMeta = null;
 
         int task;
         if (meta == null) {
@@ -223,6 +234,22 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         index++;
     }
 
+    /**
+     * Sets the kernel arguments, unless they were last set for the same call
+     * stack and metadata and are still on the kernel. They are always set while
+     * commands are captured, so that a replay does not depend on the arguments
+     * left on the kernel.
+     */
+    private void bindKernelArgs(final OCLCallStack stack, final TaskMetaData meta) {
+        final long replays = deviceContext.getCommandGraphReplays();
+        if (!stack.isOnDevice() || stack != boundStack || meta != boundMeta || replays != boundReplays || deviceContext.isCapturingCommands()) {
+            setKernelArgs(stack, meta);
+            boundStack = stack;
+            boundMeta = meta;
+            boundReplays = replays;
+        }
+    }
+
     public int submitWithEvents(final OCLCallStack stack, final TaskMetaData meta, final int[] events, long batchThreads) {
         guarantee(kernel != null, "kernel is null");
 
@@ -232,11 +259,12 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         }
 
         /*
-         * Only set the kernel arguments if they are either: - not set or - have changed
+         * Only set the kernel arguments if they are either: - not set, - have
+         * changed or - were set by another task sharing the kernel
          */
+        bindKernelArgs(stack, meta);
         final int[] waitEvents;
         if (!stack.isOnDevice()) {
-            setKernelArgs(stack, meta);
             internalEvents[0] = stack.enqueueWrite(events);
             waitEvents = internalEvents;
         } else {
@@ -273,9 +301,10 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
                 meta.addProfile(task);
             }
 
-            if (meta.enableExceptions()) {
+            if (meta.enableExceptions() && !meta.isProvenSafe()) {
                 internalEvents[0] = task;
                 task = stack.enqueueRead(internalEvents);
+                meta.recordExceptionStateRead();
             }
         }
 
@@ -303,13 +332,7 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
             task = deviceContext.enqueueNDRangeKernel(kernel, 1, null, meta.getGlobalWork(), meta.getLocalWork(), null);
         }
         if (TornadoOptions.isProfilerEnabled()) {
-            Event tornadoKernelEvent = deviceContext.resolveEvent(task);
-            tornadoKernelEvent.waitForEvents();
-            long timer = meta.getProfiler().getTimer(ProfilerType.TOTAL_KERNEL_TIME);
-            // Register globalTime
-            meta.getProfiler().setTimer(ProfilerType.TOTAL_KERNEL_TIME, timer + tornadoKernelEvent.getExecutionTime());
-            // Register the time for the task
-            meta.getProfiler().setTaskTimer(ProfilerType.TASK_KERNEL_TIME, meta.getId(), tornadoKernelEvent.getExecutionTime());
+            deviceContext.profileKernelEvent(task, meta.getProfiler(), meta.getId());
         }
         return task;
     }
@@ -337,9 +360,10 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
             meta.addProfile(task);
         }
 
-        // read the stack
-        if (meta.enableExceptions()) {
+        // read the stack, unless the kernel cannot raise an exception
+        if (meta.enableExceptions() && !meta.isProvenSafe()) {
             stack.enqueueRead(null);
+            meta.recordExceptionStateRead();
         }
     }
 
@@ -359,10 +383,11 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         }
 
         /*
-         * Only set the kernel arguments if they are either: - not set or - have changed
+         * Only set the kernel arguments if they are either: - not set, - have
+         * changed or - were set by another task sharing the kernel
          */
+        bindKernelArgs(stack, meta);
         if (!stack.isOnDevice()) {
-            setKernelArgs(stack, meta);
             stack.enqueueWrite();
         }
 
@@ -374,13 +399,17 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         }
     }
 
+    /*
+     * The kernel may be shared by several task-schedules, so setting its
+     * arguments and enqueuing it must not interleave.
+     */
     @Override
-    public int launchWithDependencies(CallStack stack, TaskMetaData meta, long batchThreads, int[] waitEvents) {
+    public synchronized int launchWithDependencies(CallStack stack, TaskMetaData meta, long batchThreads, int[] waitEvents) {
         return submitWithEvents((OCLCallStack) stack, meta, waitEvents, batchThreads);
     }
 
     @Override
-    public int launchWithoutDependencies(CallStack stack, TaskMetaData meta, long batchThreads) {
+    public synchronized int launchWithoutDependencies(CallStack stack, TaskMetaData meta, long batchThreads) {
         submitWithoutEvents((OCLCallStack) stack, meta, batchThreads);
         return -1;
     }
@@ -50,6 +50,7 @@ import jdk.vm.ci.code.TargetDescription;
 import jdk.vm.ci.hotspot.HotSpotObjectConstant;
 import jdk.vm.ci.meta.Constant;
 import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.Value;
 import uk.ac.manchester.tornado.drivers.opencl.OCLTargetDescription;
 import uk.ac.manchester.tornado.drivers.opencl.graal.compiler.OCLCompilationResultBuilder;
@@ -239,6 +240,12 @@ public final class OCLAssembler extends Assembler {
         public static final OCLUnaryIntrinsic LOG = new OCLUnaryIntrinsic("log");
         public static final OCLUnaryIntrinsic SIN = new OCLUnaryIntrinsic("sin");
         public static final OCLUnaryIntrinsic COS = new OCLUnaryIntrinsic("cos");
+
+        public static final OCLUnaryIntrinsic NATIVE_EXP = new OCLUnaryIntrinsic("native_exp");
+        public static final OCLUnaryIntrinsic NATIVE_SQRT = new OCLUnaryIntrinsic("native_sqrt");
+        public static final OCLUnaryIntrinsic NATIVE_LOG = new OCLUnaryIntrinsic("native_log");
+        public static final OCLUnaryIntrinsic NATIVE_SIN = new OCLUnaryIntrinsic("native_sin");
+        public static final OCLUnaryIntrinsic NATIVE_COS = new OCLUnaryIntrinsic("native_cos");
         
         public static final OCLUnaryIntrinsic LOCAL_MEMORY = new OCLUnaryIntrinsic("__local");
 
@@ -255,6 +262,8 @@ public final class OCLAssembler extends Assembler {
 
         public static final OCLUnaryIntrinsic AS_FLOAT = new OCLUnaryIntrinsic("as_float");
         public static final OCLUnaryIntrinsic AS_INT = new OCLUnaryIntrinsic("as_int");
+        public static final OCLUnaryIntrinsic AS_LONG = new OCLUnaryIntrinsic("as_long");
+        public static final OCLUnaryIntrinsic AS_DOUBLE = new OCLUnaryIntrinsic("as_double");
 
         public static final OCLUnaryIntrinsic IS_FINITE = new OCLUnaryIntrinsic("isfinite");
         public static final OCLUnaryIntrinsic IS_INF = new OCLUnaryIntrinsic("isinf");
@@ -1039,6 +1048,20 @@ public final class OCLAssembler extends Assembler {
         return result;
     }
 
+    private static boolean isNonFinite(JavaConstant constant) {
+        return (constant.getJavaKind() == JavaKind.Float && !Float.isFinite(constant.asFloat())) || (constant.getJavaKind() == JavaKind.Double && !Double.isFinite(constant.asDouble()));
+    }
+
+    /**
+     * Infinities and NaNs have no literal in OpenCL C, so they are emitted with
+     * the macros of the OpenCL math library.
+     */
+    private static String formatNonFiniteConstant(JavaConstant constant) {
+        final double value = (constant.getJavaKind() == JavaKind.Float) ? constant.asFloat() : constant.asDouble();
+        final String macro = Double.isNaN(value) ? "NAN" : (value > 0 ? "INFINITY" : "-INFINITY");
+        return (constant.getJavaKind() == JavaKind.Double) ? "((double) " + macro + ")" : macro;
+    }
+
     public void emitConstant(ConstantValue cv) {
         emit(formatConstant(cv));
     }
@@ -1063,6 +1086,8 @@ public final class OCLAssembler extends Assembler {
             if (objConst.getJavaKind().isObject() && objConst.getType().getName().compareToIgnoreCase("Ljava/lang/String;") == 0) {
                 result = encodeString(objConst.toValueString());
             }
+        } else if (isNonFinite(javaConstant)) {
+            result = formatNonFiniteConstant(javaConstant);
         } else {
             result = constant.toValueString();
             result = addLiteralSuffix(oclKind, result);
@@ -49,16 +49,21 @@ import org.graalvm.compiler.virtual.phases.ea.PartialEscapePhase;
 
 import jdk.vm.ci.meta.MetaAccessProvider;
 import uk.ac.manchester.tornado.api.TornadoDeviceContext;
+import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoAutoVectoriser;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoNewArrayDevirtualizationReplacement;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoOpenCLIntrinsicsReplacements;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoParallelScheduler;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoPragmaUnroll;
+import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoStructureOfArrays;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoTaskSpecialisation;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoThreadScheduler;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoHighTier;
 import uk.ac.manchester.tornado.runtime.graal.phases.ExceptionSuppression;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoBoundsCheckElimination;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoDataReuseAnalysis;
 import uk.ac.manchester.tornado.runtime.graal.phases.TornadoInliningPolicy;
 import uk.ac.manchester.tornado.runtime.graal.phases.TornadoLocalMemoryAllocation;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoLoopInterchange;
 import uk.ac.manchester.tornado.runtime.graal.phases.TornadoShapeAnalysis;
 import uk.ac.manchester.tornado.runtime.graal.phases.TornadoValueTypeCleanup;
 
@@ -101,12 +106,20 @@ public class OCLHighTier extends TornadoHighTier {
             appendPhase(new PartialEscapePhase(true, canonicalizer, options));
         }
         appendPhase(new TornadoValueTypeCleanup());
+        appendPhase(new TornadoStructureOfArrays());
 
         if (OptConvertDeoptsToGuards.getValue(options)) {
             appendPhase(new ConvertDeoptimizeToGuardPhase());
         }
 
+        if (!deviceContext.isPlatformFPGA()) {
+            appendPhase(new TornadoAutoVectoriser());
+        }
+
+        appendPhase(new TornadoLoopInterchange());
         appendPhase(new TornadoShapeAnalysis());
+        appendPhase(new TornadoDataReuseAnalysis());
+        appendPhase(new TornadoBoundsCheckElimination());
         appendPhase(canonicalizer);
         appendPhase(new TornadoParallelScheduler());
         appendPhase(new SchedulePhase(SchedulePhase.SchedulingStrategy.EARLIEST));
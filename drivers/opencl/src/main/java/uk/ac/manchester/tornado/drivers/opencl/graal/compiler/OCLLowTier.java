@@ -42,6 +42,7 @@ import org.graalvm.compiler.phases.common.UseTrappingNullChecksPhase;
 import org.graalvm.compiler.phases.schedule.SchedulePhase;
 
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.OCLFMAPhase;
+import uk.ac.manchester.tornado.drivers.opencl.graal.phases.OCLNativeMathPhase;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoLowTier;
 import uk.ac.manchester.tornado.runtime.graal.phases.TornadoFeatureExtraction;
@@ -73,9 +74,9 @@ public class OCLLowTier extends TornadoLowTier {
 
         appendPhase(new TornadoLoopCanonicalization());
 
-        if (TornadoOptions.ENABLE_FMA) {
-            appendPhase(new OCLFMAPhase());
-        }
+        appendPhase(new OCLFMAPhase());
+
+        appendPhase(new OCLNativeMathPhase());
 
         appendPhase(new SchedulePhase(SchedulePhase.SchedulingStrategy.LATEST_OUT_OF_LOOPS));
 
@@ -72,6 +72,7 @@ public class OCLGraphBuilderPlugins {
         registerOpenCLBuiltinPlugins(plugins);
 
         TornadoMathPlugins.registerTornadoMathPlugins(plugins);
+        HalfFloatPlugins.registerHalfFloatPlugins(plugins);
         VectorPlugins.registerPlugins(ps, plugins);
     }
 
@@ -181,7 +181,19 @@ public class OCLArithmeticTool extends ArithmeticLIRGenerator {
 
     @Override
     public Value emitReinterpret(LIRKind lirKind, Value x) {
-        unimplemented();
+        trace("emitReinterpret: %s -> %s", x, lirKind);
+        switch ((OCLKind) lirKind.getPlatformKind()) {
+            case INT:
+                return emitUnaryAssign(OCLUnaryIntrinsic.AS_INT, lirKind, x);
+            case LONG:
+                return emitUnaryAssign(OCLUnaryIntrinsic.AS_LONG, lirKind, x);
+            case FLOAT:
+                return emitUnaryAssign(OCLUnaryIntrinsic.AS_FLOAT, lirKind, x);
+            case DOUBLE:
+                return emitUnaryAssign(OCLUnaryIntrinsic.AS_DOUBLE, lirKind, x);
+            default:
+                unimplemented("reinterpret %s as %s", x, lirKind);
+        }
         return null;
     }
 
@@ -444,6 +456,24 @@ public class OCLArithmeticTool extends ArithmeticLIRGenerator {
         return result;
     }
 
+    /**
+     * {@code vload_half} reads from a pointer, so the bits are first copied to a
+     * private variable of type short.
+     */
+    public Value emitHalfToFloat(Value halfFloatValue) {
+        Variable bits = getGen().newVariable(LIRKind.value(OCLKind.SHORT));
+        getGen().append(new AssignStmt(bits, halfFloatValue));
+        Variable result = getGen().newVariable(LIRKind.value(OCLKind.FLOAT));
+        getGen().append(new AssignStmt(result, new OCLUnary.HalfToFloat(LIRKind.value(OCLKind.FLOAT), bits)));
+        return result;
+    }
+
+    public Value emitFloatToHalf(Value value) {
+        Variable result = getGen().newVariable(LIRKind.value(OCLKind.SHORT));
+        getGen().append(new OCLLIRStmt.FloatToHalfStmt(result, value));
+        return result;
+    }
+
     public Value emitFMAInstruction(Value op1, Value op2, Value op3) {
         LIRKind resultKind = LIRKind.combine(op1, op2);
         Variable result = getGen().newVariable(resultKind);
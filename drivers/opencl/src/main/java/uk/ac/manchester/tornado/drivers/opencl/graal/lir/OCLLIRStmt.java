@@ -33,6 +33,7 @@ import jdk.vm.ci.meta.Value;
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler;
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler.OCLBinaryIntrinsic;
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler.OCLTernaryIntrinsic;
+import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerConstants;
 import uk.ac.manchester.tornado.drivers.opencl.graal.compiler.OCLCompilationResultBuilder;
 import uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLUnary.MemoryAccess;
 import uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLUnary.OCLAddressCast;
@@ -772,6 +773,48 @@ public class OCLLIRStmt {
         }
     }
 
+    /**
+     * Stores a float rounded to half precision into the bits of a private
+     * variable of type short.
+     */
+    @Opcode("VSTORE_HALF")
+    public static class FloatToHalfStmt extends AbstractInstruction {
+
+        public static final LIRInstructionClass<FloatToHalfStmt> TYPE = LIRInstructionClass.create(FloatToHalfStmt.class);
+
+        @Def
+        protected AllocatableValue lhs;
+        @Use
+        protected Value rhs;
+
+        public FloatToHalfStmt(AllocatableValue lhs, Value rhs) {
+            super(TYPE);
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        @Override
+        public void emitCode(OCLCompilationResultBuilder crb, OCLAssembler asm) {
+            asm.indent();
+            asm.emit("vstore_half(");
+            asm.emitValue(crb, rhs);
+            asm.emit(", 0, (" + OCLAssemblerConstants.PRIVATE_MEM_MODIFIER + " half *) ");
+            asm.emitSymbol(OCLAssemblerConstants.ADDRESS_OF);
+            asm.emitValue(crb, lhs);
+            asm.emit(")");
+            asm.delimiter();
+            asm.eol();
+        }
+
+        public AllocatableValue getResult() {
+            return lhs;
+        }
+
+        public Value getRhs() {
+            return rhs;
+        }
+    }
+
     @Opcode("VSTORE")
     public static class VectorStoreStmt extends AbstractInstruction {
 
@@ -38,6 +38,7 @@ import uk.ac.manchester.tornado.drivers.opencl.graal.OCLArchitecture.OCLMemoryBa
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler;
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler.OCLUnaryOp;
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler.OCLUnaryTemplate;
+import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerConstants;
 import uk.ac.manchester.tornado.drivers.opencl.graal.compiler.OCLCompilationResultBuilder;
 import uk.ac.manchester.tornado.drivers.opencl.graal.meta.OCLMemorySpace;
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLBarrierNode.OCLMemFenceFlags;
@@ -164,6 +165,30 @@ public class OCLUnary {
         }
     }
 
+    /**
+     * Reads the half-precision number whose bits are stored in a private
+     * variable.
+     */
+    public static class HalfToFloat extends UnaryConsumer {
+
+        public HalfToFloat(LIRKind lirKind, Value value) {
+            super(null, lirKind, value);
+        }
+
+        @Override
+        public void emit(OCLCompilationResultBuilder crb, OCLAssembler asm) {
+            asm.emit("vload_half(0, (" + OCLAssemblerConstants.PRIVATE_MEM_MODIFIER + " half *) ");
+            asm.emitSymbol(ADDRESS_OF);
+            asm.emitValue(crb, value);
+            asm.emit(")");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("vload_half(0, &%s)", value);
+        }
+    }
+
     public static class MemoryAccess extends UnaryConsumer {
 
         private final OCLMemoryBase base;
@@ -0,0 +1,73 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.graal.nodes;
+
+import org.graalvm.compiler.core.common.type.StampFactory;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.graph.NodeClass;
+import org.graalvm.compiler.graph.spi.Canonicalizable;
+import org.graalvm.compiler.graph.spi.CanonicalizerTool;
+import org.graalvm.compiler.lir.gen.ArithmeticLIRGeneratorTool;
+import org.graalvm.compiler.nodeinfo.NodeInfo;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.FloatingNode;
+import org.graalvm.compiler.nodes.spi.ArithmeticLIRLowerable;
+import org.graalvm.compiler.nodes.spi.NodeLIRBuilderTool;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.collections.types.HalfFloat;
+import uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLArithmeticTool;
+
+/**
+ * Converts the 16 bits of a half-precision number to a float, see
+ * {@link HalfFloat#halfToFloat(short)}.
+ */
+@NodeInfo(shortName = "HalfToFloat")
+public class HalfToFloatNode extends FloatingNode implements ArithmeticLIRLowerable, Canonicalizable {
+
+    public static final NodeClass<HalfToFloatNode> TYPE = NodeClass.create(HalfToFloatNode.class);
+
+    @Input
+    protected ValueNode value;
+
+    public HalfToFloatNode(ValueNode value) {
+        super(TYPE, StampFactory.forKind(JavaKind.Float));
+        this.value = value;
+    }
+
+    @Override
+    public Node canonical(CanonicalizerTool tool) {
+        if (value.isJavaConstant()) {
+            return ConstantNode.forFloat(HalfFloat.halfToFloat((short) value.asJavaConstant().asInt()));
+        }
+        return this;
+    }
+
+    @Override
+    public void generate(NodeLIRBuilderTool builder, ArithmeticLIRGeneratorTool gen) {
+        OCLArithmeticTool oclArithmeticTool = (OCLArithmeticTool) gen;
+        builder.setResult(this, oclArithmeticTool.emitHalfToFloat(builder.operand(value)));
+    }
+}
@@ -95,6 +95,11 @@ public class OCLFPUnaryIntrinsicNode extends UnaryNode implements ArithmeticLIRL
         LOG1P, 
         LOGB,
         NAN,
+        NATIVE_COS,
+        NATIVE_EXP,
+        NATIVE_LOG,
+        NATIVE_SIN,
+        NATIVE_SQRT,
         REMQUO, 
         RINT,
         ROUND, 
@@ -174,6 +179,21 @@ public class OCLFPUnaryIntrinsicNode extends UnaryNode implements ArithmeticLIRL
             case LOG:
                 result = gen.genFloatLog(input);
                 break;
+            case NATIVE_COS:
+                result = gen.genFloatNativeCos(input);
+                break;
+            case NATIVE_EXP:
+                result = gen.genFloatNativeExp(input);
+                break;
+            case NATIVE_LOG:
+                result = gen.genFloatNativeLog(input);
+                break;
+            case NATIVE_SIN:
+                result = gen.genFloatNativeSin(input);
+                break;
+            case NATIVE_SQRT:
+                result = gen.genFloatNativeSqrt(input);
+                break;
             default:
                 throw shouldNotReachHere();
         }
@@ -26,10 +26,17 @@ import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.ValueNode;
 import org.graalvm.compiler.nodes.calc.AddNode;
 import org.graalvm.compiler.nodes.calc.MulNode;
-import org.graalvm.compiler.phases.Phase;
+import org.graalvm.compiler.phases.BasePhase;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLFMANode;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoLowTierContext;
 
-public class OCLFMAPhase extends Phase {
+/**
+ * It fuses multiply-add pairs into {@code fma}. The phase is skipped for tasks
+ * with the {@link PrecisionPolicy#STRICT} precision policy.
+ */
+public class OCLFMAPhase extends BasePhase<TornadoLowTierContext> {
 
     /**
      * Instrinsics in OpenCL:
@@ -56,8 +63,15 @@ public class OCLFMAPhase extends Phase {
         return (x.getStackKind() == JavaKind.Float || x.getStackKind() == JavaKind.Double);
     }
 
+    private static boolean isEnabled(TornadoLowTierContext context) {
+        return context.hasMeta() ? context.getMeta().getPrecisionPolicy() != PrecisionPolicy.STRICT : TornadoOptions.ENABLE_FMA;
+    }
+
     @Override
-    protected void run(StructuredGraph graph) {
+    protected void run(StructuredGraph graph, TornadoLowTierContext context) {
+        if (!isEnabled(context)) {
+            return;
+        }
 
         graph.getNodes().filter(AddNode.class).forEach(addNode -> {
             MulNode mulNode = null;
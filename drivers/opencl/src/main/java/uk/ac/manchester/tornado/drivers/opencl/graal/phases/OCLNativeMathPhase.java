@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * Copyright (c) 2009, 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.graal.phases;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.phases.BasePhase;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLFPUnaryIntrinsicNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLFPUnaryIntrinsicNode.Operation;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoLowTierContext;
+
+/**
+ * It maps single-precision math functions to the {@code native_*} built-ins of
+ * OpenCL for tasks with the {@link PrecisionPolicy#NATIVE} precision policy.
+ * The accuracy of the {@code native_*} functions is defined by each device, and
+ * they only exist for {@code float}, so double-precision functions are kept.
+ */
+public class OCLNativeMathPhase extends BasePhase<TornadoLowTierContext> {
+
+    private static final Map<Operation, Operation> NATIVE_OPERATIONS = new EnumMap<>(Operation.class);
+
+    static {
+        NATIVE_OPERATIONS.put(Operation.COS, Operation.NATIVE_COS);
+        NATIVE_OPERATIONS.put(Operation.EXP, Operation.NATIVE_EXP);
+        NATIVE_OPERATIONS.put(Operation.LOG, Operation.NATIVE_LOG);
+        NATIVE_OPERATIONS.put(Operation.SIN, Operation.NATIVE_SIN);
+        NATIVE_OPERATIONS.put(Operation.SQRT, Operation.NATIVE_SQRT);
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoLowTierContext context) {
+        if (!context.hasMeta() || context.getMeta().getPrecisionPolicy() != PrecisionPolicy.NATIVE) {
+            return;
+        }
+
+        graph.getNodes().filter(OCLFPUnaryIntrinsicNode.class).snapshot().forEach(node -> {
+            final Operation operation = NATIVE_OPERATIONS.get(node.operation());
+            final ValueNode value = node.getValue();
+            if (operation != null && value.getStackKind() == JavaKind.Float && !value.isConstant()) {
+                final ValueNode nativeNode = graph.addOrUnique(OCLFPUnaryIntrinsicNode.create(value, operation, JavaKind.Float));
+                node.replaceAtUsages(nativeNode);
+                node.safeDelete();
+            }
+        });
+    }
+}
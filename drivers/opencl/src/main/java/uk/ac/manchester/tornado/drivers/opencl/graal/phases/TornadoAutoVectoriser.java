@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.graal.phases;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.ParameterNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.BinaryNode;
+import org.graalvm.compiler.nodes.calc.FloatDivNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.BasePhase;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.drivers.opencl.OCLDevice;
+import uk.ac.manchester.tornado.drivers.opencl.enums.OCLDeviceInfo;
+import uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLKind;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.LoadIndexedVectorNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorAddNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorDivNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorLoadNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorMulNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorStoreNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorSubNode;
+import uk.ac.manchester.tornado.drivers.opencl.runtime.OCLTornadoDevice;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoHighTierContext;
+
+/**
+ * Vectorises one-dimensional parallel loops that map arrays of floats or ints
+ * element by element, such as {@code c[i] = a[i] * b[i] + 2}. Each iteration
+ * of the loop then processes N consecutive elements with {@code vloadN} and
+ * {@code vstoreN}, and the parallel domain is divided by N.
+ * <p>
+ * N is the preferred vector width of the device for the element type, up to
+ * 8. Since the number of iterations is specialised into a constant, the width
+ * is reduced until it divides the iterations, so no remainder is left.
+ * <p>
+ * Only loops whose body is a straight sequence of loads and stores indexed by
+ * the induction variable, combined with additions, subtractions,
+ * multiplications and floating-point divisions, are vectorised.
+ */
+public class TornadoAutoVectoriser extends BasePhase<TornadoHighTierContext> {
+
+    private static final int[] WIDTHS = { 8, 4, 2 };
+
+    private static boolean isConstant(ValueNode node, int value) {
+        return node instanceof ConstantNode && node.asJavaConstant().getJavaKind() == JavaKind.Int && node.asJavaConstant().asInt() == value;
+    }
+
+    private static boolean isScalar(ValueNode node, JavaKind kind) {
+        return (node instanceof ConstantNode || node instanceof ParameterNode) && node.getStackKind() == kind;
+    }
+
+    private static OCLKind getVectorKind(JavaKind kind, int width) {
+        if (kind == JavaKind.Float) {
+            return (width == 8) ? OCLKind.FLOAT8 : (width == 4) ? OCLKind.FLOAT4 : OCLKind.FLOAT2;
+        } else {
+            return (width == 8) ? OCLKind.INT8 : (width == 4) ? OCLKind.INT4 : OCLKind.INT2;
+        }
+    }
+
+    private static int getPreferredWidth(TornadoHighTierContext context, JavaKind kind) {
+        final OCLDevice device = ((OCLTornadoDevice) context.getDeviceMapping()).getDevice();
+        return device.getDevicePreferredVectorWidth(kind == JavaKind.Float ? OCLDeviceInfo.CL_DEVICE_PREFERRED_VECTOR_WIDTH_FLOAT : OCLDeviceInfo.CL_DEVICE_PREFERRED_VECTOR_WIDTH_INT);
+    }
+
+    /**
+     * Checks that a stored value is computed from the loaded elements with
+     * supported operations, and collects the operations.
+     *
+     * @return true if the value is a vector.
+     */
+    private static boolean collect(ValueNode value, JavaKind kind, Set<LoadIndexedNode> loads, Set<ValueNode> operations) {
+        if (value instanceof LoadIndexedNode) {
+            return loads.contains(value);
+        } else if (operations.contains(value)) {
+            return true;
+        } else if (value.getStackKind() != kind) {
+            return false;
+        }
+
+        final ValueNode x;
+        final ValueNode y;
+        if (value instanceof AddNode || value instanceof SubNode || value instanceof MulNode) {
+            x = ((BinaryNode) value).getX();
+            y = ((BinaryNode) value).getY();
+        } else if (value instanceof FloatDivNode && kind == JavaKind.Float) {
+            x = ((FloatDivNode) value).getX();
+            y = ((FloatDivNode) value).getY();
+        } else {
+            return false;
+        }
+
+        final boolean isVectorX = !isScalar(x, kind) && collect(x, kind, loads, operations);
+        final boolean isVectorY = !isScalar(y, kind) && collect(y, kind, loads, operations);
+        if ((!isVectorX && !isScalar(x, kind)) || (!isVectorY && !isScalar(y, kind)) || (!isVectorX && !isVectorY)) {
+            return false;
+        }
+        operations.add(value);
+        return true;
+    }
+
+    private static ValueNode vectorise(StructuredGraph graph, ValueNode value, OCLKind vectorKind, Map<ValueNode, ValueNode> vectors) {
+        if (vectors.containsKey(value)) {
+            return vectors.get(value);
+        } else if (value instanceof ConstantNode || value instanceof ParameterNode) {
+            // Scalars are widened by the OpenCL arithmetic operators
+            return value;
+        }
+
+        final ValueNode vector;
+        if (value instanceof FloatDivNode) {
+            final FloatDivNode div = (FloatDivNode) value;
+            vector = graph.addWithoutUnique(new VectorDivNode(vectorKind, vectorise(graph, div.getX(), vectorKind, vectors), vectorise(graph, div.getY(), vectorKind, vectors)));
+        } else {
+            final BinaryNode binary = (BinaryNode) value;
+            final ValueNode x = vectorise(graph, binary.getX(), vectorKind, vectors);
+            final ValueNode y = vectorise(graph, binary.getY(), vectorKind, vectors);
+            if (value instanceof AddNode) {
+                vector = graph.addWithoutUnique(new VectorAddNode(vectorKind, x, y));
+            } else if (value instanceof SubNode) {
+                vector = graph.addWithoutUnique(new VectorSubNode(vectorKind, x, y));
+            } else {
+                vector = graph.addWithoutUnique(new VectorMulNode(vectorKind, x, y));
+            }
+        }
+        vectors.put(value, vector);
+        return vector;
+    }
+
+    private static boolean hasOnlyUsages(ValueNode node, Set<? extends Node> allowed, boolean allowFrameStates) {
+        for (Node usage : node.usages()) {
+            if (!allowed.contains(usage) && !(allowFrameStates && usage instanceof FrameState)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoHighTierContext context) {
+        if (!context.hasMeta() || !context.getMeta().enableVectors() || context.getMeta().enableThreadCoarsener() || context.getBatchThreads() > 0 || context.getMeta().isGlobalWorkDefined()
+                || context.getMeta().isWorkerGridAvailable() || !graph.hasLoops()) {
+            return;
+        }
+
+        final List<ParallelRangeNode> ranges = graph.getNodes().filter(ParallelRangeNode.class).snapshot();
+        if (ranges.size() != 1) {
+            return;
+        }
+        final ParallelRangeNode range = ranges.get(0);
+        if (!isConstant(range.offset().value(), 0) || !isConstant(range.stride().value(), 1) || !(range.value() instanceof ConstantNode)) {
+            return;
+        }
+        final int iterations = range.value().asJavaConstant().asInt();
+
+        final LoopsData data = new LoopsData(graph);
+        if (data.loops().size() != 1) {
+            return;
+        }
+        final LoopEx loop = data.loops().get(0);
+
+        ValuePhiNode index = null;
+        for (ValuePhiNode phi : loop.loopBegin().valuePhis()) {
+            if (phi.valueAt(0) == range.offset()) {
+                index = phi;
+            }
+        }
+        if (index == null) {
+            return;
+        }
+
+        // The body must be a straight sequence of loads and stores
+        final Set<LoadIndexedNode> loads = new HashSet<>();
+        final List<StoreIndexedNode> stores = new ArrayList<>();
+        IfNode exit = null;
+        for (FixedNode node : loop.whole().nodes().filter(FixedNode.class)) {
+            if (node instanceof LoadIndexedNode && !(node instanceof LoadIndexedVectorNode)) {
+                loads.add((LoadIndexedNode) node);
+            } else if (node instanceof StoreIndexedNode) {
+                stores.add((StoreIndexedNode) node);
+            } else if (node instanceof IfNode && exit == null) {
+                exit = (IfNode) node;
+            } else if (!(node instanceof AbstractBeginNode || node instanceof LoopEndNode || node instanceof LoopExitNode)) {
+                return;
+            }
+        }
+        if (stores.isEmpty() || exit == null || !(exit.condition() instanceof IntegerLessThanNode)) {
+            return;
+        }
+        final IntegerLessThanNode condition = (IntegerLessThanNode) exit.condition();
+        if (condition.getX() != index || condition.getY() != range) {
+            return;
+        }
+
+        final JavaKind kind = stores.get(0).elementKind();
+        if (kind != JavaKind.Float && kind != JavaKind.Int) {
+            return;
+        }
+        for (LoadIndexedNode load : loads) {
+            if (load.index() != index || load.elementKind() != kind) {
+                return;
+            }
+        }
+
+        final Set<ValueNode> operations = new HashSet<>();
+        for (StoreIndexedNode store : stores) {
+            if (store.index() != index || store.elementKind() != kind || !collect(store.value(), kind, loads, operations)) {
+                return;
+            }
+        }
+
+        // The induction variable must only be used as the index of the accesses.
+        // Frame states keep the element index, as they are not used on the device
+        final Set<Node> indexUsages = new HashSet<>(loads);
+        indexUsages.addAll(stores);
+        indexUsages.add(condition);
+        indexUsages.add(index.valueAt(1));
+        if (!hasOnlyUsages(index, indexUsages, true)) {
+            return;
+        }
+        for (StoreIndexedNode store : stores) {
+            if (store.value() == index) {
+                return;
+            }
+        }
+
+        // The loaded and computed values must only be used by the stores
+        final Set<Node> valueUsages = new HashSet<>(operations);
+        valueUsages.addAll(stores);
+        for (LoadIndexedNode load : loads) {
+            if (!hasOnlyUsages(load, valueUsages, false)) {
+                return;
+            }
+        }
+        for (ValueNode operation : operations) {
+            if (!hasOnlyUsages(operation, valueUsages, false)) {
+                return;
+            }
+        }
+
+        final int preferredWidth = getPreferredWidth(context, kind);
+        int width = 1;
+        for (int candidate : WIDTHS) {
+            if (candidate <= preferredWidth && iterations % candidate == 0) {
+                width = candidate;
+                break;
+            }
+        }
+        if (width == 1) {
+            return;
+        }
+
+        final OCLKind vectorKind = getVectorKind(kind, width);
+        final ValueNode vectorIndex = graph.addOrUnique(new MulNode(index, ConstantNode.forInt(width, graph)));
+
+        final Map<ValueNode, ValueNode> vectors = new HashMap<>();
+        for (LoadIndexedNode load : loads) {
+            final VectorLoadNode vectorLoad = graph.add(new VectorLoadNode(vectorKind, load.array(), vectorIndex));
+            graph.addBeforeFixed(load, vectorLoad);
+            vectors.put(load, vectorLoad);
+        }
+        for (StoreIndexedNode store : stores) {
+            final ValueNode value = vectorise(graph, store.value(), vectorKind, vectors);
+            final VectorStoreNode vectorStore = graph.add(new VectorStoreNode(vectorKind, store.array(), vectorIndex, value));
+            graph.replaceFixedWithFixed(store, vectorStore);
+        }
+
+        for (ValueNode operation : operations) {
+            if (operation.isAlive() && operation.hasNoUsages()) {
+                GraphUtil.killWithUnusedFloatingInputs(operation);
+            }
+        }
+        for (LoadIndexedNode load : loads) {
+            graph.removeFixed(load);
+        }
+
+        range.replaceFirstInput(range.value(), ConstantNode.forInt(iterations / width, graph));
+        Tornado.debug("vectorised parallel loop with %s", vectorKind);
+    }
+}
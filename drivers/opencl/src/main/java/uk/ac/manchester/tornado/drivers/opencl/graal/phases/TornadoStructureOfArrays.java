@@ -0,0 +1,255 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Juan Fumero
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.graal.phases;
+
+import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.unimplemented;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.PiNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.VirtualState;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.LeftShiftNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.SignedDivNode;
+import org.graalvm.compiler.nodes.calc.SignedRemNode;
+import org.graalvm.compiler.nodes.java.AccessIndexedNode;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
+import org.graalvm.compiler.nodes.java.LoadFieldNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.phases.BasePhase;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.type.annotations.Interleaved;
+import uk.ac.manchester.tornado.drivers.opencl.graal.OCLStamp;
+import uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLKind;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorLoadElementNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorValueNode;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoHighTierContext;
+
+/**
+ * Rewrites the accesses to array fields annotated with {@link Interleaved}
+ * for the structure-of-arrays layout used on the device when
+ * {@code -Dtornado.soa=True} (see {@code OCLStructureOfArrays}). Value
+ * {@code c} of element {@code e}, at index {@code e * w + c} of the Java
+ * array, is stored at index {@code c * n + e}, where {@code n} is the length
+ * of the array divided by {@code w}.
+ * <p>
+ * Vector loads and stores, such as the {@code vload3} of
+ * {@code VectorFloat3.get}, are split into one access per component, so that
+ * neighbouring work-items read and write contiguous values. Indices of the
+ * form {@code e * w + c} with a constant {@code c} are remapped directly;
+ * other indices are remapped with a division and a remainder.
+ */
+public class TornadoStructureOfArrays extends BasePhase<TornadoHighTierContext> {
+
+    /**
+     * Index of the interleaved layout split into {@code term + constant}.
+     */
+    private static class Index {
+        ValueNode term;
+        int constant;
+    }
+
+    private static boolean isIntConstant(ValueNode node) {
+        return node instanceof ConstantNode && node.asJavaConstant().getJavaKind() == JavaKind.Int;
+    }
+
+    private static Index decompose(ValueNode index) {
+        final Index result = new Index();
+        ValueNode node = index;
+        while (node instanceof AddNode) {
+            final AddNode add = (AddNode) node;
+            if (isIntConstant(add.getY())) {
+                result.constant += add.getY().asJavaConstant().asInt();
+                node = add.getX();
+            } else if (isIntConstant(add.getX())) {
+                result.constant += add.getX().asJavaConstant().asInt();
+                node = add.getY();
+            } else {
+                break;
+            }
+        }
+        if (isIntConstant(node)) {
+            result.constant += node.asJavaConstant().asInt();
+            node = null;
+        }
+        result.term = node;
+        return result;
+    }
+
+    /**
+     * Returns {@code element} when {@code term} is {@code element * components},
+     * or null.
+     */
+    private static ValueNode elementOf(ValueNode term, int components) {
+        if (term instanceof MulNode) {
+            final MulNode mul = (MulNode) term;
+            if (isIntConstant(mul.getY()) && mul.getY().asJavaConstant().asInt() == components) {
+                return mul.getX();
+            } else if (isIntConstant(mul.getX()) && mul.getX().asJavaConstant().asInt() == components) {
+                return mul.getY();
+            }
+        } else if (term instanceof LeftShiftNode && isIntConstant(((LeftShiftNode) term).getY())) {
+            final LeftShiftNode shift = (LeftShiftNode) term;
+            if (1 << shift.getY().asJavaConstant().asInt() == components) {
+                return shift.getX();
+            }
+        }
+        return null;
+    }
+
+    private static ValueNode add(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUniqueWithInputs(AddNode.create(x, y, NodeView.DEFAULT));
+    }
+
+    private static ValueNode mul(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUniqueWithInputs(MulNode.create(x, y, NodeView.DEFAULT));
+    }
+
+    /**
+     * Index in the structure-of-arrays layout of the value at
+     * {@code index + lane} in the interleaved layout.
+     */
+    private static ValueNode remap(StructuredGraph graph, FixedNode access, ValueNode index, int lane, int components, ValueNode stride) {
+        final Index split = decompose(index);
+        final int offset = split.constant + lane;
+        final ValueNode element = (split.term == null) ? ConstantNode.forInt(0, graph) : elementOf(split.term, components);
+        if (element != null && offset >= 0) {
+            final ValueNode shifted = (offset / components == 0) ? element : add(graph, element, ConstantNode.forInt(offset / components, graph));
+            return add(graph, mul(graph, ConstantNode.forInt(offset % components, graph), stride), shifted);
+        }
+
+        final ValueNode value = (lane == 0) ? index : add(graph, index, ConstantNode.forInt(lane, graph));
+        final ConstantNode width = ConstantNode.forInt(components, graph);
+        final SignedDivNode div = graph.add(new SignedDivNode(value, width, null));
+        final SignedRemNode rem = graph.add(new SignedRemNode(value, width, null));
+        graph.addBeforeFixed(access, div);
+        graph.addBeforeFixed(access, rem);
+        return add(graph, mul(graph, rem, stride), div);
+    }
+
+    private static void collectAccesses(ValueNode array, List<AccessIndexedNode> accesses) {
+        for (Node usage : array.usages()) {
+            if (usage instanceof AccessIndexedNode && ((AccessIndexedNode) usage).array() == array) {
+                accesses.add((AccessIndexedNode) usage);
+            } else if (usage instanceof PiNode) {
+                collectAccesses((PiNode) usage, accesses);
+            } else if (!(usage instanceof ArrayLengthNode || usage instanceof FrameState || usage instanceof VirtualState)) {
+                unimplemented("structure of arrays: unsupported use of an interleaved array: %s", usage);
+            }
+        }
+    }
+
+    private static void rewriteLoad(StructuredGraph graph, LoadIndexedNode load, int components, ValueNode stride) {
+        final JavaKind elementKind = load.elementKind();
+        final ValueNode result;
+        if (load.stamp(NodeView.DEFAULT) instanceof OCLStamp) {
+            final OCLKind kind = ((OCLStamp) load.stamp(NodeView.DEFAULT)).getOCLKind();
+            final ValueNode[] values = new ValueNode[kind.getVectorLength()];
+            for (int lane = 0; lane < values.length; lane++) {
+                final LoadIndexedNode value = graph.add(new LoadIndexedNode(graph.getAssumptions(), load.array(), remap(graph, load, load.index(), lane, components, stride), null, elementKind));
+                graph.addBeforeFixed(load, value);
+                values[lane] = value;
+            }
+            result = graph.addWithoutUnique(new VectorValueNode(kind, null, values));
+        } else {
+            final LoadIndexedNode value = graph.add(new LoadIndexedNode(graph.getAssumptions(), load.array(), remap(graph, load, load.index(), 0, components, stride), null, elementKind));
+            graph.addBeforeFixed(load, value);
+            result = value;
+        }
+        load.replaceAtUsages(result);
+        graph.removeFixed(load);
+    }
+
+    private static void rewriteStore(StructuredGraph graph, StoreIndexedNode store, int components, ValueNode stride) {
+        final JavaKind elementKind = store.elementKind();
+        final ValueNode value = store.value();
+        if (value.stamp(NodeView.DEFAULT) instanceof OCLStamp) {
+            final OCLKind kind = ((OCLStamp) value.stamp(NodeView.DEFAULT)).getOCLKind();
+            for (int lane = 0; lane < kind.getVectorLength(); lane++) {
+                final ValueNode element = graph.addOrUnique(new VectorLoadElementNode(kind.getElementKind(), value, ConstantNode.forInt(lane, graph)));
+                final StoreIndexedNode scalar = graph.add(new StoreIndexedNode(store.array(), remap(graph, store, store.index(), lane, components, stride), null, null, elementKind, element));
+                scalar.setStateAfter(store.stateAfter());
+                graph.addBeforeFixed(store, scalar);
+            }
+        } else {
+            final StoreIndexedNode scalar = graph.add(new StoreIndexedNode(store.array(), remap(graph, store, store.index(), 0, components, stride), null, null, elementKind, value));
+            scalar.setStateAfter(store.stateAfter());
+            graph.addBeforeFixed(store, scalar);
+        }
+        graph.removeFixed(store);
+    }
+
+    private static void rewrite(StructuredGraph graph, LoadFieldNode storage, int components) {
+        final List<AccessIndexedNode> accesses = new ArrayList<>();
+        collectAccesses(storage, accesses);
+        if (accesses.isEmpty()) {
+            return;
+        }
+
+        // Number of elements, i.e., the length of each component
+        final ArrayLengthNode length = graph.add(new ArrayLengthNode(storage));
+        final SignedDivNode stride = graph.add(new SignedDivNode(length, ConstantNode.forInt(components, graph), null));
+        graph.addAfterFixed(storage, length);
+        graph.addAfterFixed(length, stride);
+
+        for (AccessIndexedNode access : accesses) {
+            if (access instanceof LoadIndexedNode) {
+                rewriteLoad(graph, (LoadIndexedNode) access, components, stride);
+            } else if (access instanceof StoreIndexedNode) {
+                rewriteStore(graph, (StoreIndexedNode) access, components, stride);
+            } else {
+                unimplemented("structure of arrays: unsupported access %s", access);
+            }
+        }
+        Tornado.debug("structure of arrays: %s.%s, %d components, %d accesses", storage.field().getDeclaringClass().getName(), storage.field().getName(), components, accesses.size());
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoHighTierContext context) {
+        if (!TornadoOptions.STRUCTURE_OF_ARRAYS) {
+            return;
+        }
+        for (LoadFieldNode load : graph.getNodes().filter(LoadFieldNode.class).snapshot()) {
+            final Interleaved interleaved = load.field().getAnnotation(Interleaved.class);
+            if (interleaved != null && interleaved.value() > 1 && load.field().getType().getComponentType() != null) {
+                rewrite(graph, load, interleaved.value());
+            }
+        }
+    }
+}
@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
 import uk.ac.manchester.tornado.api.exceptions.TornadoMemoryException;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
 import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
@@ -63,6 +64,12 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
     private boolean isFinal;
     private long batchSize;
 
+    private TransferCodec transferCodec;
+    private int[] encodedStream;
+
+    private int components;
+    private T deviceLayout;
+
     public OCLArrayWrapper(final OCLDeviceContext device, final JavaKind kind, long batchSize) {
         this(device, kind, false, batchSize);
     }
@@ -77,6 +84,56 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         arrayHeaderSize = getVMConfig().getArrayBaseOffset(kind);
         onDevice = false;
         bufferOffset = -1;
+        transferCodec = TransferCodec.NONE;
+        components = 1;
+    }
+
+    public void setTransferCodec(TransferCodec codec) {
+        this.transferCodec = codec;
+    }
+
+    /**
+     * Stores the array as a structure of arrays on the device: its elements of
+     * {@code components} interleaved values are transposed on every write and
+     * transposed back on every read. Reads are then blocking.
+     */
+    public void setStructureOfArrays(int components) {
+        this.components = components;
+    }
+
+    private boolean isStructureOfArrays() {
+        return components > 1;
+    }
+
+    /**
+     * Host array in the device layout, reused across transfers. Non-blocking
+     * writes copy from it, so it is kept alive until the next transfer.
+     */
+    private T getDeviceLayout(final T array) {
+        if (deviceLayout == null || Array.getLength(deviceLayout) != Array.getLength(array)) {
+            deviceLayout = cast(Array.newInstance(array.getClass().getComponentType(), Array.getLength(array)));
+        }
+        return deviceLayout;
+    }
+
+    private T toDeviceLayout(final T array) {
+        if (!isStructureOfArrays()) {
+            return array;
+        }
+        final T soa = getDeviceLayout(array);
+        OCLStructureOfArrays.toStructureOfArrays(array, soa, components);
+        // The layout is rebuilt on every write, so a captured copy would be stale
+        deviceContext.markCommandCaptureUnsupported();
+        return soa;
+    }
+
+    private int readStructureOfArrays(final T array, int[] waitEvents) {
+        final T soa = getDeviceLayout(array);
+        final int event = readArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, soa, 0, waitEvents);
+        OCLStructureOfArrays.toArrayOfStructures(soa, array, components);
+        // A replayed read would not copy the layout back into the array
+        deviceContext.markCommandCaptureUnsupported();
+        return event;
     }
 
     public long getBatchSize() {
@@ -166,7 +223,9 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
             throw new TornadoRuntimeException("[ERROR] output data is NULL");
         }
         final int returnEvent;
-        if (isFinal) {
+        if (isStructureOfArrays()) {
+            returnEvent = readStructureOfArrays(array, (useDeps) ? events : null);
+        } else if (isFinal) {
             returnEvent = enqueueReadArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
         } else {
             returnEvent = enqueueReadArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
@@ -193,12 +252,12 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
 
     @Override
     public List<Integer> enqueueWrite(final Object value, long batchSize, long hostOffset, final int[] events, boolean useDeps) {
-        final T array = cast(value);
         ArrayList<Integer> listEvents = new ArrayList<>();
 
-        if (array == null) {
+        if (value == null) {
             throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
         }
+        final T array = toDeviceLayout(cast(value));
         final int returnEvent;
         if (isFinal && onDevice) {
             returnEvent = enqueueWriteArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
@@ -211,7 +270,12 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
             } else {
                 headerEvent = buildArrayHeaderBatch(batchSize).enqueueWrite((useDeps) ? events : null);
             }
-            returnEvent = enqueueWriteArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
+            final int[] encoded = (batchSize <= 0 && hostOffset == 0) ? OCLTransferEncoder.encode(transferCodec, array, kind, bytesToAllocate - arrayHeaderSize) : null;
+            if (encoded != null) {
+                returnEvent = enqueueWriteEncodedData(encoded, (useDeps) ? events : null);
+            } else {
+                returnEvent = enqueueWriteArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
+            }
             onDevice = true;
             // returnEvent = deviceContext.enqueueMarker(internalEvents);
 
@@ -221,6 +285,24 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         return useDeps ? listEvents : null;
     }
 
+    /**
+     * Copy an encoded array to the staging region of the device heap shared by
+     * the compressed transfers, and decode it into the array data region.
+     *
+     * @param encoded
+     *            Stream built by {@link OCLTransferEncoder}
+     * @param waitEvents
+     *            List of events to wait for.
+     * @return Event information of the decode kernel
+     */
+    private int enqueueWriteEncodedData(final int[] encoded, final int[] waitEvents) {
+        // Keep the stream alive until the next write, the copy is non-blocking
+        encodedStream = encoded;
+        // The stream is rebuilt on every write, so a captured copy would be stale
+        deviceContext.markCommandCaptureUnsupported();
+        return deviceContext.getTransferDecoder().enqueueWriteAndDecode(transferCodec, kind, encoded, bufferOffset + arrayHeaderSize, waitEvents);
+    }
+
     /**
      * Copy data that resides in the host to the target device.
      * 
@@ -245,7 +327,7 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
     }
 
     private OCLByteBuffer getArrayHeader() {
-        final OCLByteBuffer header = deviceContext.getMemoryManager().getSubBuffer((int) bufferOffset, arrayHeaderSize);
+        final OCLByteBuffer header = deviceContext.getMemoryManager().getSubBuffer(bufferOffset, arrayHeaderSize);
         header.buffer.clear();
         return header;
     }
@@ -302,7 +384,9 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
             throw new TornadoRuntimeException("[ERROR] output data is NULL");
         }
 
-        if (VALIDATE_ARRAY_HEADERS) {
+        if (isStructureOfArrays()) {
+            return readStructureOfArrays(array, (useDeps) ? events : null);
+        } else if (VALIDATE_ARRAY_HEADERS) {
             if (validateArrayHeader(array)) {
                 return readArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
             } else {
@@ -314,6 +398,25 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         return -1;
     }
 
+    @Override
+    public int readRange(final Object value, long offset, long bytes, int[] events, boolean useDeps) {
+        final T array = cast(value);
+        if (array == null) {
+            throw new TornadoRuntimeException("[ERROR] output data is NULL");
+        }
+        if (offset < 0 || bytes < 0 || offset + bytes > bytesToAllocate - arrayHeaderSize) {
+            throw new TornadoRuntimeException("[ERROR] range [" + offset + ", " + (offset + bytes) + ") is out of the device buffer");
+        }
+        if (bytes == 0) {
+            return -1;
+        }
+        if (isStructureOfArrays()) {
+            // A range of elements is spread over every component
+            return read(value, 0, events, useDeps);
+        }
+        return readArrayData(toBuffer(), bufferOffset + arrayHeaderSize + offset, bytes, array, offset, (useDeps) ? events : null);
+    }
+
     abstract protected int readArrayData(long bufferId, long offset, long bytes, T value, long hostOffset, int[] waitEvents);
 
     private long sizeOf(final T array) {
@@ -374,7 +477,7 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         }
         buildArrayHeader(Array.getLength(array)).write();
         // TODO: Writing with offset != 0
-        writeArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, 0, null);
+        writeArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, toDeviceLayout(array), 0, null);
         onDevice = true;
     }
 
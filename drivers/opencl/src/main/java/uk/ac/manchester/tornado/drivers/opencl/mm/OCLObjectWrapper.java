@@ -36,6 +36,7 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.DEBUG;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.trace;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.STRUCTURE_OF_ARRAYS;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -49,6 +50,7 @@ import jdk.vm.ci.hotspot.HotSpotResolvedJavaType;
 import uk.ac.manchester.tornado.api.exceptions.TornadoMemoryException;
 import uk.ac.manchester.tornado.api.exceptions.TornadoOutOfMemoryException;
 import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
+import uk.ac.manchester.tornado.api.type.annotations.Interleaved;
 import uk.ac.manchester.tornado.api.type.annotations.Payload;
 import uk.ac.manchester.tornado.api.type.annotations.Vector;
 import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
@@ -136,6 +138,10 @@ public class OCLObjectWrapper implements ObjectBuffer {
                 } else {
                     warn("cannot wrap field: array type=%s", type.getName());
                 }
+                final Interleaved interleaved = reflectedField.getAnnotation(Interleaved.class);
+                if (STRUCTURE_OF_ARRAYS && interleaved != null && wrappedField instanceof OCLArrayWrapper) {
+                    ((OCLArrayWrapper<?>) wrappedField).setStructureOfArrays(interleaved.value());
+                }
             } else if (field.getJavaKind().isObject()) {
                 // We capture the field by the scope definition of the input
                 // lambda expression
@@ -273,6 +279,8 @@ public class OCLObjectWrapper implements ObjectBuffer {
     }
 
     private void serialise(Object object) {
+        // The fields are copied on every write, so a captured copy would be stale
+        deviceContext.markCommandCaptureUnsupported();
         buffer.rewind();
         buffer.position(hubOffset);
         buffer.putLong(0);
@@ -293,6 +301,8 @@ public class OCLObjectWrapper implements ObjectBuffer {
     }
 
     private void deserialise(Object object) {
+        // A replayed read would not copy the fields back into the object
+        deviceContext.markCommandCaptureUnsupported();
         buffer.rewind();
 
         if (fields.length > 0) {
@@ -346,6 +356,12 @@ public class OCLObjectWrapper implements ObjectBuffer {
         read(object, 0, null, false);
     }
 
+    @Override
+    public int readRange(Object object, long offset, long bytes, int[] events, boolean useDeps) {
+        unimplemented("range reads of objects");
+        return -1;
+    }
+
     @Override
     public int read(Object object, long hostOffset, int[] events, boolean useDeps) {
         int event = -1;
@@ -0,0 +1,104 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Juan Fumero
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.mm;
+
+import java.lang.reflect.Array;
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+
+/**
+ * Host side of the structure-of-arrays layout. An array of {@code n} elements
+ * with {@code w} interleaved components ({@code a[e * w + c]}) is stored on
+ * the device as {@code w} consecutive arrays of {@code n} values
+ * ({@code a[c * n + e]}), the layout expected by the kernels rewritten by
+ * {@code TornadoStructureOfArrays}.
+ */
+final class OCLStructureOfArrays {
+
+    private OCLStructureOfArrays() {
+    }
+
+    /**
+     * Copies {@code aos} into {@code soa}, transposed into the device layout.
+     */
+    static void toStructureOfArrays(Object aos, Object soa, int components) {
+        transpose(aos, soa, components, true);
+    }
+
+    /**
+     * Copies {@code soa}, in the device layout, back into {@code aos}.
+     */
+    static void toArrayOfStructures(Object soa, Object aos, int components) {
+        transpose(soa, aos, components, false);
+    }
+
+    private static void transpose(Object source, Object target, int components, boolean toDevice) {
+        final Object aos = toDevice ? source : target;
+        final int length = Array.getLength(aos);
+        if (length % components != 0) {
+            throw new TornadoRuntimeException("[ERROR] array of " + length + " elements cannot be split into " + components + " components");
+        }
+        final int n = length / components;
+        // Each component is a contiguous region of the device layout
+        IntStream.range(0, components).parallel().forEach(c -> {
+            final int base = c * n;
+            if (aos instanceof float[]) {
+                final float[] src = (float[]) source;
+                final float[] dst = (float[]) target;
+                for (int e = 0; e < n; e++) {
+                    if (toDevice) {
+                        dst[base + e] = src[e * components + c];
+                    } else {
+                        dst[e * components + c] = src[base + e];
+                    }
+                }
+            } else if (aos instanceof double[]) {
+                final double[] src = (double[]) source;
+                final double[] dst = (double[]) target;
+                for (int e = 0; e < n; e++) {
+                    if (toDevice) {
+                        dst[base + e] = src[e * components + c];
+                    } else {
+                        dst[e * components + c] = src[base + e];
+                    }
+                }
+            } else if (aos instanceof int[]) {
+                final int[] src = (int[]) source;
+                final int[] dst = (int[]) target;
+                for (int e = 0; e < n; e++) {
+                    if (toDevice) {
+                        dst[base + e] = src[e * components + c];
+                    } else {
+                        dst[e * components + c] = src[base + e];
+                    }
+                }
+            } else {
+                throw new TornadoRuntimeException("[ERROR] structure of arrays not supported for " + aos.getClass().getSimpleName());
+            }
+        });
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.mm;
+
+import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.shouldNotReachHere;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
+import uk.ac.manchester.tornado.drivers.opencl.OCLKernel;
+import uk.ac.manchester.tornado.drivers.opencl.OCLProgram;
+import uk.ac.manchester.tornado.drivers.opencl.enums.OCLBuildStatus;
+import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+
+/**
+ * Device side of the compressed transfers. It generates, builds and caches one
+ * OpenCL decode kernel per codec and element type. Kernels read the stream
+ * produced by {@link OCLTransferEncoder} from a staging region of the device
+ * heap and expand it into the array data region.
+ * <p>
+ * The staging regions are shared by all the arrays of the device: there is one
+ * per command queue, since the commands of a queue run in order. A region only
+ * grows when a larger stream is written, and it is dropped when the device heap
+ * is reset.
+ */
+public class OCLTransferDecoder extends TornadoLogger {
+
+    private static final String HEADER = "uint unpack(__global uint *packed, ulong bit, uint bits) {\n" //
+            + "    ulong word = bit >> 5;\n" //
+            + "    uint shift = (uint) (bit & 31);\n" //
+            + "    ulong pair = ((ulong) packed[word + 1] << 32) | (ulong) packed[word];\n" //
+            + "    uint mask = (bits == 32) ? 0xFFFFFFFFu : ((1u << bits) - 1u);\n" //
+            + "    return ((uint) (pair >> shift)) & mask;\n" //
+            + "}\n";
+
+    private static final String BITPACK = "__kernel void %s(__global uchar *heap, ulong src, ulong dst) {\n" //
+            + "    __global uint *in = (__global uint *) (heap + src);\n" //
+            + "    __global %2$s *out = (__global %2$s *) (heap + dst);\n" //
+            + "    size_t i = get_global_id(0);\n" //
+            + "    if (i >= in[0]) {\n" //
+            + "        return;\n" //
+            + "    }\n" //
+            + "    uint bits = in[2];\n" //
+            + "    uint value = (bits == 0) ? 0 : unpack(in + 3, (ulong) i * bits, bits);\n" //
+            + "    out[i] = (%2$s) (in[1] + value);\n" //
+            + "}\n";
+
+    private static final String DELTA = "__kernel void %s(__global uchar *heap, ulong src, ulong dst) {\n" //
+            + "    __global uint *in = (__global uint *) (heap + src);\n" //
+            + "    __global %2$s *out = (__global %2$s *) (heap + dst);\n" //
+            + "    size_t b = get_global_id(0);\n" //
+            + "    uint n = in[0];\n" //
+            + "    uint blocks = in[1];\n" //
+            + "    if (b >= blocks) {\n" //
+            + "        return;\n" //
+            + "    }\n" //
+            + "    __global uint *desc = in + 2 + 3 * b;\n" //
+            + "    __global uint *packed = in + 2 + 3 * blocks + desc[2];\n" //
+            + "    uint value = desc[0];\n" //
+            + "    uint bits = desc[1];\n" //
+            + "    size_t first = b * " + OCLTransferEncoder.BLOCK + ";\n" //
+            + "    uint len = min((uint) " + OCLTransferEncoder.BLOCK + ", (uint) (n - first));\n" //
+            + "    out[first] = (%2$s) value;\n" //
+            + "    for (uint j = 1; j < len; j++) {\n" //
+            + "        uint z = (bits == 0) ? 0 : unpack(packed, (ulong) (j - 1) * bits, bits);\n" //
+            + "        value += (z >> 1) ^ (0u - (z & 1u));\n" //
+            + "        out[first + j] = (%2$s) value;\n" //
+            + "    }\n" //
+            + "}\n";
+
+    // One work-item per element, which finds its run with a binary search over
+    // the run ends. Long runs do not serialise the decode.
+    private static final String RLE = "__kernel void %s(__global uchar *heap, ulong src, ulong dst) {\n" //
+            + "    __global uint *in = (__global uint *) (heap + src);\n" //
+            + "    __global %2$s *out = (__global %2$s *) (heap + dst);\n" //
+            + "    size_t i = get_global_id(0);\n" //
+            + "    uint runs = in[1];\n" //
+            + "    if (i >= in[0]) {\n" //
+            + "        return;\n" //
+            + "    }\n" //
+            + "    __global uint *ends = in + 2 + runs;\n" //
+            + "    uint low = 0;\n" //
+            + "    uint high = runs - 1;\n" //
+            + "    while (low < high) {\n" //
+            + "        uint middle = (low + high) >> 1;\n" //
+            + "        if (ends[middle] <= i) {\n" //
+            + "            low = middle + 1;\n" //
+            + "        } else {\n" //
+            + "            high = middle;\n" //
+            + "        }\n" //
+            + "    }\n" //
+            + "    out[i] = (%2$s) in[2 + low];\n" //
+            + "}\n";
+
+    private static final int STAGING_ALIGNMENT = 128;
+
+    /**
+     * Staging region of a command queue and the last decode that reads it.
+     */
+    private static class StagingRegion {
+        private long offset = -1;
+        private long size;
+        private int lastDecodeEvent = -1;
+    }
+
+    private final OCLDeviceContext deviceContext;
+    private final ConcurrentHashMap<String, OCLKernel> kernels;
+    private final ByteBuffer buffer;
+    private final StagingRegion[] stagingRegions;
+    private long encodedTransfers;
+
+    public OCLTransferDecoder(OCLDeviceContext deviceContext) {
+        this.deviceContext = deviceContext;
+        this.kernels = new ConcurrentHashMap<>();
+        this.buffer = ByteBuffer.allocate(8);
+        this.buffer.order(deviceContext.getByteOrder());
+        this.stagingRegions = new StagingRegion[deviceContext.getNumQueues()];
+        reset();
+    }
+
+    /**
+     * Drops the staging regions, called when the device heap is reset.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < stagingRegions.length; i++) {
+            stagingRegions[i] = new StagingRegion();
+        }
+    }
+
+    /**
+     * @return number of encoded streams written and decoded so far.
+     */
+    public synchronized long getEncodedTransfers() {
+        return encodedTransfers;
+    }
+
+    private static String getStorageType(JavaKind kind) {
+        switch (kind) {
+            case Byte:
+                return "uchar";
+            case Char:
+                return "ushort";
+            case Short:
+                return "short";
+            case Int:
+            case Float:
+                return "uint";
+            default:
+                shouldNotReachHere("Unsupported kind for compressed transfers: %s", kind);
+                return null;
+        }
+    }
+
+    private static String getTemplate(TransferCodec codec) {
+        switch (codec) {
+            case BITPACK:
+                return BITPACK;
+            case DELTA:
+                return DELTA;
+            case RLE:
+                return RLE;
+            default:
+                shouldNotReachHere("Unsupported codec: %s", codec);
+                return null;
+        }
+    }
+
+    private OCLKernel getKernel(TransferCodec codec, JavaKind kind) {
+        final String storageType = getStorageType(kind);
+        final String entryPoint = "decode" + codec.name() + "_" + storageType;
+        return kernels.computeIfAbsent(entryPoint, name -> buildKernel(name, HEADER + String.format(getTemplate(codec), name, storageType)));
+    }
+
+    private OCLKernel buildKernel(String entryPoint, String source) {
+        final byte[] code = source.getBytes();
+        final OCLProgram program = deviceContext.createProgramWithSource(code, new long[] { code.length });
+        program.build("");
+        final OCLBuildStatus status = program.getStatus(deviceContext.getDeviceId());
+        if (status == OCLBuildStatus.CL_BUILD_ERROR) {
+            error("Unable to build the transfer decoder %s:\n%s", entryPoint, program.getBuildLog(deviceContext.getDeviceId()));
+            throw new TornadoRuntimeException("[ERROR] Unable to build the transfer decoder " + entryPoint);
+        }
+        return program.getKernel(entryPoint);
+    }
+
+    /**
+     * Enqueues the copy of an encoded stream to the staging region of the current
+     * command queue, followed by its decode.
+     *
+     * @param codec
+     *            codec used to encode the stream.
+     * @param kind
+     *            element kind of the destination array.
+     * @param encoded
+     *            encoded stream.
+     * @param destinationOffset
+     *            offset of the array data within the device heap.
+     * @param waitEvents
+     *            list of events to wait for.
+     * @return Event information of the decode kernel
+     */
+    public synchronized int enqueueWriteAndDecode(TransferCodec codec, JavaKind kind, int[] encoded, long destinationOffset, int[] waitEvents) {
+        final StagingRegion region = stagingRegions[deviceContext.getQueueIndex()];
+        final long bytes = (long) encoded.length * Integer.BYTES;
+        if (bytes > region.size) {
+            // The old region is reclaimed when the heap is reset. Doubling the size
+            // bounds what is left behind to the size of the largest stream.
+            region.size = Math.max(bytes, region.size * 2);
+            region.offset = deviceContext.getMemoryManager().tryAllocate(region.size, 0, STAGING_ALIGNMENT);
+        }
+
+        // The stream must not overwrite the one that is still being decoded. This
+        // only adds a dependency on out-of-order queues.
+        int[] writeWaitEvents = waitEvents;
+        if (region.lastDecodeEvent != -1) {
+            final int length = (waitEvents == null) ? 0 : waitEvents.length;
+            writeWaitEvents = new int[length + 1];
+            if (waitEvents != null) {
+                System.arraycopy(waitEvents, 0, writeWaitEvents, 0, length);
+            }
+            writeWaitEvents[length] = region.lastDecodeEvent;
+        }
+
+        final int writeEvent = deviceContext.enqueueWriteBuffer(deviceContext.getMemoryManager().toBuffer(), region.offset, bytes, encoded, 0, writeWaitEvents);
+        final int decodeEvent = enqueueDecode(codec, kind, encoded, region.offset, destinationOffset, new int[] { writeEvent });
+
+        deviceContext.retainEvent(decodeEvent);
+        if (region.lastDecodeEvent != -1) {
+            deviceContext.releaseEvent(region.lastDecodeEvent);
+        }
+        region.lastDecodeEvent = decodeEvent;
+        encodedTransfers++;
+        return decodeEvent;
+    }
+
+    private int enqueueDecode(TransferCodec codec, JavaKind kind, int[] encoded, long sourceOffset, long destinationOffset, int[] waitEvents) {
+        final OCLKernel kernel = getKernel(codec, kind);
+
+        buffer.clear();
+        buffer.putLong(deviceContext.getMemoryManager().toBuffer());
+        kernel.setArg(0, buffer);
+        buffer.clear();
+        buffer.putLong(sourceOffset);
+        kernel.setArg(1, buffer);
+        buffer.clear();
+        buffer.putLong(destinationOffset);
+        kernel.setArg(2, buffer);
+
+        final long workItems;
+        switch (codec) {
+            case DELTA:
+                workItems = encoded[1];
+                break;
+            default:
+                workItems = encoded[0];
+                break;
+        }
+        return deviceContext.enqueueNDRangeKernel(kernel, 1, null, new long[] { Math.max(workItems, 1) }, null, waitEvents);
+    }
+}
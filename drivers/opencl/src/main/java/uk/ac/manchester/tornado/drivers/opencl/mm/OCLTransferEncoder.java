@@ -0,0 +1,295 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.mm;
+
+import java.util.stream.IntStream;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
+
+/**
+ * Host side of the compressed transfers. Arrays are first widened to 32-bit
+ * words and then encoded into a single int[] stream that is copied to the
+ * device and expanded by the kernels generated in {@link OCLTransferDecoder}.
+ *
+ * Stream layouts (all entries are 32-bit words):
+ * <ul>
+ * <li>BITPACK: {@code [n, min, bits, packed...]}. Element {@code i} is stored
+ * as {@code v[i] - min} at bit {@code i * bits}.</li>
+ * <li>DELTA: {@code [n, blocks, (base, bits, offset) * blocks, packed...]}.
+ * Each block of {@link #BLOCK} elements keeps its first value and the
+ * zig-zag encoded deltas of the rest, packed with the block bit width.</li>
+ * <li>RLE: {@code [n, runs, values * runs, ends * runs]}, where {@code ends}
+ * holds the exclusive end index of each run.</li>
+ * </ul>
+ * Packed sections are padded with one extra word so the decoder can always
+ * read two consecutive words.
+ */
+final class OCLTransferEncoder {
+
+    static final int BLOCK = 32;
+
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private OCLTransferEncoder() {
+    }
+
+    static boolean isSupported(JavaKind kind) {
+        switch (kind) {
+            case Byte:
+            case Char:
+            case Short:
+            case Int:
+            case Float:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Encodes the array with the given codec.
+     *
+     * @return the encoded stream, or null when the array is not supported or the
+     *         encoded stream is not smaller than the raw array.
+     */
+    static int[] encode(TransferCodec codec, Object array, JavaKind kind, long rawBytes) {
+        if (codec == TransferCodec.NONE || !isSupported(kind)) {
+            return null;
+        }
+        final int[] values = widen(array, kind);
+        final int[] encoded;
+        switch (codec) {
+            case BITPACK:
+                encoded = encodeBitPack(values);
+                break;
+            case DELTA:
+                encoded = encodeDelta(values);
+                break;
+            case RLE:
+                encoded = encodeRunLength(values);
+                break;
+            default:
+                return null;
+        }
+        return ((long) encoded.length * Integer.BYTES < rawBytes) ? encoded : null;
+    }
+
+    private static IntStream range(int start, int end, int elements) {
+        IntStream stream = IntStream.range(start, end);
+        return (elements >= PARALLEL_THRESHOLD) ? stream.parallel() : stream;
+    }
+
+    /*
+     * Bytes are widened unsigned so that the decoded value fits in a uchar;
+     * floats are encoded through their raw bits.
+     */
+    private static int[] widen(Object array, JavaKind kind) {
+        final int[] values;
+        switch (kind) {
+            case Int:
+                return (int[]) array;
+            case Byte: {
+                final byte[] a = (byte[]) array;
+                values = new int[a.length];
+                range(0, a.length, a.length).forEach(i -> values[i] = a[i] & 0xFF);
+                break;
+            }
+            case Char: {
+                final char[] a = (char[]) array;
+                values = new int[a.length];
+                range(0, a.length, a.length).forEach(i -> values[i] = a[i]);
+                break;
+            }
+            case Short: {
+                final short[] a = (short[]) array;
+                values = new int[a.length];
+                range(0, a.length, a.length).forEach(i -> values[i] = a[i]);
+                break;
+            }
+            case Float: {
+                final float[] a = (float[]) array;
+                values = new int[a.length];
+                range(0, a.length, a.length).forEach(i -> values[i] = Float.floatToRawIntBits(a[i]));
+                break;
+            }
+            default:
+                return null;
+        }
+        return values;
+    }
+
+    private static int bitWidth(long range) {
+        return 64 - Long.numberOfLeadingZeros(range);
+    }
+
+    private static int numBlocks(int n) {
+        return (n + BLOCK - 1) / BLOCK;
+    }
+
+    /*
+     * Packs values[from, to) into words starting at wordOffset. A full block of
+     * 32 elements at bit width b occupies exactly b words, which lets blocks be
+     * packed independently.
+     */
+    private static void pack(int[] words, int wordOffset, int[] values, int from, int to, int base, int bits, boolean zigzag, int previous) {
+        if (bits == 0) {
+            return;
+        }
+        int last = previous;
+        for (int i = from; i < to; i++) {
+            final int v;
+            if (zigzag) {
+                final int delta = values[i] - last;
+                v = (delta << 1) ^ (delta >> 31);
+                last = values[i];
+            } else {
+                v = values[i] - base;
+            }
+            final long bit = (long) (i - from) * bits;
+            final int word = wordOffset + (int) (bit >>> 5);
+            final int shift = (int) (bit & 31);
+            words[word] |= v << shift;
+            if (shift + bits > 32) {
+                words[word + 1] |= v >>> (32 - shift);
+            }
+        }
+    }
+
+    private static int[] encodeBitPack(int[] values) {
+        final int n = values.length;
+        final int min = range(0, n, n).map(i -> values[i]).min().orElse(0);
+        final long max = range(0, n, n).mapToLong(i -> (long) values[i] - min).max().orElse(0);
+        final int bits = bitWidth(max);
+        final int blocks = numBlocks(n);
+        final int header = 3;
+        final int[] words = new int[header + blocks * bits + 1];
+        words[0] = n;
+        words[1] = min;
+        words[2] = bits;
+        range(0, blocks, n).forEach(b -> {
+            final int from = b * BLOCK;
+            pack(words, header + b * bits, values, from, Math.min(from + BLOCK, n), min, bits, false, 0);
+        });
+        return words;
+    }
+
+    private static int[] encodeDelta(int[] values) {
+        final int n = values.length;
+        final int blocks = numBlocks(n);
+        final int[] widths = new int[blocks];
+        range(0, blocks, n).forEach(b -> {
+            final int from = b * BLOCK;
+            final int to = Math.min(from + BLOCK, n);
+            int zigzag = 0;
+            for (int i = from + 1; i < to; i++) {
+                final int delta = values[i] - values[i - 1];
+                zigzag |= (delta << 1) ^ (delta >> 31);
+            }
+            widths[b] = bitWidth(zigzag & 0xFFFFFFFFL);
+        });
+
+        final int header = 2 + 3 * blocks;
+        final int[] offsets = new int[blocks];
+        int payload = 0;
+        for (int b = 0; b < blocks; b++) {
+            offsets[b] = payload;
+            payload += widths[b];
+        }
+
+        final int[] words = new int[header + payload + 1];
+        words[0] = n;
+        words[1] = blocks;
+        range(0, blocks, n).forEach(b -> {
+            final int from = b * BLOCK;
+            final int to = Math.min(from + BLOCK, n);
+            words[2 + 3 * b] = values[from];
+            words[2 + 3 * b + 1] = widths[b];
+            words[2 + 3 * b + 2] = offsets[b];
+            pack(words, header + offsets[b], values, from + 1, to, 0, widths[b], true, values[from]);
+        });
+        return words;
+    }
+
+    /*
+     * Runs are found independently over chunks of the array and then merged
+     * where a run crosses a chunk boundary.
+     */
+    private static int[] encodeRunLength(int[] values) {
+        final int n = values.length;
+        final int chunks = (n >= PARALLEL_THRESHOLD) ? Runtime.getRuntime().availableProcessors() * 4 : 1;
+        final int chunkSize = (n + chunks - 1) / Math.max(chunks, 1);
+        final int[][] chunkValues = new int[chunks][];
+        final int[][] chunkEnds = new int[chunks][];
+
+        range(0, chunks, n).forEach(c -> {
+            final int from = Math.min(c * chunkSize, n);
+            final int to = Math.min(from + chunkSize, n);
+            int runs = 0;
+            for (int i = from; i < to; i++) {
+                if (i == from || values[i] != values[i - 1]) {
+                    runs++;
+                }
+            }
+            final int[] runValues = new int[runs];
+            final int[] runEnds = new int[runs];
+            int r = -1;
+            for (int i = from; i < to; i++) {
+                if (i == from || values[i] != values[i - 1]) {
+                    r++;
+                    runValues[r] = values[i];
+                }
+                runEnds[r] = i + 1;
+            }
+            chunkValues[c] = runValues;
+            chunkEnds[c] = runEnds;
+        });
+
+        int totalRuns = 0;
+        for (int c = 0; c < chunks; c++) {
+            totalRuns += chunkValues[c].length;
+        }
+        final int[] mergedValues = new int[totalRuns];
+        final int[] mergedEnds = new int[totalRuns];
+        int runs = 0;
+        for (int c = 0; c < chunks; c++) {
+            for (int r = 0; r < chunkValues[c].length; r++) {
+                if (runs > 0 && r == 0 && mergedValues[runs - 1] == chunkValues[c][0]) {
+                    mergedEnds[runs - 1] = chunkEnds[c][0];
+                } else {
+                    mergedValues[runs] = chunkValues[c][r];
+                    mergedEnds[runs] = chunkEnds[c][r];
+                    runs++;
+                }
+            }
+        }
+
+        final int[] words = new int[2 + 2 * runs];
+        words[0] = n;
+        words[1] = runs;
+        System.arraycopy(mergedValues, 0, words, 2, runs);
+        System.arraycopy(mergedEnds, 0, words, 2 + runs, runs);
+        return words;
+    }
+}
@@ -33,6 +33,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 import uk.ac.manchester.tornado.api.common.Access;
@@ -51,6 +52,7 @@ import uk.ac.manchester.tornado.api.mm.TornadoMemoryProvider;
 import uk.ac.manchester.tornado.api.profiler.ProfilerType;
 import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 import uk.ac.manchester.tornado.drivers.opencl.OCLCodeCache;
+import uk.ac.manchester.tornado.drivers.opencl.OCLCommandGraph;
 import uk.ac.manchester.tornado.drivers.opencl.OCLDevice;
 import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
 import uk.ac.manchester.tornado.drivers.opencl.OCLDriver;
@@ -60,6 +62,7 @@ import uk.ac.manchester.tornado.drivers.opencl.graal.OCLProviders;
 import uk.ac.manchester.tornado.drivers.opencl.graal.backend.OCLBackend;
 import uk.ac.manchester.tornado.drivers.opencl.graal.compiler.OCLCompilationResult;
 import uk.ac.manchester.tornado.drivers.opencl.graal.compiler.OCLCompiler;
+import uk.ac.manchester.tornado.drivers.opencl.mm.OCLArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLByteArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLByteBuffer;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLCharArrayWrapper;
@@ -77,6 +80,7 @@ import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoCommandGraph;
 import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
 import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
 import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
@@ -331,6 +335,49 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         return getDeviceContext().getInstalledCode(task.getId(), entry);
     }
 
+    @Override
+    public boolean startCommandCapture() {
+        return getDeviceContext().startCommandCapture();
+    }
+
+    @Override
+    public TornadoCommandGraph stopCommandCapture() {
+        return getDeviceContext().stopCommandCapture();
+    }
+
+    @Override
+    public int replayCommandGraph(TornadoCommandGraph graph) {
+        return getDeviceContext().enqueueCommandGraph((OCLCommandGraph) graph);
+    }
+
+    @Override
+    public void selectCommandQueue(int queue, int waitMask) {
+        getDeviceContext().selectQueue(queue, waitMask);
+    }
+
+    @Override
+    public void profileEvent(int event, TornadoProfiler profiler, ProfilerType type) {
+        getDeviceContext().profileEvent(event, profiler, type);
+    }
+
+    @Override
+    public void resolveProfiledEvents() {
+        getDeviceContext().resolveProfiledEvents();
+    }
+
+    @Override
+    public CompletableFuture<Void> whenEventComplete(int event) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        getDeviceContext().whenEventComplete(event, status -> {
+            if (status < 0) {
+                future.completeExceptionally(new TornadoRuntimeException(String.format("[ERROR] event %d failed on %s with status %d", event, this, status)));
+            } else {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
     private boolean isJITTaskForFGPA(SchedulableTask task) {
         final OCLDeviceContext deviceContext = getDeviceContext();
         final String deviceFullName = getFullTaskIdDevice(task);
@@ -497,6 +544,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
 
         if (BENCHMARKING_MODE || !state.hasContents()) {
             state.setContents(true);
+            setTransferCodec(state);
             return state.getBuffer().enqueueWrite(object, batchSize, offset, events, events == null);
         }
         return null;
@@ -508,9 +556,16 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
             ensureAllocated(object, batchSize, state);
         }
         state.setContents(true);
+        setTransferCodec(state);
         return state.getBuffer().enqueueWrite(object, batchSize, offset, events, events == null);
     }
 
+    private void setTransferCodec(TornadoDeviceObjectState state) {
+        if (state.getBuffer() instanceof OCLArrayWrapper) {
+            ((OCLArrayWrapper<?>) state.getBuffer()).setTransferCodec(state.getTransferCodec());
+        }
+    }
+
     @Override
     public int streamOut(Object object, long offset, TornadoDeviceObjectState state, int[] events) {
         TornadoInternalError.guarantee(state.isValid(), "invalid variable");
@@ -527,6 +582,12 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         return state.getBuffer().read(object, hostOffset, events, events == null);
     }
 
+    @Override
+    public int streamOutRangeBlocking(Object object, long offset, long bytes, TornadoDeviceObjectState state, int[] events) {
+        TornadoInternalError.guarantee(state.isValid(), "invalid variable");
+        return state.getBuffer().readRange(object, offset, bytes, events, events == null);
+    }
+
     public void sync(Object... objects) {
         for (Object obj : objects) {
             sync(obj);
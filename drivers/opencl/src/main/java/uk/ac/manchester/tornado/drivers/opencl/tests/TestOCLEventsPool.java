@@ -0,0 +1,203 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.tests;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.ENABLE_PROFILING;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.EVENT_WINDOW;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.manchester.tornado.api.exceptions.TornadoInternalError;
+import uk.ac.manchester.tornado.api.profiler.ProfilerType;
+import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
+import uk.ac.manchester.tornado.drivers.opencl.OCLDriver;
+import uk.ac.manchester.tornado.drivers.opencl.OCLEvent;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.profiler.TimeProfiler;
+
+/**
+ * Tests the pool of events of a device context: slots are recycled once every
+ * reference to an event is dropped, retained and profiled events are never
+ * overwritten, the pool reports when it is full, and the profiling information
+ * of deferred events is read in a single batch.
+ * <p>
+ * Events are created with markers, so the device must support OpenCL 1.2.
+ */
+public class TestOCLEventsPool {
+
+    private final OCLDeviceContext deviceContext;
+
+    public TestOCLEventsPool(OCLDeviceContext deviceContext) {
+        this.deviceContext = deviceContext;
+    }
+
+    private static void check(boolean condition, String message, Object... args) {
+        if (!condition) {
+            throw new AssertionError(String.format(message, args));
+        }
+    }
+
+    private int marker() {
+        final int event = deviceContext.enqueueMarker();
+        check(event >= 0 && event < EVENT_WINDOW, "invalid event id: %d", event);
+        return event;
+    }
+
+    private long oclEventOf(int event) {
+        return ((OCLEvent) deviceContext.resolveEvent(event)).getOclEventID();
+    }
+
+    /**
+     * Enqueues new events until one of them takes the slot of the given event.
+     *
+     * @return true if the slot has been recycled.
+     */
+    private boolean isRecycled(int event) {
+        for (int i = 0; i < 2 * EVENT_WINDOW; i++) {
+            if (marker() == event) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Events that are not retained are released by the pool itself, so it never
+     * fills up.
+     */
+    public void testRecycling() {
+        for (int i = 0; i < 4 * EVENT_WINDOW; i++) {
+            marker();
+        }
+        deviceContext.sync();
+    }
+
+    public void testRetainedEventIsNotRecycled() {
+        final int event = marker();
+        final long oclEvent = oclEventOf(event);
+        deviceContext.retainEvent(event);
+
+        for (int i = 0; i < 2 * EVENT_WINDOW; i++) {
+            check(marker() != event, "retained event %d has been recycled", event);
+        }
+        check(oclEventOf(event) == oclEvent, "retained event %d has been overwritten", event);
+
+        deviceContext.releaseEvent(event);
+        check(isRecycled(event), "released event %d is never recycled", event);
+        deviceContext.sync();
+    }
+
+    /**
+     * Profiled events are kept until their timestamps are read, and released
+     * afterwards.
+     */
+    public void testReleaseAfterProfiling() {
+        final TimeProfiler profiler = new TimeProfiler();
+        final int event = marker();
+        deviceContext.profileEvent(event, profiler, ProfilerType.COPY_IN_TIME);
+
+        for (int i = 0; i < 2 * EVENT_WINDOW; i++) {
+            check(marker() != event, "profiled event %d has been recycled before it was read", event);
+        }
+
+        deviceContext.sync();
+        deviceContext.resolveProfiledEvents();
+        check(isRecycled(event), "profiled event %d is not released once it is read", event);
+        deviceContext.sync();
+    }
+
+    /**
+     * When every slot is retained the pool reports it, and it can be used again
+     * once the events are released.
+     */
+    public void testPoolExhaustion() {
+        final List<Integer> retained = new ArrayList<>();
+        boolean full = false;
+        try {
+            for (int i = 0; i <= EVENT_WINDOW; i++) {
+                final int event = marker();
+                deviceContext.retainEvent(event);
+                retained.add(event);
+            }
+        } catch (TornadoInternalError e) {
+            full = true;
+        }
+        check(full, "the pool accepted more than %d retained events", EVENT_WINDOW);
+
+        deviceContext.sync();
+        for (int event : retained) {
+            deviceContext.releaseEvent(event);
+        }
+        testRecycling();
+    }
+
+    /**
+     * The batched read of the deferred events must add up to the same time as
+     * reading each event on its own.
+     */
+    public void testBatchedProfiling() {
+        if (!ENABLE_PROFILING) {
+            System.out.println("\tskipped: -Dtornado.profiling.enable=False");
+            return;
+        }
+        final int numEvents = Math.min(64, EVENT_WINDOW / 4);
+        final TimeProfiler profiler = new TimeProfiler();
+        final int[] events = new int[numEvents];
+        for (int i = 0; i < numEvents; i++) {
+            events[i] = marker();
+            deviceContext.profileEvent(events[i], profiler, ProfilerType.COPY_IN_TIME);
+        }
+        deviceContext.sync();
+
+        long expected = 0;
+        for (int event : events) {
+            expected += ((OCLEvent) deviceContext.resolveEvent(event)).getExecutionTime();
+        }
+        deviceContext.resolveProfiledEvents();
+        check(profiler.getTimer(ProfilerType.COPY_IN_TIME) == expected, "batched time %d, expected %d", profiler.getTimer(ProfilerType.COPY_IN_TIME), expected);
+
+        // Nothing is left to resolve
+        deviceContext.resolveProfiledEvents();
+        check(profiler.getTimer(ProfilerType.COPY_IN_TIME) == expected, "events have been profiled twice");
+    }
+
+    public static void main(String[] args) {
+        final OCLDeviceContext deviceContext = TornadoCoreRuntime.getTornadoRuntime().getDriver(OCLDriver.class).getDefaultBackend().getDeviceContext();
+        final TestOCLEventsPool test = new TestOCLEventsPool(deviceContext);
+
+        System.out.println("testRecycling");
+        test.testRecycling();
+        System.out.println("testRetainedEventIsNotRecycled");
+        test.testRetainedEventIsNotRecycled();
+        System.out.println("testReleaseAfterProfiling");
+        test.testReleaseAfterProfiling();
+        System.out.println("testPoolExhaustion");
+        test.testPoolExhaustion();
+        System.out.println("testBatchedProfiling");
+        test.testBatchedProfiling();
+        System.out.println("All tests passed");
+    }
+}
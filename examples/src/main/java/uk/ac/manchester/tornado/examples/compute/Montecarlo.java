@@ -20,28 +20,24 @@ package uk.ac.manchester.tornado.examples.compute;
 
 import uk.ac.manchester.tornado.api.TaskSchedule;
 import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.random.Philox;
 
 /**
  * Montecarlo algorithm to approximate the PI value. This version has been
- * adapted from Marawacc test-suite.
+ * adapted from Marawacc test-suite. The random numbers are generated in the
+ * kernel with {@link Philox}, so the sequential version draws the same points.
  *
  */
 public class Montecarlo {
 
+    private static final long SEED = 42;
+
     private static void computeMontecarlo(float[] output, final int iterations) {
         for (@Parallel int j = 0; j < iterations; j++) {
-            long seed = j;
-            // generate a pseudo random number (you do need it twice)
-            seed = (seed * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
-            seed = (seed * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
-
-            // this generates a number between 0 and 1 (with an awful entropy)
-            float x = (seed & 0x0FFFFFFF) / 268435455f;
-
-            // repeat for y
-            seed = (seed * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
-            seed = (seed * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
-            float y = (seed & 0x0FFFFFFF) / 268435455f;
+            // two uniform random numbers between 0 and 1, from the counters 2j
+            // and 2j + 1 of a counter-based generator
+            float x = Philox.uniformFloat(SEED, 2L * j);
+            float y = Philox.uniformFloat(SEED, 2L * j + 1);
 
             float dist = (float) Math.sqrt(x * x + y * y);
             if (dist <= 1.0f) {
@@ -1,4 +1,5 @@
 module tornado.matrices {
+    requires java.logging;
     requires ejml.core;
 
     requires transitive ejml.simple;
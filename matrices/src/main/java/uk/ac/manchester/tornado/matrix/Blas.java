@@ -0,0 +1,906 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.matrix;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.annotations.Reduce;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DDouble;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DFloat;
+import uk.ac.manchester.tornado.api.collections.types.VectorDouble;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat;
+
+/**
+ * BLAS routines on {@link Matrix2DFloat}, {@link Matrix2DDouble},
+ * {@link VectorFloat} and {@link VectorDouble}, executed with task-schedules:
+ * GEMM with transposes ({@code sgemm}/{@code dgemm}), GEMV
+ * ({@code sgemv}/{@code dgemv}), AXPY, DOT, NRM2 and batched GEMM of small
+ * matrices stored one after the other ({@code sgemmBatched}/{@code dgemmBatched}).
+ * <p>
+ * The task-schedule of a call is built the first time a routine is called with
+ * the given operands, and is kept in a cache of {@link #CACHE_SIZE} entries, so
+ * that calls that repeat a routine on the same arrays reuse the compiled
+ * kernel and the device buffers. The scalars {@code alpha} and {@code beta}
+ * are passed in an array that is copied on every execution, so changing them
+ * does not build a new task-schedule. {@link #clearCache()} releases the
+ * task-schedules and the arrays they reference.
+ * <p>
+ * Every routine has a host version ({@code ...OnHost}) that runs on the
+ * ForkJoin common pool, e.g., for devices that are not available or for
+ * operands that are too small to amortise the copies. The GEMM and GEMV host
+ * versions compute every element as the kernels do, so their results are
+ * identical to the device results.
+ * <p>
+ * Matrices are stored in row-major order: {@code M()} is the number of rows
+ * and {@code N()} the number of columns.
+ */
+public final class Blas {
+
+    /**
+     * Number of consecutive elements of a row of {@code C} computed by each
+     * GEMM thread.
+     */
+    public static final int GEMM_BLOCK = 4;
+
+    /**
+     * Largest number of task-schedules kept by the cache. The least recently
+     * used task-schedule is dropped first.
+     */
+    public static final int CACHE_SIZE = 64;
+
+    private static final int HOST_BLOCK = 4096;
+
+    private static final Map<Key, Prepared<?>> CACHE = Collections.synchronizedMap(new LinkedHashMap<Key, Prepared<?>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Prepared<?>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    private Blas() {
+    }
+
+    /**
+     * Routine, shape and operands (compared by identity) of a call.
+     */
+    private static final class Key {
+
+        private final String routine;
+        private final int[] config;
+        private final Object[] operands;
+
+        Key(String routine, int[] config, Object... operands) {
+            this.routine = routine;
+            this.config = config;
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            if (!routine.equals(key.routine) || !Arrays.equals(config, key.config) || operands.length != key.operands.length) {
+                return false;
+            }
+            for (int i = 0; i < operands.length; i++) {
+                if (operands[i] != key.operands[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = routine.hashCode() * 31 + Arrays.hashCode(config);
+            for (Object operand : operands) {
+                hash = hash * 31 + System.identityHashCode(operand);
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * A task-schedule, and the array of scalars or results it copies.
+     */
+    private static final class Prepared<T> {
+
+        private final TaskSchedule schedule;
+        private final T data;
+
+        Prepared(TaskSchedule schedule, T data) {
+            this.schedule = schedule;
+            this.data = data;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Prepared<T> prepare(Key key, Supplier<Prepared<T>> factory) {
+        return (Prepared<T>) CACHE.computeIfAbsent(key, k -> factory.get());
+    }
+
+    /**
+     * Drops all the task-schedules of the cache.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static int numBlocks(int length, int blockSize) {
+        return (length + blockSize - 1) / blockSize;
+    }
+
+    /**
+     * Strides of {@code op(A)} and {@code op(B)} in their flattened arrays,
+     * after checking that {@code op(A)} is {@code m x k}, {@code op(B)} is
+     * {@code k x n} and {@code C} is {@code m x n}.
+     */
+    private static int[] gemmStrides(boolean transA, boolean transB, int rowsA, int colsA, int rowsB, int colsB, int rowsC, int colsC) {
+        final int m = transA ? colsA : rowsA;
+        final int k = transA ? rowsA : colsA;
+        final int kB = transB ? colsB : rowsB;
+        final int n = transB ? rowsB : colsB;
+        if (m != rowsC || n != colsC || k != kB) {
+            throw new IllegalArgumentException(String.format("incompatible shapes: op(A) is %dx%d, op(B) is %dx%d, C is %dx%d", m, k, kB, n, rowsC, colsC));
+        }
+        return new int[] { transA ? 1 : colsA, transA ? colsA : 1, transB ? 1 : colsB, transB ? colsB : 1 };
+    }
+
+    private static int[] gemvStrides(boolean transA, int rowsA, int colsA, int lengthX, int lengthY) {
+        final int m = transA ? colsA : rowsA;
+        final int k = transA ? rowsA : colsA;
+        if (m != lengthY || k != lengthX) {
+            throw new IllegalArgumentException(String.format("incompatible shapes: op(A) is %dx%d, x has %d elements, y has %d elements", m, k, lengthX, lengthY));
+        }
+        return new int[] { transA ? 1 : colsA, transA ? colsA : 1 };
+    }
+
+    private static int checkLength(int lengthX, int lengthY) {
+        if (lengthX != lengthY) {
+            throw new IllegalArgumentException(String.format("vectors of different lengths: %d and %d", lengthX, lengthY));
+        }
+        return lengthX;
+    }
+
+    private static void checkBatch(int batchCount, int m, int n, int k, int lengthA, int lengthB, int lengthC) {
+        if (batchCount < 0 || m < 0 || n < 0 || k < 0) {
+            throw new IllegalArgumentException("negative batch size or dimension");
+        }
+        if ((long) batchCount * m * k > lengthA || (long) batchCount * k * n > lengthB || (long) batchCount * m * n > lengthC) {
+            throw new IllegalArgumentException(String.format("arrays too short for %d matrices of %dx%d by %dx%d", batchCount, m, k, k, n));
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // float
+    // ------------------------------------------------------------------------
+
+    /**
+     * Computes the {@link #GEMM_BLOCK} elements {@code (i, j)} to
+     * {@code (i, j + GEMM_BLOCK - 1)} of {@code C = alpha * op(A) * op(B) + beta * C},
+     * or the elements up to the last column of {@code C}.
+     */
+    private static void sgemmBlock(final int i, final int j, final int n, final int k, final float[] a, final float[] b, final float[] c, final int[] strides, final float[] scalars) {
+        final int aRow = strides[0];
+        final int aCol = strides[1];
+        final int bRow = strides[2];
+        final int bCol = strides[3];
+        final float alpha = scalars[0];
+        final float beta = scalars[1];
+        if (j + GEMM_BLOCK <= n) {
+            float sum0 = 0.0f;
+            float sum1 = 0.0f;
+            float sum2 = 0.0f;
+            float sum3 = 0.0f;
+            for (int l = 0; l < k; l++) {
+                final float x = a[i * aRow + l * aCol];
+                final int index = l * bRow + j * bCol;
+                sum0 += x * b[index];
+                sum1 += x * b[index + bCol];
+                sum2 += x * b[index + 2 * bCol];
+                sum3 += x * b[index + 3 * bCol];
+            }
+            final int index = i * n + j;
+            c[index] = scale(sum0, c[index], alpha, beta);
+            c[index + 1] = scale(sum1, c[index + 1], alpha, beta);
+            c[index + 2] = scale(sum2, c[index + 2], alpha, beta);
+            c[index + 3] = scale(sum3, c[index + 3], alpha, beta);
+        } else {
+            for (int jj = j; jj < n; jj++) {
+                float sum = 0.0f;
+                for (int l = 0; l < k; l++) {
+                    sum += a[i * aRow + l * aCol] * b[l * bRow + jj * bCol];
+                }
+                c[i * n + jj] = scale(sum, c[i * n + jj], alpha, beta);
+            }
+        }
+    }
+
+    /**
+     * {@code alpha * sum + beta * c}, where {@code c} is ignored when
+     * {@code beta} is zero, as in BLAS.
+     */
+    private static float scale(final float sum, final float c, final float alpha, final float beta) {
+        return (beta == 0.0f) ? alpha * sum : alpha * sum + beta * c;
+    }
+
+    /**
+     * GEMM kernel: each thread computes {@link #GEMM_BLOCK} consecutive
+     * elements of a row of {@code C}, so that every element of {@code op(A)}
+     * is loaded once for the whole block. Adjacent threads compute adjacent
+     * blocks of the same row.
+     *
+     * @param strides
+     *            {@code op(A)[i, l] = a[i * strides[0] + l * strides[1]]} and
+     *            {@code op(B)[l, j] = b[l * strides[2] + j * strides[3]]}.
+     * @param scalars
+     *            {@code alpha} and {@code beta}.
+     */
+    public static void sgemmKernel(final int m, final int n, final int k, final int columnBlocks, final float[] a, final float[] b, final float[] c, final int[] strides, final float[] scalars) {
+        for (@Parallel int jb = 0; jb < columnBlocks; jb++) {
+            for (@Parallel int i = 0; i < m; i++) {
+                sgemmBlock(i, jb * GEMM_BLOCK, n, k, a, b, c, strides, scalars);
+            }
+        }
+    }
+
+    private static void sgemvRow(final int i, final int k, final float[] a, final float[] x, final float[] y, final int[] strides, final float[] scalars) {
+        final int aRow = strides[0];
+        final int aCol = strides[1];
+        float sum = 0.0f;
+        for (int l = 0; l < k; l++) {
+            sum += a[i * aRow + l * aCol] * x[l];
+        }
+        y[i] = scale(sum, y[i], scalars[0], scalars[1]);
+    }
+
+    /**
+     * GEMV kernel: each thread computes one element of {@code y}.
+     *
+     * @param strides
+     *            {@code op(A)[i, l] = a[i * strides[0] + l * strides[1]]}.
+     * @param scalars
+     *            {@code alpha} and {@code beta}.
+     */
+    public static void sgemvKernel(final int m, final int k, final float[] a, final float[] x, final float[] y, final int[] strides, final float[] scalars) {
+        for (@Parallel int i = 0; i < m; i++) {
+            sgemvRow(i, k, a, x, y, strides, scalars);
+        }
+    }
+
+    /**
+     * AXPY kernel: {@code y = alpha * x + y}, with {@code alpha} in
+     * {@code scalars[0]}.
+     */
+    public static void saxpyKernel(final int n, final float[] x, final float[] y, final float[] scalars) {
+        for (@Parallel int i = 0; i < n; i++) {
+            y[i] = scalars[0] * x[i] + y[i];
+        }
+    }
+
+    public static void sdotKernel(final int n, final float[] x, final float[] y, @Reduce float[] result) {
+        result[0] = 0.0f;
+        for (@Parallel int i = 0; i < n; i++) {
+            result[0] += x[i] * y[i];
+        }
+    }
+
+    public static void ssumSquaresKernel(final int n, final float[] x, @Reduce float[] result) {
+        result[0] = 0.0f;
+        for (@Parallel int i = 0; i < n; i++) {
+            result[0] += x[i] * x[i];
+        }
+    }
+
+    private static void sgemmBatchedElement(final int p, final int e, final int m, final int n, final int k, final float[] a, final float[] b, final float[] c, final float[] scalars) {
+        final int i = e / n;
+        final int j = e % n;
+        final int aOffset = p * m * k + i * k;
+        final int bOffset = p * k * n + j;
+        float sum = 0.0f;
+        for (int l = 0; l < k; l++) {
+            sum += a[aOffset + l] * b[bOffset + l * n];
+        }
+        final int index = p * m * n + e;
+        c[index] = scale(sum, c[index], scalars[0], scalars[1]);
+    }
+
+    /**
+     * Batched GEMM kernel: each thread computes one element of one matrix of
+     * the batch. Adjacent threads compute adjacent elements of the same matrix.
+     */
+    public static void sgemmBatchedKernel(final int batchCount, final int m, final int n, final int k, final float[] a, final float[] b, final float[] c, final float[] scalars) {
+        for (@Parallel int e = 0; e < m * n; e++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                sgemmBatchedElement(p, e, m, n, k, a, b, c, scalars);
+            }
+        }
+    }
+
+    /**
+     * {@code C = alpha * op(A) * op(B) + beta * C} on the default device, where
+     * {@code op(X)} is {@code X} or its transpose.
+     */
+    public static void sgemm(boolean transA, boolean transB, float alpha, Matrix2DFloat a, Matrix2DFloat b, float beta, Matrix2DFloat c) {
+        final int[] strides = gemmStrides(transA, transB, a.M(), a.N(), b.M(), b.N(), c.M(), c.N());
+        final int m = c.M();
+        final int n = c.N();
+        final int k = transA ? a.M() : a.N();
+        if (m == 0 || n == 0) {
+            return;
+        }
+        final float[] fa = a.getFlattenedArray();
+        final float[] fb = b.getFlattenedArray();
+        final float[] fc = c.getFlattenedArray();
+        final Prepared<float[]> call = prepare(new Key("sgemm", new int[] { transA ? 1 : 0, transB ? 1 : 0, m, n, k }, fa, fb, fc), () -> {
+            final float[] scalars = new float[2];
+            final TaskSchedule schedule = new TaskSchedule("blas") //
+                    .streamIn(fa, fb, fc, scalars) //
+                    .task("sgemm", Blas::sgemmKernel, m, n, k, numBlocks(n, GEMM_BLOCK), fa, fb, fc, strides, scalars) //
+                    .streamOut(fc);
+            return new Prepared<>(schedule, scalars);
+        });
+        synchronized (call) {
+            call.data[0] = alpha;
+            call.data[1] = beta;
+            call.schedule.execute();
+        }
+    }
+
+    /**
+     * {@code C = A * B} on the default device.
+     */
+    public static void sgemm(Matrix2DFloat a, Matrix2DFloat b, Matrix2DFloat c) {
+        sgemm(false, false, 1.0f, a, b, 0.0f, c);
+    }
+
+    /**
+     * GEMM on the host (ForkJoin common pool), with the same results as
+     * {@link #sgemm(boolean, boolean, float, Matrix2DFloat, Matrix2DFloat, float, Matrix2DFloat)}.
+     */
+    public static void sgemmOnHost(boolean transA, boolean transB, float alpha, Matrix2DFloat a, Matrix2DFloat b, float beta, Matrix2DFloat c) {
+        final int[] strides = gemmStrides(transA, transB, a.M(), a.N(), b.M(), b.N(), c.M(), c.N());
+        final int n = c.N();
+        final int k = transA ? a.M() : a.N();
+        final float[] scalars = new float[] { alpha, beta };
+        IntStream.range(0, c.M()).parallel().forEach(i -> {
+            for (int j = 0; j < n; j += GEMM_BLOCK) {
+                sgemmBlock(i, j, n, k, a.getFlattenedArray(), b.getFlattenedArray(), c.getFlattenedArray(), strides, scalars);
+            }
+        });
+    }
+
+    /**
+     * {@code y = alpha * op(A) * x + beta * y} on the default device.
+     */
+    public static void sgemv(boolean transA, float alpha, Matrix2DFloat a, VectorFloat x, float beta, VectorFloat y) {
+        final int[] strides = gemvStrides(transA, a.M(), a.N(), x.size(), y.size());
+        final int m = y.size();
+        final int k = x.size();
+        if (m == 0) {
+            return;
+        }
+        final float[] fa = a.getFlattenedArray();
+        final float[] fx = x.getArray();
+        final float[] fy = y.getArray();
+        final Prepared<float[]> call = prepare(new Key("sgemv", new int[] { transA ? 1 : 0, m, k }, fa, fx, fy), () -> {
+            final float[] scalars = new float[2];
+            final TaskSchedule schedule = new TaskSchedule("blas") //
+                    .streamIn(fa, fx, fy, scalars) //
+                    .task("sgemv", Blas::sgemvKernel, m, k, fa, fx, fy, strides, scalars) //
+                    .streamOut(fy);
+            return new Prepared<>(schedule, scalars);
+        });
+        synchronized (call) {
+            call.data[0] = alpha;
+            call.data[1] = beta;
+            call.schedule.execute();
+        }
+    }
+
+    public static void sgemvOnHost(boolean transA, float alpha, Matrix2DFloat a, VectorFloat x, float beta, VectorFloat y) {
+        final int[] strides = gemvStrides(transA, a.M(), a.N(), x.size(), y.size());
+        final float[] scalars = new float[] { alpha, beta };
+        IntStream.range(0, y.size()).parallel().forEach(i -> sgemvRow(i, x.size(), a.getFlattenedArray(), x.getArray(), y.getArray(), strides, scalars));
+    }
+
+    /**
+     * {@code y = alpha * x + y} on the default device.
+     */
+    public static void saxpy(float alpha, VectorFloat x, VectorFloat y) {
+        final int n = checkLength(x.size(), y.size());
+        if (n == 0) {
+            return;
+        }
+        final float[] fx = x.getArray();
+        final float[] fy = y.getArray();
+        final Prepared<float[]> call = prepare(new Key("saxpy", new int[] { n }, fx, fy), () -> {
+            final float[] scalars = new float[1];
+            final TaskSchedule schedule = new TaskSchedule("blas") //
+                    .streamIn(fx, fy, scalars) //
+                    .task("saxpy", Blas::saxpyKernel, n, fx, fy, scalars) //
+                    .streamOut(fy);
+            return new Prepared<>(schedule, scalars);
+        });
+        synchronized (call) {
+            call.data[0] = alpha;
+            call.schedule.execute();
+        }
+    }
+
+    public static void saxpyOnHost(float alpha, VectorFloat x, VectorFloat y) {
+        final int n = checkLength(x.size(), y.size());
+        final float[] fx = x.getArray();
+        final float[] fy = y.getArray();
+        IntStream.range(0, numBlocks(n, HOST_BLOCK)).parallel().forEach(block -> {
+            for (int i = block * HOST_BLOCK; i < Math.min(n, (block + 1) * HOST_BLOCK); i++) {
+                fy[i] = alpha * fx[i] + fy[i];
+            }
+        });
+    }
+
+    /**
+     * Dot product of two vectors on the default device.
+     */
+    public static float sdot(VectorFloat x, VectorFloat y) {
+        final int n = checkLength(x.size(), y.size());
+        if (n == 0) {
+            return 0.0f;
+        }
+        final float[] fx = x.getArray();
+        final float[] fy = y.getArray();
+        final Prepared<float[]> call = prepare(new Key("sdot", new int[] { n }, fx, fy), () -> {
+            final float[] result = new float[1];
+            final TaskSchedule schedule = (fx == fy) //
+                    ? new TaskSchedule("blas").streamIn(fx).task("sdot", Blas::ssumSquaresKernel, n, fx, result).streamOut(result) //
+                    : new TaskSchedule("blas").streamIn(fx, fy).task("sdot", Blas::sdotKernel, n, fx, fy, result).streamOut(result);
+            return new Prepared<>(schedule, result);
+        });
+        synchronized (call) {
+            call.schedule.execute();
+            return call.data[0];
+        }
+    }
+
+    public static float sdotOnHost(VectorFloat x, VectorFloat y) {
+        final int n = checkLength(x.size(), y.size());
+        final float[] fx = x.getArray();
+        final float[] fy = y.getArray();
+        return (float) IntStream.range(0, numBlocks(n, HOST_BLOCK)).parallel().mapToDouble(block -> {
+            float sum = 0.0f;
+            for (int i = block * HOST_BLOCK; i < Math.min(n, (block + 1) * HOST_BLOCK); i++) {
+                sum += fx[i] * fy[i];
+            }
+            return sum;
+        }).sum();
+    }
+
+    /**
+     * Euclidean norm of a vector on the default device. The squares are added
+     * without scaling, so the norm overflows when the sum of squares does.
+     */
+    public static float snrm2(VectorFloat x) {
+        return (float) Math.sqrt(sdot(x, x));
+    }
+
+    public static float snrm2OnHost(VectorFloat x) {
+        return (float) Math.sqrt(sdotOnHost(x, x));
+    }
+
+    /**
+     * {@code C[p] = alpha * A[p] * B[p] + beta * C[p]} for the
+     * {@code batchCount} matrices of a batch, on the default device. The
+     * matrices of a batch are stored one after the other in row-major order:
+     * {@code A[p]} is {@code m x k}, {@code B[p]} is {@code k x n} and
+     * {@code C[p]} is {@code m x n}.
+     */
+    public static void sgemmBatched(int batchCount, int m, int n, int k, float alpha, float[] a, float[] b, float beta, float[] c) {
+        checkBatch(batchCount, m, n, k, a.length, b.length, c.length);
+        if (batchCount == 0 || m == 0 || n == 0) {
+            return;
+        }
+        final Prepared<float[]> call = prepare(new Key("sgemmBatched", new int[] { batchCount, m, n, k }, a, b, c), () -> {
+            final float[] scalars = new float[2];
+            final TaskSchedule schedule = new TaskSchedule("blas") //
+                    .streamIn(a, b, c, scalars) //
+                    .task("sgemmBatched", Blas::sgemmBatchedKernel, batchCount, m, n, k, a, b, c, scalars) //
+                    .streamOut(c);
+            return new Prepared<>(schedule, scalars);
+        });
+        synchronized (call) {
+            call.data[0] = alpha;
+            call.data[1] = beta;
+            call.schedule.execute();
+        }
+    }
+
+    public static void sgemmBatchedOnHost(int batchCount, int m, int n, int k, float alpha, float[] a, float[] b, float beta, float[] c) {
+        checkBatch(batchCount, m, n, k, a.length, b.length, c.length);
+        final float[] scalars = new float[] { alpha, beta };
+        IntStream.range(0, batchCount).parallel().forEach(p -> {
+            for (int e = 0; e < m * n; e++) {
+                sgemmBatchedElement(p, e, m, n, k, a, b, c, scalars);
+            }
+        });
+    }
+
+    // ------------------------------------------------------------------------
+    // double
+    // ------------------------------------------------------------------------
+
+    /**
+     * Computes the {@link #GEMM_BLOCK} elements {@code (i, j)} to
+     * {@code (i, j + GEMM_BLOCK - 1)} of {@code C = alpha * op(A) * op(B) + beta * C},
+     * or the elements up to the last column of {@code C}.
+     */
+    private static void dgemmBlock(final int i, final int j, final int n, final int k, final double[] a, final double[] b, final double[] c, final int[] strides, final double[] scalars) {
+        final int aRow = strides[0];
+        final int aCol = strides[1];
+        final int bRow = strides[2];
+        final int bCol = strides[3];
+        final double alpha = scalars[0];
+        final double beta = scalars[1];
+        if (j + GEMM_BLOCK <= n) {
+            double sum0 = 0.0;
+            double sum1 = 0.0;
+            double sum2 = 0.0;
+            double sum3 = 0.0;
+            for (int l = 0; l < k; l++) {
+                final double x = a[i * aRow + l * aCol];
+                final int index = l * bRow + j * bCol;
+                sum0 += x * b[index];
+                sum1 += x * b[index + bCol];
+                sum2 += x * b[index + 2 * bCol];
+                sum3 += x * b[index + 3 * bCol];
+            }
+            final int index = i * n + j;
+            c[index] = scale(sum0, c[index], alpha, beta);
+            c[index + 1] = scale(sum1, c[index + 1], alpha, beta);
+            c[index + 2] = scale(sum2, c[index + 2], alpha, beta);
+            c[index + 3] = scale(sum3, c[index + 3], alpha, beta);
+        } else {
+            for (int jj = j; jj < n; jj++) {
+                double sum = 0.0;
+                for (int l = 0; l < k; l++) {
+                    sum += a[i * aRow + l * aCol] * b[l * bRow + jj * bCol];
+                }
+                c[i * n + jj] = scale(sum, c[i * n + jj], alpha, beta);
+            }
+        }
+    }
+
+    /**
+     * {@code alpha * sum + beta * c}, where {@code c} is ignored when
+     * {@code beta} is zero, as in BLAS.
+     */
+    private static double scale(final double sum, final double c, final double alpha, final double beta) {
+        return (beta == 0.0) ? alpha * sum : alpha * sum + beta * c;
+    }
+
+    /**
+     * GEMM kernel: each thread computes {@link #GEMM_BLOCK} consecutive
+     * elements of a row of {@code C}, so that every element of {@code op(A)}
+     * is loaded once for the whole block. Adjacent threads compute adjacent
+     * blocks of the same row.
+     *
+     * @param strides
+     *            {@code op(A)[i, l] = a[i * strides[0] + l * strides[1]]} and
+     *            {@code op(B)[l, j] = b[l * strides[2] + j * strides[3]]}.
+     * @param scalars
+     *            {@code alpha} and {@code beta}.
+     */
+    public static void dgemmKernel(final int m, final int n, final int k, final int columnBlocks, final double[] a, final double[] b, final double[] c, final int[] strides, final double[] scalars) {
+        for (@Parallel int jb = 0; jb < columnBlocks; jb++) {
+            for (@Parallel int i = 0; i < m; i++) {
+                dgemmBlock(i, jb * GEMM_BLOCK, n, k, a, b, c, strides, scalars);
+            }
+        }
+    }
+
+    private static void dgemvRow(final int i, final int k, final double[] a, final double[] x, final double[] y, final int[] strides, final double[] scalars) {
+        final int aRow = strides[0];
+        final int aCol = strides[1];
+        double sum = 0.0;
+        for (int l = 0; l < k; l++) {
+            sum += a[i * aRow + l * aCol] * x[l];
+        }
+        y[i] = scale(sum, y[i], scalars[0], scalars[1]);
+    }
+
+    /**
+     * GEMV kernel: each thread computes one element of {@code y}.
+     *
+     * @param strides
+     *            {@code op(A)[i, l] = a[i * strides[0] + l * strides[1]]}.
+     * @param scalars
+     *            {@code alpha} and {@code beta}.
+     */
+    public static void dgemvKernel(final int m, final int k, final double[] a, final double[] x, final double[] y, final int[] strides, final double[] scalars) {
+        for (@Parallel int i = 0; i < m; i++) {
+            dgemvRow(i, k, a, x, y, strides, scalars);
+        }
+    }
+
+    /**
+     * AXPY kernel: {@code y = alpha * x + y}, with {@code alpha} in
+     * {@code scalars[0]}.
+     */
+    public static void daxpyKernel(final int n, final double[] x, final double[] y, final double[] scalars) {
+        for (@Parallel int i = 0; i < n; i++) {
+            y[i] = scalars[0] * x[i] + y[i];
+        }
+    }
+
+    public static void ddotKernel(final int n, final double[] x, final double[] y, @Reduce double[] result) {
+        result[0] = 0.0;
+        for (@Parallel int i = 0; i < n; i++) {
+            result[0] += x[i] * y[i];
+        }
+    }
+
+    public static void dsumSquaresKernel(final int n, final double[] x, @Reduce double[] result) {
+        result[0] = 0.0;
+        for (@Parallel int i = 0; i < n; i++) {
+            result[0] += x[i] * x[i];
+        }
+    }
+
+    private static void dgemmBatchedElement(final int p, final int e, final int m, final int n, final int k, final double[] a, final double[] b, final double[] c, final double[] scalars) {
+        final int i = e / n;
+        final int j = e % n;
+        final int aOffset = p * m * k + i * k;
+        final int bOffset = p * k * n + j;
+        double sum = 0.0;
+        for (int l = 0; l < k; l++) {
+            sum += a[aOffset + l] * b[bOffset + l * n];
+        }
+        final int index = p * m * n + e;
+        c[index] = scale(sum, c[index], scalars[0], scalars[1]);
+    }
+
+    /**
+     * Batched GEMM kernel: each thread computes one element of one matrix of
+     * the batch. Adjacent threads compute adjacent elements of the same matrix.
+     */
+    public static void dgemmBatchedKernel(final int batchCount, final int m, final int n, final int k, final double[] a, final double[] b, final double[] c, final double[] scalars) {
+        for (@Parallel int e = 0; e < m * n; e++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                dgemmBatchedElement(p, e, m, n, k, a, b, c, scalars);
+            }
+        }
+    }
+
+    /**
+     * {@code C = alpha * op(A) * op(B) + beta * C} on the default device, where
+     * {@code op(X)} is {@code X} or its transpose.
+     */
+    public static void dgemm(boolean transA, boolean transB, double alpha, Matrix2DDouble a, Matrix2DDouble b, double beta, Matrix2DDouble c) {
+        final int[] strides = gemmStrides(transA, transB, a.M(), a.N(), b.M(), b.N(), c.M(), c.N());
+        final int m = c.M();
+        final int n = c.N();
+        final int k = transA ? a.M() : a.N();
+        if (m == 0 || n == 0) {
+            return;
+        }
+        final double[] fa = a.getFlattenedArray();
+        final double[] fb = b.getFlattenedArray();
+        final double[] fc = c.getFlattenedArray();
+        final Prepared<double[]> call = prepare(new Key("dgemm", new int[] { transA ? 1 : 0, transB ? 1 : 0, m, n, k }, fa, fb, fc), () -> {
+            final double[] scalars = new double[2];
+            final TaskSchedule schedule = new TaskSchedule("blas") //
+                    .streamIn(fa, fb, fc, scalars) //
+                    .task("dgemm", Blas::dgemmKernel, m, n, k, numBlocks(n, GEMM_BLOCK), fa, fb, fc, strides, scalars) //
+                    .streamOut(fc);
+            return new Prepared<>(schedule, scalars);
+        });
+        synchronized (call) {
+            call.data[0] = alpha;
+            call.data[1] = beta;
+            call.schedule.execute();
+        }
+    }
+
+    /**
+     * {@code C = A * B} on the default device.
+     */
+    public static void dgemm(Matrix2DDouble a, Matrix2DDouble b, Matrix2DDouble c) {
+        dgemm(false, false, 1.0f, a, b, 0.0, c);
+    }
+
+    /**
+     * GEMM on the host (ForkJoin common pool), with the same results as
+     * {@link #dgemm(boolean, boolean, double, Matrix2DDouble, Matrix2DDouble, double, Matrix2DDouble)}.
+     */
+    public static void dgemmOnHost(boolean transA, boolean transB, double alpha, Matrix2DDouble a, Matrix2DDouble b, double beta, Matrix2DDouble c) {
+        final int[] strides = gemmStrides(transA, transB, a.M(), a.N(), b.M(), b.N(), c.M(), c.N());
+        final int n = c.N();
+        final int k = transA ? a.M() : a.N();
+        final double[] scalars = new double[] { alpha, beta };
+        IntStream.range(0, c.M()).parallel().forEach(i -> {
+            for (int j = 0; j < n; j += GEMM_BLOCK) {
+                dgemmBlock(i, j, n, k, a.getFlattenedArray(), b.getFlattenedArray(), c.getFlattenedArray(), strides, scalars);
+            }
+        });
+    }
+
+    /**
+     * {@code y = alpha * op(A) * x + beta * y} on the default device.
+     */
+    public static void dgemv(boolean transA, double alpha, Matrix2DDouble a, VectorDouble x, double beta, VectorDouble y) {
+        final int[] strides = gemvStrides(transA, a.M(), a.N(), x.size(), y.size());
+        final int m = y.size();
+        final int k = x.size();
+        if (m == 0) {
+            return;
+        }
+        final double[] fa = a.getFlattenedArray();
+        final double[] fx = x.getArray();
+        final double[] fy = y.getArray();
+        final Prepared<double[]> call = prepare(new Key("dgemv", new int[] { transA ? 1 : 0, m, k }, fa, fx, fy), () -> {
+            final double[] scalars = new double[2];
+            final TaskSchedule schedule = new TaskSchedule("blas") //
+                    .streamIn(fa, fx, fy, scalars) //
+                    .task("dgemv", Blas::dgemvKernel, m, k, fa, fx, fy, strides, scalars) //
+                    .streamOut(fy);
+            return new Prepared<>(schedule, scalars);
+        });
+        synchronized (call) {
+            call.data[0] = alpha;
+            call.data[1] = beta;
+            call.schedule.execute();
+        }
+    }
+
+    public static void dgemvOnHost(boolean transA, double alpha, Matrix2DDouble a, VectorDouble x, double beta, VectorDouble y) {
+        final int[] strides = gemvStrides(transA, a.M(), a.N(), x.size(), y.size());
+        final double[] scalars = new double[] { alpha, beta };
+        IntStream.range(0, y.size()).parallel().forEach(i -> dgemvRow(i, x.size(), a.getFlattenedArray(), x.getArray(), y.getArray(), strides, scalars));
+    }
+
+    /**
+     * {@code y = alpha * x + y} on the default device.
+     */
+    public static void daxpy(double alpha, VectorDouble x, VectorDouble y) {
+        final int n = checkLength(x.size(), y.size());
+        if (n == 0) {
+            return;
+        }
+        final double[] fx = x.getArray();
+        final double[] fy = y.getArray();
+        final Prepared<double[]> call = prepare(new Key("daxpy", new int[] { n }, fx, fy), () -> {
+            final double[] scalars = new double[1];
+            final TaskSchedule schedule = new TaskSchedule("blas") //
+                    .streamIn(fx, fy, scalars) //
+                    .task("daxpy", Blas::daxpyKernel, n, fx, fy, scalars) //
+                    .streamOut(fy);
+            return new Prepared<>(schedule, scalars);
+        });
+        synchronized (call) {
+            call.data[0] = alpha;
+            call.schedule.execute();
+        }
+    }
+
+    public static void daxpyOnHost(double alpha, VectorDouble x, VectorDouble y) {
+        final int n = checkLength(x.size(), y.size());
+        final double[] fx = x.getArray();
+        final double[] fy = y.getArray();
+        IntStream.range(0, numBlocks(n, HOST_BLOCK)).parallel().forEach(block -> {
+            for (int i = block * HOST_BLOCK; i < Math.min(n, (block + 1) * HOST_BLOCK); i++) {
+                fy[i] = alpha * fx[i] + fy[i];
+            }
+        });
+    }
+
+    /**
+     * Dot product of two vectors on the default device.
+     */
+    public static double ddot(VectorDouble x, VectorDouble y) {
+        final int n = checkLength(x.size(), y.size());
+        if (n == 0) {
+            return 0.0;
+        }
+        final double[] fx = x.getArray();
+        final double[] fy = y.getArray();
+        final Prepared<double[]> call = prepare(new Key("ddot", new int[] { n }, fx, fy), () -> {
+            final double[] result = new double[1];
+            final TaskSchedule schedule = (fx == fy) //
+                    ? new TaskSchedule("blas").streamIn(fx).task("ddot", Blas::dsumSquaresKernel, n, fx, result).streamOut(result) //
+                    : new TaskSchedule("blas").streamIn(fx, fy).task("ddot", Blas::ddotKernel, n, fx, fy, result).streamOut(result);
+            return new Prepared<>(schedule, result);
+        });
+        synchronized (call) {
+            call.schedule.execute();
+            return call.data[0];
+        }
+    }
+
+    public static double ddotOnHost(VectorDouble x, VectorDouble y) {
+        final int n = checkLength(x.size(), y.size());
+        final double[] fx = x.getArray();
+        final double[] fy = y.getArray();
+        return IntStream.range(0, numBlocks(n, HOST_BLOCK)).parallel().mapToDouble(block -> {
+            double sum = 0.0;
+            for (int i = block * HOST_BLOCK; i < Math.min(n, (block + 1) * HOST_BLOCK); i++) {
+                sum += fx[i] * fy[i];
+            }
+            return sum;
+        }).sum();
+    }
+
+    /**
+     * Euclidean norm of a vector on the default device. The squares are added
+     * without scaling, so the norm overflows when the sum of squares does.
+     */
+    public static double dnrm2(VectorDouble x) {
+        return Math.sqrt(ddot(x, x));
+    }
+
+    public static double dnrm2OnHost(VectorDouble x) {
+        return Math.sqrt(ddotOnHost(x, x));
+    }
+
+    /**
+     * {@code C[p] = alpha * A[p] * B[p] + beta * C[p]} for the
+     * {@code batchCount} matrices of a batch, on the default device. The
+     * matrices of a batch are stored one after the other in row-major order:
+     * {@code A[p]} is {@code m x k}, {@code B[p]} is {@code k x n} and
+     * {@code C[p]} is {@code m x n}.
+     */
+    public static void dgemmBatched(int batchCount, int m, int n, int k, double alpha, double[] a, double[] b, double beta, double[] c) {
+        checkBatch(batchCount, m, n, k, a.length, b.length, c.length);
+        if (batchCount == 0 || m == 0 || n == 0) {
+            return;
+        }
+        final Prepared<double[]> call = prepare(new Key("dgemmBatched", new int[] { batchCount, m, n, k }, a, b, c), () -> {
+            final double[] scalars = new double[2];
+            final TaskSchedule schedule = new TaskSchedule("blas") //
+                    .streamIn(a, b, c, scalars) //
+                    .task("dgemmBatched", Blas::dgemmBatchedKernel, batchCount, m, n, k, a, b, c, scalars) //
+                    .streamOut(c);
+            return new Prepared<>(schedule, scalars);
+        });
+        synchronized (call) {
+            call.data[0] = alpha;
+            call.data[1] = beta;
+            call.schedule.execute();
+        }
+    }
+
+    public static void dgemmBatchedOnHost(int batchCount, int m, int n, int k, double alpha, double[] a, double[] b, double beta, double[] c) {
+        checkBatch(batchCount, m, n, k, a.length, b.length, c.length);
+        final double[] scalars = new double[] { alpha, beta };
+        IntStream.range(0, batchCount).parallel().forEach(p -> {
+            for (int e = 0; e < m * n; e++) {
+                dgemmBatchedElement(p, e, m, n, k, a, b, c, scalars);
+            }
+        });
+    }
+}
@@ -0,0 +1,898 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.matrix;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.CSRMatrix;
+
+/**
+ * Loader of sparse matrices in the Matrix Market coordinate format
+ * ({@code .mtx}) into a {@link CSRMatrix}, with a binary CSR cache.
+ * <p>
+ * The entries are parsed in parallel from line-aligned chunks of the file,
+ * which are memory-mapped, without allocating objects per entry. A first pass
+ * counts the entries of each row, the counts are summed into the row offsets
+ * of the matrix, and a second pass writes every entry at the next free
+ * position of its row. The columns of each row are finally sorted.
+ * <p>
+ * The CSR arrays are written to {@code <name>.f32.csr} ({@code <name>.f64.csr}
+ * for doubles) next to {@code <name>.mtx}, and memory-mapped instead of parsed
+ * on later loads, as long as the cache is newer than the matrix. Values of
+ * {@code pattern} matrices are pseudo-random numbers in {@code [0, 256)} that
+ * only depend on the position of the entry in the file, so they are the same
+ * in every load.
+ */
+public final class MatrixMarket {
+
+    private static final Logger LOGGER = Logger.getLogger(MatrixMarket.class.getName());
+
+    private static final int CACHE_MAGIC = 0x52534354;
+    private static final int CACHE_VERSION = 1;
+    private static final int CACHE_HEADER_SIZE = 32;
+
+    private static final long CHUNK_SIZE = 1L << 24;
+    private static final long MIN_CHUNK_SIZE = 1L << 16;
+    private static final int MAP_WINDOW = 1 << 28;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+    private static final int SCAN_WINDOW = 4096;
+
+    private static final long PATTERN_SEED = 7;
+
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    private static final float[] FLOAT_POW10 = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+    private MatrixMarket() {
+    }
+
+    /**
+     * Loads a matrix with {@code float} values, from its cache if it is valid.
+     */
+    public static CSRMatrix<float[]> loadFloat(String path) throws IOException {
+        return loadFloat(path, true);
+    }
+
+    /**
+     * Loads a matrix with {@code float} values.
+     *
+     * @param path
+     *            Path of the {@code .mtx} file.
+     * @param useCache
+     *            Read the binary cache if it is valid, or write it after
+     *            parsing the matrix.
+     */
+    public static CSRMatrix<float[]> loadFloat(String path, boolean useCache) throws IOException {
+        return load(Paths.get(path), false, useCache).toFloatMatrix();
+    }
+
+    /**
+     * Loads a matrix with {@code double} values, from its cache if it is valid.
+     */
+    public static CSRMatrix<double[]> loadDouble(String path) throws IOException {
+        return loadDouble(path, true);
+    }
+
+    /**
+     * Loads a matrix with {@code double} values.
+     *
+     * @param path
+     *            Path of the {@code .mtx} file.
+     * @param useCache
+     *            Read the binary cache if it is valid, or write it after
+     *            parsing the matrix.
+     */
+    public static CSRMatrix<double[]> loadDouble(String path, boolean useCache) throws IOException {
+        return load(Paths.get(path), true, useCache).toDoubleMatrix();
+    }
+
+    /**
+     * Parses a matrix with {@code float} values from a stream, e.g., a
+     * resource. Streams are not cached.
+     */
+    public static CSRMatrix<float[]> loadFloat(InputStream stream) throws IOException {
+        return parse(Source.of(readFully(stream)), false).toFloatMatrix();
+    }
+
+    /**
+     * Parses a matrix with {@code double} values from a stream, e.g., a
+     * resource. Streams are not cached.
+     */
+    public static CSRMatrix<double[]> loadDouble(InputStream stream) throws IOException {
+        return parse(Source.of(readFully(stream)), true).toDoubleMatrix();
+    }
+
+    /**
+     * Path of the binary cache of a matrix: the {@code .mtx} extension is
+     * replaced by {@code .f32.csr} or {@code .f64.csr}.
+     */
+    public static Path cachePath(Path path, boolean isDouble) {
+        final String name = path.getFileName().toString();
+        final String base = name.endsWith(".mtx") ? name.substring(0, name.length() - 4) : name;
+        return path.resolveSibling(base + (isDouble ? ".f64.csr" : ".f32.csr"));
+    }
+
+    private static Matrix load(Path path, boolean isDouble, boolean useCache) throws IOException {
+        final Path cache = cachePath(path, isDouble);
+        if (useCache && isCacheValid(path, cache, isDouble)) {
+            return readCache(cache, isDouble);
+        }
+
+        final Matrix matrix;
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            matrix = parse(Source.of(channel), isDouble);
+        }
+        if (useCache) {
+            try {
+                writeCache(cache, matrix);
+            } catch (IOException e) {
+                // The cache is optional, e.g., the directory can be read-only
+                LOGGER.warning(String.format("unable to write matrix cache %s (%s)", cache, e.getMessage()));
+            }
+        }
+        return matrix;
+    }
+
+    // ======================================================================
+    // Matrix Market parser
+    // ======================================================================
+
+    private static Matrix parse(Source source, boolean isDouble) throws IOException {
+        final Header header = Header.parse(source);
+        header.isDouble = isDouble;
+        final long[] boundaries = chunkBoundaries(source, header.dataStart);
+        final int chunks = boundaries.length - 1;
+
+        // First pass: number of entries of each row and of each chunk
+        final AtomicIntegerArray rowCounts = new AtomicIntegerArray(header.rows);
+        final long[] chunkEntries = new long[chunks];
+        forEachChunk(chunks, k -> chunkEntries[k] = parseChunk(source, boundaries[k], boundaries[k + 1], header, false, 0, (ordinal, row, col, value) -> {
+            rowCounts.incrementAndGet(row);
+            if (header.isMirrored(row, col)) {
+                rowCounts.incrementAndGet(col);
+            }
+        }));
+
+        final int[] rows = new int[header.rows + 1];
+        long total = 0;
+        for (int r = 0; r < header.rows; r++) {
+            total += rowCounts.get(r);
+            if (total > Integer.MAX_VALUE - 8) {
+                throw new IOException("Matrix has more than " + (Integer.MAX_VALUE - 8) + " non-zero elements");
+            }
+            rows[r + 1] = (int) total;
+        }
+        final long[] chunkOrdinals = new long[chunks];
+        for (int k = 1; k < chunks; k++) {
+            chunkOrdinals[k] = chunkOrdinals[k - 1] + chunkEntries[k - 1];
+        }
+
+        // Second pass: every entry is written at the next free position of its row
+        final Matrix matrix = new Matrix(header.rows, header.cols, rows, isDouble);
+        final AtomicIntegerArray next = new AtomicIntegerArray(rows);
+        forEachChunk(chunks, k -> parseChunk(source, boundaries[k], boundaries[k + 1], header, !header.pattern, chunkOrdinals[k], (ordinal, row, col, value) -> {
+            final double v = header.pattern ? patternValue(ordinal) : value;
+            matrix.set(next.getAndIncrement(row), col, v);
+            if (header.isMirrored(row, col)) {
+                matrix.set(next.getAndIncrement(col), row, header.skew ? -v : v);
+            }
+        }));
+
+        IntStream.range(0, header.rows).parallel().forEach(r -> matrix.sortRow(rows[r], rows[r + 1]));
+        return matrix;
+    }
+
+    private interface ChunkTask {
+        void run(int chunk) throws IOException;
+    }
+
+    private static void forEachChunk(int chunks, ChunkTask task) throws IOException {
+        try {
+            IntStream.range(0, chunks).parallel().forEach(k -> {
+                try {
+                    task.run(k);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Splits the entries into chunks that start at the beginning of a line.
+     */
+    private static long[] chunkBoundaries(Source source, long start) throws IOException {
+        final long size = source.size();
+        final long bytes = size - start;
+        final long chunksBySize = (bytes + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final long chunksByThreads = Math.min(4L * ForkJoinPool.getCommonPoolParallelism(), bytes / MIN_CHUNK_SIZE);
+        // Chunks of about CHUNK_SIZE bytes, so that each one is mapped at once
+        final int chunks = (int) Math.max(1, Math.max(chunksBySize, chunksByThreads));
+
+        final long[] boundaries = new long[chunks + 1];
+        boundaries[0] = start;
+        for (int k = 1; k < chunks; k++) {
+            boundaries[k] = Math.max(boundaries[k - 1], nextLine(source, start + bytes * k / chunks));
+        }
+        boundaries[chunks] = size;
+        return boundaries;
+    }
+
+    /**
+     * Position of the first line that starts after {@code position}.
+     */
+    private static long nextLine(Source source, long position) throws IOException {
+        final long size = source.size();
+        while (position < size) {
+            final ByteBuffer window = source.slice(position, Math.min(SCAN_WINDOW, size - position));
+            for (int i = 0; i < window.limit(); i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += window.limit();
+        }
+        return size;
+    }
+
+    private interface EntryVisitor {
+        void visit(long ordinal, int row, int col, double value);
+    }
+
+    /**
+     * Parses the entries of a chunk, and returns how many there are.
+     */
+    private static long parseChunk(Source source, long start, long end, Header header, boolean parseValues, long firstOrdinal, EntryVisitor visitor) throws IOException {
+        final Parser parser = new Parser(source.slice(start, end - start), start, header.isDouble);
+        long entries = 0;
+        while (parser.nextEntry()) {
+            final int row = parser.parseIndex(header.rows);
+            final int col = parser.parseIndex(header.cols);
+            final double value = parseValues ? parser.parseValue() : 0;
+            parser.skipLine();
+            visitor.visit(firstOrdinal + entries, row, col, value);
+            entries++;
+        }
+        return entries;
+    }
+
+    private static double patternValue(long ordinal) {
+        long z = (ordinal + PATTERN_SEED) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        // 24 random bits, so that the value is exact as a float
+        return (z >>> 40) * 0x1.0p-24 * 256.0;
+    }
+
+    private static final class Header {
+
+        private boolean pattern;
+        private boolean symmetric;
+        private boolean skew;
+        private boolean isDouble;
+        private int rows;
+        private int cols;
+        private long dataStart;
+
+        private boolean isMirrored(int row, int col) {
+            return symmetric && row != col;
+        }
+
+        private static Header parse(Source source) throws IOException {
+            final LineReader reader = new LineReader(source);
+            String line = reader.readLine();
+            if (line == null || !line.startsWith("%%MatrixMarket")) {
+                throw new IOException("Not a Matrix Market file");
+            }
+
+            // %%MatrixMarket object format field symmetry
+            final String[] opts = line.split("\\s+");
+            if (opts.length < 5 || !opts[1].equalsIgnoreCase("matrix")) {
+                throw new IOException("Matrix file does not contain a matrix");
+            }
+            if (!opts[2].equalsIgnoreCase("coordinate")) {
+                throw new IOException("Matrix representation is dense");
+            }
+
+            final Header header = new Header();
+            if (opts[3].equalsIgnoreCase("pattern")) {
+                header.pattern = true;
+            } else if (!opts[3].equalsIgnoreCase("real") && !opts[3].equalsIgnoreCase("integer") && !opts[3].equalsIgnoreCase("double")) {
+                throw new IOException("Unsupported matrix field: " + opts[3]);
+            }
+            if (opts[4].equalsIgnoreCase("symmetric") || opts[4].equalsIgnoreCase("hermitian")) {
+                header.symmetric = true;
+            } else if (opts[4].equalsIgnoreCase("skew-symmetric")) {
+                header.symmetric = true;
+                header.skew = true;
+            } else if (!opts[4].equalsIgnoreCase("general")) {
+                throw new IOException("Unsupported matrix symmetry: " + opts[4]);
+            }
+
+            do {
+                line = reader.readLine();
+            } while (line != null && (line.isEmpty() || line.startsWith("%")));
+            if (line == null) {
+                throw new IOException("Missing matrix size");
+            }
+
+            final String[] size = line.split("\\s+");
+            try {
+                header.rows = Integer.parseInt(size[0]);
+                header.cols = Integer.parseInt(size[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Invalid matrix size: " + line);
+            }
+            header.dataStart = reader.position;
+            return header;
+        }
+    }
+
+    /**
+     * Reads the lines of the header, which are few, one byte at a time.
+     */
+    private static final class LineReader {
+
+        private final Source source;
+        private long position;
+
+        private LineReader(Source source) {
+            this.source = source;
+        }
+
+        private String readLine() throws IOException {
+            final long size = source.size();
+            if (position >= size) {
+                return null;
+            }
+            final StringBuilder line = new StringBuilder();
+            while (position < size) {
+                final ByteBuffer window = source.slice(position, Math.min(SCAN_WINDOW, size - position));
+                while (window.hasRemaining()) {
+                    final byte b = window.get();
+                    position++;
+                    if (b == '\n') {
+                        return line.toString().trim();
+                    }
+                    line.append((char) b);
+                }
+            }
+            return line.toString().trim();
+        }
+    }
+
+    /**
+     * Parser of the entries of a window of the file, with absolute reads on the
+     * buffer.
+     */
+    private static final class Parser {
+
+        private final ByteBuffer buffer;
+        private final long offset;
+        private final boolean isDouble;
+        private final int limit;
+        private int position;
+
+        private Parser(ByteBuffer buffer, long offset, boolean isDouble) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.isDouble = isDouble;
+            this.limit = buffer.limit();
+        }
+
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " at byte " + (offset + position));
+        }
+
+        private void skipBlanks() {
+            while (position < limit && isBlank(buffer.get(position))) {
+                position++;
+            }
+        }
+
+        private void skipLine() {
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+
+        /**
+         * Moves to the next entry, skipping empty lines and comments.
+         */
+        private boolean nextEntry() {
+            while (true) {
+                skipBlanks();
+                if (position >= limit) {
+                    return false;
+                }
+                final byte b = buffer.get(position);
+                if (b == '\n') {
+                    position++;
+                } else if (b == '%') {
+                    skipLine();
+                } else {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Parses a 1-based index and returns it 0-based.
+         */
+        private int parseIndex(int bound) throws IOException {
+            skipBlanks();
+            long value = 0;
+            final int start = position;
+            while (position < limit && isDigit(buffer.get(position)) && value <= Integer.MAX_VALUE) {
+                value = value * 10 + (buffer.get(position) - '0');
+                position++;
+            }
+            if (position == start || value < 1 || value > bound) {
+                throw error("Invalid index");
+            }
+            return (int) value - 1;
+        }
+
+        /**
+         * Parses a decimal number. Numbers with few significant digits and a
+         * small exponent are computed with a single correctly rounded
+         * operation; the rest fall back to the JDK parsers.
+         */
+        private double parseValue() throws IOException {
+            skipBlanks();
+            final int start = position;
+            boolean negative = false;
+            if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position) == '-';
+                position++;
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean anyDigit = false;
+            boolean exact = true;
+            while (position < limit && isDigit(buffer.get(position))) {
+                final int d = buffer.get(position++) - '0';
+                anyDigit = true;
+                if (digits < 18) {
+                    if (mantissa != 0 || d != 0) {
+                        mantissa = mantissa * 10 + d;
+                        digits++;
+                    }
+                } else {
+                    exact = false;
+                }
+            }
+            if (position < limit && buffer.get(position) == '.') {
+                position++;
+                while (position < limit && isDigit(buffer.get(position))) {
+                    final int d = buffer.get(position++) - '0';
+                    anyDigit = true;
+                    if (digits < 18) {
+                        if (mantissa != 0 || d != 0) {
+                            mantissa = mantissa * 10 + d;
+                            digits++;
+                        }
+                        exponent--;
+                    } else {
+                        exact = false;
+                    }
+                }
+            }
+            if (anyDigit && position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+                position++;
+                boolean negativeExponent = false;
+                if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                    negativeExponent = buffer.get(position) == '-';
+                    position++;
+                }
+                int e = 0;
+                final int exponentStart = position;
+                while (position < limit && isDigit(buffer.get(position))) {
+                    e = Math.min(e * 10 + (buffer.get(position++) - '0'), 100000);
+                }
+                if (position == exponentStart) {
+                    exact = false;
+                }
+                exponent += negativeExponent ? -e : e;
+            }
+
+            if (anyDigit && exact && (position >= limit || isBlank(buffer.get(position)) || buffer.get(position) == '\n')) {
+                if (isDouble && digits <= 15 && exponent >= -22 && exponent <= 22) {
+                    final double value = (exponent >= 0) ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+                    return negative ? -value : value;
+                } else if (!isDouble && digits <= 7 && exponent >= -10 && exponent <= 10) {
+                    final float value = (exponent >= 0) ? mantissa * FLOAT_POW10[exponent] : mantissa / FLOAT_POW10[-exponent];
+                    return negative ? -value : value;
+                } else if (!isDouble && exponent >= -44 && exponent <= 44) {
+                    final float value = roundToFloat(mantissa, exponent);
+                    if (!Float.isNaN(value)) {
+                        return negative ? -value : value;
+                    }
+                }
+            }
+            return parseSlow(start);
+        }
+
+        /**
+         * Rounds {@code mantissa * 10^exponent} to a float through a double,
+         * which is within a few ulps of the exact value. Returns NaN when the
+         * double is too close to the midpoint between two floats to know the
+         * rounding of the exact value.
+         */
+        private static float roundToFloat(long mantissa, int exponent) {
+            double value = mantissa;
+            if (exponent > 22) {
+                value = value * POW10[22] * POW10[exponent - 22];
+            } else if (exponent >= 0) {
+                value = value * POW10[exponent];
+            } else if (exponent >= -22) {
+                value = value / POW10[-exponent];
+            } else {
+                value = value / POW10[22] / POW10[-exponent - 22];
+            }
+            final float rounded = (float) value;
+            if (Float.isInfinite(rounded) || rounded == Float.MAX_VALUE || (rounded == 0 && value != 0)) {
+                return Float.NaN;
+            }
+            final double midpoint = (value > rounded) ? ((double) rounded + Math.nextUp(rounded)) / 2 : ((double) rounded + Math.nextDown(rounded)) / 2;
+            return (Math.abs(value - midpoint) > 8 * Math.ulp(value)) ? rounded : Float.NaN;
+        }
+
+        private double parseSlow(int start) throws IOException {
+            position = start;
+            while (position < limit && !isBlank(buffer.get(position)) && buffer.get(position) != '\n') {
+                position++;
+            }
+            final byte[] token = new byte[position - start];
+            for (int i = 0; i < token.length; i++) {
+                token[i] = buffer.get(start + i);
+            }
+            final String value = new String(token, StandardCharsets.US_ASCII);
+            try {
+                return isDouble ? Double.parseDouble(value) : Float.parseFloat(value);
+            } catch (NumberFormatException e) {
+                throw error("Invalid value " + value);
+            }
+        }
+    }
+
+    /**
+     * Bytes of a matrix file or stream.
+     */
+    private abstract static class Source {
+
+        abstract long size();
+
+        abstract ByteBuffer slice(long position, long length) throws IOException;
+
+        static Source of(FileChannel channel) throws IOException {
+            final long size = channel.size();
+            return new Source() {
+                @Override
+                long size() {
+                    return size;
+                }
+
+                @Override
+                ByteBuffer slice(long position, long length) throws IOException {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                }
+            };
+        }
+
+        static Source of(byte[] bytes) {
+            return new Source() {
+                @Override
+                long size() {
+                    return bytes.length;
+                }
+
+                @Override
+                ByteBuffer slice(long position, long length) {
+                    return ByteBuffer.wrap(bytes, (int) position, (int) length).slice();
+                }
+            };
+        }
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[IO_BUFFER_SIZE];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    // ======================================================================
+    // CSR arrays
+    // ======================================================================
+
+    private static final class Matrix {
+
+        private final int numRows;
+        private final int numCols;
+        private final int[] rows;
+        private final int[] cols;
+        private final float[] floatValues;
+        private final double[] doubleValues;
+
+        private Matrix(int numRows, int numCols, int[] rows, boolean isDouble) {
+            this.numRows = numRows;
+            this.numCols = numCols;
+            this.rows = rows;
+            this.cols = new int[rows[numRows]];
+            this.floatValues = isDouble ? null : new float[cols.length];
+            this.doubleValues = isDouble ? new double[cols.length] : null;
+        }
+
+        private boolean isDouble() {
+            return doubleValues != null;
+        }
+
+        private void set(int index, int col, double value) {
+            cols[index] = col;
+            if (isDouble()) {
+                doubleValues[index] = value;
+            } else {
+                floatValues[index] = (float) value;
+            }
+        }
+
+        /**
+         * Orders the entries by column, and duplicated entries by value, so
+         * that the result does not depend on the order of the second pass.
+         */
+        private int compare(int i, int j) {
+            if (cols[i] != cols[j]) {
+                return Integer.compare(cols[i], cols[j]);
+            }
+            return isDouble() ? Double.compare(doubleValues[i], doubleValues[j]) : Float.compare(floatValues[i], floatValues[j]);
+        }
+
+        private void swap(int i, int j) {
+            final int col = cols[i];
+            cols[i] = cols[j];
+            cols[j] = col;
+            if (isDouble()) {
+                final double value = doubleValues[i];
+                doubleValues[i] = doubleValues[j];
+                doubleValues[j] = value;
+            } else {
+                final float value = floatValues[i];
+                floatValues[i] = floatValues[j];
+                floatValues[j] = value;
+            }
+        }
+
+        private void sortRow(int from, int to) {
+            boolean sorted = true;
+            for (int i = from + 1; i < to && sorted; i++) {
+                sorted = compare(i - 1, i) <= 0;
+            }
+            if (!sorted) {
+                quickSort(from, to - 1);
+            }
+        }
+
+        private void quickSort(int low, int high) {
+            while (high - low > 16) {
+                final int middle = (low + high) >>> 1;
+                // Median of three as pivot, stored in high
+                if (compare(middle, low) < 0) {
+                    swap(middle, low);
+                }
+                if (compare(high, low) < 0) {
+                    swap(high, low);
+                }
+                if (compare(middle, high) < 0) {
+                    swap(middle, high);
+                }
+                int store = low;
+                for (int i = low; i < high; i++) {
+                    if (compare(i, high) < 0) {
+                        swap(i, store++);
+                    }
+                }
+                swap(store, high);
+                // Recurse on the smaller side to bound the stack depth
+                if (store - low < high - store) {
+                    quickSort(low, store - 1);
+                    low = store + 1;
+                } else {
+                    quickSort(store + 1, high);
+                    high = store - 1;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && compare(j - 1, j) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
+        private CSRMatrix<float[]> toFloatMatrix() {
+            final CSRMatrix<float[]> matrix = new CSRMatrix<>();
+            matrix.n = cols.length;
+            matrix.size = numRows;
+            matrix.rows = rows;
+            matrix.cols = cols;
+            matrix.vals = floatValues;
+            return matrix;
+        }
+
+        private CSRMatrix<double[]> toDoubleMatrix() {
+            final CSRMatrix<double[]> matrix = new CSRMatrix<>();
+            matrix.n = cols.length;
+            matrix.size = numRows;
+            matrix.rows = rows;
+            matrix.cols = cols;
+            matrix.vals = doubleValues;
+            return matrix;
+        }
+    }
+
+    // ======================================================================
+    // Binary cache
+    // ======================================================================
+
+    // Header, little-endian: magic, version, bytes per value, rows, columns,
+    // non-zero elements, padding. It is followed by the row offsets, the
+    // column indices and the values.
+
+    private static long cacheSize(int numRows, int nnz, boolean isDouble) {
+        return CACHE_HEADER_SIZE + (numRows + 1L) * Integer.BYTES + (long) nnz * Integer.BYTES + (long) nnz * (isDouble ? Double.BYTES : Float.BYTES);
+    }
+
+    private static ByteBuffer readCacheHeader(FileChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(CACHE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // read the whole header
+        }
+        header.flip();
+        return header;
+    }
+
+    private static boolean isCacheValid(Path path, Path cache, boolean isDouble) throws IOException {
+        if (!Files.isRegularFile(cache) || Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(path)) < 0) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(cache, READ)) {
+            final ByteBuffer header = readCacheHeader(channel);
+            if (header.limit() < CACHE_HEADER_SIZE || header.getInt(0) != CACHE_MAGIC || header.getInt(4) != CACHE_VERSION || header.getInt(8) != (isDouble ? Double.BYTES : Float.BYTES)) {
+                return false;
+            }
+            return channel.size() == cacheSize(header.getInt(12), header.getInt(20), isDouble);
+        }
+    }
+
+    private interface BulkCopy {
+        void copy(ByteBuffer buffer, int offset, int count);
+    }
+
+    /**
+     * Copies {@code length} elements from the file, memory-mapping it in
+     * windows, and returns the position after them.
+     */
+    private static long read(FileChannel channel, long position, int length, int elementBytes, BulkCopy copy) throws IOException {
+        for (int offset = 0; offset < length;) {
+            final int count = Math.min(length - offset, MAP_WINDOW / elementBytes);
+            copy.copy(channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * elementBytes).order(ByteOrder.LITTLE_ENDIAN), offset, count);
+            offset += count;
+            position += (long) count * elementBytes;
+        }
+        return position;
+    }
+
+    /**
+     * Copies {@code length} elements to the file, and returns the position
+     * after them.
+     */
+    private static long write(FileChannel channel, long position, int length, int elementBytes, BulkCopy copy) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int offset = 0; offset < length;) {
+            final int count = Math.min(length - offset, IO_BUFFER_SIZE / elementBytes);
+            buffer.clear();
+            copy.copy(buffer, offset, count);
+            buffer.limit(count * elementBytes);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            offset += count;
+        }
+        return position;
+    }
+
+    private static Matrix readCache(Path cache, boolean isDouble) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache, READ)) {
+            final ByteBuffer header = readCacheHeader(channel);
+            final int numRows = header.getInt(12);
+            final int numCols = header.getInt(16);
+            final int[] rows = new int[numRows + 1];
+
+            long position = read(channel, CACHE_HEADER_SIZE, rows.length, Integer.BYTES, (buffer, offset, count) -> buffer.asIntBuffer().get(rows, offset, count));
+            final Matrix matrix = new Matrix(numRows, numCols, rows, isDouble);
+            position = read(channel, position, matrix.cols.length, Integer.BYTES, (buffer, offset, count) -> buffer.asIntBuffer().get(matrix.cols, offset, count));
+            if (isDouble) {
+                read(channel, position, matrix.doubleValues.length, Double.BYTES, (buffer, offset, count) -> buffer.asDoubleBuffer().get(matrix.doubleValues, offset, count));
+            } else {
+                read(channel, position, matrix.floatValues.length, Float.BYTES, (buffer, offset, count) -> buffer.asFloatBuffer().get(matrix.floatValues, offset, count));
+            }
+            return matrix;
+        }
+    }
+
+    private static void writeCache(Path cache, Matrix matrix) throws IOException {
+        // Written to a temporary file first, so that a partial cache is never read
+        final Path temporary = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(CACHE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(CACHE_MAGIC).putInt(CACHE_VERSION).putInt(matrix.isDouble() ? Double.BYTES : Float.BYTES);
+            header.putInt(matrix.numRows).putInt(matrix.numCols).putInt(matrix.cols.length);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            long position = write(channel, CACHE_HEADER_SIZE, matrix.rows.length, Integer.BYTES, (buffer, offset, count) -> buffer.asIntBuffer().put(matrix.rows, offset, count));
+            position = write(channel, position, matrix.cols.length, Integer.BYTES, (buffer, offset, count) -> buffer.asIntBuffer().put(matrix.cols, offset, count));
+            if (matrix.isDouble()) {
+                write(channel, position, matrix.doubleValues.length, Double.BYTES, (buffer, offset, count) -> buffer.asDoubleBuffer().put(matrix.doubleValues, offset, count));
+            } else {
+                write(channel, position, matrix.floatValues.length, Float.BYTES, (buffer, offset, count) -> buffer.asFloatBuffer().put(matrix.floatValues, offset, count));
+            }
+        }
+        Files.move(temporary, cache, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.matrix;
+
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.CSRMatrix;
+
+/**
+ * Storage formats of sparse matrices, with a heuristic that picks the format
+ * of a matrix from the statistics of its row lengths:
+ * <ul>
+ * <li>{@link #ELL} when the rows have similar lengths, so that padding them to
+ * the longest row adds few entries.</li>
+ * <li>{@link #COO} when a few rows are much longer than the others: every
+ * thread processes the same number of entries, whatever the length of the
+ * rows.</li>
+ * <li>{@link #SELL} when sorting the rows by length within windows keeps the
+ * padding of slices low.</li>
+ * <li>{@link #CSR} otherwise.</li>
+ * </ul>
+ */
+public enum SparseFormat {
+
+    CSR, ELL, SELL, COO;
+
+    /**
+     * Largest ratio between the entries stored in ELLPACK, padding included,
+     * and the non-zeros of the matrix, for ELLPACK to be selected.
+     */
+    public static final float ELL_MAX_PADDING = 1.25f;
+
+    /**
+     * Largest ratio between the entries stored in SELL-C-sigma and the
+     * non-zeros of the matrix, for SELL-C-sigma to be selected.
+     */
+    public static final float SELL_MAX_PADDING = 1.5f;
+
+    /**
+     * Smallest ratio between the longest row and the mean row length, for the
+     * coordinate format to be selected.
+     */
+    public static final float COO_MIN_SKEW = 16.0f;
+
+    /**
+     * Smallest length of the longest row for the coordinate format to be
+     * selected: shorter rows do not unbalance the threads enough to make up
+     * for the extra passes.
+     */
+    public static final int COO_MIN_ROW_LENGTH = 256;
+
+    public static final int DEFAULT_SLICE_HEIGHT = 32;
+    public static final int DEFAULT_SIGMA = 1024;
+
+    public static SparseFormat fromString(String name) {
+        for (SparseFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("unknown sparse format: " + name);
+    }
+
+    /**
+     * Selects the format of a matrix, for slices of
+     * {@link #DEFAULT_SLICE_HEIGHT} rows sorted within windows of
+     * {@link #DEFAULT_SIGMA} rows.
+     */
+    public static SparseFormat select(CSRMatrix<?> matrix) {
+        return select(matrix, DEFAULT_SLICE_HEIGHT, DEFAULT_SIGMA);
+    }
+
+    public static SparseFormat select(CSRMatrix<?> matrix, int sliceHeight, int sigma) {
+        final long nnz = matrix.rows[matrix.size];
+        if (matrix.size == 0 || nnz == 0) {
+            return CSR;
+        }
+
+        int maxLength = 0;
+        for (int i = 0; i < matrix.size; i++) {
+            maxLength = Math.max(maxLength, matrix.rows[i + 1] - matrix.rows[i]);
+        }
+        final double meanLength = (double) nnz / matrix.size;
+
+        if ((double) maxLength * matrix.size <= ELL_MAX_PADDING * nnz) {
+            return ELL;
+        } else if (maxLength >= COO_MIN_ROW_LENGTH && maxLength > COO_MIN_SKEW * meanLength) {
+            return COO;
+        } else if (sellEntries(matrix, sliceHeight, sigma) <= SELL_MAX_PADDING * nnz) {
+            return SELL;
+        }
+        return CSR;
+    }
+
+    /**
+     * Number of entries, padding included, of a matrix in SELL-C-sigma.
+     */
+    static long sellEntries(CSRMatrix<?> matrix, int sliceHeight, int sigma) {
+        final int[] perm = SparseMatrixUtils.sortedRows(matrix, sigma);
+        long entries = 0;
+        for (int start = 0; start < matrix.size; start += sliceHeight) {
+            int width = 0;
+            for (int k = start; k < Math.min(matrix.size, start + sliceHeight); k++) {
+                width = Math.max(width, matrix.rows[perm[k] + 1] - matrix.rows[perm[k]]);
+            }
+            entries += (long) width * sliceHeight;
+        }
+        return entries;
+    }
+}
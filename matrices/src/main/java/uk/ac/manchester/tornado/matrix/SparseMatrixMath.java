@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.matrix;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.COOMatrix;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.CSRMatrix;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.ELLMatrix;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.SELLMatrix;
+
+/**
+ * Sparse matrix-vector multiplication ({@code y = A * x}) for each
+ * {@link SparseFormat}:
+ * <ul>
+ * <li>CSR: one row per thread, the entries of a row are contiguous.</li>
+ * <li>ELLPACK: one row per thread, the {@code j}-th entries of adjacent rows
+ * are adjacent, so that the accesses of a GPU warp are coalesced.</li>
+ * <li>SELL-C-sigma: as ELLPACK, but each slice of rows is only padded to its
+ * own longest row.</li>
+ * <li>COO: each thread processes a chunk of {@link #COO_CHUNK_SIZE} entries.
+ * The rows that span several chunks are added up in a second pass, so that
+ * long rows do not serialise the computation on a single thread.</li>
+ * </ul>
+ * The {@code addTasks} methods add the kernels of a format to a
+ * {@link TaskSchedule}, and {@code createSchedule} converts a CSR matrix to
+ * the given (or selected) format.
+ */
+public final class SparseMatrixMath {
+
+    public static final int COO_CHUNK_SIZE = 64;
+
+    private SparseMatrixMath() {
+    }
+
+    public static void spmvCSR(final float[] vals, final int[] cols, final int[] rows, final float[] x, final int numRows, final float[] y) {
+        for (@Parallel int i = 0; i < numRows; i++) {
+            float sum = 0.0f;
+            for (int k = rows[i]; k < rows[i + 1]; k++) {
+                sum += vals[k] * x[cols[k]];
+            }
+            y[i] = sum;
+        }
+    }
+
+    public static void spmvELL(final float[] vals, final int[] cols, final int width, final float[] x, final int numRows, final float[] y) {
+        for (@Parallel int i = 0; i < numRows; i++) {
+            float sum = 0.0f;
+            for (int j = 0; j < width; j++) {
+                sum += vals[j * numRows + i] * x[cols[j * numRows + i]];
+            }
+            y[i] = sum;
+        }
+    }
+
+    public static void spmvSELL(final float[] vals, final int[] cols, final int[] sliceOffsets, final int[] perm, final int sliceHeight, final float[] x, final int numRows, final float[] y) {
+        for (@Parallel int k = 0; k < numRows; k++) {
+            final int slice = k / sliceHeight;
+            final int base = sliceOffsets[slice] + k % sliceHeight;
+            final int end = sliceOffsets[slice + 1];
+            float sum = 0.0f;
+            for (int e = base; e < end; e += sliceHeight) {
+                sum += vals[e] * x[cols[e]];
+            }
+            y[perm[k]] = sum;
+        }
+    }
+
+    public static void clear(final float[] y) {
+        for (@Parallel int i = 0; i < y.length; i++) {
+            y[i] = 0.0f;
+        }
+    }
+
+    /**
+     * Multiplies each chunk of {@code chunkSize} entries. The rows that are
+     * entirely in a chunk are written to {@code y}. The partial sum of the
+     * first row of a chunk, when that row starts in a previous chunk, is kept
+     * in {@code carry[2 * c]}, and the partial sum of the last row, when that
+     * row starts in this chunk and continues in the next one, in
+     * {@code carry[2 * c + 1]}. Unused carries have a row of {@code -1}.
+     */
+    public static void spmvCOOChunks(final float[] vals, final int[] cols, final int[] rows, final float[] x, final int chunkSize, final int numChunks, final float[] y, final int[] carryRows,
+            final float[] carryVals) {
+        for (@Parallel int c = 0; c < numChunks; c++) {
+            final int start = c * chunkSize;
+            final int end = Math.min(start + chunkSize, vals.length);
+            carryRows[2 * c] = -1;
+            carryRows[2 * c + 1] = -1;
+
+            int row = rows[start];
+            boolean continued = start > 0 && rows[start - 1] == row;
+            float sum = 0.0f;
+            for (int k = start; k < end; k++) {
+                if (rows[k] != row) {
+                    if (continued) {
+                        carryRows[2 * c] = row;
+                        carryVals[2 * c] = sum;
+                    } else {
+                        y[row] = sum;
+                    }
+                    continued = false;
+                    row = rows[k];
+                    sum = 0.0f;
+                }
+                sum += vals[k] * x[cols[k]];
+            }
+
+            if (continued) {
+                carryRows[2 * c] = row;
+                carryVals[2 * c] = sum;
+            } else if (end < vals.length && rows[end] == row) {
+                carryRows[2 * c + 1] = row;
+                carryVals[2 * c + 1] = sum;
+            } else {
+                y[row] = sum;
+            }
+        }
+    }
+
+    /**
+     * Adds up the partial sums of the rows that span several chunks. Each of
+     * these rows starts in a chunk {@code c} ({@code carry[2 * c + 1]}) and
+     * continues at the start of the following chunks ({@code carry[2 * c']}).
+     */
+    public static void spmvCOOCarries(final int[] carryRows, final float[] carryVals, final int numChunks, final float[] y) {
+        for (@Parallel int c = 0; c < numChunks; c++) {
+            final int row = carryRows[2 * c + 1];
+            if (row >= 0) {
+                float sum = carryVals[2 * c + 1];
+                int next = c + 1;
+                while (next < numChunks && carryRows[2 * next] == row) {
+                    sum += carryVals[2 * next];
+                    next++;
+                }
+                y[row] = sum;
+            }
+        }
+    }
+
+    public static int numChunks(int nnz) {
+        return (nnz + COO_CHUNK_SIZE - 1) / COO_CHUNK_SIZE;
+    }
+
+    /**
+     * Sequential multiplication, to validate the kernels.
+     */
+    public static void spmv(final CSRMatrix<float[]> matrix, final float[] x, final float[] y) {
+        for (int i = 0; i < matrix.size; i++) {
+            float sum = 0.0f;
+            for (int k = matrix.rows[i]; k < matrix.rows[i + 1]; k++) {
+                sum += matrix.vals[k] * x[matrix.cols[k]];
+            }
+            y[i] = sum;
+        }
+    }
+
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, CSRMatrix<float[]> matrix, float[] x, float[] y) {
+        return schedule.task(id, SparseMatrixMath::spmvCSR, matrix.vals, matrix.cols, matrix.rows, x, matrix.size, y);
+    }
+
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, ELLMatrix<float[]> matrix, float[] x, float[] y) {
+        return schedule.task(id, SparseMatrixMath::spmvELL, matrix.vals, matrix.cols, matrix.width, x, matrix.size, y);
+    }
+
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, SELLMatrix<float[]> matrix, float[] x, float[] y) {
+        return schedule.task(id, SparseMatrixMath::spmvSELL, matrix.vals, matrix.cols, matrix.sliceOffsets, matrix.perm, matrix.sliceHeight, x, matrix.size, y);
+    }
+
+    /**
+     * Adds the tasks of a multiplication in the coordinate format. The tasks
+     * are named {@code <id>Clear}, {@code <id>Chunks} and {@code <id>Carries},
+     * and {@code carryRows} and {@code carryVals} are temporary arrays of
+     * {@code 2 * numChunks(matrix.n)} elements.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, COOMatrix<float[]> matrix, float[] x, float[] y, int[] carryRows, float[] carryVals) {
+        final int numChunks = numChunks(matrix.vals.length);
+        schedule.task(id + "Clear", SparseMatrixMath::clear, y);
+        if (numChunks > 0) {
+            schedule.task(id + "Chunks", SparseMatrixMath::spmvCOOChunks, matrix.vals, matrix.cols, matrix.rows, x, COO_CHUNK_SIZE, numChunks, y, carryRows, carryVals);
+            schedule.task(id + "Carries", SparseMatrixMath::spmvCOOCarries, carryRows, carryVals, numChunks, y);
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that multiplies a matrix by {@code x} into
+     * {@code y} every time it is executed, in the format selected by
+     * {@link SparseFormat#select}.
+     */
+    public static TaskSchedule createSchedule(String name, CSRMatrix<float[]> matrix, float[] x, float[] y) {
+        return createSchedule(name, matrix, SparseFormat.select(matrix), x, y);
+    }
+
+    /**
+     * Creates a task-schedule that multiplies a matrix, converted to the given
+     * format, by {@code x} into {@code y} every time it is executed.
+     */
+    public static TaskSchedule createSchedule(String name, CSRMatrix<float[]> matrix, SparseFormat format, float[] x, float[] y) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(x);
+        switch (format) {
+            case ELL:
+                addTasks(schedule, "spmv", SparseMatrixUtils.toELL(matrix), x, y);
+                break;
+            case SELL:
+                addTasks(schedule, "spmv", SparseMatrixUtils.toSELL(matrix, SparseFormat.DEFAULT_SLICE_HEIGHT, SparseFormat.DEFAULT_SIGMA), x, y);
+                break;
+            case COO:
+                final int numChunks = numChunks(matrix.vals.length);
+                addTasks(schedule, "spmv", SparseMatrixUtils.toCOO(matrix), x, y, new int[2 * numChunks], new float[2 * numChunks]);
+                break;
+            default:
+                addTasks(schedule, "spmv", matrix, x, y);
+                break;
+        }
+        return schedule.streamOut(y);
+    }
+}
@@ -18,27 +18,13 @@
 
 package uk.ac.manchester.tornado.matrix;
 
-import static java.lang.Float.parseFloat;
-import static java.lang.Integer.parseInt;
-import static java.lang.String.format;
 import static java.lang.System.err;
-import static java.lang.System.out;
-import static java.util.Collections.sort;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
 
 public class SparseMatrixUtils {
 
-    private static final boolean VERBOSE = false;
-
     public static class CSRMatrix<T> {
 
         public int n;
@@ -48,157 +34,72 @@ public class SparseMatrixUtils {
         public int[] cols;
     }
 
-    public static CSRMatrix<double[]> loadMatrixD(final String path) {
-        boolean pattern = false;
-        boolean symmetric = false;
-
-        final CSRMatrix<double[]> mat = new CSRMatrix<>();
-
-        Random rand = null;
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-
-            String line = br.readLine();
-
-            String[] opts = line.split(" ");
-            // id object format field symmetry
-
-            if (!opts[1].equalsIgnoreCase("matrix")) {
-                System.out.printf("Matrix file doesnot contain matrix\n");
-                br.close();
-                return null;
-            }
-
-            if (!opts[2].equalsIgnoreCase("coordinate")) {
-                System.out.printf("Matrix representation is dense\n");
-                br.close();
-                return null;
-            }
-
-            if (opts[3].equalsIgnoreCase("pattern")) {
-                pattern = true;
-                rand = new Random();
-                // System.out.printf("Matrix pattern unimplemented\n");
-                // return;
-            }
-
-            if (opts[4].equalsIgnoreCase("symmetric")) {
-                symmetric = true;
-            }
-
-            while ((line = br.readLine()) != null) {
-                if (!line.startsWith("%")) {
-                    break;
-                }
-            }
-
-            opts = line.split(" ");
-
-            final int nRows = Integer.parseInt(opts[0]);
-            final int nCols = Integer.parseInt(opts[1]);
-            int nElements = Integer.parseInt(opts[2]);
-
-            class Coordinate implements Comparable<Coordinate> {
-
-                int x;
-                int y;
-                float val;
-
-                public Coordinate(final int a, final int b, final float c) {
-                    x = a;
-                    y = b;
-                    val = c;
-                }
-
-                public Coordinate(final String[] opts) {
-                    x = parseInt(opts[0]) - 1;
-                    y = parseInt(opts[1]) - 1;
-                    val = parseFloat(opts[2]);
-                }
-
-                @Override
-                public int compareTo(final Coordinate c) {
-                    int val = 0;
-                    if (x != c.x) {
-                        val = x - c.x;
-                    } else {
-                        val = y - c.y;
-                    }
-
-                    return val;
-                }
+    /**
+     * ELLPACK: every row is padded to the length of the longest row, and the
+     * entries are stored column by column ({@code vals[j * size + i]} is the
+     * {@code j}-th entry of row {@code i}), so that the rows processed by
+     * adjacent threads are adjacent in memory. Padding entries have a zero
+     * value and column {@code 0}.
+     */
+    public static class ELLMatrix<T> {
 
-                @Override
-                public String toString() {
-                    return String.format("[ %d, %d, %10.2f ]", x, y, val);
-                }
-            }
-
-            if (VERBOSE) {
-                System.out.printf("Matrix: rows=%d, cols=%d, elements=%d\n", nRows, nCols, nElements);
-            }
-
-            List<Coordinate> coords;
-            if (symmetric) {
-                coords = new ArrayList<>(2 * nElements);
-            } else {
-                coords = new ArrayList<>(nElements);
-            }
-
-            int index = 0;
-            while ((line = br.readLine()) != null) {
-                opts = line.split(" ");
-                if (pattern) {
-                    final Coordinate c = new Coordinate(parseInt(opts[0]) - 1, parseInt(opts[1]) - 1, rand.nextFloat() * 256.0f);
-                    coords.add(c);
-                } else {
-                    coords.add(new Coordinate(opts));
-                }
+        public int n;
+        public int size;
+        public int width;
+        public T vals;
+        public int[] cols;
+    }
 
-                index++;
+    /**
+     * SELL-C-sigma: the rows are sorted by length within windows of
+     * {@code sigma} rows, grouped into slices of {@code sliceHeight} rows, and
+     * every slice is stored as an ELLPACK matrix padded to its longest row.
+     * The {@code k}-th sorted row is row {@code perm[k]} of the matrix, and its
+     * {@code j}-th entry is at {@code sliceOffsets[s] + j * sliceHeight + r},
+     * with {@code s = k / sliceHeight} and {@code r = k % sliceHeight}.
+     */
+    public static class SELLMatrix<T> {
 
-                if (symmetric) {
-                    final Coordinate last = coords.get(index - 1);
-                    if (last.x != last.y) {
-                        coords.add(new Coordinate(last.y, last.x, last.val));
-                        index++;
-                    }
-                }
-            }
+        public int n;
+        public int size;
+        public int sliceHeight;
+        public int sigma;
+        public T vals;
+        public int[] cols;
+        public int[] sliceOffsets;
+        public int[] perm;
+    }
 
-            sort(coords);
-            nElements = index;
-            mat.n = nElements;
-            mat.size = nRows;
-            mat.vals = new double[nElements];
-            mat.cols = new int[nElements];
-            mat.rows = new int[nRows + 1];
-            mat.rows[0] = 0;
-            mat.rows[nRows] = nElements;
-            int r = 0;
-            for (int i = 0; i < nElements; i++) {
+    /**
+     * Coordinate format, sorted by row: the {@code k}-th entry is
+     * {@code vals[k]} at {@code (rows[k], cols[k])}.
+     */
+    public static class COOMatrix<T> {
 
-                final Coordinate c = coords.get(i);
+        public int n;
+        public int size;
+        public T vals;
+        public int[] rows;
+        public int[] cols;
+    }
 
-                while (c.x != r) {
-                    mat.rows[++r] = i;
-                }
-                mat.vals[i] = c.val;
-                mat.cols[i] = c.y;
-            }
-            coords.clear();
-        } catch (final FileNotFoundException e) {
-            System.out.printf("Unable to open matrix %s\n", path);
-        } catch (final IOException e) {
+    /**
+     * Loads a matrix in the Matrix Market format with {@link MatrixMarket},
+     * from its binary cache if it is valid.
+     */
+    public static CSRMatrix<double[]> loadMatrixD(final String path) {
+        try {
+            return MatrixMarket.loadDouble(path);
+        } catch (IOException e) {
+            err.printf("unable to read matrix from file: %s (%s)\n", path, e.getMessage());
             e.printStackTrace();
         }
-
-        return mat;
-
+        return null;
     }
 
     public static CSRMatrix<float[]> loadMatrixF(InputStream inStream) {
-        try (final BufferedReader br = new BufferedReader(new InputStreamReader(inStream))) {
-            return loadMatrixF(br);
+        try (InputStream stream = inStream) {
+            return MatrixMarket.loadFloat(stream);
         } catch (IOException e) {
             err.printf("unable to read matrix from input steam: %s\n", e.getMessage());
             e.printStackTrace();
@@ -206,9 +107,13 @@ public class SparseMatrixUtils {
         return null;
     }
 
+    /**
+     * Loads a matrix in the Matrix Market format with {@link MatrixMarket},
+     * from its binary cache if it is valid.
+     */
     public static CSRMatrix<float[]> loadMatrixF(final String path) {
-        try (final BufferedReader br = new BufferedReader(new FileReader(path))) {
-            return loadMatrixF(br);
+        try {
+            return MatrixMarket.loadFloat(path);
         } catch (IOException e) {
             err.printf("unable to read matrix from file: %s (%s)\n", path, e.getMessage());
             e.printStackTrace();
@@ -216,150 +121,116 @@ public class SparseMatrixUtils {
         return null;
     }
 
-    private static CSRMatrix<float[]> loadMatrixF(BufferedReader br) throws IOException {
-        boolean pattern = false;
-        boolean symmetric = false;
-
-        final CSRMatrix<float[]> mat = new CSRMatrix<>();
-
-        Random rand = null;
-
-        String line = br.readLine();
-
-        String[] opts = line.split(" ");
-        // id object format field symmetry
-
-        if (!opts[1].equalsIgnoreCase("matrix")) {
-            out.printf("Matrix file doesnot contain matrix\n");
-            br.close();
-            return null;
+    /**
+     * Converts a CSR matrix to ELLPACK.
+     */
+    public static ELLMatrix<float[]> toELL(final CSRMatrix<float[]> csr) {
+        final int numRows = csr.size;
+        int width = 0;
+        for (int i = 0; i < numRows; i++) {
+            width = Math.max(width, csr.rows[i + 1] - csr.rows[i]);
         }
 
-        if (!opts[2].equalsIgnoreCase("coordinate")) {
-            out.printf("Matrix representation is dense\n");
-            br.close();
-            return null;
-        }
-
-        if (opts[3].equalsIgnoreCase("pattern")) {
-            pattern = true;
-            rand = new Random();
-            rand.setSeed(7);
-        }
-
-        if (opts[4].equalsIgnoreCase("symmetric")) {
-            symmetric = true;
-        }
-
-        while ((line = br.readLine()) != null) {
-            if (!line.startsWith("%")) {
-                break;
-            }
-        }
-
-        opts = line.split(" ");
-
-        final int nRows = parseInt(opts[0]);
-        final int nCols = parseInt(opts[1]);
-        int nElements = parseInt(opts[2]);
-
-        class Coordinate implements Comparable<Coordinate> {
-
-            int x;
-            int y;
-            float val;
-
-            public Coordinate(final int a, final int b, final float c) {
-                x = a;
-                y = b;
-                val = c;
-            }
-
-            public Coordinate(final String[] opts) {
-                x = parseInt(opts[0]) - 1;
-                y = parseInt(opts[1]) - 1;
-                val = parseFloat(opts[2]);
-            }
-
-            @Override
-            public int compareTo(final Coordinate c) {
-                int val;
-                if (x != c.x) {
-                    val = x - c.x;
-                } else {
-                    val = y - c.y;
-                }
-
-                return val;
-            }
-
-            @Override
-            public String toString() {
-                return format("[ %d, %d, %10.2f ]", x, y, val);
+        final ELLMatrix<float[]> ell = new ELLMatrix<>();
+        ell.n = csr.n;
+        ell.size = numRows;
+        ell.width = width;
+        ell.vals = new float[Math.multiplyExact(width, numRows)];
+        ell.cols = new int[ell.vals.length];
+        for (int i = 0; i < numRows; i++) {
+            for (int k = csr.rows[i], j = 0; k < csr.rows[i + 1]; k++, j++) {
+                ell.vals[j * numRows + i] = csr.vals[k];
+                ell.cols[j * numRows + i] = csr.cols[k];
             }
         }
+        return ell;
+    }
 
-        if (VERBOSE) {
-            out.printf("Matrix: rows=%d, cols=%d, elements=%d\n", nRows, nCols, nElements);
+    /**
+     * Converts a CSR matrix to SELL-C-sigma, with slices of
+     * {@code sliceHeight} rows that are sorted by length within windows of
+     * {@code sigma} rows. A {@code sigma} of {@code 1} keeps the rows in order,
+     * and a {@code sigma} of at least the number of rows sorts all of them.
+     */
+    public static SELLMatrix<float[]> toSELL(final CSRMatrix<float[]> csr, final int sliceHeight, final int sigma) {
+        if (sliceHeight < 1 || sigma < 1) {
+            throw new IllegalArgumentException("slice height and sigma must be positive");
         }
-
-        List<Coordinate> coords;
-        if (symmetric) {
-            coords = new ArrayList<>(2 * nElements);
-        } else {
-            coords = new ArrayList<>(nElements);
+        final int numRows = csr.size;
+        final int numSlices = (numRows + sliceHeight - 1) / sliceHeight;
+
+        final SELLMatrix<float[]> sell = new SELLMatrix<>();
+        sell.n = csr.n;
+        sell.size = numRows;
+        sell.sliceHeight = sliceHeight;
+        sell.sigma = sigma;
+        sell.perm = sortedRows(csr, sigma);
+        sell.sliceOffsets = new int[numSlices + 1];
+        for (int s = 0; s < numSlices; s++) {
+            int width = 0;
+            for (int k = s * sliceHeight; k < Math.min(numRows, (s + 1) * sliceHeight); k++) {
+                width = Math.max(width, csr.rows[sell.perm[k] + 1] - csr.rows[sell.perm[k]]);
+            }
+            sell.sliceOffsets[s + 1] = Math.addExact(sell.sliceOffsets[s], Math.multiplyExact(width, sliceHeight));
         }
 
-        int index = 0;
-        while ((line = br.readLine()) != null) {
-            opts = line.split(" ");
-            if (pattern) {
-                final Coordinate c = new Coordinate(parseInt(opts[0]) - 1, parseInt(opts[1]) - 1, rand.nextFloat() * 256.0f);
-                coords.add(c);
-            } else {
-                coords.add(new Coordinate(opts));
+        sell.vals = new float[sell.sliceOffsets[numSlices]];
+        sell.cols = new int[sell.vals.length];
+        for (int k = 0; k < numRows; k++) {
+            final int row = sell.perm[k];
+            final int base = sell.sliceOffsets[k / sliceHeight] + k % sliceHeight;
+            for (int e = csr.rows[row], j = 0; e < csr.rows[row + 1]; e++, j++) {
+                sell.vals[base + j * sliceHeight] = csr.vals[e];
+                sell.cols[base + j * sliceHeight] = csr.cols[e];
             }
+        }
+        return sell;
+    }
 
-            index++;
-
-            if (symmetric) {
-                final Coordinate last = coords.get(index - 1);
-                if (last.x != last.y) {
-                    coords.add(new Coordinate(last.y, last.x, last.val));
-                    index++;
-                }
+    /**
+     * Rows of a CSR matrix sorted by decreasing length within windows of
+     * {@code sigma} rows. The sort is stable, so rows of the same length keep
+     * their order.
+     */
+    static int[] sortedRows(final CSRMatrix<?> csr, final int sigma) {
+        final int numRows = csr.size;
+        final int[] perm = new int[numRows];
+        for (int start = 0; start < numRows; start += sigma) {
+            final int end = (int) Math.min(numRows, (long) start + sigma);
+            int maxLength = 0;
+            for (int i = start; i < end; i++) {
+                maxLength = Math.max(maxLength, csr.rows[i + 1] - csr.rows[i]);
+            }
+            // Counting sort of the window by decreasing length
+            final int[] offsets = new int[maxLength + 2];
+            for (int i = start; i < end; i++) {
+                offsets[maxLength - (csr.rows[i + 1] - csr.rows[i]) + 1]++;
+            }
+            for (int l = 1; l < offsets.length; l++) {
+                offsets[l] += offsets[l - 1];
+            }
+            for (int i = start; i < end; i++) {
+                perm[start + offsets[maxLength - (csr.rows[i + 1] - csr.rows[i])]++] = i;
             }
         }
+        return perm;
+    }
 
-        br.close();
-
-        sort(coords);
-
-        nElements = index;
-
-        mat.n = nElements;
-        mat.size = nRows;
-        mat.vals = new float[nElements];
-        mat.cols = new int[nElements];
-        mat.rows = new int[nRows + 1];
-
-        mat.rows[0] = 0;
-        mat.rows[nRows] = nElements;
-
-        int r = 0;
-
-        for (int i = 0; i < nElements; i++) {
-
-            final Coordinate c = coords.get(i);
-
-            while (c.x != r) {
-                mat.rows[++r] = i;
+    /**
+     * Converts a CSR matrix to the coordinate format.
+     */
+    public static COOMatrix<float[]> toCOO(final CSRMatrix<float[]> csr) {
+        final COOMatrix<float[]> coo = new COOMatrix<>();
+        coo.n = csr.n;
+        coo.size = csr.size;
+        coo.vals = csr.vals.clone();
+        coo.cols = csr.cols.clone();
+        coo.rows = new int[csr.vals.length];
+        for (int i = 0; i < csr.size; i++) {
+            for (int k = csr.rows[i]; k < csr.rows[i + 1]; k++) {
+                coo.rows[k] = i;
             }
-            mat.vals[i] = c.val;
-            mat.cols[i] = c.y;
         }
-
-        coords.clear();
-        return mat;
+        return coo;
     }
 }
@@ -26,17 +26,21 @@
 package uk.ac.manchester.tornado.runtime;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import uk.ac.manchester.tornado.api.TornadoDeviceContext;
 import uk.ac.manchester.tornado.api.TornadoTargetDevice;
 import uk.ac.manchester.tornado.api.common.Event;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
+import uk.ac.manchester.tornado.api.profiler.ProfilerType;
+import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 import uk.ac.manchester.tornado.api.enums.TornadoDeviceType;
 import uk.ac.manchester.tornado.api.exceptions.TornadoInternalError;
 import uk.ac.manchester.tornado.api.mm.TornadoDeviceObjectState;
 import uk.ac.manchester.tornado.api.mm.TornadoMemoryProvider;
 import uk.ac.manchester.tornado.runtime.common.CallStack;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoCommandGraph;
 import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
 import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
 
@@ -114,6 +118,12 @@ public class JVMMapping implements TornadoAcceleratorDevice {
         return -1;
     }
 
+    @Override
+    public int streamOutRangeBlocking(Object object, long offset, long bytes, TornadoDeviceObjectState objectState, int[] list) {
+        TornadoInternalError.unimplemented();
+        return -1;
+    }
+
     @Override
     public String toString() {
         return "Host JVM";
@@ -204,6 +214,38 @@ public class JVMMapping implements TornadoAcceleratorDevice {
         return null;
     }
 
+    @Override
+    public boolean startCommandCapture() {
+        return false;
+    }
+
+    @Override
+    public TornadoCommandGraph stopCommandCapture() {
+        return null;
+    }
+
+    @Override
+    public int replayCommandGraph(TornadoCommandGraph graph) {
+        return -1;
+    }
+
+    @Override
+    public void selectCommandQueue(int queue, int waitMask) {
+    }
+
+    @Override
+    public void profileEvent(int event, TornadoProfiler profiler, ProfilerType type) {
+    }
+
+    @Override
+    public void resolveProfiledEvents() {
+    }
+
+    @Override
+    public CompletableFuture<Void> whenEventComplete(int event) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     @Override
     public long getMaxAllocMemory() {
         return Runtime.getRuntime().maxMemory();
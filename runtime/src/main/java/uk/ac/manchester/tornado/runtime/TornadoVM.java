@@ -30,12 +30,18 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.ENABLE_PROFILING;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.USE_VM_FLUSH;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.VM_USE_DEPS;
 
+import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import uk.ac.manchester.tornado.api.GridTask;
 import uk.ac.manchester.tornado.api.WorkerGrid;
@@ -53,11 +59,14 @@ import uk.ac.manchester.tornado.runtime.common.CallStack;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoCommandGraph;
 import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.common.TornadoSpecialisationCache;
 import uk.ac.manchester.tornado.runtime.graph.TornadoExecutionContext;
 import uk.ac.manchester.tornado.runtime.graph.TornadoGraphAssembler.TornadoVMBytecodes;
+import uk.ac.manchester.tornado.runtime.tasks.CompilableTask;
 import uk.ac.manchester.tornado.runtime.tasks.GlobalObjectState;
 import uk.ac.manchester.tornado.runtime.tasks.TornadoTaskSchedule;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
@@ -78,6 +87,27 @@ public class TornadoVM extends TornadoLogger {
     private static final Event EMPTY_EVENT = new EmptyEvent();
 
     private static final int MAX_EVENTS = 32;
+
+    /**
+     * Single thread shared by all the task-schedules that completes the
+     * asynchronous executions, see {@link #executeAsync()}.
+     */
+    private static final ExecutorService ASYNC_COMPLETION_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tornado-vm-async-completion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Threads shared by all the task-schedules that compile tasks ahead of
+     * their launch, see {@link #compileTasksInParallel}.
+     */
+    private static final ExecutorService COMPILER_EXECUTOR = Executors.newFixedThreadPool(TornadoOptions.COMPILER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "tornado-vm-compiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final boolean useDependencies;
 
     private final TornadoExecutionContext graphContext;
@@ -88,6 +118,7 @@ public class TornadoVM extends TornadoLogger {
     private final int[] eventsIndicies;
     private final List<TornadoAcceleratorDevice> contexts;
     private final TornadoInstalledCode[] installedCodes;
+    private final PendingCompilation[] pendingCompilations;
 
     private final List<Object> constants;
     private final List<SchedulableTask> tasks;
@@ -102,6 +133,41 @@ public class TornadoVM extends TornadoLogger {
 
     private GridTask gridTask;
 
+    private TornadoCommandGraph commandGraph;
+    private TornadoAcceleratorDevice commandGraphDevice;
+    private Object[] commandGraphObjects;
+    private int[] commandGraphShapes;
+
+    /**
+     * Stream-out deferred until the end of an asynchronous execution.
+     */
+    private static class PendingRead {
+        private final TornadoAcceleratorDevice device;
+        private final Object object;
+        private final long offset;
+        private final DeviceObjectState objectState;
+
+        PendingRead(TornadoAcceleratorDevice device, Object object, long offset, DeviceObjectState objectState) {
+            this.device = device;
+            this.object = object;
+            this.offset = offset;
+            this.objectState = objectState;
+        }
+    }
+
+    /**
+     * Compilation of a task started ahead of its LAUNCH bytecode.
+     */
+    private static class PendingCompilation {
+        private final TornadoAcceleratorDevice device;
+        private final CompletableFuture<TornadoInstalledCode> code;
+
+        PendingCompilation(TornadoAcceleratorDevice device, CompletableFuture<TornadoInstalledCode> code) {
+            this.device = device;
+            this.code = code;
+        }
+    }
+
     public TornadoVM(TornadoExecutionContext graphContext, byte[] code, int limit, TornadoProfiler timeProfiler, GridTask gridTask) {
 
         this.graphContext = graphContext;
@@ -127,6 +193,7 @@ public class TornadoVM extends TornadoLogger {
         eventsIndicies = new int[events.length];
 
         installedCodes = new TornadoInstalledCode[taskCount];
+        pendingCompilations = new PendingCompilation[taskCount];
 
         for (int i = 0; i < events.length; i++) {
             Arrays.fill(events[i], -1);
@@ -168,6 +235,7 @@ public class TornadoVM extends TornadoLogger {
 
     public void setCompileUpdate() {
         this.doUpdate = true;
+        invalidateCommandGraph();
     }
 
     private GlobalObjectState resolveGlobalObjectState(int index) {
@@ -192,19 +260,132 @@ public class TornadoVM extends TornadoLogger {
         for (GlobalObjectState globalState : globalStates) {
             globalState.invalidate();
         }
+        invalidateCommandGraph();
+    }
+
+    public void invalidateCommandGraph() {
+        commandGraph = null;
+        commandGraphDevice = null;
+        commandGraphObjects = null;
+        commandGraphShapes = null;
+    }
+
+    private static int shapeOf(Object object) {
+        return (object.getClass().isArray()) ? Array.getLength(object) : -1;
+    }
+
+    /**
+     * A command graph can only be captured once every object is on the device
+     * and every task has been compiled, so the capture starts from the second
+     * execution. Profiling and dependencies between commands (out-of-order
+     * execution) require the interpreter.
+     */
+    private boolean shouldCaptureCommands() {
+        return TornadoOptions.VM_COMMAND_CAPTURE && commandGraph == null && invocations > 0 && contexts.size() == 1 && !useDependencies && gridTask == null
+                && !TornadoOptions.isProfilerEnabled();
+    }
+
+    private boolean isCommandGraphValid() {
+        if (commandGraph == null) {
+            return false;
+        }
+        final TornadoAcceleratorDevice device = contexts.get(0);
+        if (device != commandGraphDevice || device.getDeviceContext().wasReset() || graphContext.redeployOnDevice() || objects.size() != commandGraphObjects.length) {
+            return false;
+        }
+        for (int i = 0; i < commandGraphObjects.length; i++) {
+            final Object object = objects.get(i);
+            if (object != commandGraphObjects[i] || shapeOf(object) != commandGraphShapes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void saveCommandGraph(TornadoCommandGraph graph) {
+        commandGraph = graph;
+        commandGraphDevice = contexts.get(0);
+        commandGraphObjects = objects.toArray();
+        commandGraphShapes = new int[commandGraphObjects.length];
+        for (int i = 0; i < commandGraphObjects.length; i++) {
+            commandGraphShapes[i] = shapeOf(commandGraphObjects[i]);
+        }
+        if (graphContext.meta().isDebug()) {
+            debug("vm: captured %s", graph);
+        }
+    }
+
+    /**
+     * Replays the captured commands. When a command cannot be enqueued, the
+     * commands before it have already been enqueued, and interpreting the
+     * bytecodes would run the kernels that were enqueued a second time, so the
+     * device is drained and the error is raised instead.
+     */
+    private Event replayCommandGraph() {
+        final long t0 = System.nanoTime();
+        final TornadoAcceleratorDevice device = contexts.get(0);
+        if (device.replayCommandGraph(commandGraph) == -1) {
+            invalidateCommandGraph();
+            device.sync();
+            throw new TornadoRuntimeException("[ERROR] unable to replay the commands of " + graphContext.getId());
+        }
+        if (USE_VM_FLUSH) {
+            device.flush();
+        }
+        final long t1 = System.nanoTime();
+        totalTime += (t1 - t0) * 1e-9;
+        invocations++;
+        return EMPTY_EVENT;
     }
 
     public void warmup() {
-        execute(true);
+        execute(true, null);
         finishedWarmup = true;
     }
 
     public void compile() {
-        execute(true);
+        execute(true, null);
     }
 
     public Event execute() {
-        return execute(false);
+        return execute(false, null);
+    }
+
+    /**
+     * Enqueues all the bytecodes without waiting for the devices. The blocking
+     * stream-outs are deferred: the Java arrays are pinned only for the duration
+     * of a native call, so the device cannot write into them asynchronously.
+     * Instead, they are read from the completion thread once the devices signal,
+     * through an event callback, that all the enqueued commands have finished.
+     * Stream-outs of batches are still performed in order, since the next batch
+     * reuses the device buffer.
+     *
+     * @return a future completed once the output data is available on the host.
+     */
+    public CompletableFuture<Void> executeAsync() {
+        final List<PendingRead> pendingReads = new ArrayList<>();
+        execute(false, pendingReads);
+
+        final CompletableFuture<?>[] completions = new CompletableFuture<?>[contexts.size()];
+        for (int i = 0; i < completions.length; i++) {
+            final TornadoAcceleratorDevice device = contexts.get(i);
+            completions[i] = device.whenEventComplete(device.enqueueMarker());
+        }
+        return CompletableFuture.allOf(completions).thenRunAsync(() -> completeAsyncExecution(pendingReads), ASYNC_COMPLETION_EXECUTOR);
+    }
+
+    private void completeAsyncExecution(List<PendingRead> pendingReads) {
+        for (PendingRead read : pendingReads) {
+            final int event = read.device.streamOutBlocking(read.object, read.offset, read.objectState, null);
+            if (TornadoOptions.isProfilerEnabled() && event != -1) {
+                read.device.profileEvent(event, timeProfiler, ProfilerType.COPY_OUT_TIME);
+            }
+        }
+        if (TornadoOptions.isProfilerEnabled()) {
+            for (TornadoAcceleratorDevice device : contexts) {
+                device.resolveProfiledEvents();
+            }
+        }
     }
 
     private final String MESSAGE_ERROR = "object is not valid: %s %s";
@@ -217,14 +398,26 @@ public class TornadoVM extends TornadoLogger {
 
     public void clearInstalledCode() {
         Arrays.fill(installedCodes, null);
+        invalidateCommandGraph();
     }
 
-    private Event execute(boolean isWarmup) {
+    private Event execute(boolean isWarmup, List<PendingRead> pendingReads) {
+
+        final boolean async = pendingReads != null;
+        if (!isWarmup && !async && TornadoOptions.VM_COMMAND_CAPTURE) {
+            if (isCommandGraphValid()) {
+                return replayCommandGraph();
+            }
+            invalidateCommandGraph();
+        }
 
         final long t0 = System.nanoTime();
         int lastEvent = -1;
         initWaitEventList();
 
+        final boolean capturing = !isWarmup && !async && shouldCaptureCommands() && contexts.get(0).startCommandCapture();
+        boolean replayable = capturing;
+
         StringBuilder tornadoVMBytecodeList = null;
         if (TornadoOptions.printBytecodes) {
             tornadoVMBytecodeList = new StringBuilder();
@@ -251,6 +444,7 @@ public class TornadoVM extends TornadoLogger {
 
                 final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
                 lastEvent = device.ensureAllocated(object, sizeBatch, objectState);
+                replayable &= (sizeBatch <= 0);
 
             } else if (op == TornadoVMBytecodes.COPY_IN.value()) {
                 final int objectIndex = buffer.getInt();
@@ -275,6 +469,8 @@ public class TornadoVM extends TornadoLogger {
                     tornadoVMBytecodeList.append(verbose + "\n");
                 }
 
+                replayable &= (sizeBatch <= 0);
+
                 List<Integer> allEvents;
                 if (sizeBatch > 0) {
                     // We need to stream-in when using batches, because the
@@ -289,11 +485,7 @@ public class TornadoVM extends TornadoLogger {
 
                 if (TornadoOptions.isProfilerEnabled() && allEvents != null) {
                     for (Integer e : allEvents) {
-                        Event event = device.resolveEvent(e);
-                        event.waitForEvents();
-                        long value = timeProfiler.getTimer(ProfilerType.COPY_IN_TIME);
-                        value += event.getExecutionTime();
-                        timeProfiler.setTimer(ProfilerType.COPY_IN_TIME, value);
+                        device.profileEvent(e, timeProfiler, ProfilerType.COPY_IN_TIME);
                     }
                 }
 
@@ -320,17 +512,15 @@ public class TornadoVM extends TornadoLogger {
 
                 final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
 
+                replayable &= (sizeBatch <= 0);
+
                 List<Integer> allEvents = device.streamIn(object, sizeBatch, offset, objectState, waitList);
                 if (eventList != -1) {
                     eventsIndicies[eventList] = 0;
                 }
                 if (TornadoOptions.isProfilerEnabled() && allEvents != null) {
                     for (Integer e : allEvents) {
-                        Event event = device.resolveEvent(e);
-                        event.waitForEvents();
-                        long value = timeProfiler.getTimer(ProfilerType.COPY_IN_TIME);
-                        value += event.getExecutionTime();
-                        timeProfiler.setTimer(ProfilerType.COPY_IN_TIME, value);
+                        device.profileEvent(e, timeProfiler, ProfilerType.COPY_IN_TIME);
                     }
                 }
 
@@ -358,16 +548,20 @@ public class TornadoVM extends TornadoLogger {
 
                 final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
 
+                if (async && sizeBatch <= 0) {
+                    pendingReads.add(new PendingRead(device, object, offset, objectState));
+                    if (eventList != -1) {
+                        eventsIndicies[eventList] = 0;
+                    }
+                    continue;
+                }
+
                 lastEvent = device.streamOutBlocking(object, offset, objectState, waitList);
                 if (eventList != -1) {
                     eventsIndicies[eventList] = 0;
                 }
                 if (TornadoOptions.isProfilerEnabled() && lastEvent != -1) {
-                    Event event = device.resolveEvent(lastEvent);
-                    event.waitForEvents();
-                    long value = timeProfiler.getTimer(ProfilerType.COPY_OUT_TIME);
-                    value += event.getExecutionTime();
-                    timeProfiler.setTimer(ProfilerType.COPY_OUT_TIME, value);
+                    device.profileEvent(lastEvent, timeProfiler, ProfilerType.COPY_OUT_TIME);
                 }
 
             } else if (op == TornadoVMBytecodes.STREAM_OUT_BLOCKING.value()) {
@@ -394,14 +588,18 @@ public class TornadoVM extends TornadoLogger {
 
                 final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
 
+                if (async && sizeBatch <= 0) {
+                    pendingReads.add(new PendingRead(device, object, offset, objectState));
+                    if (eventList != -1) {
+                        eventsIndicies[eventList] = 0;
+                    }
+                    continue;
+                }
+
                 final int tornadoEventID = device.streamOutBlocking(object, offset, objectState, waitList);
 
                 if (TornadoOptions.isProfilerEnabled() && tornadoEventID != -1) {
-                    Event event = device.resolveEvent(tornadoEventID);
-                    event.waitForEvents();
-                    long value = timeProfiler.getTimer(ProfilerType.COPY_OUT_TIME);
-                    value += event.getExecutionTime();
-                    timeProfiler.setTimer(ProfilerType.COPY_OUT_TIME, value);
+                    device.profileEvent(tornadoEventID, timeProfiler, ProfilerType.COPY_OUT_TIME);
                 }
 
                 if (eventList != -1) {
@@ -444,6 +642,9 @@ public class TornadoVM extends TornadoLogger {
                     TornadoOptions.USER_SCHEDULING = true;
                 }
 
+                // A capture is only kept when no task is compiled or re-deployed
+                replayable &= (installedCodes[taskIndex] != null && !redeployOnDevice && stack.isOnDevice());
+
                 if (installedCodes[taskIndex] == null) {
                     task.mapTo(device);
                     try {
@@ -457,7 +658,16 @@ public class TornadoVM extends TornadoLogger {
                         if (doUpdate) {
                             task.forceCompilation();
                         }
-                        installedCodes[taskIndex] = device.installCode(task);
+                        final PendingCompilation pending = pendingCompilations[taskIndex];
+                        pendingCompilations[taskIndex] = null;
+                        if (pending != null && pending.device == device) {
+                            installedCodes[taskIndex] = awaitCompilation(pending);
+                        } else {
+                            if (shouldCompileInParallel()) {
+                                compileTasksInParallel(taskIndex, batchThreads);
+                            }
+                            installedCodes[taskIndex] = compileTask(task, device, batchThreads);
+                        }
                         doUpdate = false;
                     } catch (Exception e) {
                         throw new TornadoBailoutRuntimeException("Unable to compile task " + task.getFullName() + "\n" + e.getStackTrace(), e);
@@ -568,6 +778,22 @@ public class TornadoVM extends TornadoLogger {
                     eventsIndicies[eventList]++;
                 }
 
+            } else if (op == TornadoVMBytecodes.QUEUE.value()) {
+                final int contextIndex = buffer.getInt();
+                final int queueIndex = buffer.getInt();
+                final int waitMask = buffer.getInt();
+
+                if (isWarmup) {
+                    continue;
+                }
+
+                if (TornadoOptions.printBytecodes) {
+                    String verbose = String.format("vm: QUEUE %d on %s, wait mask=0x%x", queueIndex, contexts.get(contextIndex), waitMask);
+                    tornadoVMBytecodeList.append(verbose + "\n");
+                }
+
+                contexts.get(contextIndex).selectCommandQueue(queueIndex, waitMask);
+
             } else if (op == TornadoVMBytecodes.BARRIER.value()) {
                 final int eventList = buffer.getInt();
                 final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
@@ -603,6 +829,13 @@ public class TornadoVM extends TornadoLogger {
             }
         }
 
+        if (capturing) {
+            final TornadoCommandGraph graph = contexts.get(0).stopCommandCapture();
+            if (replayable && graph != null) {
+                saveCommandGraph(graph);
+            }
+        }
+
         Event barrier = EMPTY_EVENT;
         if (!isWarmup) {
             for (TornadoAcceleratorDevice dev : contexts) {
@@ -614,6 +847,10 @@ public class TornadoVM extends TornadoLogger {
                 if (USE_VM_FLUSH) {
                     dev.flush();
                 }
+
+                if (TornadoOptions.isProfilerEnabled() && !async) {
+                    dev.resolveProfiledEvents();
+                }
             }
         }
 
@@ -637,6 +874,72 @@ public class TornadoVM extends TornadoLogger {
         return barrier;
     }
 
+    /**
+     * The specialisation cache is used for JIT-compiled tasks. FPGAs compile all
+     * the tasks of a task-schedule into a single binary.
+     */
+    private boolean useSpecialisationCache(SchedulableTask task, TornadoAcceleratorDevice device) {
+        return TornadoSpecialisationCache.isEnabled() && task instanceof CompilableTask && !device.getDeviceContext().isPlatformFPGA();
+    }
+
+    private TornadoInstalledCode compileTask(SchedulableTask task, TornadoAcceleratorDevice device, long batchThreads) {
+        if (useSpecialisationCache(task, device)) {
+            return TornadoSpecialisationCache.install(device, (CompilableTask) task, batchThreads, () -> device.installCode(task));
+        }
+        return device.installCode(task);
+    }
+
+    /**
+     * Tasks for FPGAs are compiled together into a single binary when the last
+     * task is launched, and the thread scheduling of a {@link GridTask} is
+     * enabled when its task is launched, so they are compiled in order.
+     */
+    private boolean shouldCompileInParallel() {
+        if (!TornadoOptions.PARALLEL_COMPILATION || tasks.size() < 2 || doUpdate || gridTask != null) {
+            return false;
+        }
+        for (TornadoAcceleratorDevice device : contexts) {
+            if (device.getDeviceContext().isPlatformFPGA()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts the compilation of every task that is not compiled yet, other than
+     * the task being launched, on the compiler threads. Each LAUNCH bytecode
+     * then only waits for the compilation of its own task, and the first
+     * execution of a task-schedule takes the time of its longest compilation
+     * instead of the sum of all of them.
+     */
+    private void compileTasksInParallel(int launchedTask, long batchThreads) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i == launchedTask || installedCodes[i] != null || pendingCompilations[i] != null) {
+                continue;
+            }
+            final SchedulableTask task = tasks.get(i);
+            final TornadoAcceleratorDevice device = graphContext.getDeviceForTask(i);
+            task.setBatchThreads(batchThreads);
+            task.enableDefaultThreadScheduler(graphContext.useDefaultThreadScheduler());
+            task.mapTo(device);
+            task.attachProfiler(timeProfiler);
+            if (i == (tasks.size() - 1)) {
+                task.forceCompilation();
+            }
+            debug("vm: compiling %s on %s ahead of its launch", task.getFullName(), device);
+            pendingCompilations[i] = new PendingCompilation(device, CompletableFuture.supplyAsync(() -> compileTask(task, device, batchThreads), COMPILER_EXECUTOR));
+        }
+    }
+
+    private static TornadoInstalledCode awaitCompilation(PendingCompilation pending) throws Exception {
+        try {
+            return pending.code.join();
+        } catch (CompletionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        }
+    }
+
     private void popArgumentsFromStack(int numArgs) {
         for (int i = 0; i < numArgs; i++) {
             buffer.get();
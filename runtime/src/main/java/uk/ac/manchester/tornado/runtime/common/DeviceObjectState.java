@@ -27,6 +27,7 @@ package uk.ac.manchester.tornado.runtime.common;
 
 import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.humanReadableByteCount;
 
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
 import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
 import uk.ac.manchester.tornado.api.mm.TornadoDeviceObjectState;
 
@@ -38,11 +39,14 @@ public class DeviceObjectState implements TornadoDeviceObjectState {
 
     private ObjectBuffer buffer;
 
+    private TransferCodec transferCodec;
+
     public DeviceObjectState() {
         valid = false;
         modified = false;
         contents = false;
         buffer = null;
+        transferCodec = TransferCodec.NONE;
     }
 
     public void setBuffer(ObjectBuffer value) {
@@ -108,4 +112,12 @@ public class DeviceObjectState implements TornadoDeviceObjectState {
         return buffer.toRelativeAddress();
     }
 
+    public TransferCodec getTransferCodec() {
+        return transferCodec;
+    }
+
+    public void setTransferCodec(TransferCodec codec) {
+        transferCodec = codec;
+    }
+
 }
@@ -25,8 +25,12 @@
  */
 package uk.ac.manchester.tornado.runtime.common;
 
+import java.util.concurrent.CompletableFuture;
+
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
+import uk.ac.manchester.tornado.api.profiler.ProfilerType;
+import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 
 public interface TornadoAcceleratorDevice extends TornadoDevice {
 
@@ -40,4 +44,62 @@ public interface TornadoAcceleratorDevice extends TornadoDevice {
 
     TornadoInstalledCode getCodeFromCache(SchedulableTask task);
 
+    /**
+     * Starts recording the commands enqueued on this device.
+     *
+     * @return false if the device does not support command capture.
+     */
+    boolean startCommandCapture();
+
+    /**
+     * Stops recording the commands enqueued on this device.
+     *
+     * @return the recorded graph, or null if it cannot be replayed.
+     */
+    TornadoCommandGraph stopCommandCapture();
+
+    /**
+     * Enqueues all the commands of a graph recorded on this device.
+     *
+     * @return event of the last command, or -1 if a command could not be
+     *         enqueued. The commands enqueued before it are left to run, so
+     *         the graph must not be replayed again, and the bytecodes must
+     *         not be interpreted in its place.
+     */
+    int replayCommandGraph(TornadoCommandGraph graph);
+
+    /**
+     * Selects the command queue used by the next commands enqueued on this device.
+     *
+     * @param queue
+     *            index of the queue, see
+     *            {@link TornadoOptions#VM_COMPUTE_QUEUES} and
+     *            {@link TornadoOptions#VM_COPY_QUEUES}.
+     * @param waitMask
+     *            bit mask of the queues whose last command has to complete before
+     *            the next command on the selected queue starts.
+     */
+    void selectCommandQueue(int queue, int waitMask);
+
+    /**
+     * Adds the execution time of an event to a profiler timer. The time is
+     * collected later by {@link #resolveProfiledEvents()}, so the caller does not
+     * wait for the event.
+     */
+    void profileEvent(int event, TornadoProfiler profiler, ProfilerType type);
+
+    /**
+     * Collects the execution times of all the events passed to
+     * {@link #profileEvent}, waiting for those that have not completed yet.
+     */
+    void resolveProfiledEvents();
+
+    /**
+     * Returns a future that is completed, without blocking the caller, once the
+     * event has completed on the device. The future is completed from a thread
+     * of the driver, so the continuations must not enqueue blocking commands on
+     * this device.
+     */
+    CompletableFuture<Void> whenEventComplete(int event);
+
 }
@@ -77,6 +77,103 @@ public class TornadoOptions {
      */
     public static final boolean ENABLE_FMA = getBooleanValue("tornado.enable.fma", "True");
 
+    /**
+     * Option to record the device commands of a task-schedule after its first
+     * execution and replay them through a single native call in later
+     * executions, skipping the TornadoVM interpreter.
+     * <p>
+     * Use `-Dtornado.vm.capture=True`.
+     */
+    public static final boolean VM_COMMAND_CAPTURE = getBooleanValue("tornado.vm.capture", "False");
+
+    /**
+     * Number of in-order command queues per device used to launch kernels.
+     * Independent tasks of a task-schedule are spread across them (at most 16).
+     * <p>
+     * Use `-Dtornado.vm.queues.compute=<value>`.
+     */
+    public static final int VM_COMPUTE_QUEUES = Math.min(16, Math.max(1, getIntValue("tornado.vm.queues.compute", "1")));
+
+    /**
+     * Number of in-order command queues per device dedicated to host-device
+     * copies, so transfers overlap with kernels running on the compute queues
+     * (at most 16).
+     * <p>
+     * Use `-Dtornado.vm.queues.copy=<value>`.
+     */
+    public static final int VM_COPY_QUEUES = Math.min(16, Math.max(0, getIntValue("tornado.vm.queues.copy", "0")));
+
+    /**
+     * Maximum number of specialised variants kept per task and device, selected
+     * at launch time by a guard on the shape of the arguments. Use 0 to disable
+     * the cache and recompile every time the arguments are updated.
+     * <p>
+     * Use `-Dtornado.specialisation.cache.size=<value>`.
+     */
+    public static final int SPECIALISATION_CACHE_SIZE = Math.max(0, getIntValue("tornado.specialisation.cache.size", "8"));
+
+    /**
+     * Edge of the square work-groups used on GPUs for multi-dimensional kernels
+     * in which neighbouring work-items read the same elements, such as matrix
+     * multiplications and stencils. Only the shape of the work-groups changes:
+     * the shared elements are not staged in local memory. It is disabled by
+     * default (0), which keeps the default work-group sizes, since no
+     * measurement shows a gain over them yet.
+     * <p>
+     * Use `-Dtornado.reuse.workgroup=<value>`.
+     */
+    public static final int REUSE_WORKGROUP_EDGE = Math.max(0, getIntValue("tornado.reuse.workgroup", "0"));
+
+    /**
+     * Option to print the bounds and null checks that the compiler proves
+     * unnecessary. False by default.
+     * <p>
+     * Use `-Dtornado.boundschecks.print=True`.
+     */
+    public static final boolean PRINT_BOUNDS_CHECKS = getBooleanValue("tornado.boundschecks.print", "False");
+
+    /**
+     * Estimated number of registers per work-item above which calls are no
+     * longer inlined, so that kernels keep enough GPU occupancy. 128 by default.
+     * <p>
+     * Use `-Dtornado.inlining.registers=<value>`.
+     */
+    public static final int INLINING_REGISTER_BUDGET = getIntValue("tornado.inlining.registers", "128");
+
+    /**
+     * Option to print the inlining decisions of the compiler and their reasons.
+     * False by default.
+     * <p>
+     * Use `-Dtornado.inlining.print=True`.
+     */
+    public static final boolean PRINT_INLINING = getBooleanValue("tornado.inlining.print", "False");
+
+    /**
+     * Compiles the tasks of a task-schedule in parallel on the first execution,
+     * instead of compiling each task when it is launched. True by default.
+     * <p>
+     * Use `-Dtornado.compiler.parallel=False`.
+     */
+    public static final boolean PARALLEL_COMPILATION = getBooleanValue("tornado.compiler.parallel", "True");
+
+    /**
+     * Number of threads that compile tasks in parallel, shared by all
+     * task-schedules. The number of available processors by default.
+     * <p>
+     * Use `-Dtornado.compiler.threads=<value>`.
+     */
+    public static final int COMPILER_THREADS = Math.max(1, getIntValue("tornado.compiler.threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+    /**
+     * Stores the array fields annotated with {@code @Interleaved} (e.g., the
+     * storage of {@code VectorFloat3} and {@code ImageFloat3}) as structures of
+     * arrays on the device, so that neighbouring work-items access contiguous
+     * components. False by default.
+     * <p>
+     * Use `-Dtornado.soa=True`.
+     */
+    public static final boolean STRUCTURE_OF_ARRAYS = getBooleanValue("tornado.soa", "False");
+
     /**
      * Option to enable profiler. It can be disabled at any point during runtime.
      *
@@ -104,4 +201,15 @@ public class TornadoOptions {
         return Boolean.parseBoolean(Tornado.getProperty(property, defaultValue));
     }
 
+    private static int getIntValue(String property, String defaultValue) {
+        return Integer.parseInt(Tornado.getProperty(property, defaultValue));
+    }
+
+    /**
+     * @return true when the devices use more than one command queue.
+     */
+    public static boolean useMultipleQueues() {
+        return (VM_COMPUTE_QUEUES + VM_COPY_QUEUES) > 1;
+    }
+
 }
@@ -0,0 +1,345 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Juan Fumero
+ *
+ */
+package uk.ac.manchester.tornado.runtime.common;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import jdk.vm.ci.code.InstalledCode;
+import uk.ac.manchester.tornado.api.common.Access;
+import uk.ac.manchester.tornado.runtime.domain.DomainTree;
+import uk.ac.manchester.tornado.runtime.tasks.CompilableTask;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Cache of the specialised variants of each method. The compiler folds scalar
+ * arguments, array lengths and fields of the arguments into constants, so a
+ * kernel is only valid for the shape of the arguments it was compiled with.
+ * Each variant is kept with a guard on those values and selected at launch
+ * time, so a task-schedule whose input shapes change (e.g., through
+ * {@code updateReference}) only compiles a shape the first time it is seen.
+ * <p>
+ * Variants are keyed by the method, the device and the task options that
+ * change the generated code, not by the name of the task, so task-schedules
+ * that run the same method with the same specialisation share one kernel.
+ * Compilations are single-flight: requesters of a variant that is being
+ * compiled wait for that compilation instead of starting another one.
+ * <p>
+ * Up to {@link TornadoOptions#SPECIALISATION_CACHE_SIZE} variants are kept per
+ * key, evicting the least recently used one.
+ */
+public class TornadoSpecialisationCache {
+
+    private static final Map<String, LinkedList<Variant>> cache = new ConcurrentHashMap<>();
+
+    private static final Map<PendingCompilation, CompletableFuture<Void>> compilations = new ConcurrentHashMap<>();
+
+    /**
+     * Values of the arguments that the compiler folds into constants: the value
+     * of scalars, the type and length of arrays, and the identity of any other
+     * object, whose fields are read at compile time.
+     */
+    private static class Guard {
+        private final Object[] values;
+        private final long batchThreads;
+        private final boolean userScheduling;
+        private final int hash;
+
+        Guard(Object[] args, long batchThreads) {
+            this.values = new Object[args.length];
+            int h = Long.hashCode(batchThreads);
+            for (int i = 0; i < args.length; i++) {
+                final Object arg = args[i];
+                if (arg == null || RuntimeUtilities.isBoxedPrimitiveClass(arg.getClass())) {
+                    values[i] = arg;
+                    h = 31 * h + Objects.hashCode(arg);
+                } else if (arg.getClass().isArray()) {
+                    values[i] = new ArrayShape(arg.getClass(), Array.getLength(arg));
+                    h = 31 * h + Array.getLength(arg);
+                } else {
+                    values[i] = new WeakReference<>(arg);
+                    h = 31 * h + System.identityHashCode(arg);
+                }
+            }
+            this.batchThreads = batchThreads;
+            this.userScheduling = TornadoOptions.USER_SCHEDULING;
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * Two guards are equal when their identity values still refer to the same
+         * objects. Only used to detect concurrent compilations of one variant.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Guard)) {
+                return false;
+            }
+            final Guard other = (Guard) obj;
+            if (hash != other.hash || values.length != other.values.length || batchThreads != other.batchThreads || userScheduling != other.userScheduling) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                final Object value = values[i];
+                final Object otherValue = other.values[i];
+                if (value instanceof WeakReference && otherValue instanceof WeakReference) {
+                    final Object referent = ((WeakReference<?>) value).get();
+                    if (referent == null || referent != ((WeakReference<?>) otherValue).get()) {
+                        return false;
+                    }
+                } else if (value instanceof ArrayShape && otherValue instanceof ArrayShape) {
+                    if (!value.equals(otherValue)) {
+                        return false;
+                    }
+                } else if (value instanceof WeakReference || otherValue instanceof WeakReference || !Objects.equals(value, otherValue)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matches(Object[] args, long batchThreads) {
+            if (args.length != values.length || this.batchThreads != batchThreads || this.userScheduling != TornadoOptions.USER_SCHEDULING) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                final Object arg = args[i];
+                final Object value = values[i];
+                if (value instanceof WeakReference) {
+                    if (((WeakReference<?>) value).get() != arg) {
+                        return false;
+                    }
+                } else if (value instanceof ArrayShape) {
+                    if (arg == null || !((ArrayShape) value).matches(arg)) {
+                        return false;
+                    }
+                } else if (!Objects.equals(value, arg)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class ArrayShape {
+        private final Class<?> type;
+        private final int length;
+
+        ArrayShape(Class<?> type, int length) {
+            this.type = type;
+            this.length = length;
+        }
+
+        boolean matches(Object array) {
+            return array.getClass() == type && Array.getLength(array) == length;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + length;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ArrayShape && ((ArrayShape) obj).type == type && ((ArrayShape) obj).length == length;
+        }
+    }
+
+    /**
+     * Variant being compiled by one of the requesters.
+     */
+    private static class PendingCompilation {
+        private final String key;
+        private final Guard guard;
+
+        PendingCompilation(String key, Guard guard) {
+            this.key = key;
+            this.guard = guard;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + guard.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PendingCompilation && ((PendingCompilation) obj).key.equals(key) && ((PendingCompilation) obj).guard.equals(guard);
+        }
+    }
+
+    private static class Variant {
+        private final Guard guard;
+        private final TornadoInstalledCode code;
+        private final DomainTree domain;
+        private final Access[] accesses;
+        private final int reuseDimensions;
+        private final boolean provenSafe;
+
+        Variant(Guard guard, TornadoInstalledCode code, DomainTree domain, Access[] accesses, int reuseDimensions, boolean provenSafe) {
+            this.guard = guard;
+            this.code = code;
+            this.domain = domain;
+            this.accesses = accesses;
+            this.reuseDimensions = reuseDimensions;
+            this.provenSafe = provenSafe;
+        }
+
+        boolean isValid() {
+            return !(code instanceof InstalledCode) || ((InstalledCode) code).isValid();
+        }
+    }
+
+    /**
+     * The method, the device and the task options that change the generated
+     * code.
+     */
+    private static String keyOf(TornadoAcceleratorDevice device, CompilableTask task) {
+        final TaskMetaData meta = task.meta();
+        final StringBuilder key = new StringBuilder();
+        key.append(task.getMethod().toGenericString()).append('@').append(device.getDeviceName());
+        key.append('[').append(meta.getCompilerFlags());
+        key.append(',').append(meta.enableParallelization());
+        key.append(',').append(meta.enableVectors());
+        key.append(',').append(meta.enableLoopInterchange());
+        key.append(',').append(meta.getPrecisionPolicy());
+        key.append(',').append(meta.enableThreadCoarsener());
+        key.append(',').append(meta.enableExceptions());
+        key.append(',').append(meta.enableMemChecks());
+        key.append(',').append(meta.enableOpenCLBifs());
+        key.append(',').append(meta.shouldUseOpenCLRelativeAddresses());
+        key.append(',').append(meta.getNumThreads());
+        return key.append(']').toString();
+    }
+
+    private static void applyTo(CompilableTask task, Variant variant) {
+        final TaskMetaData meta = task.meta();
+        if (variant.domain != null) {
+            meta.setDomain(variant.domain);
+        }
+        System.arraycopy(variant.accesses, 0, meta.getArgumentsAccess(), 0, variant.accesses.length);
+        meta.setReuseDimensions(variant.reuseDimensions);
+        meta.setProvenSafe(variant.provenSafe);
+    }
+
+    public static boolean isEnabled() {
+        return TornadoOptions.SPECIALISATION_CACHE_SIZE > 0;
+    }
+
+    /**
+     * Looks up the variant of a task compiled for the same argument shapes. On a
+     * hit, the parallel domain, the argument accesses, the data reuse and the
+     * safety of the accesses found when the variant was compiled are copied into
+     * the task.
+     *
+     * @return the code of the variant, or null if the task has to be compiled.
+     */
+    private static TornadoInstalledCode lookup(String key, CompilableTask task, long batchThreads) {
+        final Object[] args = task.getArguments();
+        final LinkedList<Variant> variants = cache.get(key);
+        if (variants == null) {
+            return null;
+        }
+        synchronized (variants) {
+            final Iterator<Variant> iterator = variants.iterator();
+            while (iterator.hasNext()) {
+                final Variant variant = iterator.next();
+                if (!variant.isValid()) {
+                    iterator.remove();
+                } else if (variant.guard.matches(args, batchThreads)) {
+                    // Move to the front, the list is kept in LRU order
+                    iterator.remove();
+                    variants.addFirst(variant);
+                    applyTo(task, variant);
+                    return variant.code;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the variant compiled for the current arguments of a task. On a
+     * miss, the variant is compiled with the given compiler and registered, or,
+     * if another thread is already compiling it, its compilation is awaited.
+     */
+    public static TornadoInstalledCode install(TornadoAcceleratorDevice device, CompilableTask task, long batchThreads, Supplier<TornadoInstalledCode> compiler) {
+        final String key = keyOf(device, task);
+        while (true) {
+            TornadoInstalledCode code = lookup(key, task, batchThreads);
+            if (code != null) {
+                return code;
+            }
+
+            final PendingCompilation pendingCompilation = new PendingCompilation(key, new Guard(task.getArguments(), batchThreads));
+            final CompletableFuture<Void> compilation = new CompletableFuture<>();
+            final CompletableFuture<Void> inProgress = compilations.putIfAbsent(pendingCompilation, compilation);
+            if (inProgress != null) {
+                // If the other compilation fails, this requester compiles it again
+                inProgress.exceptionally(e -> null).join();
+                continue;
+            }
+
+            try {
+                code = compiler.get();
+                if (code != null) {
+                    register(key, task, batchThreads, code);
+                }
+                compilation.complete(null);
+                return code;
+            } catch (RuntimeException | Error e) {
+                compilation.completeExceptionally(e);
+                throw e;
+            } finally {
+                compilations.remove(pendingCompilation, compilation);
+            }
+        }
+    }
+
+    private static void register(String key, CompilableTask task, long batchThreads, TornadoInstalledCode code) {
+        final LinkedList<Variant> variants = cache.computeIfAbsent(key, k -> new LinkedList<>());
+        synchronized (variants) {
+            final TaskMetaData meta = task.meta();
+            variants.addFirst(new Variant(new Guard(task.getArguments(), batchThreads), code, meta.getDomain(), meta.getArgumentsAccess().clone(), meta.getReuseDimensions(),
+                    meta.isProvenSafe()));
+            while (variants.size() > TornadoOptions.SPECIALISATION_CACHE_SIZE) {
+                variants.removeLast();
+            }
+        }
+    }
+}
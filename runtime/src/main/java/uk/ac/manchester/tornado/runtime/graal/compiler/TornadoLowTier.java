@@ -24,8 +24,9 @@
 package uk.ac.manchester.tornado.runtime.graal.compiler;
 
 import org.graalvm.compiler.phases.*;
-import org.graalvm.compiler.phases.tiers.*;
 
-public abstract class TornadoLowTier extends PhaseSuite<LowTierContext> {
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoLowTierContext;
+
+public abstract class TornadoLowTier extends PhaseSuite<TornadoLowTierContext> {
 
 }
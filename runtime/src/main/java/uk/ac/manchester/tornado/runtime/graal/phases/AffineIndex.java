@@ -0,0 +1,118 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Juan Fumero
+ *
+ */
+package uk.ac.manchester.tornado.runtime.graal.phases;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.IntegerConvertNode;
+import org.graalvm.compiler.nodes.calc.LeftShiftNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.NegateNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+
+/**
+ * Index of an array access as a sum of terms multiplied by a constant factor,
+ * plus a constant. Any value that is not an addition, a subtraction or a
+ * multiplication by a constant is kept as an opaque term, so that
+ * {@code i * 1024 + j + 1} is decomposed into {@code {i: 1024, j: 1} + 1}.
+ */
+class AffineIndex {
+
+    final Map<ValueNode, Long> terms = new HashMap<>();
+    long constant;
+
+    private static AffineIndex ofConstant(long value) {
+        final AffineIndex index = new AffineIndex();
+        index.constant = value;
+        return index;
+    }
+
+    private static AffineIndex ofTerm(ValueNode node) {
+        final AffineIndex index = new AffineIndex();
+        index.terms.put(node, 1L);
+        return index;
+    }
+
+    private static boolean isIntegerConstant(ValueNode node) {
+        return node instanceof ConstantNode && node.asJavaConstant() != null && node.asJavaConstant().getJavaKind().isNumericInteger();
+    }
+
+    static AffineIndex decompose(ValueNode node) {
+        if (isIntegerConstant(node)) {
+            return AffineIndex.ofConstant(node.asJavaConstant().asLong());
+        } else if (node instanceof AddNode) {
+            return decompose(((AddNode) node).getX()).add(decompose(((AddNode) node).getY()), 1);
+        } else if (node instanceof SubNode) {
+            return decompose(((SubNode) node).getX()).add(decompose(((SubNode) node).getY()), -1);
+        } else if (node instanceof NegateNode) {
+            return decompose(((NegateNode) node).getValue()).scale(-1);
+        } else if (node instanceof IntegerConvertNode) {
+            return decompose(((IntegerConvertNode<?, ?>) node).getValue());
+        } else if (node instanceof MulNode) {
+            final AffineIndex x = decompose(((MulNode) node).getX());
+            final AffineIndex y = decompose(((MulNode) node).getY());
+            if (y.isConstant()) {
+                return x.scale(y.constant);
+            } else if (x.isConstant()) {
+                return y.scale(x.constant);
+            }
+        } else if (node instanceof LeftShiftNode && isIntegerConstant(((LeftShiftNode) node).getY())) {
+            final long shift = ((LeftShiftNode) node).getY().asJavaConstant().asLong();
+            if (shift >= 0 && shift < 32) {
+                return decompose(((LeftShiftNode) node).getX()).scale(1L << shift);
+            }
+        }
+        return AffineIndex.ofTerm(node);
+    }
+
+    boolean isConstant() {
+        return terms.isEmpty();
+    }
+
+    /**
+     * Factor of a term, or 0 if the index does not contain it.
+     */
+    long factorOf(ValueNode node) {
+        return terms.getOrDefault(node, 0L);
+    }
+
+    private AffineIndex add(AffineIndex other, long factor) {
+        final AffineIndex result = new AffineIndex();
+        result.terms.putAll(terms);
+        other.terms.forEach((node, value) -> result.terms.merge(node, value * factor, Long::sum));
+        result.terms.values().removeIf(value -> value == 0);
+        result.constant = constant + other.constant * factor;
+        return result;
+    }
+
+    private AffineIndex scale(long factor) {
+        return ofConstant(0).add(this, factor);
+    }
+}
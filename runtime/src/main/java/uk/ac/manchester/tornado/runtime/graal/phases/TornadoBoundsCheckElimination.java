@@ -0,0 +1,361 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Juan Fumero
+ *
+ */
+package uk.ac.manchester.tornado.runtime.graal.phases;
+
+import java.lang.reflect.Array;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.graalvm.compiler.core.common.cfg.AbstractControlFlowGraph;
+import org.graalvm.compiler.core.common.type.IntegerStamp;
+import org.graalvm.compiler.core.common.type.Stamp;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.AbstractDeoptimizeNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.DeoptimizingGuard;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LogicConstantNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.ParameterNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.AndNode;
+import org.graalvm.compiler.nodes.calc.BinaryNode;
+import org.graalvm.compiler.nodes.calc.FixedBinaryNode;
+import org.graalvm.compiler.nodes.calc.IntegerBelowNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.IsNullNode;
+import org.graalvm.compiler.nodes.calc.LeftShiftNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.RightShiftNode;
+import org.graalvm.compiler.nodes.calc.SignExtendNode;
+import org.graalvm.compiler.nodes.calc.SignedDivNode;
+import org.graalvm.compiler.nodes.calc.SignedRemNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.nodes.calc.UnsignedRightShiftNode;
+import org.graalvm.compiler.nodes.calc.ZeroExtendNode;
+import org.graalvm.compiler.nodes.cfg.Block;
+import org.graalvm.compiler.nodes.cfg.ControlFlowGraph;
+import org.graalvm.compiler.nodes.java.AccessIndexedNode;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
+import org.graalvm.compiler.phases.BasePhase;
+
+import jdk.vm.ci.meta.DeoptimizationReason;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.graal.nodes.AbstractParallelNode;
+
+/**
+ * Proves that array accesses cannot fail by computing the range of their
+ * indices. Ranges are derived from the constants of the specialised task
+ * (array lengths, scalar arguments), from the bounds of the parallel loops
+ * (offset, stride and range) and from the conditions of the sequential loops.
+ * <p>
+ * Explicit bounds and null checks whose condition is proven are folded, and
+ * each one is reported with {@code -Dtornado.boundschecks.print=True}, as are
+ * the array accesses whose index is proven in bounds. When
+ * every array access of the kernel is proven and no check is left that can
+ * raise an exception, the task is marked as such, so the runtime does not
+ * read the exception state back after each launch when exceptions are
+ * enabled.
+ */
+public class TornadoBoundsCheckElimination extends BasePhase<TornadoHighTierContext> {
+
+    private static class Range {
+        private final long lower;
+        private final long upper;
+
+        Range(long lower, long upper) {
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        private static Range of(long lower, long upper) {
+            if (lower > upper || lower < Integer.MIN_VALUE || upper > Integer.MAX_VALUE) {
+                return null;
+            }
+            return new Range(lower, upper);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + lower + ", " + upper + "]";
+        }
+    }
+
+    private final Set<Node> visiting = new HashSet<>();
+    private ControlFlowGraph cfg;
+    private TornadoHighTierContext context;
+    private String methodName;
+
+    private static boolean isIntegerConstant(ValueNode node) {
+        return node instanceof ConstantNode && node.asJavaConstant() != null && node.asJavaConstant().getJavaKind().isNumericInteger();
+    }
+
+    private static Range ofStamp(ValueNode node) {
+        final Stamp stamp = node.stamp(NodeView.DEFAULT);
+        if (stamp instanceof IntegerStamp && ((IntegerStamp) stamp).getBits() <= 32) {
+            return Range.of(((IntegerStamp) stamp).lowerBound(), ((IntegerStamp) stamp).upperBound());
+        }
+        return null;
+    }
+
+    /**
+     * The argument passed to an array parameter of the task, or null.
+     */
+    private Object arrayArgument(ValueNode array) {
+        if (array instanceof ParameterNode && context.hasArgs() && ((ParameterNode) array).index() < context.getNumArgs()) {
+            final Object arg = context.getArg(((ParameterNode) array).index());
+            if (arg != null && arg.getClass().isArray()) {
+                return arg;
+            }
+        }
+        return null;
+    }
+
+    private Range rangeOf(ValueNode node, FixedNode position) {
+        if (node == null || !visiting.add(node)) {
+            return null;
+        }
+        try {
+            final Range range = computeRange(node, position);
+            final Range stamp = ofStamp(node);
+            if (range == null) {
+                return stamp;
+            } else if (stamp == null) {
+                return range;
+            }
+            return Range.of(Math.max(range.lower, stamp.lower), Math.min(range.upper, stamp.upper));
+        } finally {
+            visiting.remove(node);
+        }
+    }
+
+    private Range computeRange(ValueNode node, FixedNode position) {
+        if (isIntegerConstant(node)) {
+            final long value = node.asJavaConstant().asLong();
+            return Range.of(value, value);
+        } else if (node instanceof AbstractParallelNode) {
+            return rangeOf(((AbstractParallelNode) node).value(), position);
+        } else if (node instanceof ArrayLengthNode) {
+            final Object array = arrayArgument(((ArrayLengthNode) node).array());
+            return (array == null) ? null : Range.of(Array.getLength(array), Array.getLength(array));
+        } else if (node instanceof SignExtendNode) {
+            return rangeOf(((SignExtendNode) node).getValue(), position);
+        } else if (node instanceof ZeroExtendNode) {
+            final Range value = rangeOf(((ZeroExtendNode) node).getValue(), position);
+            return (value != null && value.lower >= 0) ? value : null;
+        } else if (node instanceof ValuePhiNode && ((ValuePhiNode) node).merge() instanceof LoopBeginNode) {
+            return rangeOfLoopVariable((ValuePhiNode) node, position);
+        }
+
+        if (node instanceof AddNode || node instanceof SubNode || node instanceof MulNode || node instanceof AndNode || node instanceof LeftShiftNode || node instanceof RightShiftNode
+                || node instanceof UnsignedRightShiftNode || node instanceof SignedDivNode || node instanceof SignedRemNode) {
+            final boolean isFixed = node instanceof FixedBinaryNode;
+            final Range x = rangeOf(isFixed ? ((FixedBinaryNode) node).getX() : ((BinaryNode) node).getX(), position);
+            final Range y = rangeOf(isFixed ? ((FixedBinaryNode) node).getY() : ((BinaryNode) node).getY(), position);
+            if (x == null || y == null) {
+                // x & mask is in [0, mask] whatever the value of x
+                return (node instanceof AndNode && y != null && y.lower >= 0) ? Range.of(0, y.upper) : null;
+            }
+
+            if (node instanceof AddNode) {
+                return Range.of(x.lower + y.lower, x.upper + y.upper);
+            } else if (node instanceof SubNode) {
+                return Range.of(x.lower - y.upper, x.upper - y.lower);
+            } else if (node instanceof MulNode) {
+                final long a = x.lower * y.lower;
+                final long b = x.lower * y.upper;
+                final long c = x.upper * y.lower;
+                final long d = x.upper * y.upper;
+                return Range.of(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+            } else if (node instanceof AndNode) {
+                if (y.lower >= 0 && x.lower >= 0) {
+                    return Range.of(0, Math.min(x.upper, y.upper));
+                }
+                return (y.lower >= 0) ? Range.of(0, y.upper) : (x.lower >= 0) ? Range.of(0, x.upper) : null;
+            } else if (y.lower != y.upper) {
+                return null;
+            } else if (node instanceof LeftShiftNode) {
+                return (y.lower >= 0 && y.lower < 31) ? Range.of(x.lower << y.lower, x.upper << y.lower) : null;
+            } else if (node instanceof RightShiftNode || node instanceof UnsignedRightShiftNode) {
+                return (x.lower >= 0 && y.lower >= 0 && y.lower < 32) ? Range.of(x.lower >> y.lower, x.upper >> y.lower) : null;
+            } else if (node instanceof SignedDivNode) {
+                return (x.lower >= 0 && y.lower > 0) ? Range.of(x.lower / y.lower, x.upper / y.lower) : null;
+            } else if (node instanceof SignedRemNode) {
+                return (x.lower >= 0 && y.lower > 0) ? Range.of(0, Math.min(x.upper, y.lower - 1)) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Range of an induction variable that only increases, inside the body of
+     * its loop. The body is the successor of the exit condition
+     * {@code phi < limit} that stays in the loop.
+     */
+    private Range rangeOfLoopVariable(ValuePhiNode phi, FixedNode position) {
+        final LoopBeginNode loopBegin = (LoopBeginNode) phi.merge();
+
+        // It only increases with every iteration
+        for (LoopEndNode loopEnd : loopBegin.loopEnds()) {
+            final ValueNode next = phi.valueAt(loopEnd);
+            if (!(next instanceof AddNode)) {
+                return null;
+            }
+            final ValueNode x = ((AddNode) next).getX();
+            final ValueNode y = ((AddNode) next).getY();
+            final ValueNode step = (x == phi) ? y : (y == phi) ? x : null;
+            final Range stepRange = (step == null) ? null : rangeOf(step, position);
+            if (stepRange == null || stepRange.lower <= 0) {
+                return null;
+            }
+        }
+
+        final Range initial = rangeOf(phi.valueAt(0), position);
+        if (initial == null) {
+            return null;
+        }
+
+        final Block block = cfg.blockFor(position);
+        for (LoopExitNode exit : loopBegin.loopExits()) {
+            if (!(exit.predecessor() instanceof IfNode)) {
+                continue;
+            }
+            final IfNode ifNode = (IfNode) exit.predecessor();
+            if (ifNode.falseSuccessor() != exit || block == null || !AbstractControlFlowGraph.dominates(cfg.blockFor(ifNode.trueSuccessor()), block)) {
+                continue;
+            }
+            final LogicNode condition = ifNode.condition();
+            if (condition instanceof IntegerLessThanNode && ((IntegerLessThanNode) condition).getX() == phi) {
+                final Range limit = rangeOf(((IntegerLessThanNode) condition).getY(), ifNode);
+                if (limit != null) {
+                    return Range.of(initial.lower, Math.max(initial.lower, limit.upper - 1));
+                }
+            } else if (condition instanceof IntegerBelowNode && ((IntegerBelowNode) condition).getX() == phi) {
+                final Range limit = rangeOf(((IntegerBelowNode) condition).getY(), ifNode);
+                if (limit != null && limit.lower >= 0) {
+                    return Range.of(Math.max(0, initial.lower), Math.max(0, limit.upper - 1));
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isInBounds(ValueNode index, long length, FixedNode position) {
+        final Range range = rangeOf(index, position);
+        return range != null && range.lower >= 0 && range.upper < length;
+    }
+
+    private void report(String message, Node node, String detail) {
+        Tornado.debug("%s in %s: %s %s", message, methodName, node, detail);
+        if (TornadoOptions.PRINT_BOUNDS_CHECKS) {
+            System.out.printf("[%s] %s: %s %s\n", methodName, message, node, detail);
+        }
+    }
+
+    /**
+     * @return true if the array access cannot throw an exception.
+     */
+    private boolean proveAccess(AccessIndexedNode access) {
+        final Object array = arrayArgument(access.array());
+        if (array == null) {
+            return false;
+        }
+
+        final int length = Array.getLength(array);
+        final Range range = rangeOf(access.index(), access);
+        if (range == null || range.lower < 0 || range.upper >= length) {
+            Tornado.debug("bounds check kept in %s: %s index in %s, length %d", methodName, access, range, length);
+            return false;
+        }
+        report("access proven in bounds", access, "(index in " + range + ", length " + length + ")");
+        return true;
+    }
+
+    /**
+     * Folds an explicit bounds or null check whose condition always holds.
+     */
+    private boolean proveGuard(StructuredGraph graph, DeoptimizingGuard guard) {
+        final FixedNode position;
+        if (guard instanceof FixedNode) {
+            position = (FixedNode) guard;
+        } else if (guard instanceof GuardNode && ((GuardNode) guard).getAnchor() instanceof FixedNode) {
+            position = (FixedNode) ((GuardNode) guard).getAnchor();
+        } else {
+            return false;
+        }
+
+        final LogicNode condition = guard.getCondition();
+        boolean proven = false;
+        if (guard.getReason() == DeoptimizationReason.BoundsCheckException && !guard.isNegated() && condition instanceof IntegerBelowNode) {
+            final Range length = rangeOf(((IntegerBelowNode) condition).getY(), position);
+            proven = length != null && isInBounds(((IntegerBelowNode) condition).getX(), length.lower, position);
+        } else if (guard.getReason() == DeoptimizationReason.NullCheckException && guard.isNegated() && condition instanceof IsNullNode) {
+            proven = arrayArgument(((IsNullNode) condition).getValue()) != null;
+        }
+
+        if (proven) {
+            report(guard.getReason() == DeoptimizationReason.NullCheckException ? "null check removed" : "bounds check removed", guard.asNode(), "(guard)");
+            guard.setCondition(LogicConstantNode.tautology(graph), false);
+        }
+        return proven;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoHighTierContext context) {
+        if (!context.hasMeta()) {
+            return;
+        }
+
+        this.context = context;
+        this.cfg = ControlFlowGraph.compute(graph, true, true, true, true);
+        this.methodName = graph.method() == null ? graph.name : graph.method().getName();
+        visiting.clear();
+
+        boolean safe = true;
+        for (Node node : graph.getNodes().filter(node -> node instanceof DeoptimizingGuard).snapshot()) {
+            safe &= proveGuard(graph, (DeoptimizingGuard) node);
+        }
+        for (AccessIndexedNode access : graph.getNodes().filter(AccessIndexedNode.class)) {
+            safe &= proveAccess(access);
+        }
+        safe &= graph.getNodes().filter(AbstractDeoptimizeNode.class).isEmpty();
+
+        if (safe) {
+            Tornado.debug("all array accesses of %s are in bounds", methodName);
+        }
+        context.getMeta().setProvenSafe(safe);
+    }
+}
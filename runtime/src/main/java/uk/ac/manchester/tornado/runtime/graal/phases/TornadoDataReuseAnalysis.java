@@ -0,0 +1,176 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Juan Fumero
+ *
+ */
+package uk.ac.manchester.tornado.runtime.graal.phases;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.phases.BasePhase;
+
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelOffsetNode;
+
+/**
+ * It finds the parallel dimensions along which neighbouring work-items read
+ * the same array elements, and records them in the task meta-data. Two access
+ * patterns are detected:
+ * <ul>
+ * <li>Reads whose index does not depend on one of the parallel loops, such as
+ * the rows and columns read by a matrix multiplication. All work-items along
+ * that dimension read the same elements.</li>
+ * <li>Reads of the same array whose indices only differ in a constant, such as
+ * the neighbours read by a stencil. Adjacent work-items read overlapping
+ * elements.</li>
+ * </ul>
+ * Indices are decomposed into an {@link AffineIndex} over the loop induction
+ * variables.
+ * <p>
+ * The result is only used to shape the work-groups on GPUs. The kernel itself
+ * is not transformed: the shared elements are not staged in {@code __local}
+ * memory, which would need the sequential loops to be strip-mined and barriers
+ * that every work-item of a group reaches.
+ */
+public class TornadoDataReuseAnalysis extends BasePhase<TornadoHighTierContext> {
+
+    private final Map<ValueNode, Integer> parallelVariables = new HashMap<>();
+    private final Map<Node, Integer> dependencies = new HashMap<>();
+
+    /**
+     * Bit mask of the parallel dimensions a value depends on. Frame states are
+     * not values, so they are not followed.
+     */
+    private int dependsOn(Node node) {
+        final Integer known = dependencies.get(node);
+        if (known != null) {
+            return known;
+        }
+        int mask = 0;
+        if (parallelVariables.containsKey(node)) {
+            mask = 1 << parallelVariables.get(node);
+        } else {
+            // Cut the cycles through loop phis
+            dependencies.put(node, 0);
+            for (Node input : node.inputs()) {
+                if (input instanceof ValueNode) {
+                    mask |= dependsOn(input);
+                }
+            }
+        }
+        dependencies.put(node, mask);
+        return mask;
+    }
+
+    private static boolean isLoopVariable(Node node) {
+        return node instanceof ValuePhiNode && ((ValuePhiNode) node).merge() instanceof LoopBeginNode;
+    }
+
+    private int dependsOn(AffineIndex index) {
+        int mask = 0;
+        for (ValueNode term : index.terms.keySet()) {
+            mask |= dependsOn(term);
+        }
+        return mask;
+    }
+
+    private boolean isLoopDependent(AffineIndex index) {
+        for (ValueNode term : index.terms.keySet()) {
+            if (isLoopVariable(term) || dependsOn(term) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoHighTierContext context) {
+        if (!context.hasMeta() || context.getMeta().getDomain() == null) {
+            return;
+        }
+
+        final int dimensions = context.getMeta().getDomain().getDepth();
+        final int allDimensions = (1 << dimensions) - 1;
+
+        parallelVariables.clear();
+        dependencies.clear();
+        for (ParallelOffsetNode offset : graph.getNodes().filter(ParallelOffsetNode.class)) {
+            for (ValuePhiNode phi : offset.usages().filter(ValuePhiNode.class)) {
+                if (phi.merge() instanceof LoopBeginNode && offset.index() < dimensions) {
+                    parallelVariables.put(phi, offset.index());
+                }
+            }
+        }
+        if (parallelVariables.isEmpty()) {
+            return;
+        }
+
+        int reuse = 0;
+        final Map<ValueNode, List<AffineIndex>> readsPerArray = new HashMap<>();
+        for (LoadIndexedNode load : graph.getNodes().filter(LoadIndexedNode.class)) {
+            final AffineIndex index = AffineIndex.decompose(load.index());
+            if (!isLoopDependent(index)) {
+                continue;
+            }
+
+            // Work-items along the dimensions the index does not depend on read
+            // the same element
+            if (dimensions > 1) {
+                reuse |= allDimensions & ~dependsOn(index);
+            }
+            readsPerArray.computeIfAbsent(load.array(), array -> new ArrayList<>()).add(index);
+        }
+
+        // Reads of the same array at constant distances from each other
+        for (List<AffineIndex> reads : readsPerArray.values()) {
+            for (int i = 0; i < reads.size(); i++) {
+                final Set<Long> offsets = new HashSet<>();
+                offsets.add(reads.get(i).constant);
+                for (int j = i + 1; j < reads.size(); j++) {
+                    if (reads.get(i).terms.equals(reads.get(j).terms)) {
+                        offsets.add(reads.get(j).constant);
+                    }
+                }
+                if (offsets.size() > 1) {
+                    reuse |= dependsOn(reads.get(i));
+                }
+            }
+        }
+
+        if (reuse != 0) {
+            Tornado.debug("data reuse along dimensions: 0x%x", reuse);
+        }
+        context.getMeta().setReuseDimensions(reuse);
+    }
+}
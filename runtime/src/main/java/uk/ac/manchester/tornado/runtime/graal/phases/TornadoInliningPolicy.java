@@ -27,20 +27,131 @@ package uk.ac.manchester.tornado.runtime.graal.phases;
 
 import static org.graalvm.compiler.core.common.GraalOptions.MaximumDesiredSize;
 import static org.graalvm.compiler.core.common.GraalOptions.MaximumInliningSize;
+import static org.graalvm.compiler.core.common.GraalOptions.TraceInlining;
+import static org.graalvm.compiler.core.common.GraalOptions.TrivialInliningSize;
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContext;
 
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.ParameterNode;
 import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.calc.BinaryNode;
+import org.graalvm.compiler.nodes.calc.UnaryNode;
+import org.graalvm.compiler.nodes.java.AccessIndexedNode;
+import org.graalvm.compiler.nodes.java.LoadFieldNode;
 import org.graalvm.compiler.nodes.spi.Replacements;
 import org.graalvm.compiler.phases.common.inlining.InliningUtil;
 import org.graalvm.compiler.phases.common.inlining.info.InlineInfo;
+import org.graalvm.compiler.phases.common.inlining.info.elem.InlineableGraph;
 import org.graalvm.compiler.phases.common.inlining.policy.InliningPolicy;
 import org.graalvm.compiler.phases.common.inlining.walker.MethodInvocation;
 
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.Signature;
+import uk.ac.manchester.tornado.api.annotations.ForceInline;
+import uk.ac.manchester.tornado.api.annotations.NoInline;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+
+/**
+ * Inlining policy for kernels. Calls that are not inlined are compiled as
+ * separate OpenCL functions in the same program as the kernel. The decision
+ * for each call is taken in this order:
+ * <ol>
+ * <li>Methods that take or return objects other than arrays, including their
+ * receiver, are always inlined. Objects such as vector types are virtualised
+ * in the kernel and cannot be passed to a separate OpenCL function.</li>
+ * <li>Methods annotated with {@link NoInline} are not inlined, and methods
+ * annotated with {@link ForceInline} are always inlined.</li>
+ * <li>Trivial methods (up to {@code TrivialInliningSize} nodes) are always
+ * inlined, since a call stops the OpenCL compiler from optimising across
+ * them.</li>
+ * <li>Methods bigger than {@code MaximumInliningSize} nodes are not
+ * inlined.</li>
+ * <li>Otherwise, the method is inlined if the estimated number of registers of
+ * the caller with the method inlined stays within
+ * {@link TornadoOptions#INLINING_REGISTER_BUDGET}. Kernels that need more
+ * registers per work-item run fewer work-items per compute unit on GPUs.</li>
+ * </ol>
+ * Decisions and their reasons are printed with
+ * {@code -Dtornado.inlining.print=True}.
+ */
 public class TornadoInliningPolicy implements InliningPolicy {
 
     public TornadoInliningPolicy() {
     }
 
+    /**
+     * Estimates the number of registers of a method: the values that are live
+     * across loop iterations (phis), the parameters, and one register for every
+     * four operations as the temporaries in flight.
+     */
+    static int estimateRegisters(StructuredGraph graph) {
+        int phis = 0;
+        int parameters = 0;
+        int operations = 0;
+        for (Node node : graph.getNodes()) {
+            if (node instanceof ValuePhiNode) {
+                phis++;
+            } else if (node instanceof ParameterNode) {
+                parameters++;
+            } else if (node instanceof BinaryNode || node instanceof UnaryNode || node instanceof AccessIndexedNode || node instanceof LoadFieldNode) {
+                operations++;
+            }
+        }
+        return phis + parameters + (operations + 3) / 4;
+    }
+
+    private static boolean isPrimitiveOrArray(JavaKind kind, JavaType type) {
+        return kind != JavaKind.Object || type.getComponentType() != null;
+    }
+
+    /**
+     * Checks that the signatures of the methods only use primitives and arrays,
+     * which can be passed to and returned from an OpenCL function.
+     */
+    private static boolean canBeOutlined(InlineInfo info) {
+        for (int i = 0; i < info.numberOfMethods(); i++) {
+            final ResolvedJavaMethod method = info.methodAt(i);
+            if (!method.isStatic()) {
+                return false;
+            }
+            final Signature signature = method.getSignature();
+            for (int j = 0; j < signature.getParameterCount(false); j++) {
+                if (!isPrimitiveOrArray(signature.getParameterKind(j), signature.getParameterType(j, method.getDeclaringClass()))) {
+                    return false;
+                }
+            }
+            if (!isPrimitiveOrArray(signature.getReturnKind(), signature.getReturnType(method.getDeclaringClass()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasAnnotation(InlineInfo info, Class<? extends java.lang.annotation.Annotation> annotation, boolean all) {
+        for (int i = 0; i < info.numberOfMethods(); i++) {
+            final boolean annotated = info.methodAt(i).getAnnotation(annotation) != null;
+            if (annotated != all) {
+                return annotated;
+            }
+        }
+        return all;
+    }
+
+    private static Decision decide(Decision decision, InlineInfo info, String reason, Object... args) {
+        final ResolvedJavaMethod caller = info.graph().method();
+        final String message = String.format("%s -> %s: %s (%s)", caller == null ? info.graph().name : caller.format("%H.%n"), info.methodAt(0).format("%H.%n"),
+                decision.shouldInline() ? "inlined" : "not inlined", String.format(reason, args));
+        Tornado.debug("inlining: %s", message);
+        if (TornadoOptions.PRINT_INLINING) {
+            System.out.println("[inlining] " + message);
+        }
+        return decision.withReason(TraceInlining.getValue(info.graph().getOptions()), reason, args);
+    }
+
     @Override
     public boolean continueInlining(StructuredGraph graph) {
         if (graph.getNodeCount() >= MaximumDesiredSize.getValue(graph.getOptions())) {
@@ -53,10 +164,38 @@ public class TornadoInliningPolicy implements InliningPolicy {
     @Override
     public Decision isWorthInlining(Replacements replacements, MethodInvocation invocation, InlineInfo calleeInfo, int inliningDepth, boolean fullyProcessed) {
         final InlineInfo info = invocation.callee();
-        int nodes = info.determineNodeCount();
-        if (nodes > MaximumInliningSize.getValue(info.graph().getOptions()) && !invocation.isRoot()) {
-            return Decision.NO;
+        if (invocation.isRoot()) {
+            return Decision.YES;
+        }
+
+        if (!canBeOutlined(info)) {
+            return decide(Decision.YES, info, "objects in the signature cannot be passed to an OpenCL function");
+        }
+
+        if (hasAnnotation(info, NoInline.class, false)) {
+            return decide(Decision.NO, info, "annotated with @NoInline");
+        } else if (hasAnnotation(info, ForceInline.class, true)) {
+            return decide(Decision.YES, info, "annotated with @ForceInline");
+        }
+
+        final int nodes = info.determineNodeCount();
+        if (nodes <= TrivialInliningSize.getValue(info.graph().getOptions())) {
+            return decide(Decision.YES, info, "trivial method of %d nodes", nodes);
+        } else if (nodes > MaximumInliningSize.getValue(info.graph().getOptions())) {
+            return decide(Decision.NO, info, "%d nodes exceed MaximumInliningSize", nodes);
+        }
+
+        int registers = estimateRegisters(info.graph());
+        for (int i = 0; i < info.numberOfMethods(); i++) {
+            if (info.inlineableElementAt(i) instanceof InlineableGraph) {
+                final StructuredGraph callee = ((InlineableGraph) info.inlineableElementAt(i)).getGraph();
+                // The parameters of the callee are values of the caller
+                registers += estimateRegisters(callee) - callee.getNodes(ParameterNode.TYPE).count();
+            }
+        }
+        if (registers > TornadoOptions.INLINING_REGISTER_BUDGET) {
+            return decide(Decision.NO, info, "%d estimated registers exceed the budget of %d", registers, TornadoOptions.INLINING_REGISTER_BUDGET);
         }
-        return Decision.YES;
+        return decide(Decision.YES, info, "%d nodes, %d estimated registers", nodes, registers);
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Authors: Juan Fumero
+ *
+ */
+package uk.ac.manchester.tornado.runtime.graal.phases;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.java.AccessIndexedNode;
+import org.graalvm.compiler.phases.BasePhase;
+
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.graal.nodes.AbstractParallelNode;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelOffsetNode;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+
+/**
+ * It chooses which parallel loop of a 2D or 3D nest is mapped to the first
+ * dimension of the thread space ({@code get_global_id(0)}). Adjacent
+ * work-items along that dimension should access adjacent array elements, so
+ * that GPUs coalesce their memory accesses. For each parallel loop, the phase
+ * counts the array accesses whose index increases by one with its induction
+ * variable (e.g., {@code j} in {@code a[i * size + j]}, the row-major layout
+ * of {@code StorageFormats.toRowMajor}), and swaps the loop with the most such
+ * accesses into the first dimension.
+ * <p>
+ * Iterations of parallel loops are independent, so changing the order in
+ * which they are mapped to threads does not change the result. The phase is
+ * skipped for tasks whose thread space is set by the user, either with a
+ * {@code WorkerGrid} or with the global or local dimensions of the task
+ * ({@code <task>.global.dims}, {@code <task>.local.dims}): those dimensions
+ * are given in the order of the loops in the source.
+ */
+public class TornadoLoopInterchange extends BasePhase<TornadoHighTierContext> {
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoHighTierContext context) {
+        if (!context.hasMeta() || !context.getMeta().enableLoopInterchange() || context.getMeta().isWorkerGridAvailable() || context.getMeta().isGlobalWorkDefined()
+                || context.getMeta().isLocalWorkDefined() || context.getBatchThreads() > 0) {
+            return;
+        }
+
+        final Map<Integer, ValuePhiNode> parallelVariables = new HashMap<>();
+        for (ParallelOffsetNode offset : graph.getNodes().filter(ParallelOffsetNode.class)) {
+            for (ValuePhiNode phi : offset.usages().filter(ValuePhiNode.class)) {
+                if (phi.merge() instanceof LoopBeginNode && parallelVariables.put(offset.index(), phi) != null) {
+                    // Two loops with the same index, leave the nest unchanged
+                    return;
+                }
+            }
+        }
+        final int dimensions = graph.getNodes().filter(ParallelRangeNode.class).count();
+        if (dimensions < 2 || parallelVariables.size() != dimensions) {
+            return;
+        }
+        for (int i = 0; i < dimensions; i++) {
+            if (!parallelVariables.containsKey(i)) {
+                return;
+            }
+        }
+
+        // Number of accesses that are contiguous along each dimension
+        final int[] contiguous = new int[dimensions];
+        for (AccessIndexedNode access : graph.getNodes().filter(AccessIndexedNode.class)) {
+            final AffineIndex index = AffineIndex.decompose(access.index());
+            for (int i = 0; i < dimensions; i++) {
+                if (Math.abs(index.factorOf(parallelVariables.get(i))) == 1) {
+                    contiguous[i]++;
+                }
+            }
+        }
+
+        int best = 0;
+        for (int i = 1; i < dimensions; i++) {
+            if (contiguous[i] > contiguous[best]) {
+                best = i;
+            }
+        }
+        if (best == 0) {
+            return;
+        }
+
+        Tornado.debug("loop interchange: dimension %d -> 0 (%d contiguous accesses, %d before)", best, contiguous[best], contiguous[0]);
+        for (AbstractParallelNode node : graph.getNodes().filter(AbstractParallelNode.class)) {
+            if (node.index() == best) {
+                node.setIndex(0);
+            } else if (node.index() == 0) {
+                node.setIndex(best);
+            }
+        }
+    }
+}
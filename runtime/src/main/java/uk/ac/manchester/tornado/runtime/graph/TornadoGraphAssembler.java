@@ -47,7 +47,8 @@ public class TornadoGraphAssembler {
         CONTEXT((byte) 20),             // CONTEXT(ctx)
         END((byte) 21),                 // END(ctx)
         CONSTANT_ARGUMENT((byte) 22),
-        REFERENCE_ARGUMENT((byte) 23);
+        REFERENCE_ARGUMENT((byte) 23),
+        QUEUE((byte) 24);               // QUEUE(ctx, queue, wait mask)
         // @formatter:on
 
         private byte value;
@@ -101,6 +102,13 @@ public class TornadoGraphAssembler {
         buffer.putInt(index);
     }
 
+    void queue(int ctx, int queue, int waitMask) {
+        buffer.put(TornadoVMBytecodes.QUEUE.value);
+        buffer.putInt(ctx);
+        buffer.putInt(queue);
+        buffer.putInt(waitMask);
+    }
+
     public void allocate(int object, int ctx, long size) {
         buffer.put(TornadoVMBytecodes.ALLOCATE.value);
         buffer.putInt(object);
@@ -103,6 +103,10 @@ public class TornadoVMGraphCompilationResult {
         }
     }
 
+    void emitQueue(int contextID, int queue, int waitMask) {
+        bitcodeASM.queue(contextID, queue, waitMask);
+    }
+
     public void emitAddDep(int dep) {
         bitcodeASM.addDependency(dep);
     }
@@ -43,12 +43,17 @@ import jdk.vm.ci.meta.ResolvedJavaMethod;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
 import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
 import uk.ac.manchester.tornado.runtime.graph.TornadoGraphAssembler.TornadoVMBytecodes;
 import uk.ac.manchester.tornado.runtime.graph.nodes.AbstractNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.AllocateNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.ContextNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.ContextOpNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.CopyInNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.CopyOutNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.DependentReadNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.StreamInNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.TaskNode;
 import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
 import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
@@ -89,10 +94,10 @@ public class TornadoVMGraphCompiler {
     private static class BatchSizeMetaData {
 
         private int totalChunks;
-        private int remainingChunkSize;
+        private long remainingChunkSize;
         private short numBytesType;
 
-        BatchSizeMetaData(int totalChunks, int remainingChunkSize, short numBytesType) {
+        BatchSizeMetaData(int totalChunks, long remainingChunkSize, short numBytesType) {
             this.totalChunks = totalChunks;
             this.remainingChunkSize = remainingChunkSize;
             this.numBytesType = numBytesType;
@@ -102,7 +107,7 @@ public class TornadoVMGraphCompiler {
             return totalChunks;
         }
 
-        private int getRemainingChunkSize() {
+        private long getRemainingChunkSize() {
             return remainingChunkSize;
         }
 
@@ -143,7 +148,7 @@ public class TornadoVMGraphCompiler {
         }
 
         int totalChunks = (int) (totalSize / batchSize);
-        int remainingChunkSize = (int) (totalSize % batchSize);
+        long remainingChunkSize = totalSize % batchSize;
 
         if (Tornado.DEBUG) {
             System.out.println("Batch Size: " + batchSize);
@@ -205,6 +210,11 @@ public class TornadoVMGraphCompiler {
                 scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies, realOffsetSize, realBatchSize, nthreads);
             }
 
+        } else if (TornadoOptions.useMultipleQueues()) {
+            // Generate bytecodes with no batches, spread across several command queues
+            final BitSet[] order = calculateOrder(graph, nodeIds, dependencies);
+            final int[] queues = assignQueues(graph, nodeIds, order);
+            scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies, order, queues, 0, 0, 0);
         } else {
             // Generate bytecodes with no batches
             scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies);
@@ -213,6 +223,13 @@ public class TornadoVMGraphCompiler {
         // Last operation -> perform synchronisation
         synchronizeOperationLastByteCode(result, numDepLists);
 
+        if (batchSize == -1 && TornadoOptions.useMultipleQueues()) {
+            // Join all queues into the first one, which is used by the host for
+            // synchronisation once the task-schedule has been launched
+            final ContextNode contextNode = (ContextNode) graph.getNode(graph.filter(ContextNode.class).nextSetBit(0));
+            result.emitQueue(contextNode.getDeviceIndex(), 0, allQueuesMask() & ~1);
+        }
+
         // Generate END bytecode
         result.end();
 
@@ -302,9 +319,131 @@ public class TornadoVMGraphCompiler {
     }
 
     private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps, long offset, long bufferBatchSize, long nThreads) {
+        scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, deps, deps, null, offset, bufferBatchSize, nThreads);
+    }
+
+    private static int allQueuesMask() {
+        return (int) ((1L << (TornadoOptions.VM_COMPUTE_QUEUES + TornadoOptions.VM_COPY_QUEUES)) - 1);
+    }
+
+    /**
+     * Returns the index of the object passed through a task argument, or -1 if
+     * the argument is a constant.
+     */
+    private static int objectIndexOf(AbstractNode argNode) {
+        if (argNode instanceof CopyInNode) {
+            return ((CopyInNode) argNode).getValue().getIndex();
+        } else if (argNode instanceof StreamInNode) {
+            return ((StreamInNode) argNode).getValue().getIndex();
+        } else if (argNode instanceof CopyOutNode) {
+            return ((CopyOutNode) argNode).getValue().getValue().getIndex();
+        } else if (argNode instanceof AllocateNode) {
+            return ((AllocateNode) argNode).getValue().getIndex();
+        } else if (argNode instanceof DependentReadNode) {
+            return ((DependentReadNode) argNode).getValue().getIndex();
+        }
+        return -1;
+    }
+
+    /**
+     * Extends the data dependencies computed by {@link #calculateDeps} with the
+     * order between tasks that share an object. With a single in-order queue this
+     * order is given by the queue, but tasks on different queues could otherwise
+     * overwrite data that an earlier task still reads.
+     */
+    private static BitSet[] calculateOrder(TornadoGraph graph, int[] nodeIds, BitSet[] deps) {
+        final BitSet[] order = new BitSet[deps.length];
+        final BitSet[] taskObjects = new BitSet[deps.length];
+        for (int i = 0; i < deps.length; i++) {
+            order[i] = (BitSet) deps[i].clone();
+            final AbstractNode node = graph.getNode(nodeIds[i]);
+            if (!(node instanceof TaskNode)) {
+                continue;
+            }
+            final TaskNode taskNode = (TaskNode) node;
+            taskObjects[i] = new BitSet();
+            for (int arg = 0; arg < taskNode.getNumArgs(); arg++) {
+                final int objectIndex = objectIndexOf(taskNode.getArg(arg));
+                if (objectIndex != -1) {
+                    taskObjects[i].set(objectIndex);
+                }
+            }
+            for (int j = 0; j < i; j++) {
+                if (taskObjects[j] != null && taskObjects[j].intersects(taskObjects[i])) {
+                    order[i].set(nodeIds[j]);
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Assigns each operation to a command queue of the device. Queues
+     * [0, compute) launch kernels and queues [compute, compute + copy) perform
+     * copies. A task that depends on another task stays on the queue of that task,
+     * so chains of tasks need no cross-queue waits, while independent tasks are
+     * spread in a round-robin fashion. Copies out of the device use the last copy
+     * queue, so they never wait behind copies into the device.
+     *
+     * @return the queue of each node, indexed by node id, or -1 for nodes that do
+     *         not enqueue any command.
+     */
+    private static int[] assignQueues(TornadoGraph graph, int[] nodeIds, BitSet[] order) {
+        final int numCompute = TornadoOptions.VM_COMPUTE_QUEUES;
+        final int numCopy = TornadoOptions.VM_COPY_QUEUES;
+        final int numCopyIn = Math.max(1, numCopy - 1);
+        final int[] queues = new int[graph.getValid().length()];
+        Arrays.fill(queues, -1);
+
+        int nextCompute = 0;
+        int nextCopyIn = 0;
+        for (int i = 0; i < nodeIds.length; i++) {
+            final AbstractNode node = graph.getNode(nodeIds[i]);
+            int queue = -1;
+            if (node instanceof TaskNode) {
+                for (int j = order[i].nextSetBit(0); j >= 0 && queue == -1; j = order[i].nextSetBit(j + 1)) {
+                    if (graph.getNode(j) instanceof TaskNode) {
+                        queue = queues[j];
+                    }
+                }
+                if (queue == -1) {
+                    queue = nextCompute;
+                    nextCompute = (nextCompute + 1) % numCompute;
+                }
+            } else if (node instanceof CopyOutNode) {
+                if (numCopy > 0) {
+                    queue = numCompute + numCopy - 1;
+                } else {
+                    // Copy out on the queue of the task that produces the data
+                    final int j = order[i].nextSetBit(0);
+                    queue = (j >= 0 && queues[j] != -1) ? queues[j] : 0;
+                }
+            } else if (node instanceof CopyInNode || node instanceof StreamInNode) {
+                if (numCopy > 0) {
+                    queue = numCompute + nextCopyIn;
+                    nextCopyIn = (nextCopyIn + 1) % numCopyIn;
+                } else {
+                    queue = 0;
+                }
+            }
+            queues[nodeIds[i]] = queue;
+        }
+        return queues;
+    }
+
+    /**
+     * @param order
+     *            Dependencies that decide when a node can be scheduled. They are
+     *            a superset of {@code deps} when using multiple command queues.
+     * @param queues
+     *            Command queue of each node, or null to use a single queue.
+     */
+    private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps, BitSet[] order, int[] queues, long offset,
+            long bufferBatchSize, long nThreads) {
 
         final BitSet scheduled = new BitSet(deps.length);
         scheduled.clear();
+        final BitSet usedQueues = new BitSet();
         final BitSet nodes = new BitSet(graph.getValid().length());
         final int[] depLists = new int[deps.length];
         Arrays.fill(depLists, -1);
@@ -324,13 +463,30 @@ public class TornadoVMGraphCompiler {
             for (int i = 0; i < deps.length; i++) {
                 if (!scheduled.get(i)) {
                     final BitSet outstandingDeps = new BitSet(nodes.length());
-                    outstandingDeps.or(deps[i]);
+                    outstandingDeps.or(order[i]);
                     outstandingDeps.andNot(nodes);
 
                     if (outstandingDeps.isEmpty()) {
                         final ContextOpNode asyncNode = (ContextOpNode) graph.getNode(nodeIds[i]);
 
                         try {
+                            if (queues != null && queues[nodeIds[i]] != -1) {
+                                final int queue = queues[nodeIds[i]];
+                                int waitMask = 0;
+                                if (!usedQueues.get(queue)) {
+                                    // The first command on each queue waits for the work of the
+                                    // previous execution enqueued on the other queues
+                                    waitMask = allQueuesMask() & ~(1 << queue);
+                                    usedQueues.set(queue);
+                                }
+                                for (int j = order[i].nextSetBit(0); j >= 0; j = order[i].nextSetBit(j + 1)) {
+                                    if (queues[j] != -1 && queues[j] != queue) {
+                                        waitMask |= (1 << queues[j]);
+                                    }
+                                }
+                                result.emitQueue(asyncNode.getContext().getDeviceIndex(), queue, waitMask);
+                            }
+
                             result.emitAsyncNode(asyncNode, asyncNode.getContext().getDeviceIndex(), (deps[i].isEmpty()) ? -1 : depLists[i], offset, bufferBatchSize, nThreads);
                         } catch (BufferOverflowException e) {
                             throw new TornadoRuntimeException("[ERROR] Buffer Overflow exception. Use -Dtornado.tvm.maxbytecodesize=<value> with value > "
@@ -42,13 +42,13 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void start(ProfilerType type) {
+    public synchronized void start(ProfilerType type) {
         long start = System.nanoTime();
         profilerTime.put(type, start);
     }
 
     @Override
-    public void start(ProfilerType type, String taskName) {
+    public synchronized void start(ProfilerType type, String taskName) {
         long start = System.nanoTime();
         if (!taskTimers.containsKey(taskName)) {
             taskTimers.put(taskName, new HashMap<>());
@@ -59,7 +59,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void stop(ProfilerType type) {
+    public synchronized void stop(ProfilerType type) {
         long end = System.nanoTime();
         long start = profilerTime.get(type);
         long total = end - start;
@@ -67,7 +67,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void stop(ProfilerType type, String taskName) {
+    public synchronized void stop(ProfilerType type, String taskName) {
         long end = System.nanoTime();
         HashMap<ProfilerType, Long> profiledType = taskTimers.get(taskName);
         long start = profiledType.get(type);
@@ -77,7 +77,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public long getTimer(ProfilerType type) {
+    public synchronized long getTimer(ProfilerType type) {
         if (!profilerTime.containsKey(type)) {
             return 0;
         }
@@ -85,7 +85,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public long getTaskTimer(ProfilerType type, String taskName) {
+    public synchronized long getTaskTimer(ProfilerType type, String taskName) {
         if (!taskTimers.containsKey(taskName)) {
             return 0;
         }
@@ -96,7 +96,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void setTimer(ProfilerType type, long time) {
+    public synchronized void setTimer(ProfilerType type, long time) {
         profilerTime.put(type, time);
     }
 
@@ -171,14 +171,14 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void clean() {
+    public synchronized void clean() {
         profilerTime.clear();
         taskTimers.clear();
         indent = new StringBuffer("");
     }
 
     @Override
-    public void setTaskTimer(ProfilerType type, String taskID, long timer) {
+    public synchronized void setTaskTimer(ProfilerType type, String taskID, long timer) {
         if (!taskTimers.containsKey(taskID)) {
             taskTimers.put(taskID, new HashMap<>());
         }
@@ -186,7 +186,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void sum(ProfilerType acc, long value) {
+    public synchronized void sum(ProfilerType acc, long value) {
         long sum = getTimer(acc) + value;
         profilerTime.put(acc, sum);
     }
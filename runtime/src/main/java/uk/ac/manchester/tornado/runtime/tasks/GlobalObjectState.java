@@ -26,6 +26,7 @@
 package uk.ac.manchester.tornado.runtime.tasks;
 
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
 import uk.ac.manchester.tornado.api.mm.TornadoGlobalObjectState;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
@@ -39,12 +40,15 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
 
     private TornadoAcceleratorDevice owner;
 
+    private TransferCodec transferCodec;
+
     private final ConcurrentHashMap<TornadoAcceleratorDevice, DeviceObjectState> deviceStates;
 
     public GlobalObjectState() {
         shared = false;
         exclusive = false;
         owner = null;
+        transferCodec = TransferCodec.NONE;
         deviceStates = new ConcurrentHashMap<>();
     }
 
@@ -69,18 +73,35 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
             throw new RuntimeException("Device not compatible");
         }
         if (!deviceStates.containsKey(device)) {
-            deviceStates.put((TornadoAcceleratorDevice) device, new DeviceObjectState());
+            deviceStates.put((TornadoAcceleratorDevice) device, newDeviceState());
         }
         return deviceStates.get(device);
     }
 
+    private DeviceObjectState newDeviceState() {
+        DeviceObjectState deviceState = new DeviceObjectState();
+        deviceState.setTransferCodec(transferCodec);
+        return deviceState;
+    }
+
+    public TransferCodec getTransferCodec() {
+        return transferCodec;
+    }
+
+    public void setTransferCodec(TransferCodec codec) {
+        transferCodec = codec;
+        for (DeviceObjectState deviceState : deviceStates.values()) {
+            deviceState.setTransferCodec(codec);
+        }
+    }
+
     public void setOwner(TornadoDevice device) {
         if (!(device instanceof TornadoAcceleratorDevice)) {
             throw new RuntimeException("Device not compatible");
         }
         owner = (TornadoAcceleratorDevice) device;
         if (!deviceStates.containsKey(owner)) {
-            deviceStates.put((TornadoAcceleratorDevice) device, new DeviceObjectState());
+            deviceStates.put((TornadoAcceleratorDevice) device, newDeviceState());
         }
     }
 
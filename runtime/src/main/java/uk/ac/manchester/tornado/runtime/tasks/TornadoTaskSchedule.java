@@ -46,6 +46,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -55,6 +56,7 @@ import java.util.regex.Pattern;
 import org.graalvm.compiler.graph.CachedGraph;
 import org.graalvm.compiler.phases.util.Providers;
 
+import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 import uk.ac.manchester.tornado.api.AbstractTaskGraph;
 import uk.ac.manchester.tornado.api.GridTask;
@@ -78,7 +80,9 @@ import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task6;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task7;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task8;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task9;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
 import uk.ac.manchester.tornado.api.enums.TornadoDeviceType;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
 import uk.ac.manchester.tornado.api.exceptions.TornadoBailoutRuntimeException;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
 import uk.ac.manchester.tornado.api.profiler.ProfilerType;
@@ -106,6 +110,7 @@ import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
 import uk.ac.manchester.tornado.runtime.sketcher.SketchRequest;
 import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
 import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 /**
  * Implementation of the Tornado API for running on heterogeneous devices.
@@ -123,6 +128,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     // One TornadoVM instance per TaskSchedule
     private TornadoVM vm;
     private Event event;
+    private CompletableFuture<Void> pendingExecution;
     private String taskScheduleName;
 
     private ArrayList<TaskPackage> taskPackages = new ArrayList<>();
@@ -243,6 +249,32 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         executionContext.setDefaultThreadScheduler(use);
     }
 
+    @Override
+    public void useTransferCodec(TransferCodec codec, Object... objects) {
+        for (Object object : objects) {
+            if (object == null) {
+                warn("null object passed into useTransferCodec() in schedule %s", executionContext.getId());
+                continue;
+            }
+            executionContext.getObjectState(object).getGlobalState().setTransferCodec(codec);
+        }
+    }
+
+    @Override
+    public void usePrecisionPolicy(String taskId, PrecisionPolicy policy) {
+        final SchedulableTask task = executionContext.getTask(taskId);
+        if (task == null) {
+            throw new TornadoRuntimeException("Task " + taskId + " not found in schedule " + executionContext.getId());
+        }
+        ((TaskMetaData) task.meta()).setPrecisionPolicy(policy);
+
+        // The kernel of the task depends on the policy, force to recompile it
+        task.forceCompilation();
+        if (vm != null) {
+            vm.clearInstalledCode();
+        }
+    }
+
     @Override
     public SchedulableTask getTask(String id) {
         return executionContext.getTask(id);
@@ -641,6 +673,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         if (vm == null) {
             return;
         }
+        waitForPendingExecution();
         executionContext.sync();
     }
 
@@ -657,6 +690,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         if (vm == null) {
             return;
         }
+        waitForPendingExecution();
         executionContext.sync();
     }
 
@@ -665,6 +699,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         if (vm == null) {
             return;
         }
+        waitForPendingExecution();
 
         Event[] events = new Event[objects.length];
         for (int i = 0; i < objects.length; i++) {
@@ -677,6 +712,27 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
+    @Override
+    public void syncObjectRange(Object array, int fromIndex, int length) {
+        if (array == null || !array.getClass().isArray() || !array.getClass().getComponentType().isPrimitive()) {
+            throw new TornadoRuntimeException("[ERROR] range copies are only supported for arrays of primitives");
+        }
+        if (fromIndex < 0 || length < 0 || fromIndex > Array.getLength(array) - length) {
+            throw new TornadoRuntimeException("[ERROR] range [" + fromIndex + ", " + ((long) fromIndex + length) + ") is out of the array bounds");
+        }
+        if (vm == null || length == 0) {
+            return;
+        }
+        waitForPendingExecution();
+
+        final long elementSize = JavaKind.fromJavaClass(array.getClass().getComponentType()).getByteCount();
+        final LocalObjectState localState = executionContext.getObjectState(array);
+        final GlobalObjectState globalState = localState.getGlobalState();
+        final DeviceObjectState deviceState = globalState.getDeviceState();
+        final TornadoAcceleratorDevice device = globalState.getOwner();
+        device.resolveEvent(device.streamOutRangeBlocking(array, fromIndex * elementSize, length * elementSize, deviceState, null)).waitOn();
+    }
+
     public TornadoExecutionContext getExecutionContext() {
         return this.executionContext;
     }
@@ -729,8 +785,21 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         updateData = false;
     }
 
+    /**
+     * Waits for the last asynchronous execution of this task-schedule. A failure
+     * is not rethrown here, since it is reported through the future returned by
+     * {@link #scheduleAsync()}.
+     */
+    private void waitForPendingExecution() {
+        if (pendingExecution != null) {
+            pendingExecution.exceptionally(e -> null).join();
+            pendingExecution = null;
+        }
+    }
+
     @Override
     public AbstractTaskGraph schedule() {
+        waitForPendingExecution();
 
         if (bailout) {
             runAllTasksJavaSequential();
@@ -760,6 +829,42 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         return schedule();
     }
 
+    @Override
+    public CompletableFuture<Void> scheduleAsync() {
+        waitForPendingExecution();
+
+        if (bailout || (TornadoOptions.EXPERIMENTAL_REDUCE && !(getId().startsWith(TASK_SCHEDULE_PREFIX)))) {
+            // Sequential and reduce executions run through the blocking path
+            schedule().waitOn();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        timeProfiler.clean();
+        timeProfiler.start(ProfilerType.TOTAL_TASK_SCHEDULE_TIME);
+        analysisTaskSchedule = null;
+
+        boolean compile = compileToTornadoVMBytecode();
+        TornadoAcceleratorDevice deviceForTask = executionContext.getDeviceForTask(0);
+        if (compile && deviceForTask.getDeviceContext().isPlatformFPGA()) {
+            preCompilationForFPGA();
+        }
+
+        CompletableFuture<Void> execution;
+        try {
+            execution = vm.executeAsync().thenRun(() -> {
+                timeProfiler.stop(ProfilerType.TOTAL_TASK_SCHEDULE_TIME);
+                updateProfiler();
+            });
+        } catch (TornadoBailoutRuntimeException e) {
+            deoptimizeToSequentialJava(e);
+            execution = CompletableFuture.completedFuture(null);
+        }
+        event = null;
+        cleanUp();
+        pendingExecution = execution;
+        return execution;
+    }
+
     @SuppressWarnings("unchecked")
     private void runSequentialCodeInThread(TaskPackage taskPackage) {
         int type = taskPackage.getTaskType();
@@ -37,12 +37,15 @@ import uk.ac.manchester.tornado.api.GridTask;
 import uk.ac.manchester.tornado.api.WorkerGrid;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
 import uk.ac.manchester.tornado.api.common.TornadoEvents;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
 import uk.ac.manchester.tornado.api.mm.TaskMetaDataInterface;
 import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 import uk.ac.manchester.tornado.runtime.TornadoAcceleratorDriver;
 import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 
 public abstract class AbstractMetaData implements TaskMetaDataInterface {
 
@@ -228,6 +231,14 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         return enableVectors;
     }
 
+    public boolean enableLoopInterchange() {
+        return enableLoopInterchange;
+    }
+
+    public PrecisionPolicy getPrecisionPolicy() {
+        return precisionPolicy;
+    }
+
     public boolean enableMemChecks() {
         return enableMemChecks;
     }
@@ -265,6 +276,8 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
     private final boolean openclUseRelativeAddresses;
     private final boolean openclEnableBifs;
     private String openclCompilerOptions;
+    private boolean isPrecisionPolicyDefined;
+    private PrecisionPolicy precisionPolicy;
 
     /*
      * Allows the OpenCL driver to select the size of local work groups
@@ -278,6 +291,7 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
     private final boolean openclUseBlockingApiCalls;
     private final boolean enableParallelization;
     private final boolean enableVectors;
+    private final boolean enableLoopInterchange;
     private final boolean enableMemChecks;
     private final boolean useThreadCoarsener;
     private final boolean dumpTaskSchedule;
@@ -307,6 +321,26 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         isOpenclCompilerFlagsDefined = true;
     }
 
+    public boolean isPrecisionPolicyDefined() {
+        return isPrecisionPolicyDefined;
+    }
+
+    public void setPrecisionPolicy(PrecisionPolicy policy) {
+        precisionPolicy = policy;
+        isPrecisionPolicyDefined = true;
+    }
+
+    private static PrecisionPolicy parsePrecisionPolicy(String value) {
+        if (value == null) {
+            return TornadoOptions.ENABLE_FMA ? PrecisionPolicy.FMA : PrecisionPolicy.STRICT;
+        }
+        try {
+            return PrecisionPolicy.fromName(value);
+        } catch (IllegalArgumentException e) {
+            throw new TornadoRuntimeException("Unknown precision policy: " + value);
+        }
+    }
+
     public String composeBuiltOptions(String rawFlags) {
         rawFlags = rawFlags.replace(",", " ");
 
@@ -363,6 +397,16 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         return null;
     }
 
+    @Override
+    public boolean isProvenSafe() {
+        return false;
+    }
+
+    @Override
+    public long getExceptionStateReads() {
+        return 0;
+    }
+
     protected static String getDefault(String keySuffix, String id, String defaultValue) {
         if (getProperty(id + "." + keySuffix) == null) {
             return Tornado.getProperty("tornado" + "." + keySuffix, defaultValue);
@@ -416,6 +460,7 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         isEnableParallelizationDefined = getProperty(id + ".parallelise") != null;
 
         enableVectors = parseBoolean(getDefault("vectors.enable", id, "True"));
+        enableLoopInterchange = parseBoolean(getDefault("loops.interchange", id, "True"));
         openclEnableBifs = parseBoolean(getDefault("bifs.enable", id, "False"));
         debug = parseBoolean(getDefault("debug", id, "False"));
         enableMemChecks = parseBoolean(getDefault("memory.check", id, "False"));
@@ -426,6 +471,9 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         openclCompilerOptions = (getProperty("tornado.opencl.compiler.options") == null) ? "-w" : getProperty("tornado.opencl.compiler.options");
         isOpenclCompilerFlagsDefined = getProperty("tornado.opencl.compiler.options") != null;
 
+        precisionPolicy = parsePrecisionPolicy(getDefault("precision", id, null));
+        isPrecisionPolicyDefined = getProperty(id + ".precision") != null;
+
         openclGpuBlockX = parseInt(getDefault("opencl.gpu.block.x", id, "256"));
         isOpenclGpuBlockXDefined = getProperty(id + ".opencl.gpu.block.x") != null;
 
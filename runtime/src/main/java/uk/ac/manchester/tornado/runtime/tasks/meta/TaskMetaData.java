@@ -39,6 +39,7 @@ import java.util.Map;
 
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.common.TornadoEvents;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
 import uk.ac.manchester.tornado.runtime.EventSet;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 import uk.ac.manchester.tornado.runtime.domain.DomainTree;
@@ -60,6 +61,9 @@ public class TaskMetaData extends AbstractMetaData {
     private boolean localWorkDefined;
     private boolean globalWorkDefined;
     private boolean canAssumeExact;
+    private int reuseDimensions;
+    private boolean provenSafe;
+    private long exceptionStateReads;
 
     public TaskMetaData(ScheduleMetaData scheduleMetaData, String taskID, int numParameters) {
         super(scheduleMetaData.getId() + "." + taskID);
@@ -203,9 +207,18 @@ public class TaskMetaData extends AbstractMetaData {
         return super.enableProfiling() || scheduleMetaData.enableProfiling();
     }
 
+    /**
+     * Vectorisation is enabled by default, so it can be disabled either for the
+     * task-schedule or for a single task.
+     */
     @Override
     public boolean enableVectors() {
-        return super.enableVectors() || scheduleMetaData.enableVectors();
+        return super.enableVectors() && scheduleMetaData.enableVectors();
+    }
+
+    @Override
+    public boolean enableLoopInterchange() {
+        return super.enableLoopInterchange() && scheduleMetaData.enableLoopInterchange();
     }
 
     @Override
@@ -271,6 +284,48 @@ public class TaskMetaData extends AbstractMetaData {
         }
     }
 
+    /**
+     * Bit mask of the parallel dimensions along which work-items read the same
+     * array elements, as found by the compiler.
+     */
+    public int getReuseDimensions() {
+        return reuseDimensions;
+    }
+
+    public void setReuseDimensions(int reuseDimensions) {
+        this.reuseDimensions = reuseDimensions;
+    }
+
+    public boolean hasDataReuse() {
+        return reuseDimensions != 0;
+    }
+
+    /**
+     * True when the compiler proved that the kernel cannot raise an exception,
+     * so there is no exception state to read back after each launch.
+     */
+    @Override
+    public boolean isProvenSafe() {
+        return provenSafe;
+    }
+
+    public void setProvenSafe(boolean provenSafe) {
+        this.provenSafe = provenSafe;
+    }
+
+    /**
+     * Number of times the exception state of the kernel has been read back
+     * after a launch.
+     */
+    @Override
+    public long getExceptionStateReads() {
+        return exceptionStateReads;
+    }
+
+    public void recordExceptionStateRead() {
+        exceptionStateReads++;
+    }
+
     public long[] getGlobalOffset() {
         return globalOffset;
     }
@@ -289,9 +344,27 @@ public class TaskMetaData extends AbstractMetaData {
         return localWork;
     }
 
+    @Override
+    public PrecisionPolicy getPrecisionPolicy() {
+        return isPrecisionPolicyDefined() ? super.getPrecisionPolicy() : scheduleMetaData.getPrecisionPolicy();
+    }
+
+    /**
+     * The options of the OpenCL compiler are extended with the options of the
+     * precision policy of the task.
+     */
     @Override
     public String getCompilerFlags() {
-        return isOpenclCompilerFlagsDefined() ? super.getCompilerFlags() : scheduleMetaData.getCompilerFlags();
+        final String flags = isOpenclCompilerFlagsDefined() ? super.getCompilerFlags() : scheduleMetaData.getCompilerFlags();
+        switch (getPrecisionPolicy()) {
+            case RELAXED:
+                return flags + " -cl-mad-enable -cl-no-signed-zeros";
+            case FAST_MATH:
+            case NATIVE:
+                return flags + " -cl-fast-relaxed-math";
+            default:
+                return flags;
+        }
     }
 
     @Override
@@ -41,12 +41,15 @@
  */
 package uk.ac.manchester.tornado.api;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
 import uk.ac.manchester.tornado.api.mm.TaskMetaDataInterface;
 import uk.ac.manchester.tornado.api.profiler.ProfileInterface;
 
@@ -102,6 +105,8 @@ public interface AbstractTaskGraph extends ProfileInterface {
 
     void syncObjects(Object... objects);
 
+    void syncObjectRange(Object array, int fromIndex, int length);
+
     String getId();
 
     TaskMetaDataInterface meta();
@@ -110,6 +115,8 @@ public interface AbstractTaskGraph extends ProfileInterface {
 
     AbstractTaskGraph schedule(GridTask gridTask);
 
+    CompletableFuture<Void> scheduleAsync();
+
     AbstractTaskGraph scheduleWithProfile(Policy policy);
 
     AbstractTaskGraph scheduleWithProfileSequential(Policy policy);
@@ -127,4 +134,8 @@ public interface AbstractTaskGraph extends ProfileInterface {
     void updateReference(Object oldRef, Object newRef);
 
     void useDefaultThreadScheduler(boolean use);
+
+    void useTransferCodec(TransferCodec codec, Object... objects);
+
+    void usePrecisionPolicy(String taskId, PrecisionPolicy policy);
 }
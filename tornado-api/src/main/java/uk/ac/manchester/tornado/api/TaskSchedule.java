@@ -41,6 +41,8 @@
  */
 package uk.ac.manchester.tornado.api;
 
+import java.util.concurrent.CompletableFuture;
+
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
@@ -57,6 +59,8 @@ import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task6;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task7;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task8;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task9;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
 import uk.ac.manchester.tornado.api.profiler.ProfileInterface;
 import uk.ac.manchester.tornado.api.runtime.TornadoAPIProvider;
 
@@ -235,6 +239,11 @@ public class TaskSchedule implements TornadoAPI, ProfileInterface {
         taskScheduleImpl.schedule(gridTask).waitOn();
     }
 
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return taskScheduleImpl.scheduleAsync();
+    }
+
     @Override
     public void executeWithProfiler(Policy policy) {
         taskScheduleImpl.scheduleWithProfile(policy).waitOn();
@@ -295,6 +304,11 @@ public class TaskSchedule implements TornadoAPI, ProfileInterface {
         taskScheduleImpl.syncObjects(objects);
     }
 
+    @Override
+    public void syncObjectRange(Object array, int fromIndex, int length) {
+        taskScheduleImpl.syncObjectRange(array, fromIndex, length);
+    }
+
     @Override
     public SchedulableTask getTask(String id) {
         return taskScheduleImpl.getTask(id);
@@ -381,6 +395,18 @@ public class TaskSchedule implements TornadoAPI, ProfileInterface {
         return this;
     }
 
+    @Override
+    public TaskSchedule useTransferCodec(TransferCodec codec, Object... objects) {
+        taskScheduleImpl.useTransferCodec(codec, objects);
+        return this;
+    }
+
+    @Override
+    public TaskSchedule usePrecisionPolicy(String taskId, PrecisionPolicy policy) {
+        taskScheduleImpl.usePrecisionPolicy(taskId, policy);
+        return this;
+    }
+
     @Override
     public void updateReference(Object oldRef, Object newRef) {
         taskScheduleImpl.updateReference(oldRef, newRef);
@@ -41,6 +41,8 @@
  */
 package uk.ac.manchester.tornado.api;
 
+import java.util.concurrent.CompletableFuture;
+
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
@@ -57,6 +59,8 @@ import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task6;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task7;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task8;
 import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task9;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
 
 /**
  * Base interface of the Tornado API. It exposes the set of operations within a
@@ -432,6 +436,18 @@ public interface TornadoAPI {
 
     void execute(GridTask gridTask);
 
+    /**
+     * Execute the task-schedule without blocking the calling thread. The data
+     * is transferred and the tasks are launched before returning, and the
+     * returned future is completed, from a runtime thread, once the output data
+     * has been copied back to the host. Until then, the objects passed to the
+     * task-schedule must not be accessed. A new execution of the same
+     * task-schedule waits for the previous one to complete.
+     *
+     * @return a future completed once the execution has finished.
+     */
+    CompletableFuture<Void> executeAsync();
+
     /**
      * Run with dynamic reconfiguration with an input policy
      * 
@@ -480,6 +496,21 @@ public interface TornadoAPI {
 
     void syncObjects(Object... objects);
 
+    /**
+     * Copies a range of an array from the device to the host, leaving the rest
+     * of the host array unchanged. Outputs whose used size is only known after
+     * the execution (e.g., the result of a stream compaction) can be read back
+     * without transferring the whole buffer.
+     *
+     * @param array
+     *            Output array of primitives.
+     * @param fromIndex
+     *            Index of the first element to copy.
+     * @param length
+     *            Number of elements to copy.
+     */
+    void syncObjectRange(Object array, int fromIndex, int length);
+
     SchedulableTask getTask(String id);
 
     TornadoDevice getDevice();
@@ -492,5 +523,34 @@ public interface TornadoAPI {
 
     TaskSchedule useDefaultThreadScheduler(boolean use);
 
+    /**
+     * Encode the given input arrays with a lightweight codec before they are
+     * copied to the device. Arrays are decoded on the device by an OpenCL
+     * kernel. It only applies to whole-array copies of byte, char, short, int
+     * and float arrays; any other object, or any array that does not compress,
+     * is copied as is.
+     *
+     * @param codec
+     *            {@link TransferCodec} to apply.
+     * @param objects
+     *            Input arrays.
+     * @return {@link TaskSchedule}
+     */
+    TaskSchedule useTransferCodec(TransferCodec codec, Object... objects);
+
+    /**
+     * Set the floating-point precision policy of a task. It overrides
+     * {@code -Dtornado.enable.fma} and the policy set with
+     * {@code -D<schedule>.<task>.precision=<policy>}. Changing the policy of a
+     * task that has already been executed recompiles it.
+     *
+     * @param taskId
+     *            Task identifier, with or without the schedule name.
+     * @param policy
+     *            {@link PrecisionPolicy} to apply.
+     * @return {@link TaskSchedule}
+     */
+    TaskSchedule usePrecisionPolicy(String taskId, PrecisionPolicy policy);
+
     void updateReference(Object oldRef, Object newRef);
 }
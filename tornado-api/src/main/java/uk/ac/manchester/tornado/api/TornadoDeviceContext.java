@@ -57,4 +57,11 @@ public interface TornadoDeviceContext {
 
     boolean useRelativeAddresses();
 
+    /**
+     * @return number of host to device copies that have been sent with a
+     *         {@link uk.ac.manchester.tornado.api.enums.TransferCodec} and
+     *         decoded on the device.
+     */
+    long getEncodedTransfers();
+
 }
@@ -0,0 +1,447 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.algorithms;
+
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+
+/**
+ * Stream compaction: copies the elements of an array whose flag is set into
+ * the first positions of an output array, preserving their order, and counts
+ * them. Flags are {@code int} values, {@code 1} for the elements to keep and
+ * {@code 0} for the rest, and are usually computed by a task of the user
+ * (e.g., {@code flags[i] = input[i] > threshold ? 1 : 0}).
+ * <p>
+ * The compaction runs an exclusive {@link Scan} of the flags, which gives the
+ * position of every selected element in the output, followed by a parallel
+ * scatter that also writes the number of selected elements into
+ * {@code count[0]}. Elements whose position is beyond the end of the output
+ * are dropped, so the output can be smaller than the input when an upper bound
+ * of the selected elements is known; {@code count[0]} is still the number of
+ * selected elements, so that an overflow can be detected.
+ * <p>
+ * Only {@code count} has to be copied back after the execution. The selected
+ * elements are then copied with
+ * {@link TaskSchedule#syncObjectRange(Object, int, int)}, which transfers
+ * {@code count[0]} elements instead of the whole output:
+ *
+ * <pre>
+ * {@code
+ * TaskSchedule s0 = new TaskSchedule("s0").streamIn(input)
+ *         .task("flags", MyKernels::select, input, flags);
+ * Compaction.addTasks(s0, "compact", input, flags, positions, blockSums, output, count)
+ *         .streamOut(count)
+ *         .execute();
+ * s0.syncObjectRange(output, 0, Math.min(count[0], output.length));
+ * }
+ * </pre>
+ */
+public final class Compaction {
+
+    private Compaction() {
+    }
+
+    private static void checkFlags(int length, int[] flags) {
+        if (flags.length != length) {
+            throw new IllegalArgumentException("Expected " + length + " flags, found " + flags.length);
+        }
+    }
+
+    /**
+     * Adds the tasks computing the output positions of the selected elements
+     * ({@code <id>Reduce}, {@code <id>Sums} and {@code <id>Scan}, see
+     * {@link Scan#addTasks(TaskSchedule, String, int[], int[], int[], ScanOperator, boolean)}).
+     */
+    private static TaskSchedule addPositionTasks(TaskSchedule schedule, String id, int[] flags, int[] positions, int[] blockSums) {
+        return Scan.addTasks(schedule, id, flags, positions, blockSums, ScanOperator.ADD, false);
+    }
+
+    private static int[] positionsOnHost(int[] flags) {
+        final int[] positions = new int[flags.length];
+        Scan.exclusiveOnHost(flags, positions, ScanOperator.ADD);
+        return positions;
+    }
+
+    /**
+     * Number of selected elements, given the exclusive scan of the flags.
+     */
+    private static int countOf(int[] flags, int[] positions) {
+        return (flags.length == 0) ? 0 : positions[flags.length - 1] + flags[flags.length - 1];
+    }
+
+    // ======================================================================
+    // indices
+    // ======================================================================
+
+    /**
+     * Scatter pass that writes the indices of the selected elements.
+     */
+    public static void scatterIndices(int[] flags, int[] positions, int[] output, int[] count) {
+        for (@Parallel int i = 0; i < flags.length; i++) {
+            final int position = positions[i];
+            if (flags[i] != 0 && position < output.length) {
+                output[position] = i;
+            }
+            if (i == flags.length - 1) {
+                count[0] = position + flags[i];
+            }
+        }
+    }
+
+    /**
+     * Adds the tasks that write the indices of the selected elements into
+     * {@code output} and their number into {@code count[0]}. The tasks are
+     * named {@code <id>Reduce}, {@code <id>Sums}, {@code <id>Scan} and
+     * {@code <id>Scatter}.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param flags
+     *            {@code 1} for the selected elements, {@code 0} otherwise.
+     * @param positions
+     *            Temporary array with the length of {@code flags}.
+     * @param blockSums
+     *            Temporary array of {@code Scan.numBlocks(flags.length)}
+     *            elements.
+     * @param output
+     *            Indices of the selected elements.
+     * @param count
+     *            Array of one element with the number of selected elements.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addIndexTasks(TaskSchedule schedule, String id, int[] flags, int[] positions, int[] blockSums, int[] output, int[] count) {
+        addPositionTasks(schedule, id, flags, positions, blockSums);
+        return schedule.task(id + "Scatter", Compaction::scatterIndices, flags, positions, output, count);
+    }
+
+    /**
+     * Writes the indices of the selected elements into {@code output} on the
+     * default device, and copies back only those indices.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compactIndices(int[] flags, int[] output) {
+        if (flags.length == 0) {
+            return 0;
+        }
+        final int[] count = new int[1];
+        final TaskSchedule schedule = new TaskSchedule("compaction").streamIn(flags);
+        addIndexTasks(schedule, "compact", flags, new int[flags.length], new int[Scan.numBlocks(flags.length)], output, count).streamOut(count).execute();
+        schedule.syncObjectRange(output, 0, Math.min(count[0], output.length));
+        return count[0];
+    }
+
+    /**
+     * Host version of {@link #compactIndices(int[], int[])}.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compactIndicesOnHost(int[] flags, int[] output) {
+        final int[] positions = positionsOnHost(flags);
+        IntStream.range(0, flags.length).parallel().filter(i -> flags[i] != 0 && positions[i] < output.length).forEach(i -> output[positions[i]] = i);
+        return countOf(flags, positions);
+    }
+
+    // ======================================================================
+    // int
+    // ======================================================================
+
+    /**
+     * Scatter pass that writes the selected elements of {@code input}.
+     */
+    public static void scatter(int[] input, int[] flags, int[] positions, int[] output, int[] count) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            final int position = positions[i];
+            if (flags[i] != 0 && position < output.length) {
+                output[position] = input[i];
+            }
+            if (i == input.length - 1) {
+                count[0] = position + flags[i];
+            }
+        }
+    }
+
+    /**
+     * Adds the tasks that copy the selected elements of {@code input} into
+     * {@code output} and their number into {@code count[0]}. The tasks are
+     * named {@code <id>Reduce}, {@code <id>Sums}, {@code <id>Scan} and
+     * {@code <id>Scatter}.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param input
+     *            Input array.
+     * @param flags
+     *            {@code 1} for the selected elements, {@code 0} otherwise.
+     * @param positions
+     *            Temporary array with the length of {@code input}.
+     * @param blockSums
+     *            Temporary array of {@code Scan.numBlocks(input.length)}
+     *            elements.
+     * @param output
+     *            Selected elements, in the order of {@code input}.
+     * @param count
+     *            Array of one element with the number of selected elements.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, int[] input, int[] flags, int[] positions, int[] blockSums, int[] output, int[] count) {
+        checkFlags(input.length, flags);
+        addPositionTasks(schedule, id, flags, positions, blockSums);
+        return schedule.task(id + "Scatter", Compaction::scatter, input, flags, positions, output, count);
+    }
+
+    /**
+     * Copies the selected elements of {@code input} into {@code output} on
+     * the default device, and copies back only those elements.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compact(int[] input, int[] flags, int[] output) {
+        checkFlags(input.length, flags);
+        if (input.length == 0) {
+            return 0;
+        }
+        final int[] count = new int[1];
+        final TaskSchedule schedule = new TaskSchedule("compaction").streamIn(input, flags);
+        addTasks(schedule, "compact", input, flags, new int[input.length], new int[Scan.numBlocks(input.length)], output, count).streamOut(count).execute();
+        schedule.syncObjectRange(output, 0, Math.min(count[0], output.length));
+        return count[0];
+    }
+
+    /**
+     * Host version of {@link #compact(int[], int[], int[])}.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compactOnHost(int[] input, int[] flags, int[] output) {
+        checkFlags(input.length, flags);
+        final int[] positions = positionsOnHost(flags);
+        IntStream.range(0, input.length).parallel().filter(i -> flags[i] != 0 && positions[i] < output.length).forEach(i -> output[positions[i]] = input[i]);
+        return countOf(flags, positions);
+    }
+
+    // ======================================================================
+    // long
+    // ======================================================================
+
+    /**
+     * Scatter pass that writes the selected elements of {@code input}.
+     */
+    public static void scatter(long[] input, int[] flags, int[] positions, long[] output, int[] count) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            final int position = positions[i];
+            if (flags[i] != 0 && position < output.length) {
+                output[position] = input[i];
+            }
+            if (i == input.length - 1) {
+                count[0] = position + flags[i];
+            }
+        }
+    }
+
+    /**
+     * Adds the tasks that copy the selected elements of {@code input} into
+     * {@code output}, see
+     * {@link #addTasks(TaskSchedule, String, int[], int[], int[], int[], int[], int[])}.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, long[] input, int[] flags, int[] positions, int[] blockSums, long[] output, int[] count) {
+        checkFlags(input.length, flags);
+        addPositionTasks(schedule, id, flags, positions, blockSums);
+        return schedule.task(id + "Scatter", Compaction::scatter, input, flags, positions, output, count);
+    }
+
+    /**
+     * Copies the selected elements of {@code input} into {@code output} on
+     * the default device, and copies back only those elements.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compact(long[] input, int[] flags, long[] output) {
+        checkFlags(input.length, flags);
+        if (input.length == 0) {
+            return 0;
+        }
+        final int[] count = new int[1];
+        final TaskSchedule schedule = new TaskSchedule("compaction").streamIn(input, flags);
+        addTasks(schedule, "compact", input, flags, new int[input.length], new int[Scan.numBlocks(input.length)], output, count).streamOut(count).execute();
+        schedule.syncObjectRange(output, 0, Math.min(count[0], output.length));
+        return count[0];
+    }
+
+    /**
+     * Host version of {@link #compact(long[], int[], long[])}.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compactOnHost(long[] input, int[] flags, long[] output) {
+        checkFlags(input.length, flags);
+        final int[] positions = positionsOnHost(flags);
+        IntStream.range(0, input.length).parallel().filter(i -> flags[i] != 0 && positions[i] < output.length).forEach(i -> output[positions[i]] = input[i]);
+        return countOf(flags, positions);
+    }
+
+    // ======================================================================
+    // float
+    // ======================================================================
+
+    /**
+     * Scatter pass that writes the selected elements of {@code input}.
+     */
+    public static void scatter(float[] input, int[] flags, int[] positions, float[] output, int[] count) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            final int position = positions[i];
+            if (flags[i] != 0 && position < output.length) {
+                output[position] = input[i];
+            }
+            if (i == input.length - 1) {
+                count[0] = position + flags[i];
+            }
+        }
+    }
+
+    /**
+     * Adds the tasks that copy the selected elements of {@code input} into
+     * {@code output}, see
+     * {@link #addTasks(TaskSchedule, String, int[], int[], int[], int[], int[], int[])}.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, float[] input, int[] flags, int[] positions, int[] blockSums, float[] output, int[] count) {
+        checkFlags(input.length, flags);
+        addPositionTasks(schedule, id, flags, positions, blockSums);
+        return schedule.task(id + "Scatter", Compaction::scatter, input, flags, positions, output, count);
+    }
+
+    /**
+     * Copies the selected elements of {@code input} into {@code output} on
+     * the default device, and copies back only those elements.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compact(float[] input, int[] flags, float[] output) {
+        checkFlags(input.length, flags);
+        if (input.length == 0) {
+            return 0;
+        }
+        final int[] count = new int[1];
+        final TaskSchedule schedule = new TaskSchedule("compaction").streamIn(input, flags);
+        addTasks(schedule, "compact", input, flags, new int[input.length], new int[Scan.numBlocks(input.length)], output, count).streamOut(count).execute();
+        schedule.syncObjectRange(output, 0, Math.min(count[0], output.length));
+        return count[0];
+    }
+
+    /**
+     * Host version of {@link #compact(float[], int[], float[])}.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compactOnHost(float[] input, int[] flags, float[] output) {
+        checkFlags(input.length, flags);
+        final int[] positions = positionsOnHost(flags);
+        IntStream.range(0, input.length).parallel().filter(i -> flags[i] != 0 && positions[i] < output.length).forEach(i -> output[positions[i]] = input[i]);
+        return countOf(flags, positions);
+    }
+
+    // ======================================================================
+    // double
+    // ======================================================================
+
+    /**
+     * Scatter pass that writes the selected elements of {@code input}.
+     */
+    public static void scatter(double[] input, int[] flags, int[] positions, double[] output, int[] count) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            final int position = positions[i];
+            if (flags[i] != 0 && position < output.length) {
+                output[position] = input[i];
+            }
+            if (i == input.length - 1) {
+                count[0] = position + flags[i];
+            }
+        }
+    }
+
+    /**
+     * Adds the tasks that copy the selected elements of {@code input} into
+     * {@code output}, see
+     * {@link #addTasks(TaskSchedule, String, int[], int[], int[], int[], int[], int[])}.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, double[] input, int[] flags, int[] positions, int[] blockSums, double[] output, int[] count) {
+        checkFlags(input.length, flags);
+        addPositionTasks(schedule, id, flags, positions, blockSums);
+        return schedule.task(id + "Scatter", Compaction::scatter, input, flags, positions, output, count);
+    }
+
+    /**
+     * Copies the selected elements of {@code input} into {@code output} on
+     * the default device, and copies back only those elements.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compact(double[] input, int[] flags, double[] output) {
+        checkFlags(input.length, flags);
+        if (input.length == 0) {
+            return 0;
+        }
+        final int[] count = new int[1];
+        final TaskSchedule schedule = new TaskSchedule("compaction").streamIn(input, flags);
+        addTasks(schedule, "compact", input, flags, new int[input.length], new int[Scan.numBlocks(input.length)], output, count).streamOut(count).execute();
+        schedule.syncObjectRange(output, 0, Math.min(count[0], output.length));
+        return count[0];
+    }
+
+    /**
+     * Host version of {@link #compact(double[], int[], double[])}.
+     *
+     * @return the number of selected elements.
+     */
+    public static int compactOnHost(double[] input, int[] flags, double[] output) {
+        checkFlags(input.length, flags);
+        final int[] positions = positionsOnHost(flags);
+        IntStream.range(0, input.length).parallel().filter(i -> flags[i] != 0 && positions[i] < output.length).forEach(i -> output[positions[i]] = input[i]);
+        return countOf(flags, positions);
+    }
+}
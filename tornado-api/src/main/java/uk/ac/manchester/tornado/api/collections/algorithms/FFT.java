@@ -0,0 +1,1016 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.algorithms;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.types.VectorDouble2;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat2;
+
+/**
+ * Fast Fourier transforms of complex {@code float[]} and {@code double[]}
+ * arrays (interleaved real and imaginary parts, as in {@link VectorFloat2} and
+ * {@link VectorDouble2}), in 1D, 2D and batched forms. The forward transform
+ * is {@code X[k] = sum(x[t] * exp(-2 * PI * i * t * k / n))}, and the inverse
+ * transform is scaled by {@code 1 / n}.
+ * <p>
+ * The transforms are Stockham FFTs: each pass combines {@code n / r}
+ * sub-transforms with a radix-{@code r} butterfly per thread, reading from one
+ * array and writing to the other in the order of the next pass, so that no
+ * bit-reversal is needed. The length is factorised in radix-4 passes, then
+ * radix-2, radix-3 and radix-5 passes ({@link #radices(int)}), so lengths
+ * must be products of powers of 2, 3 and 5. Each pass is a TornadoVM task;
+ * the passes alternate between the data and a temporary array, and a final
+ * copy task brings the result back to the data when the number of passes is
+ * odd.
+ * <p>
+ * The twiddle factors are computed on the host once per length, in double
+ * precision, and are task parameters that are not streamed in, so they stay
+ * on the device between executions of a task-schedule built with
+ * {@code createSchedule} or {@code addTasks}. The host versions
+ * ({@code fftOnHost}) run the same passes on the ForkJoin common pool.
+ */
+public final class FFT {
+
+    private static final double SIN_60 = 0.86602540378443864676;
+    private static final double COS_72 = 0.30901699437494742410;
+    private static final double SIN_72 = 0.95105651629515357212;
+    private static final double COS_144 = -0.80901699437494742410;
+    private static final double SIN_144 = 0.58778525229247312917;
+
+    private FFT() {
+    }
+
+    /**
+     * Radices of the passes of a transform of length {@code n}: radix-4 passes
+     * first, then at most one radix-2 pass, then radix-3 and radix-5 passes.
+     *
+     * @throws IllegalArgumentException
+     *             if {@code n} is not a product of powers of 2, 3 and 5.
+     */
+    public static int[] radices(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("transform length must be positive: " + n);
+        }
+        final int[] radices = new int[32];
+        int count = 0;
+        int remaining = n;
+        for (int radix : new int[] { 4, 2, 3, 5 }) {
+            while (remaining % radix == 0) {
+                radices[count++] = radix;
+                remaining /= radix;
+            }
+        }
+        if (remaining != 1) {
+            throw new IllegalArgumentException("transform length must be a product of powers of 2, 3 and 5: " + n);
+        }
+        return Arrays.copyOf(radices, count);
+    }
+
+    private static void checkLength(int length, int transformLength, int batchCount) {
+        if (batchCount < 1 || (long) transformLength * batchCount != length) {
+            throw new IllegalArgumentException(String.format("array of %d elements for %d transforms of %d values", length, batchCount, transformLength));
+        }
+    }
+
+    /**
+     * Length of each transform of a batch.
+     */
+    private static int batchLength(int length, int batchCount) {
+        if (batchCount < 1 || length % (2 * batchCount) != 0) {
+            throw new IllegalArgumentException(String.format("array of %d elements for %d transforms of complex values", length, batchCount));
+        }
+        final int n = length / (2 * batchCount);
+        radices(n);
+        return n;
+    }
+
+    // ------------------------------------------------------------------------
+    // float
+    // ------------------------------------------------------------------------
+
+    /**
+     * Twiddle factors {@code exp(-2 * PI * i * t / n)} for {@code t < n}, as
+     * interleaved real and imaginary parts. The angles are computed in double
+     * precision.
+     */
+    public static float[] floatTwiddles(int n) {
+        final float[] twiddles = new float[2 * Math.max(n, 1)];
+        for (int t = 0; t < n; t++) {
+            final double angle = -2.0 * Math.PI * t / n;
+            twiddles[2 * t] = (float) Math.cos(angle);
+            twiddles[2 * t + 1] = (float) Math.sin(angle);
+        }
+        return twiddles;
+    }
+
+    private static void radix2Point(int j, int p, int n, int ns, int stride, int batchStride, int direction, float[] in, float[] out, float[] twiddles, float scale) {
+        final int base = p * batchStride;
+        final int k = j % ns;
+        final int step = n / (ns * 2);
+        final int i0 = 2 * (base + j * stride);
+        final int i1 = 2 * (base + (j + n / 2) * stride);
+
+        final int t1 = 2 * (k * step);
+        final float w1r = twiddles[t1];
+        final float w1i = direction * twiddles[t1 + 1];
+
+        final float a0r = in[i0];
+        final float a0i = in[i0 + 1];
+        final float a1r = in[i1] * w1r - in[i1 + 1] * w1i;
+        final float a1i = in[i1] * w1i + in[i1 + 1] * w1r;
+
+        final int d = (j / ns) * ns * 2 + k;
+        final int o0 = 2 * (base + d * stride);
+        final int o1 = 2 * (base + (d + ns) * stride);
+        out[o0] = (a0r + a1r) * scale;
+        out[o0 + 1] = (a0i + a1i) * scale;
+        out[o1] = (a0r - a1r) * scale;
+        out[o1 + 1] = (a0i - a1i) * scale;
+    }
+
+    private static void radix3Point(int j, int p, int n, int ns, int stride, int batchStride, int direction, float[] in, float[] out, float[] twiddles, float scale) {
+        final int base = p * batchStride;
+        final int k = j % ns;
+        final int step = n / (ns * 3);
+        final int third = n / 3;
+        final int i0 = 2 * (base + j * stride);
+        final int i1 = 2 * (base + (j + third) * stride);
+        final int i2 = 2 * (base + (j + 2 * third) * stride);
+
+        final int t1 = 2 * (k * step);
+        final int t2 = 2 * (2 * k * step);
+        final float w1r = twiddles[t1];
+        final float w1i = direction * twiddles[t1 + 1];
+        final float w2r = twiddles[t2];
+        final float w2i = direction * twiddles[t2 + 1];
+
+        final float a0r = in[i0];
+        final float a0i = in[i0 + 1];
+        final float a1r = in[i1] * w1r - in[i1 + 1] * w1i;
+        final float a1i = in[i1] * w1i + in[i1 + 1] * w1r;
+        final float a2r = in[i2] * w2r - in[i2 + 1] * w2i;
+        final float a2i = in[i2] * w2i + in[i2 + 1] * w2r;
+
+        final float sr = a1r + a2r;
+        final float si = a1i + a2i;
+        final float mr = a0r - 0.5f * sr;
+        final float mi = a0i - 0.5f * si;
+        // -i * direction * sin(60) * (a1 - a2)
+        final float er = direction * (float) SIN_60 * (a1i - a2i);
+        final float ei = -direction * (float) SIN_60 * (a1r - a2r);
+
+        final int d = (j / ns) * ns * 3 + k;
+        final int o0 = 2 * (base + d * stride);
+        final int o1 = 2 * (base + (d + ns) * stride);
+        final int o2 = 2 * (base + (d + 2 * ns) * stride);
+        out[o0] = (a0r + sr) * scale;
+        out[o0 + 1] = (a0i + si) * scale;
+        out[o1] = (mr + er) * scale;
+        out[o1 + 1] = (mi + ei) * scale;
+        out[o2] = (mr - er) * scale;
+        out[o2 + 1] = (mi - ei) * scale;
+    }
+
+    private static void radix4Point(int j, int p, int n, int ns, int stride, int batchStride, int direction, float[] in, float[] out, float[] twiddles, float scale) {
+        final int base = p * batchStride;
+        final int k = j % ns;
+        final int step = n / (ns * 4);
+        final int quarter = n / 4;
+        final int i0 = 2 * (base + j * stride);
+        final int i1 = 2 * (base + (j + quarter) * stride);
+        final int i2 = 2 * (base + (j + 2 * quarter) * stride);
+        final int i3 = 2 * (base + (j + 3 * quarter) * stride);
+
+        final int t1 = 2 * (k * step);
+        final int t2 = 2 * (2 * k * step);
+        final int t3 = 2 * (3 * k * step);
+        final float w1r = twiddles[t1];
+        final float w1i = direction * twiddles[t1 + 1];
+        final float w2r = twiddles[t2];
+        final float w2i = direction * twiddles[t2 + 1];
+        final float w3r = twiddles[t3];
+        final float w3i = direction * twiddles[t3 + 1];
+
+        final float a0r = in[i0];
+        final float a0i = in[i0 + 1];
+        final float a1r = in[i1] * w1r - in[i1 + 1] * w1i;
+        final float a1i = in[i1] * w1i + in[i1 + 1] * w1r;
+        final float a2r = in[i2] * w2r - in[i2 + 1] * w2i;
+        final float a2i = in[i2] * w2i + in[i2 + 1] * w2r;
+        final float a3r = in[i3] * w3r - in[i3 + 1] * w3i;
+        final float a3i = in[i3] * w3i + in[i3 + 1] * w3r;
+
+        final float b0r = a0r + a2r;
+        final float b0i = a0i + a2i;
+        final float b1r = a0r - a2r;
+        final float b1i = a0i - a2i;
+        final float b2r = a1r + a3r;
+        final float b2i = a1i + a3i;
+        // -i * direction * (a1 - a3)
+        final float b3r = direction * (a1i - a3i);
+        final float b3i = -direction * (a1r - a3r);
+
+        final int d = (j / ns) * ns * 4 + k;
+        final int o0 = 2 * (base + d * stride);
+        final int o1 = 2 * (base + (d + ns) * stride);
+        final int o2 = 2 * (base + (d + 2 * ns) * stride);
+        final int o3 = 2 * (base + (d + 3 * ns) * stride);
+        out[o0] = (b0r + b2r) * scale;
+        out[o0 + 1] = (b0i + b2i) * scale;
+        out[o1] = (b1r + b3r) * scale;
+        out[o1 + 1] = (b1i + b3i) * scale;
+        out[o2] = (b0r - b2r) * scale;
+        out[o2 + 1] = (b0i - b2i) * scale;
+        out[o3] = (b1r - b3r) * scale;
+        out[o3 + 1] = (b1i - b3i) * scale;
+    }
+
+    private static void radix5Point(int j, int p, int n, int ns, int stride, int batchStride, int direction, float[] in, float[] out, float[] twiddles, float scale) {
+        final int base = p * batchStride;
+        final int k = j % ns;
+        final int step = n / (ns * 5);
+        final int fifth = n / 5;
+        final int i0 = 2 * (base + j * stride);
+        final int i1 = 2 * (base + (j + fifth) * stride);
+        final int i2 = 2 * (base + (j + 2 * fifth) * stride);
+        final int i3 = 2 * (base + (j + 3 * fifth) * stride);
+        final int i4 = 2 * (base + (j + 4 * fifth) * stride);
+
+        final int t1 = 2 * (k * step);
+        final int t2 = 2 * (2 * k * step);
+        final int t3 = 2 * (3 * k * step);
+        final int t4 = 2 * (4 * k * step);
+        final float w1r = twiddles[t1];
+        final float w1i = direction * twiddles[t1 + 1];
+        final float w2r = twiddles[t2];
+        final float w2i = direction * twiddles[t2 + 1];
+        final float w3r = twiddles[t3];
+        final float w3i = direction * twiddles[t3 + 1];
+        final float w4r = twiddles[t4];
+        final float w4i = direction * twiddles[t4 + 1];
+
+        final float a0r = in[i0];
+        final float a0i = in[i0 + 1];
+        final float a1r = in[i1] * w1r - in[i1 + 1] * w1i;
+        final float a1i = in[i1] * w1i + in[i1 + 1] * w1r;
+        final float a2r = in[i2] * w2r - in[i2 + 1] * w2i;
+        final float a2i = in[i2] * w2i + in[i2 + 1] * w2r;
+        final float a3r = in[i3] * w3r - in[i3 + 1] * w3i;
+        final float a3i = in[i3] * w3i + in[i3 + 1] * w3r;
+        final float a4r = in[i4] * w4r - in[i4 + 1] * w4i;
+        final float a4i = in[i4] * w4i + in[i4 + 1] * w4r;
+
+        final float b1r = a1r + a4r;
+        final float b1i = a1i + a4i;
+        final float b2r = a2r + a3r;
+        final float b2i = a2i + a3i;
+        final float d1r = a1r - a4r;
+        final float d1i = a1i - a4i;
+        final float d2r = a2r - a3r;
+        final float d2i = a2i - a3i;
+
+        final float m1r = a0r + (float) COS_72 * b1r + (float) COS_144 * b2r;
+        final float m1i = a0i + (float) COS_72 * b1i + (float) COS_144 * b2i;
+        final float m2r = a0r + (float) COS_144 * b1r + (float) COS_72 * b2r;
+        final float m2i = a0i + (float) COS_144 * b1i + (float) COS_72 * b2i;
+        // -i * direction * (sin(72) * d1 + sin(144) * d2) and -i * direction * (sin(144) * d1 - sin(72) * d2)
+        final float e1r = direction * ((float) SIN_72 * d1i + (float) SIN_144 * d2i);
+        final float e1i = -direction * ((float) SIN_72 * d1r + (float) SIN_144 * d2r);
+        final float e2r = direction * ((float) SIN_144 * d1i - (float) SIN_72 * d2i);
+        final float e2i = -direction * ((float) SIN_144 * d1r - (float) SIN_72 * d2r);
+
+        final int d = (j / ns) * ns * 5 + k;
+        final int o0 = 2 * (base + d * stride);
+        final int o1 = 2 * (base + (d + ns) * stride);
+        final int o2 = 2 * (base + (d + 2 * ns) * stride);
+        final int o3 = 2 * (base + (d + 3 * ns) * stride);
+        final int o4 = 2 * (base + (d + 4 * ns) * stride);
+        out[o0] = (a0r + b1r + b2r) * scale;
+        out[o0 + 1] = (a0i + b1i + b2i) * scale;
+        out[o1] = (m1r + e1r) * scale;
+        out[o1 + 1] = (m1i + e1i) * scale;
+        out[o2] = (m2r + e2r) * scale;
+        out[o2 + 1] = (m2i + e2i) * scale;
+        out[o3] = (m2r - e2r) * scale;
+        out[o3 + 1] = (m2i - e2i) * scale;
+        out[o4] = (m1r - e1r) * scale;
+        out[o4 + 1] = (m1i - e1i) * scale;
+    }
+
+    public static void radix2(int n, int ns, int batchCount, int stride, int batchStride, int direction, float[] in, float[] out, float[] twiddles, float scale) {
+        for (@Parallel int j = 0; j < n / 2; j++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                radix2Point(j, p, n, ns, stride, batchStride, direction, in, out, twiddles, scale);
+            }
+        }
+    }
+
+    public static void radix3(int n, int ns, int batchCount, int stride, int batchStride, int direction, float[] in, float[] out, float[] twiddles, float scale) {
+        for (@Parallel int j = 0; j < n / 3; j++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                radix3Point(j, p, n, ns, stride, batchStride, direction, in, out, twiddles, scale);
+            }
+        }
+    }
+
+    public static void radix4(int n, int ns, int batchCount, int stride, int batchStride, int direction, float[] in, float[] out, float[] twiddles, float scale) {
+        for (@Parallel int j = 0; j < n / 4; j++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                radix4Point(j, p, n, ns, stride, batchStride, direction, in, out, twiddles, scale);
+            }
+        }
+    }
+
+    public static void radix5(int n, int ns, int batchCount, int stride, int batchStride, int direction, float[] in, float[] out, float[] twiddles, float scale) {
+        for (@Parallel int j = 0; j < n / 5; j++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                radix5Point(j, p, n, ns, stride, batchStride, direction, in, out, twiddles, scale);
+            }
+        }
+    }
+
+    public static void copy(float[] in, float[] out, int length) {
+        for (@Parallel int i = 0; i < length; i++) {
+            out[i] = in[i];
+        }
+    }
+
+    private static void addPasses(TaskSchedule schedule, String id, float[] data, float[] temp, float[] twiddles, int n, int batchCount, int stride, int batchStride, boolean inverse) {
+        final int[] radices = radices(n);
+        final int direction = inverse ? -1 : 1;
+        float[] in = data;
+        float[] out = temp;
+        int ns = 1;
+        for (int pass = 0; pass < radices.length; pass++) {
+            final float scale = (inverse && pass == radices.length - 1) ? 1.0f / n : 1.0f;
+            final String name = id + "Pass" + pass;
+            switch (radices[pass]) {
+                case 2:
+                    schedule.task(name, FFT::radix2, n, ns, batchCount, stride, batchStride, direction, in, out, twiddles, scale);
+                    break;
+                case 3:
+                    schedule.task(name, FFT::radix3, n, ns, batchCount, stride, batchStride, direction, in, out, twiddles, scale);
+                    break;
+                case 4:
+                    schedule.task(name, FFT::radix4, n, ns, batchCount, stride, batchStride, direction, in, out, twiddles, scale);
+                    break;
+                default:
+                    schedule.task(name, FFT::radix5, n, ns, batchCount, stride, batchStride, direction, in, out, twiddles, scale);
+                    break;
+            }
+            ns *= radices[pass];
+            final float[] swap = in;
+            in = out;
+            out = swap;
+        }
+        if (in != data) {
+            schedule.task(id + "Copy", FFT::copy, in, data, 2 * n * batchCount);
+        }
+    }
+
+    private static void passesOnHost(float[] data, float[] temp, float[] twiddles, int n, int batchCount, int stride, int batchStride, boolean inverse) {
+        final int[] radices = radices(n);
+        final int direction = inverse ? -1 : 1;
+        float[] in = data;
+        float[] out = temp;
+        int ns = 1;
+        for (int pass = 0; pass < radices.length; pass++) {
+            final float scale = (inverse && pass == radices.length - 1) ? 1.0f / n : 1.0f;
+            final int radix = radices[pass];
+            final int currentNs = ns;
+            final float[] currentIn = in;
+            final float[] currentOut = out;
+            IntStream.range(0, n / radix).parallel().forEach(j -> {
+                for (int p = 0; p < batchCount; p++) {
+                    switch (radix) {
+                        case 2:
+                            radix2Point(j, p, n, currentNs, stride, batchStride, direction, currentIn, currentOut, twiddles, scale);
+                            break;
+                        case 3:
+                            radix3Point(j, p, n, currentNs, stride, batchStride, direction, currentIn, currentOut, twiddles, scale);
+                            break;
+                        case 4:
+                            radix4Point(j, p, n, currentNs, stride, batchStride, direction, currentIn, currentOut, twiddles, scale);
+                            break;
+                        default:
+                            radix5Point(j, p, n, currentNs, stride, batchStride, direction, currentIn, currentOut, twiddles, scale);
+                            break;
+                    }
+                }
+            });
+            ns *= radix;
+            in = out;
+            out = currentIn;
+        }
+        if (in != data) {
+            System.arraycopy(in, 0, data, 0, 2 * n * batchCount);
+        }
+    }
+
+    /**
+     * Adds the tasks of {@code batchCount} transforms of {@code n} complex
+     * elements, stored one after the other in {@code data}, to a
+     * task-schedule. The tasks are named {@code <id>Pass<pass>}, followed by
+     * {@code <id>Copy} when the number of passes is odd.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param data
+     *            Interleaved real and imaginary parts, transformed in place.
+     * @param temp
+     *            Temporary array of the length of {@code data}.
+     * @param twiddles
+     *            Twiddle factors of {@code floatTwiddles(n)}, which stay on the
+     *            device between executions.
+     * @param n
+     *            Length of each transform, a product of powers of 2, 3 and 5.
+     * @param batchCount
+     *            Number of transforms.
+     * @param inverse
+     *            True for the inverse transform, which is scaled by
+     *            {@code 1 / n}.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, float[] data, float[] temp, float[] twiddles, int n, int batchCount, boolean inverse) {
+        checkLength(data.length, 2 * n, batchCount);
+        addPasses(schedule, id, data, temp, twiddles, n, batchCount, 1, n, inverse);
+        return schedule;
+    }
+
+    /**
+     * Adds the tasks of a 2D transform of a {@code rows x cols} matrix stored
+     * in row-major order: the transforms of the rows (tasks
+     * {@code <id>Rows...}), then those of the columns ({@code <id>Columns...}).
+     * The twiddle factors are those of {@code floatTwiddles(cols)} and
+     * {@code floatTwiddles(rows)}.
+     */
+    public static TaskSchedule addTasks2D(TaskSchedule schedule, String id, float[] data, float[] temp, float[] rowTwiddles, float[] columnTwiddles, int rows, int cols, boolean inverse) {
+        checkLength(data.length, 2 * rows, cols);
+        addPasses(schedule, id + "Rows", data, temp, rowTwiddles, cols, rows, 1, cols, inverse);
+        addPasses(schedule, id + "Columns", data, temp, columnTwiddles, rows, cols, cols, 1, inverse);
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that transforms {@code data} in place every time
+     * it is executed. Only {@code data} is copied on every execution: the
+     * twiddle factors stay on the device.
+     */
+    public static TaskSchedule createSchedule(String name, float[] data, int n, int batchCount, boolean inverse) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(data);
+        return addTasks(schedule, "fft", data, new float[data.length], floatTwiddles(n), n, batchCount, inverse).streamOut(data);
+    }
+
+    public static TaskSchedule createSchedule2D(String name, float[] data, int rows, int cols, boolean inverse) {
+        final float[] rowTwiddles = floatTwiddles(cols);
+        final float[] columnTwiddles = (rows == cols) ? rowTwiddles : floatTwiddles(rows);
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(data);
+        return addTasks2D(schedule, "fft", data, new float[data.length], rowTwiddles, columnTwiddles, rows, cols, inverse).streamOut(data);
+    }
+
+    /**
+     * Transform of {@code data.length / 2} complex elements (interleaved real
+     * and imaginary parts) in place, on the default device.
+     */
+    public static void fft(float[] data, boolean inverse) {
+        fftBatched(data, 1, inverse);
+    }
+
+    public static void fft(VectorFloat2 data, boolean inverse) {
+        fft(data.getArray(), inverse);
+    }
+
+    /**
+     * {@code batchCount} transforms of the same length, stored one after the
+     * other in {@code data}, on the default device.
+     */
+    public static void fftBatched(float[] data, int batchCount, boolean inverse) {
+        final int n = batchLength(data.length, batchCount);
+        if (n > 1) {
+            createSchedule("fft", data, n, batchCount, inverse).execute();
+        }
+    }
+
+    /**
+     * 2D transform of a {@code rows x cols} matrix of complex elements in
+     * row-major order, on the default device.
+     */
+    public static void fft2D(float[] data, int rows, int cols, boolean inverse) {
+        checkLength(data.length, 2 * rows, cols);
+        if (rows * cols > 1) {
+            createSchedule2D("fft", data, rows, cols, inverse).execute();
+        }
+    }
+
+    /**
+     * Transform on the host, with the same passes as
+     * {@link #fft(float[], boolean)}.
+     */
+    public static void fftOnHost(float[] data, boolean inverse) {
+        fftBatchedOnHost(data, 1, inverse);
+    }
+
+    public static void fftOnHost(VectorFloat2 data, boolean inverse) {
+        fftOnHost(data.getArray(), inverse);
+    }
+
+    public static void fftBatchedOnHost(float[] data, int batchCount, boolean inverse) {
+        final int n = batchLength(data.length, batchCount);
+        passesOnHost(data, new float[data.length], floatTwiddles(n), n, batchCount, 1, n, inverse);
+    }
+
+    public static void fft2DOnHost(float[] data, int rows, int cols, boolean inverse) {
+        checkLength(data.length, 2 * rows, cols);
+        final float[] temp = new float[data.length];
+        passesOnHost(data, temp, floatTwiddles(cols), cols, rows, 1, cols, inverse);
+        passesOnHost(data, temp, floatTwiddles(rows), rows, cols, cols, 1, inverse);
+    }
+
+    // ------------------------------------------------------------------------
+    // double
+    // ------------------------------------------------------------------------
+
+    /**
+     * Twiddle factors {@code exp(-2 * PI * i * t / n)} for {@code t < n}, as
+     * interleaved real and imaginary parts.
+     */
+    public static double[] doubleTwiddles(int n) {
+        final double[] twiddles = new double[2 * Math.max(n, 1)];
+        for (int t = 0; t < n; t++) {
+            final double angle = -2.0 * Math.PI * t / n;
+            twiddles[2 * t] = Math.cos(angle);
+            twiddles[2 * t + 1] = Math.sin(angle);
+        }
+        return twiddles;
+    }
+
+    private static void radix2Point(int j, int p, int n, int ns, int stride, int batchStride, int direction, double[] in, double[] out, double[] twiddles, double scale) {
+        final int base = p * batchStride;
+        final int k = j % ns;
+        final int step = n / (ns * 2);
+        final int i0 = 2 * (base + j * stride);
+        final int i1 = 2 * (base + (j + n / 2) * stride);
+
+        final int t1 = 2 * (k * step);
+        final double w1r = twiddles[t1];
+        final double w1i = direction * twiddles[t1 + 1];
+
+        final double a0r = in[i0];
+        final double a0i = in[i0 + 1];
+        final double a1r = in[i1] * w1r - in[i1 + 1] * w1i;
+        final double a1i = in[i1] * w1i + in[i1 + 1] * w1r;
+
+        final int d = (j / ns) * ns * 2 + k;
+        final int o0 = 2 * (base + d * stride);
+        final int o1 = 2 * (base + (d + ns) * stride);
+        out[o0] = (a0r + a1r) * scale;
+        out[o0 + 1] = (a0i + a1i) * scale;
+        out[o1] = (a0r - a1r) * scale;
+        out[o1 + 1] = (a0i - a1i) * scale;
+    }
+
+    private static void radix3Point(int j, int p, int n, int ns, int stride, int batchStride, int direction, double[] in, double[] out, double[] twiddles, double scale) {
+        final int base = p * batchStride;
+        final int k = j % ns;
+        final int step = n / (ns * 3);
+        final int third = n / 3;
+        final int i0 = 2 * (base + j * stride);
+        final int i1 = 2 * (base + (j + third) * stride);
+        final int i2 = 2 * (base + (j + 2 * third) * stride);
+
+        final int t1 = 2 * (k * step);
+        final int t2 = 2 * (2 * k * step);
+        final double w1r = twiddles[t1];
+        final double w1i = direction * twiddles[t1 + 1];
+        final double w2r = twiddles[t2];
+        final double w2i = direction * twiddles[t2 + 1];
+
+        final double a0r = in[i0];
+        final double a0i = in[i0 + 1];
+        final double a1r = in[i1] * w1r - in[i1 + 1] * w1i;
+        final double a1i = in[i1] * w1i + in[i1 + 1] * w1r;
+        final double a2r = in[i2] * w2r - in[i2 + 1] * w2i;
+        final double a2i = in[i2] * w2i + in[i2 + 1] * w2r;
+
+        final double sr = a1r + a2r;
+        final double si = a1i + a2i;
+        final double mr = a0r - 0.5 * sr;
+        final double mi = a0i - 0.5 * si;
+        // -i * direction * sin(60) * (a1 - a2)
+        final double er = direction * SIN_60 * (a1i - a2i);
+        final double ei = -direction * SIN_60 * (a1r - a2r);
+
+        final int d = (j / ns) * ns * 3 + k;
+        final int o0 = 2 * (base + d * stride);
+        final int o1 = 2 * (base + (d + ns) * stride);
+        final int o2 = 2 * (base + (d + 2 * ns) * stride);
+        out[o0] = (a0r + sr) * scale;
+        out[o0 + 1] = (a0i + si) * scale;
+        out[o1] = (mr + er) * scale;
+        out[o1 + 1] = (mi + ei) * scale;
+        out[o2] = (mr - er) * scale;
+        out[o2 + 1] = (mi - ei) * scale;
+    }
+
+    private static void radix4Point(int j, int p, int n, int ns, int stride, int batchStride, int direction, double[] in, double[] out, double[] twiddles, double scale) {
+        final int base = p * batchStride;
+        final int k = j % ns;
+        final int step = n / (ns * 4);
+        final int quarter = n / 4;
+        final int i0 = 2 * (base + j * stride);
+        final int i1 = 2 * (base + (j + quarter) * stride);
+        final int i2 = 2 * (base + (j + 2 * quarter) * stride);
+        final int i3 = 2 * (base + (j + 3 * quarter) * stride);
+
+        final int t1 = 2 * (k * step);
+        final int t2 = 2 * (2 * k * step);
+        final int t3 = 2 * (3 * k * step);
+        final double w1r = twiddles[t1];
+        final double w1i = direction * twiddles[t1 + 1];
+        final double w2r = twiddles[t2];
+        final double w2i = direction * twiddles[t2 + 1];
+        final double w3r = twiddles[t3];
+        final double w3i = direction * twiddles[t3 + 1];
+
+        final double a0r = in[i0];
+        final double a0i = in[i0 + 1];
+        final double a1r = in[i1] * w1r - in[i1 + 1] * w1i;
+        final double a1i = in[i1] * w1i + in[i1 + 1] * w1r;
+        final double a2r = in[i2] * w2r - in[i2 + 1] * w2i;
+        final double a2i = in[i2] * w2i + in[i2 + 1] * w2r;
+        final double a3r = in[i3] * w3r - in[i3 + 1] * w3i;
+        final double a3i = in[i3] * w3i + in[i3 + 1] * w3r;
+
+        final double b0r = a0r + a2r;
+        final double b0i = a0i + a2i;
+        final double b1r = a0r - a2r;
+        final double b1i = a0i - a2i;
+        final double b2r = a1r + a3r;
+        final double b2i = a1i + a3i;
+        // -i * direction * (a1 - a3)
+        final double b3r = direction * (a1i - a3i);
+        final double b3i = -direction * (a1r - a3r);
+
+        final int d = (j / ns) * ns * 4 + k;
+        final int o0 = 2 * (base + d * stride);
+        final int o1 = 2 * (base + (d + ns) * stride);
+        final int o2 = 2 * (base + (d + 2 * ns) * stride);
+        final int o3 = 2 * (base + (d + 3 * ns) * stride);
+        out[o0] = (b0r + b2r) * scale;
+        out[o0 + 1] = (b0i + b2i) * scale;
+        out[o1] = (b1r + b3r) * scale;
+        out[o1 + 1] = (b1i + b3i) * scale;
+        out[o2] = (b0r - b2r) * scale;
+        out[o2 + 1] = (b0i - b2i) * scale;
+        out[o3] = (b1r - b3r) * scale;
+        out[o3 + 1] = (b1i - b3i) * scale;
+    }
+
+    private static void radix5Point(int j, int p, int n, int ns, int stride, int batchStride, int direction, double[] in, double[] out, double[] twiddles, double scale) {
+        final int base = p * batchStride;
+        final int k = j % ns;
+        final int step = n / (ns * 5);
+        final int fifth = n / 5;
+        final int i0 = 2 * (base + j * stride);
+        final int i1 = 2 * (base + (j + fifth) * stride);
+        final int i2 = 2 * (base + (j + 2 * fifth) * stride);
+        final int i3 = 2 * (base + (j + 3 * fifth) * stride);
+        final int i4 = 2 * (base + (j + 4 * fifth) * stride);
+
+        final int t1 = 2 * (k * step);
+        final int t2 = 2 * (2 * k * step);
+        final int t3 = 2 * (3 * k * step);
+        final int t4 = 2 * (4 * k * step);
+        final double w1r = twiddles[t1];
+        final double w1i = direction * twiddles[t1 + 1];
+        final double w2r = twiddles[t2];
+        final double w2i = direction * twiddles[t2 + 1];
+        final double w3r = twiddles[t3];
+        final double w3i = direction * twiddles[t3 + 1];
+        final double w4r = twiddles[t4];
+        final double w4i = direction * twiddles[t4 + 1];
+
+        final double a0r = in[i0];
+        final double a0i = in[i0 + 1];
+        final double a1r = in[i1] * w1r - in[i1 + 1] * w1i;
+        final double a1i = in[i1] * w1i + in[i1 + 1] * w1r;
+        final double a2r = in[i2] * w2r - in[i2 + 1] * w2i;
+        final double a2i = in[i2] * w2i + in[i2 + 1] * w2r;
+        final double a3r = in[i3] * w3r - in[i3 + 1] * w3i;
+        final double a3i = in[i3] * w3i + in[i3 + 1] * w3r;
+        final double a4r = in[i4] * w4r - in[i4 + 1] * w4i;
+        final double a4i = in[i4] * w4i + in[i4 + 1] * w4r;
+
+        final double b1r = a1r + a4r;
+        final double b1i = a1i + a4i;
+        final double b2r = a2r + a3r;
+        final double b2i = a2i + a3i;
+        final double d1r = a1r - a4r;
+        final double d1i = a1i - a4i;
+        final double d2r = a2r - a3r;
+        final double d2i = a2i - a3i;
+
+        final double m1r = a0r + COS_72 * b1r + COS_144 * b2r;
+        final double m1i = a0i + COS_72 * b1i + COS_144 * b2i;
+        final double m2r = a0r + COS_144 * b1r + COS_72 * b2r;
+        final double m2i = a0i + COS_144 * b1i + COS_72 * b2i;
+        // -i * direction * (sin(72) * d1 + sin(144) * d2) and -i * direction * (sin(144) * d1 - sin(72) * d2)
+        final double e1r = direction * (SIN_72 * d1i + SIN_144 * d2i);
+        final double e1i = -direction * (SIN_72 * d1r + SIN_144 * d2r);
+        final double e2r = direction * (SIN_144 * d1i - SIN_72 * d2i);
+        final double e2i = -direction * (SIN_144 * d1r - SIN_72 * d2r);
+
+        final int d = (j / ns) * ns * 5 + k;
+        final int o0 = 2 * (base + d * stride);
+        final int o1 = 2 * (base + (d + ns) * stride);
+        final int o2 = 2 * (base + (d + 2 * ns) * stride);
+        final int o3 = 2 * (base + (d + 3 * ns) * stride);
+        final int o4 = 2 * (base + (d + 4 * ns) * stride);
+        out[o0] = (a0r + b1r + b2r) * scale;
+        out[o0 + 1] = (a0i + b1i + b2i) * scale;
+        out[o1] = (m1r + e1r) * scale;
+        out[o1 + 1] = (m1i + e1i) * scale;
+        out[o2] = (m2r + e2r) * scale;
+        out[o2 + 1] = (m2i + e2i) * scale;
+        out[o3] = (m2r - e2r) * scale;
+        out[o3 + 1] = (m2i - e2i) * scale;
+        out[o4] = (m1r - e1r) * scale;
+        out[o4 + 1] = (m1i - e1i) * scale;
+    }
+
+    public static void radix2(int n, int ns, int batchCount, int stride, int batchStride, int direction, double[] in, double[] out, double[] twiddles, double scale) {
+        for (@Parallel int j = 0; j < n / 2; j++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                radix2Point(j, p, n, ns, stride, batchStride, direction, in, out, twiddles, scale);
+            }
+        }
+    }
+
+    public static void radix3(int n, int ns, int batchCount, int stride, int batchStride, int direction, double[] in, double[] out, double[] twiddles, double scale) {
+        for (@Parallel int j = 0; j < n / 3; j++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                radix3Point(j, p, n, ns, stride, batchStride, direction, in, out, twiddles, scale);
+            }
+        }
+    }
+
+    public static void radix4(int n, int ns, int batchCount, int stride, int batchStride, int direction, double[] in, double[] out, double[] twiddles, double scale) {
+        for (@Parallel int j = 0; j < n / 4; j++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                radix4Point(j, p, n, ns, stride, batchStride, direction, in, out, twiddles, scale);
+            }
+        }
+    }
+
+    public static void radix5(int n, int ns, int batchCount, int stride, int batchStride, int direction, double[] in, double[] out, double[] twiddles, double scale) {
+        for (@Parallel int j = 0; j < n / 5; j++) {
+            for (@Parallel int p = 0; p < batchCount; p++) {
+                radix5Point(j, p, n, ns, stride, batchStride, direction, in, out, twiddles, scale);
+            }
+        }
+    }
+
+    public static void copy(double[] in, double[] out, int length) {
+        for (@Parallel int i = 0; i < length; i++) {
+            out[i] = in[i];
+        }
+    }
+
+    private static void addPasses(TaskSchedule schedule, String id, double[] data, double[] temp, double[] twiddles, int n, int batchCount, int stride, int batchStride, boolean inverse) {
+        final int[] radices = radices(n);
+        final int direction = inverse ? -1 : 1;
+        double[] in = data;
+        double[] out = temp;
+        int ns = 1;
+        for (int pass = 0; pass < radices.length; pass++) {
+            final double scale = (inverse && pass == radices.length - 1) ? 1.0 / n : 1.0;
+            final String name = id + "Pass" + pass;
+            switch (radices[pass]) {
+                case 2:
+                    schedule.task(name, FFT::radix2, n, ns, batchCount, stride, batchStride, direction, in, out, twiddles, scale);
+                    break;
+                case 3:
+                    schedule.task(name, FFT::radix3, n, ns, batchCount, stride, batchStride, direction, in, out, twiddles, scale);
+                    break;
+                case 4:
+                    schedule.task(name, FFT::radix4, n, ns, batchCount, stride, batchStride, direction, in, out, twiddles, scale);
+                    break;
+                default:
+                    schedule.task(name, FFT::radix5, n, ns, batchCount, stride, batchStride, direction, in, out, twiddles, scale);
+                    break;
+            }
+            ns *= radices[pass];
+            final double[] swap = in;
+            in = out;
+            out = swap;
+        }
+        if (in != data) {
+            schedule.task(id + "Copy", FFT::copy, in, data, 2 * n * batchCount);
+        }
+    }
+
+    private static void passesOnHost(double[] data, double[] temp, double[] twiddles, int n, int batchCount, int stride, int batchStride, boolean inverse) {
+        final int[] radices = radices(n);
+        final int direction = inverse ? -1 : 1;
+        double[] in = data;
+        double[] out = temp;
+        int ns = 1;
+        for (int pass = 0; pass < radices.length; pass++) {
+            final double scale = (inverse && pass == radices.length - 1) ? 1.0 / n : 1.0;
+            final int radix = radices[pass];
+            final int currentNs = ns;
+            final double[] currentIn = in;
+            final double[] currentOut = out;
+            IntStream.range(0, n / radix).parallel().forEach(j -> {
+                for (int p = 0; p < batchCount; p++) {
+                    switch (radix) {
+                        case 2:
+                            radix2Point(j, p, n, currentNs, stride, batchStride, direction, currentIn, currentOut, twiddles, scale);
+                            break;
+                        case 3:
+                            radix3Point(j, p, n, currentNs, stride, batchStride, direction, currentIn, currentOut, twiddles, scale);
+                            break;
+                        case 4:
+                            radix4Point(j, p, n, currentNs, stride, batchStride, direction, currentIn, currentOut, twiddles, scale);
+                            break;
+                        default:
+                            radix5Point(j, p, n, currentNs, stride, batchStride, direction, currentIn, currentOut, twiddles, scale);
+                            break;
+                    }
+                }
+            });
+            ns *= radix;
+            in = out;
+            out = currentIn;
+        }
+        if (in != data) {
+            System.arraycopy(in, 0, data, 0, 2 * n * batchCount);
+        }
+    }
+
+    /**
+     * Adds the tasks of {@code batchCount} transforms of {@code n} complex
+     * elements, stored one after the other in {@code data}, to a
+     * task-schedule. The tasks are named {@code <id>Pass<pass>}, followed by
+     * {@code <id>Copy} when the number of passes is odd.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param data
+     *            Interleaved real and imaginary parts, transformed in place.
+     * @param temp
+     *            Temporary array of the length of {@code data}.
+     * @param twiddles
+     *            Twiddle factors of {@code doubleTwiddles(n)}, which stay on the
+     *            device between executions.
+     * @param n
+     *            Length of each transform, a product of powers of 2, 3 and 5.
+     * @param batchCount
+     *            Number of transforms.
+     * @param inverse
+     *            True for the inverse transform, which is scaled by
+     *            {@code 1 / n}.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, double[] data, double[] temp, double[] twiddles, int n, int batchCount, boolean inverse) {
+        checkLength(data.length, 2 * n, batchCount);
+        addPasses(schedule, id, data, temp, twiddles, n, batchCount, 1, n, inverse);
+        return schedule;
+    }
+
+    /**
+     * Adds the tasks of a 2D transform of a {@code rows x cols} matrix stored
+     * in row-major order: the transforms of the rows (tasks
+     * {@code <id>Rows...}), then those of the columns ({@code <id>Columns...}).
+     * The twiddle factors are those of {@code doubleTwiddles(cols)} and
+     * {@code doubleTwiddles(rows)}.
+     */
+    public static TaskSchedule addTasks2D(TaskSchedule schedule, String id, double[] data, double[] temp, double[] rowTwiddles, double[] columnTwiddles, int rows, int cols, boolean inverse) {
+        checkLength(data.length, 2 * rows, cols);
+        addPasses(schedule, id + "Rows", data, temp, rowTwiddles, cols, rows, 1, cols, inverse);
+        addPasses(schedule, id + "Columns", data, temp, columnTwiddles, rows, cols, cols, 1, inverse);
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that transforms {@code data} in place every time
+     * it is executed. Only {@code data} is copied on every execution: the
+     * twiddle factors stay on the device.
+     */
+    public static TaskSchedule createSchedule(String name, double[] data, int n, int batchCount, boolean inverse) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(data);
+        return addTasks(schedule, "fft", data, new double[data.length], doubleTwiddles(n), n, batchCount, inverse).streamOut(data);
+    }
+
+    public static TaskSchedule createSchedule2D(String name, double[] data, int rows, int cols, boolean inverse) {
+        final double[] rowTwiddles = doubleTwiddles(cols);
+        final double[] columnTwiddles = (rows == cols) ? rowTwiddles : doubleTwiddles(rows);
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(data);
+        return addTasks2D(schedule, "fft", data, new double[data.length], rowTwiddles, columnTwiddles, rows, cols, inverse).streamOut(data);
+    }
+
+    /**
+     * Transform of {@code data.length / 2} complex elements (interleaved real
+     * and imaginary parts) in place, on the default device.
+     */
+    public static void fft(double[] data, boolean inverse) {
+        fftBatched(data, 1, inverse);
+    }
+
+    public static void fft(VectorDouble2 data, boolean inverse) {
+        fft(data.getArray(), inverse);
+    }
+
+    /**
+     * {@code batchCount} transforms of the same length, stored one after the
+     * other in {@code data}, on the default device.
+     */
+    public static void fftBatched(double[] data, int batchCount, boolean inverse) {
+        final int n = batchLength(data.length, batchCount);
+        if (n > 1) {
+            createSchedule("fft", data, n, batchCount, inverse).execute();
+        }
+    }
+
+    /**
+     * 2D transform of a {@code rows x cols} matrix of complex elements in
+     * row-major order, on the default device.
+     */
+    public static void fft2D(double[] data, int rows, int cols, boolean inverse) {
+        checkLength(data.length, 2 * rows, cols);
+        if (rows * cols > 1) {
+            createSchedule2D("fft", data, rows, cols, inverse).execute();
+        }
+    }
+
+    /**
+     * Transform on the host, with the same passes as
+     * {@link #fft(double[], boolean)}.
+     */
+    public static void fftOnHost(double[] data, boolean inverse) {
+        fftBatchedOnHost(data, 1, inverse);
+    }
+
+    public static void fftOnHost(VectorDouble2 data, boolean inverse) {
+        fftOnHost(data.getArray(), inverse);
+    }
+
+    public static void fftBatchedOnHost(double[] data, int batchCount, boolean inverse) {
+        final int n = batchLength(data.length, batchCount);
+        passesOnHost(data, new double[data.length], doubleTwiddles(n), n, batchCount, 1, n, inverse);
+    }
+
+    public static void fft2DOnHost(double[] data, int rows, int cols, boolean inverse) {
+        checkLength(data.length, 2 * rows, cols);
+        final double[] temp = new double[data.length];
+        passesOnHost(data, temp, doubleTwiddles(cols), cols, rows, 1, cols, inverse);
+        passesOnHost(data, temp, doubleTwiddles(rows), rows, cols, cols, 1, inverse);
+    }
+}
@@ -0,0 +1,739 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.algorithms;
+
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+
+/**
+ * Stable LSD radix sort of {@code int[]}, {@code long[]} and {@code float[]}
+ * keys in ascending order, optionally with an {@code int[]} of values that is
+ * permuted with the keys (e.g., the original indices, to gather any other
+ * payload).
+ * <p>
+ * Each pass sorts the keys by a digit of {@link #RADIX_BITS} bits, starting
+ * from the least significant digit, in three steps over blocks of consecutive
+ * keys:
+ * <ol>
+ * <li>{@code histogram}: each block counts its keys per digit, in
+ * parallel.</li>
+ * <li>An exclusive {@link Scan} of the counts, stored digit by digit, which
+ * gives the first output position of each digit of each block.</li>
+ * <li>{@code scatter}: each block moves its keys to their positions, in
+ * parallel and in order, so that the sort is stable.</li>
+ * </ol>
+ * The passes alternate between the keys and a temporary array. The number of
+ * passes is even ({@code 4} for {@code int} and {@code float}, {@code 8} for
+ * {@code long}), so the sorted keys end in the input array.
+ * <p>
+ * Signed keys are ordered by flipping their sign bit. Floats are ordered by
+ * their IEEE-754 bits, flipping all the bits of negative values: {@code -0.0f}
+ * is sorted before {@code 0.0f}, and {@code NaN} values after positive
+ * infinity.
+ * <p>
+ * The passes are TornadoVM tasks, which can be added to any
+ * {@link TaskSchedule} with {@code addTasks}. The host versions
+ * ({@code sortOnHost}) run the same passes on the ForkJoin common pool.
+ */
+public final class RadixSort {
+
+    /**
+     * Bits of the digit sorted by each pass.
+     */
+    public static final int RADIX_BITS = 8;
+
+    /**
+     * Number of different digits.
+     */
+    public static final int RADIX = 1 << RADIX_BITS;
+
+    /**
+     * Smallest number of keys of a block.
+     */
+    public static final int MIN_BLOCK_SIZE = 1024;
+
+    /**
+     * Largest number of blocks. The histogram has {@code RADIX} counts per
+     * block.
+     */
+    public static final int MAX_BLOCKS = 4096;
+
+    private RadixSort() {
+    }
+
+    /**
+     * Number of keys of each block for an array of the given length.
+     */
+    public static int blockSize(int length) {
+        return Math.max(MIN_BLOCK_SIZE, (length + MAX_BLOCKS - 1) / MAX_BLOCKS);
+    }
+
+    /**
+     * Number of blocks for an array of the given length.
+     */
+    public static int numBlocks(int length) {
+        final int blockSize = blockSize(length);
+        return (length + blockSize - 1) / blockSize;
+    }
+
+    /**
+     * Length of the histogram array for an array of the given length.
+     */
+    public static int histogramLength(int length) {
+        return RADIX * numBlocks(length);
+    }
+
+    private static void checkValues(int length, int[] values) {
+        if (values.length != length) {
+            throw new IllegalArgumentException("Expected " + length + " values, found " + values.length);
+        }
+    }
+
+    private static int digit(int key, int shift) {
+        return ((key ^ 0x80000000) >>> shift) & (RADIX - 1);
+    }
+
+    private static int digit(long key, int shift) {
+        return (int) ((key ^ 0x8000000000000000L) >>> shift) & (RADIX - 1);
+    }
+
+    private static int digit(float key, int shift) {
+        final int bits = Float.floatToRawIntBits(key);
+        return ((bits ^ ((bits >> 31) | 0x80000000)) >>> shift) & (RADIX - 1);
+    }
+
+    // ======================================================================
+    // int
+    // ======================================================================
+
+    private static void countBlock(int[] keys, int[] histogram, int shift, int block, int blockSize, int numBlocks) {
+        for (int d = 0; d < RADIX; d++) {
+            histogram[d * numBlocks + block] = 0;
+        }
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final int index = digit(keys[i], shift) * numBlocks + block;
+            histogram[index] = histogram[index] + 1;
+        }
+    }
+
+    private static void scatterBlock(int[] keys, int[] output, int[] offsets, int shift, int block, int blockSize, int numBlocks) {
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final int key = keys[i];
+            final int index = digit(key, shift) * numBlocks + block;
+            final int position = offsets[index];
+            output[position] = key;
+            offsets[index] = position + 1;
+        }
+    }
+
+    private static void scatterBlock(int[] keys, int[] output, int[] values, int[] outputValues, int[] offsets, int shift, int block, int blockSize, int numBlocks) {
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final int key = keys[i];
+            final int index = digit(key, shift) * numBlocks + block;
+            final int position = offsets[index];
+            output[position] = key;
+            outputValues[position] = values[i];
+            offsets[index] = position + 1;
+        }
+    }
+
+    /**
+     * First step of a pass: counts the keys of each block per digit. The count
+     * of digit {@code d} in block {@code b} is stored at
+     * {@code histogram[d * numBlocks + b]}.
+     */
+    public static void histogram(int[] keys, int[] histogram, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            countBlock(keys, histogram, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Last step of a pass: moves the keys of each block to the positions given
+     * by the scanned histogram.
+     */
+    public static void scatter(int[] keys, int[] output, int[] offsets, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            scatterBlock(keys, output, offsets, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Last step of a pass with values.
+     */
+    public static void scatter(int[] keys, int[] output, int[] values, int[] outputValues, int[] offsets, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            scatterBlock(keys, output, values, outputValues, offsets, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Adds the tasks of a sort to a task-schedule. Each pass {@code p} adds
+     * the tasks {@code <id>Histogram<p>}, {@code <id>Offsets<p>Reduce},
+     * {@code <id>Offsets<p>Sums}, {@code <id>Offsets<p>Scan} and
+     * {@code <id>Scatter<p>}.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param keys
+     *            Keys to sort, in place.
+     * @param tmpKeys
+     *            Temporary array with the length of {@code keys}.
+     * @param histogram
+     *            Temporary array of {@code histogramLength(keys.length)}
+     *            elements.
+     * @param blockSums
+     *            Temporary array of
+     *            {@code Scan.numBlocks(histogramLength(keys.length))} elements.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, int[] keys, int[] tmpKeys, int[] histogram, int[] blockSums) {
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        for (int pass = 0; pass < 4; pass++) {
+            final int[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final int[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int shift = pass * RADIX_BITS;
+            schedule.task(id + "Histogram" + pass, RadixSort::histogram, input, histogram, shift, blockSize, numBlocks);
+            Scan.addTasks(schedule, id + "Offsets" + pass, histogram, histogram, blockSums, ScanOperator.ADD, false);
+            schedule.task(id + "Scatter" + pass, RadixSort::scatter, input, output, histogram, shift, blockSize, numBlocks);
+        }
+        return schedule;
+    }
+
+    /**
+     * Adds the tasks of a sort of keys and values to a task-schedule. The
+     * values are permuted with the keys.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, int[] keys, int[] values, int[] tmpKeys, int[] tmpValues, int[] histogram, int[] blockSums) {
+        checkValues(keys.length, values);
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        for (int pass = 0; pass < 4; pass++) {
+            final int[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final int[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int[] inputValues = (pass % 2 == 0) ? values : tmpValues;
+            final int[] outputValues = (pass % 2 == 0) ? tmpValues : values;
+            final int shift = pass * RADIX_BITS;
+            schedule.task(id + "Histogram" + pass, RadixSort::histogram, input, histogram, shift, blockSize, numBlocks);
+            Scan.addTasks(schedule, id + "Offsets" + pass, histogram, histogram, blockSums, ScanOperator.ADD, false);
+            schedule.task(id + "Scatter" + pass, RadixSort::scatter, input, output, inputValues, outputValues, histogram, shift, blockSize, numBlocks);
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that sorts {@code keys} in place every time it
+     * is executed.
+     */
+    public static TaskSchedule createSchedule(String name, int[] keys) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(keys);
+        final int histogramLength = histogramLength(keys.length);
+        return addTasks(schedule, "sort", keys, new int[keys.length], new int[histogramLength], new int[Scan.numBlocks(histogramLength)]).streamOut(keys);
+    }
+
+    /**
+     * Creates a task-schedule that sorts {@code keys} and {@code values} in
+     * place every time it is executed.
+     */
+    public static TaskSchedule createSchedule(String name, int[] keys, int[] values) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(keys, values);
+        final int histogramLength = histogramLength(keys.length);
+        return addTasks(schedule, "sort", keys, values, new int[keys.length], new int[keys.length], new int[histogramLength], new int[Scan.numBlocks(histogramLength)]).streamOut(keys, values);
+    }
+
+    /**
+     * Sorts {@code keys} in place on the default device.
+     */
+    public static void sort(int[] keys) {
+        if (keys.length > 1) {
+            createSchedule("sort", keys).execute();
+        }
+    }
+
+    /**
+     * Sorts {@code keys} in place on the default device, permuting
+     * {@code values} with them.
+     */
+    public static void sort(int[] keys, int[] values) {
+        checkValues(keys.length, values);
+        if (keys.length > 1) {
+            createSchedule("sort", keys, values).execute();
+        }
+    }
+
+    /**
+     * Sorts {@code keys} in place on the host, with the same passes as
+     * {@link #sort(int[])}.
+     */
+    public static void sortOnHost(int[] keys) {
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        final int[] tmpKeys = new int[keys.length];
+        final int[] histogram = new int[histogramLength(keys.length)];
+        for (int pass = 0; pass < 4; pass++) {
+            final int[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final int[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int shift = pass * RADIX_BITS;
+            IntStream.range(0, numBlocks).parallel().forEach(b -> countBlock(input, histogram, shift, b, blockSize, numBlocks));
+            Scan.exclusiveOnHost(histogram, histogram, ScanOperator.ADD);
+            IntStream.range(0, numBlocks).parallel().forEach(b -> scatterBlock(input, output, histogram, shift, b, blockSize, numBlocks));
+        }
+    }
+
+    /**
+     * Sorts {@code keys} and {@code values} in place on the host, with the
+     * same passes as {@link #sort(int[], int[])}.
+     */
+    public static void sortOnHost(int[] keys, int[] values) {
+        checkValues(keys.length, values);
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        final int[] tmpKeys = new int[keys.length];
+        final int[] tmpValues = new int[keys.length];
+        final int[] histogram = new int[histogramLength(keys.length)];
+        for (int pass = 0; pass < 4; pass++) {
+            final int[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final int[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int[] inputValues = (pass % 2 == 0) ? values : tmpValues;
+            final int[] outputValues = (pass % 2 == 0) ? tmpValues : values;
+            final int shift = pass * RADIX_BITS;
+            IntStream.range(0, numBlocks).parallel().forEach(b -> countBlock(input, histogram, shift, b, blockSize, numBlocks));
+            Scan.exclusiveOnHost(histogram, histogram, ScanOperator.ADD);
+            IntStream.range(0, numBlocks).parallel().forEach(b -> scatterBlock(input, output, inputValues, outputValues, histogram, shift, b, blockSize, numBlocks));
+        }
+    }
+
+    // ======================================================================
+    // long
+    // ======================================================================
+
+    private static void countBlock(long[] keys, int[] histogram, int shift, int block, int blockSize, int numBlocks) {
+        for (int d = 0; d < RADIX; d++) {
+            histogram[d * numBlocks + block] = 0;
+        }
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final int index = digit(keys[i], shift) * numBlocks + block;
+            histogram[index] = histogram[index] + 1;
+        }
+    }
+
+    private static void scatterBlock(long[] keys, long[] output, int[] offsets, int shift, int block, int blockSize, int numBlocks) {
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final long key = keys[i];
+            final int index = digit(key, shift) * numBlocks + block;
+            final int position = offsets[index];
+            output[position] = key;
+            offsets[index] = position + 1;
+        }
+    }
+
+    private static void scatterBlock(long[] keys, long[] output, int[] values, int[] outputValues, int[] offsets, int shift, int block, int blockSize, int numBlocks) {
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final long key = keys[i];
+            final int index = digit(key, shift) * numBlocks + block;
+            final int position = offsets[index];
+            output[position] = key;
+            outputValues[position] = values[i];
+            offsets[index] = position + 1;
+        }
+    }
+
+    /**
+     * First step of a pass: counts the keys of each block per digit. The count
+     * of digit {@code d} in block {@code b} is stored at
+     * {@code histogram[d * numBlocks + b]}.
+     */
+    public static void histogram(long[] keys, int[] histogram, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            countBlock(keys, histogram, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Last step of a pass: moves the keys of each block to the positions given
+     * by the scanned histogram.
+     */
+    public static void scatter(long[] keys, long[] output, int[] offsets, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            scatterBlock(keys, output, offsets, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Last step of a pass with values.
+     */
+    public static void scatter(long[] keys, long[] output, int[] values, int[] outputValues, int[] offsets, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            scatterBlock(keys, output, values, outputValues, offsets, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Adds the tasks of a sort to a task-schedule, see
+     * {@link #addTasks(TaskSchedule, String, int[], int[], int[], int[])}.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, long[] keys, long[] tmpKeys, int[] histogram, int[] blockSums) {
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        for (int pass = 0; pass < 8; pass++) {
+            final long[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final long[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int shift = pass * RADIX_BITS;
+            schedule.task(id + "Histogram" + pass, RadixSort::histogram, input, histogram, shift, blockSize, numBlocks);
+            Scan.addTasks(schedule, id + "Offsets" + pass, histogram, histogram, blockSums, ScanOperator.ADD, false);
+            schedule.task(id + "Scatter" + pass, RadixSort::scatter, input, output, histogram, shift, blockSize, numBlocks);
+        }
+        return schedule;
+    }
+
+    /**
+     * Adds the tasks of a sort of keys and values to a task-schedule. The
+     * values are permuted with the keys.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, long[] keys, int[] values, long[] tmpKeys, int[] tmpValues, int[] histogram, int[] blockSums) {
+        checkValues(keys.length, values);
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        for (int pass = 0; pass < 8; pass++) {
+            final long[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final long[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int[] inputValues = (pass % 2 == 0) ? values : tmpValues;
+            final int[] outputValues = (pass % 2 == 0) ? tmpValues : values;
+            final int shift = pass * RADIX_BITS;
+            schedule.task(id + "Histogram" + pass, RadixSort::histogram, input, histogram, shift, blockSize, numBlocks);
+            Scan.addTasks(schedule, id + "Offsets" + pass, histogram, histogram, blockSums, ScanOperator.ADD, false);
+            schedule.task(id + "Scatter" + pass, RadixSort::scatter, input, output, inputValues, outputValues, histogram, shift, blockSize, numBlocks);
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that sorts {@code keys} in place every time it
+     * is executed.
+     */
+    public static TaskSchedule createSchedule(String name, long[] keys) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(keys);
+        final int histogramLength = histogramLength(keys.length);
+        return addTasks(schedule, "sort", keys, new long[keys.length], new int[histogramLength], new int[Scan.numBlocks(histogramLength)]).streamOut(keys);
+    }
+
+    /**
+     * Creates a task-schedule that sorts {@code keys} and {@code values} in
+     * place every time it is executed.
+     */
+    public static TaskSchedule createSchedule(String name, long[] keys, int[] values) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(keys, values);
+        final int histogramLength = histogramLength(keys.length);
+        return addTasks(schedule, "sort", keys, values, new long[keys.length], new int[keys.length], new int[histogramLength], new int[Scan.numBlocks(histogramLength)]).streamOut(keys, values);
+    }
+
+    /**
+     * Sorts {@code keys} in place on the default device.
+     */
+    public static void sort(long[] keys) {
+        if (keys.length > 1) {
+            createSchedule("sort", keys).execute();
+        }
+    }
+
+    /**
+     * Sorts {@code keys} in place on the default device, permuting
+     * {@code values} with them.
+     */
+    public static void sort(long[] keys, int[] values) {
+        checkValues(keys.length, values);
+        if (keys.length > 1) {
+            createSchedule("sort", keys, values).execute();
+        }
+    }
+
+    /**
+     * Sorts {@code keys} in place on the host, with the same passes as
+     * {@link #sort(long[])}.
+     */
+    public static void sortOnHost(long[] keys) {
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        final long[] tmpKeys = new long[keys.length];
+        final int[] histogram = new int[histogramLength(keys.length)];
+        for (int pass = 0; pass < 8; pass++) {
+            final long[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final long[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int shift = pass * RADIX_BITS;
+            IntStream.range(0, numBlocks).parallel().forEach(b -> countBlock(input, histogram, shift, b, blockSize, numBlocks));
+            Scan.exclusiveOnHost(histogram, histogram, ScanOperator.ADD);
+            IntStream.range(0, numBlocks).parallel().forEach(b -> scatterBlock(input, output, histogram, shift, b, blockSize, numBlocks));
+        }
+    }
+
+    /**
+     * Sorts {@code keys} and {@code values} in place on the host, with the
+     * same passes as {@link #sort(long[], int[])}.
+     */
+    public static void sortOnHost(long[] keys, int[] values) {
+        checkValues(keys.length, values);
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        final long[] tmpKeys = new long[keys.length];
+        final int[] tmpValues = new int[keys.length];
+        final int[] histogram = new int[histogramLength(keys.length)];
+        for (int pass = 0; pass < 8; pass++) {
+            final long[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final long[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int[] inputValues = (pass % 2 == 0) ? values : tmpValues;
+            final int[] outputValues = (pass % 2 == 0) ? tmpValues : values;
+            final int shift = pass * RADIX_BITS;
+            IntStream.range(0, numBlocks).parallel().forEach(b -> countBlock(input, histogram, shift, b, blockSize, numBlocks));
+            Scan.exclusiveOnHost(histogram, histogram, ScanOperator.ADD);
+            IntStream.range(0, numBlocks).parallel().forEach(b -> scatterBlock(input, output, inputValues, outputValues, histogram, shift, b, blockSize, numBlocks));
+        }
+    }
+
+    // ======================================================================
+    // float
+    // ======================================================================
+
+    private static void countBlock(float[] keys, int[] histogram, int shift, int block, int blockSize, int numBlocks) {
+        for (int d = 0; d < RADIX; d++) {
+            histogram[d * numBlocks + block] = 0;
+        }
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final int index = digit(keys[i], shift) * numBlocks + block;
+            histogram[index] = histogram[index] + 1;
+        }
+    }
+
+    private static void scatterBlock(float[] keys, float[] output, int[] offsets, int shift, int block, int blockSize, int numBlocks) {
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final float key = keys[i];
+            final int index = digit(key, shift) * numBlocks + block;
+            final int position = offsets[index];
+            output[position] = key;
+            offsets[index] = position + 1;
+        }
+    }
+
+    private static void scatterBlock(float[] keys, float[] output, int[] values, int[] outputValues, int[] offsets, int shift, int block, int blockSize, int numBlocks) {
+        final int start = block * blockSize;
+        final int end = start + Math.min(blockSize, keys.length - start);
+        for (int i = start; i < end; i++) {
+            final float key = keys[i];
+            final int index = digit(key, shift) * numBlocks + block;
+            final int position = offsets[index];
+            output[position] = key;
+            outputValues[position] = values[i];
+            offsets[index] = position + 1;
+        }
+    }
+
+    /**
+     * First step of a pass: counts the keys of each block per digit. The count
+     * of digit {@code d} in block {@code b} is stored at
+     * {@code histogram[d * numBlocks + b]}.
+     */
+    public static void histogram(float[] keys, int[] histogram, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            countBlock(keys, histogram, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Last step of a pass: moves the keys of each block to the positions given
+     * by the scanned histogram.
+     */
+    public static void scatter(float[] keys, float[] output, int[] offsets, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            scatterBlock(keys, output, offsets, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Last step of a pass with values.
+     */
+    public static void scatter(float[] keys, float[] output, int[] values, int[] outputValues, int[] offsets, int shift, int blockSize, int numBlocks) {
+        for (@Parallel int b = 0; b < numBlocks; b++) {
+            scatterBlock(keys, output, values, outputValues, offsets, shift, b, blockSize, numBlocks);
+        }
+    }
+
+    /**
+     * Adds the tasks of a sort to a task-schedule, see
+     * {@link #addTasks(TaskSchedule, String, int[], int[], int[], int[])}.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, float[] keys, float[] tmpKeys, int[] histogram, int[] blockSums) {
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        for (int pass = 0; pass < 4; pass++) {
+            final float[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final float[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int shift = pass * RADIX_BITS;
+            schedule.task(id + "Histogram" + pass, RadixSort::histogram, input, histogram, shift, blockSize, numBlocks);
+            Scan.addTasks(schedule, id + "Offsets" + pass, histogram, histogram, blockSums, ScanOperator.ADD, false);
+            schedule.task(id + "Scatter" + pass, RadixSort::scatter, input, output, histogram, shift, blockSize, numBlocks);
+        }
+        return schedule;
+    }
+
+    /**
+     * Adds the tasks of a sort of keys and values to a task-schedule. The
+     * values are permuted with the keys.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, float[] keys, int[] values, float[] tmpKeys, int[] tmpValues, int[] histogram, int[] blockSums) {
+        checkValues(keys.length, values);
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        for (int pass = 0; pass < 4; pass++) {
+            final float[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final float[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int[] inputValues = (pass % 2 == 0) ? values : tmpValues;
+            final int[] outputValues = (pass % 2 == 0) ? tmpValues : values;
+            final int shift = pass * RADIX_BITS;
+            schedule.task(id + "Histogram" + pass, RadixSort::histogram, input, histogram, shift, blockSize, numBlocks);
+            Scan.addTasks(schedule, id + "Offsets" + pass, histogram, histogram, blockSums, ScanOperator.ADD, false);
+            schedule.task(id + "Scatter" + pass, RadixSort::scatter, input, output, inputValues, outputValues, histogram, shift, blockSize, numBlocks);
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that sorts {@code keys} in place every time it
+     * is executed.
+     */
+    public static TaskSchedule createSchedule(String name, float[] keys) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(keys);
+        final int histogramLength = histogramLength(keys.length);
+        return addTasks(schedule, "sort", keys, new float[keys.length], new int[histogramLength], new int[Scan.numBlocks(histogramLength)]).streamOut(keys);
+    }
+
+    /**
+     * Creates a task-schedule that sorts {@code keys} and {@code values} in
+     * place every time it is executed.
+     */
+    public static TaskSchedule createSchedule(String name, float[] keys, int[] values) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(keys, values);
+        final int histogramLength = histogramLength(keys.length);
+        return addTasks(schedule, "sort", keys, values, new float[keys.length], new int[keys.length], new int[histogramLength], new int[Scan.numBlocks(histogramLength)]).streamOut(keys, values);
+    }
+
+    /**
+     * Sorts {@code keys} in place on the default device.
+     */
+    public static void sort(float[] keys) {
+        if (keys.length > 1) {
+            createSchedule("sort", keys).execute();
+        }
+    }
+
+    /**
+     * Sorts {@code keys} in place on the default device, permuting
+     * {@code values} with them.
+     */
+    public static void sort(float[] keys, int[] values) {
+        checkValues(keys.length, values);
+        if (keys.length > 1) {
+            createSchedule("sort", keys, values).execute();
+        }
+    }
+
+    /**
+     * Sorts {@code keys} in place on the host, with the same passes as
+     * {@link #sort(float[])}.
+     */
+    public static void sortOnHost(float[] keys) {
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        final float[] tmpKeys = new float[keys.length];
+        final int[] histogram = new int[histogramLength(keys.length)];
+        for (int pass = 0; pass < 4; pass++) {
+            final float[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final float[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int shift = pass * RADIX_BITS;
+            IntStream.range(0, numBlocks).parallel().forEach(b -> countBlock(input, histogram, shift, b, blockSize, numBlocks));
+            Scan.exclusiveOnHost(histogram, histogram, ScanOperator.ADD);
+            IntStream.range(0, numBlocks).parallel().forEach(b -> scatterBlock(input, output, histogram, shift, b, blockSize, numBlocks));
+        }
+    }
+
+    /**
+     * Sorts {@code keys} and {@code values} in place on the host, with the
+     * same passes as {@link #sort(float[], int[])}.
+     */
+    public static void sortOnHost(float[] keys, int[] values) {
+        checkValues(keys.length, values);
+        final int blockSize = blockSize(keys.length);
+        final int numBlocks = numBlocks(keys.length);
+        final float[] tmpKeys = new float[keys.length];
+        final int[] tmpValues = new int[keys.length];
+        final int[] histogram = new int[histogramLength(keys.length)];
+        for (int pass = 0; pass < 4; pass++) {
+            final float[] input = (pass % 2 == 0) ? keys : tmpKeys;
+            final float[] output = (pass % 2 == 0) ? tmpKeys : keys;
+            final int[] inputValues = (pass % 2 == 0) ? values : tmpValues;
+            final int[] outputValues = (pass % 2 == 0) ? tmpValues : values;
+            final int shift = pass * RADIX_BITS;
+            IntStream.range(0, numBlocks).parallel().forEach(b -> countBlock(input, histogram, shift, b, blockSize, numBlocks));
+            Scan.exclusiveOnHost(histogram, histogram, ScanOperator.ADD);
+            IntStream.range(0, numBlocks).parallel().forEach(b -> scatterBlock(input, output, inputValues, outputValues, histogram, shift, b, blockSize, numBlocks));
+        }
+    }
+}
@@ -0,0 +1,1249 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.algorithms;
+
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+
+/**
+ * Inclusive and exclusive prefix scans of {@code int[]}, {@code long[]},
+ * {@code float[]} and {@code double[]} arrays with an associative
+ * {@link ScanOperator}.
+ * <p>
+ * The scan runs in three passes over tiles of consecutive elements, so that
+ * the total work is linear in the length of the array. A tile is a sequence of
+ * rows of eight elements, and each block of a tile owns one lane of
+ * every row, so that neighbouring threads access neighbouring elements:
+ * <ol>
+ * <li>{@code reduceBlocks}: each block reduces its lane in parallel.</li>
+ * <li>{@code scanBlockSums}: the lane reductions of each tile are combined,
+ * and the tile reductions are scanned (exclusive) by a single thread. There
+ * are at most {@link #MAX_BLOCKS} blocks.</li>
+ * <li>{@code scanBlocksInclusive}/{@code scanBlocksExclusive}: each block
+ * scans its tile row by row in parallel, starting from the reduction of all
+ * the tiles before it, and writes the result of its lane. Each row is read by
+ * all the blocks of the tile, so an in-place scan uses
+ * {@code scanTilesInclusive}/{@code scanTilesExclusive} instead, which scan
+ * each tile on a single thread with the same operations.</li>
+ * </ol>
+ * The three passes are TornadoVM tasks, which can be added to any
+ * {@link TaskSchedule} with {@code addTasks}, e.g., to keep the result on the
+ * device for the next task. The host versions ({@code inclusiveOnHost} and
+ * {@code exclusiveOnHost}) run the same passes on the ForkJoin common pool,
+ * with the same tiles and in the same order, so that their results are
+ * identical to the device results, also for floating-point operators.
+ * <p>
+ * Only the operators of {@link ScanOperator} are supported. The operator is
+ * passed to the tasks as an {@code int} code and selected with a
+ * {@code switch} inside the kernels, because a kernel cannot call a lambda or
+ * an interface method that is passed as a parameter. Other operators, e.g.,
+ * a scan over a user-defined monoid, need their own tasks following the same
+ * three passes.
+ */
+public final class Scan {
+
+    /**
+     * Smallest number of elements of a block, i.e., of rows of a tile.
+     */
+    public static final int MIN_BLOCK_SIZE = 64;
+
+    /**
+     * Largest number of blocks, which is the length of the array scanned
+     * sequentially in the second pass.
+     */
+    public static final int MAX_BLOCKS = 8192;
+
+    /**
+     * Number of blocks of a tile, i.e., of elements of a row.
+     */
+    private static final int LANES = 8;
+
+    private static final int ADD = 0;
+    private static final int MUL = 1;
+    private static final int MIN = 2;
+    private static final int MAX = 3;
+
+    private Scan() {
+    }
+
+    /**
+     * Number of elements of each block, i.e., number of rows of each tile, for
+     * an array of the given length.
+     */
+    public static int blockSize(int length) {
+        return Math.max(MIN_BLOCK_SIZE, (length + MAX_BLOCKS - 1) / MAX_BLOCKS);
+    }
+
+    /**
+     * Number of blocks, i.e., the length of the array of block reductions, for
+     * an array of the given length. It is a multiple of eight.
+     */
+    public static int numBlocks(int length) {
+        final int tileSize = LANES * blockSize(length);
+        return (length + tileSize - 1) / tileSize * LANES;
+    }
+
+    private static int code(ScanOperator operator) {
+        switch (operator) {
+            case ADD:
+                return ADD;
+            case MUL:
+                return MUL;
+            case MIN:
+                return MIN;
+            case MAX:
+                return MAX;
+            default:
+                throw new IllegalArgumentException("Unsupported scan operator: " + operator);
+        }
+    }
+
+    // ======================================================================
+    // int
+    // ======================================================================
+
+    private static int apply(int op, int a, int b) {
+        if (op == ADD) {
+            return a + b;
+        } else if (op == MUL) {
+            return a * b;
+        } else if (op == MIN) {
+            return Math.min(a, b);
+        } else {
+            return Math.max(a, b);
+        }
+    }
+
+    private static int intIdentity(int op) {
+        if (op == ADD) {
+            return 0;
+        } else if (op == MUL) {
+            return 1;
+        } else if (op == MIN) {
+            return Integer.MAX_VALUE;
+        } else {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static int reduceBlock(int[] input, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        int acc = intIdentity(op);
+        for (int i = tileStart + lane; i < tileEnd; i += LANES) {
+            acc = apply(op, acc, input[i]);
+        }
+        return acc;
+    }
+
+    private static void scanBlockInclusive(int[] input, int[] output, int carry, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        int acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            int prefix = intIdentity(op);
+            int total = prefix;
+            for (int i = row; i < rowEnd; i++) {
+                total = apply(op, total, input[i]);
+                if (i == row + lane) {
+                    prefix = total;
+                }
+            }
+            if (row + lane < rowEnd) {
+                output[row + lane] = apply(op, acc, prefix);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanBlockExclusive(int[] input, int[] output, int carry, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        int acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            int prefix = intIdentity(op);
+            int total = prefix;
+            for (int i = row; i < rowEnd; i++) {
+                if (i == row + lane) {
+                    prefix = total;
+                }
+                total = apply(op, total, input[i]);
+            }
+            if (row + lane < rowEnd) {
+                output[row + lane] = apply(op, acc, prefix);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanTileInclusive(int[] input, int[] output, int carry, int tile, int blockSize, int op) {
+        final int tileStart = tile * LANES * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        int acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            int total = intIdentity(op);
+            for (int i = row; i < rowEnd; i++) {
+                total = apply(op, total, input[i]);
+                output[i] = apply(op, acc, total);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanTileExclusive(int[] input, int[] output, int carry, int tile, int blockSize, int op) {
+        final int tileStart = tile * LANES * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        int acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            int total = intIdentity(op);
+            for (int i = row; i < rowEnd; i++) {
+                final int value = input[i];
+                output[i] = apply(op, acc, total);
+                total = apply(op, total, value);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    /**
+     * First pass: each block reduces one lane of its tile, i.e., every
+     * eighth element, into {@code blockSums}.
+     */
+    public static void reduceBlocks(int[] input, int[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            blockSums[b] = reduceBlock(input, b, blockSize, op);
+        }
+    }
+
+    /**
+     * Second pass: exclusive scan of the tile reductions, in place. Every
+     * block of a tile receives the reduction of all the tiles before it.
+     */
+    public static void scanBlockSums(int[] blockSums, int op) {
+        int acc = intIdentity(op);
+        for (int t = 0; t < blockSums.length; t += LANES) {
+            int total = blockSums[t];
+            for (int l = 1; l < LANES; l++) {
+                total = apply(op, total, blockSums[t + l]);
+            }
+            for (int l = 0; l < LANES; l++) {
+                blockSums[t + l] = acc;
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    /**
+     * Third pass of an inclusive scan, one lane of a tile per block.
+     * {@code output} must not be {@code input}.
+     */
+    public static void scanBlocksInclusive(int[] input, int[] output, int[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            scanBlockInclusive(input, output, blockSums[b], b, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an exclusive scan, one lane of a tile per block.
+     * {@code output} must not be {@code input}.
+     */
+    public static void scanBlocksExclusive(int[] input, int[] output, int[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            scanBlockExclusive(input, output, blockSums[b], b, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an in-place inclusive scan, one tile per thread.
+     */
+    public static void scanTilesInclusive(int[] input, int[] output, int[] blockSums, int op, int blockSize) {
+        for (@Parallel int t = 0; t < blockSums.length / LANES; t++) {
+            scanTileInclusive(input, output, blockSums[t * LANES], t, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an in-place exclusive scan, one tile per thread.
+     */
+    public static void scanTilesExclusive(int[] input, int[] output, int[] blockSums, int op, int blockSize) {
+        for (@Parallel int t = 0; t < blockSums.length / LANES; t++) {
+            scanTileExclusive(input, output, blockSums[t * LANES], t, blockSize, op);
+        }
+    }
+
+    /**
+     * Adds the tasks of a scan to a task-schedule. The tasks are named
+     * {@code <id>Reduce}, {@code <id>Sums} and {@code <id>Scan}.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param input
+     *            Input array.
+     * @param output
+     *            Output array, which can be the input array.
+     * @param blockSums
+     *            Temporary array of {@code numBlocks(input.length)} elements.
+     * @param operator
+     *            {@link ScanOperator}
+     * @param inclusive
+     *            True for an inclusive scan, false for an exclusive scan.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, int[] input, int[] output, int[] blockSums, ScanOperator operator, boolean inclusive) {
+        final int op = code(operator);
+        final int blockSize = blockSize(input.length);
+        schedule.task(id + "Reduce", Scan::reduceBlocks, input, blockSums, op, blockSize);
+        schedule.task(id + "Sums", Scan::scanBlockSums, blockSums, op);
+        // The blocks of a tile read each other's elements, so an in-place scan
+        // runs each tile on a single thread
+        if (input == output && inclusive) {
+            schedule.task(id + "Scan", Scan::scanTilesInclusive, input, output, blockSums, op, blockSize);
+        } else if (input == output) {
+            schedule.task(id + "Scan", Scan::scanTilesExclusive, input, output, blockSums, op, blockSize);
+        } else if (inclusive) {
+            schedule.task(id + "Scan", Scan::scanBlocksInclusive, input, output, blockSums, op, blockSize);
+        } else {
+            schedule.task(id + "Scan", Scan::scanBlocksExclusive, input, output, blockSums, op, blockSize);
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that scans {@code input} into {@code output}
+     * every time it is executed.
+     */
+    public static TaskSchedule createSchedule(String name, int[] input, int[] output, ScanOperator operator, boolean inclusive) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(input);
+        return addTasks(schedule, "scan", input, output, new int[numBlocks(input.length)], operator, inclusive).streamOut(output);
+    }
+
+    /**
+     * Inclusive scan on the default device: {@code output[i] = input[0] op ...
+     * op input[i]}.
+     */
+    public static void inclusive(int[] input, int[] output, ScanOperator operator) {
+        if (input.length > 0) {
+            createSchedule("scan", input, output, operator, true).execute();
+        }
+    }
+
+    /**
+     * Exclusive scan on the default device: {@code output[0]} is the identity
+     * of the operator and {@code output[i] = input[0] op ... op input[i - 1]}.
+     */
+    public static void exclusive(int[] input, int[] output, ScanOperator operator) {
+        if (input.length > 0) {
+            createSchedule("scan", input, output, operator, false).execute();
+        }
+    }
+
+    /**
+     * Inclusive scan on the host, with the same results as
+     * {@link #inclusive(int[], int[], ScanOperator)}.
+     */
+    public static void inclusiveOnHost(int[] input, int[] output, ScanOperator operator) {
+        scanOnHost(input, output, operator, true);
+    }
+
+    /**
+     * Exclusive scan on the host, with the same results as
+     * {@link #exclusive(int[], int[], ScanOperator)}.
+     */
+    public static void exclusiveOnHost(int[] input, int[] output, ScanOperator operator) {
+        scanOnHost(input, output, operator, false);
+    }
+
+    private static void scanOnHost(int[] input, int[] output, ScanOperator operator, boolean inclusive) {
+        final int op = code(operator);
+        final int blockSize = blockSize(input.length);
+        final int[] blockSums = new int[numBlocks(input.length)];
+        IntStream.range(0, blockSums.length).parallel().forEach(b -> blockSums[b] = reduceBlock(input, b, blockSize, op));
+        scanBlockSums(blockSums, op);
+        if (inclusive) {
+            IntStream.range(0, blockSums.length / LANES).parallel().forEach(t -> scanTileInclusive(input, output, blockSums[t * LANES], t, blockSize, op));
+        } else {
+            IntStream.range(0, blockSums.length / LANES).parallel().forEach(t -> scanTileExclusive(input, output, blockSums[t * LANES], t, blockSize, op));
+        }
+    }
+
+    // ======================================================================
+    // long
+    // ======================================================================
+
+    private static long apply(int op, long a, long b) {
+        if (op == ADD) {
+            return a + b;
+        } else if (op == MUL) {
+            return a * b;
+        } else if (op == MIN) {
+            return Math.min(a, b);
+        } else {
+            return Math.max(a, b);
+        }
+    }
+
+    private static long longIdentity(int op) {
+        if (op == ADD) {
+            return 0L;
+        } else if (op == MUL) {
+            return 1L;
+        } else if (op == MIN) {
+            return Long.MAX_VALUE;
+        } else {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static long reduceBlock(long[] input, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        long acc = longIdentity(op);
+        for (int i = tileStart + lane; i < tileEnd; i += LANES) {
+            acc = apply(op, acc, input[i]);
+        }
+        return acc;
+    }
+
+    private static void scanBlockInclusive(long[] input, long[] output, long carry, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        long acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            long prefix = longIdentity(op);
+            long total = prefix;
+            for (int i = row; i < rowEnd; i++) {
+                total = apply(op, total, input[i]);
+                if (i == row + lane) {
+                    prefix = total;
+                }
+            }
+            if (row + lane < rowEnd) {
+                output[row + lane] = apply(op, acc, prefix);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanBlockExclusive(long[] input, long[] output, long carry, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        long acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            long prefix = longIdentity(op);
+            long total = prefix;
+            for (int i = row; i < rowEnd; i++) {
+                if (i == row + lane) {
+                    prefix = total;
+                }
+                total = apply(op, total, input[i]);
+            }
+            if (row + lane < rowEnd) {
+                output[row + lane] = apply(op, acc, prefix);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanTileInclusive(long[] input, long[] output, long carry, int tile, int blockSize, int op) {
+        final int tileStart = tile * LANES * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        long acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            long total = longIdentity(op);
+            for (int i = row; i < rowEnd; i++) {
+                total = apply(op, total, input[i]);
+                output[i] = apply(op, acc, total);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanTileExclusive(long[] input, long[] output, long carry, int tile, int blockSize, int op) {
+        final int tileStart = tile * LANES * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        long acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            long total = longIdentity(op);
+            for (int i = row; i < rowEnd; i++) {
+                final long value = input[i];
+                output[i] = apply(op, acc, total);
+                total = apply(op, total, value);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    /**
+     * First pass: each block reduces one lane of its tile, i.e., every
+     * eighth element, into {@code blockSums}.
+     */
+    public static void reduceBlocks(long[] input, long[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            blockSums[b] = reduceBlock(input, b, blockSize, op);
+        }
+    }
+
+    /**
+     * Second pass: exclusive scan of the tile reductions, in place. Every
+     * block of a tile receives the reduction of all the tiles before it.
+     */
+    public static void scanBlockSums(long[] blockSums, int op) {
+        long acc = longIdentity(op);
+        for (int t = 0; t < blockSums.length; t += LANES) {
+            long total = blockSums[t];
+            for (int l = 1; l < LANES; l++) {
+                total = apply(op, total, blockSums[t + l]);
+            }
+            for (int l = 0; l < LANES; l++) {
+                blockSums[t + l] = acc;
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    /**
+     * Third pass of an inclusive scan, one lane of a tile per block.
+     * {@code output} must not be {@code input}.
+     */
+    public static void scanBlocksInclusive(long[] input, long[] output, long[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            scanBlockInclusive(input, output, blockSums[b], b, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an exclusive scan, one lane of a tile per block.
+     * {@code output} must not be {@code input}.
+     */
+    public static void scanBlocksExclusive(long[] input, long[] output, long[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            scanBlockExclusive(input, output, blockSums[b], b, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an in-place inclusive scan, one tile per thread.
+     */
+    public static void scanTilesInclusive(long[] input, long[] output, long[] blockSums, int op, int blockSize) {
+        for (@Parallel int t = 0; t < blockSums.length / LANES; t++) {
+            scanTileInclusive(input, output, blockSums[t * LANES], t, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an in-place exclusive scan, one tile per thread.
+     */
+    public static void scanTilesExclusive(long[] input, long[] output, long[] blockSums, int op, int blockSize) {
+        for (@Parallel int t = 0; t < blockSums.length / LANES; t++) {
+            scanTileExclusive(input, output, blockSums[t * LANES], t, blockSize, op);
+        }
+    }
+
+    /**
+     * Adds the tasks of a scan to a task-schedule. The tasks are named
+     * {@code <id>Reduce}, {@code <id>Sums} and {@code <id>Scan}.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param input
+     *            Input array.
+     * @param output
+     *            Output array, which can be the input array.
+     * @param blockSums
+     *            Temporary array of {@code numBlocks(input.length)} elements.
+     * @param operator
+     *            {@link ScanOperator}
+     * @param inclusive
+     *            True for an inclusive scan, false for an exclusive scan.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, long[] input, long[] output, long[] blockSums, ScanOperator operator, boolean inclusive) {
+        final int op = code(operator);
+        final int blockSize = blockSize(input.length);
+        schedule.task(id + "Reduce", Scan::reduceBlocks, input, blockSums, op, blockSize);
+        schedule.task(id + "Sums", Scan::scanBlockSums, blockSums, op);
+        // The blocks of a tile read each other's elements, so an in-place scan
+        // runs each tile on a single thread
+        if (input == output && inclusive) {
+            schedule.task(id + "Scan", Scan::scanTilesInclusive, input, output, blockSums, op, blockSize);
+        } else if (input == output) {
+            schedule.task(id + "Scan", Scan::scanTilesExclusive, input, output, blockSums, op, blockSize);
+        } else if (inclusive) {
+            schedule.task(id + "Scan", Scan::scanBlocksInclusive, input, output, blockSums, op, blockSize);
+        } else {
+            schedule.task(id + "Scan", Scan::scanBlocksExclusive, input, output, blockSums, op, blockSize);
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that scans {@code input} into {@code output}
+     * every time it is executed.
+     */
+    public static TaskSchedule createSchedule(String name, long[] input, long[] output, ScanOperator operator, boolean inclusive) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(input);
+        return addTasks(schedule, "scan", input, output, new long[numBlocks(input.length)], operator, inclusive).streamOut(output);
+    }
+
+    /**
+     * Inclusive scan on the default device: {@code output[i] = input[0] op ...
+     * op input[i]}.
+     */
+    public static void inclusive(long[] input, long[] output, ScanOperator operator) {
+        if (input.length > 0) {
+            createSchedule("scan", input, output, operator, true).execute();
+        }
+    }
+
+    /**
+     * Exclusive scan on the default device: {@code output[0]} is the identity
+     * of the operator and {@code output[i] = input[0] op ... op input[i - 1]}.
+     */
+    public static void exclusive(long[] input, long[] output, ScanOperator operator) {
+        if (input.length > 0) {
+            createSchedule("scan", input, output, operator, false).execute();
+        }
+    }
+
+    /**
+     * Inclusive scan on the host, with the same results as
+     * {@link #inclusive(long[], long[], ScanOperator)}.
+     */
+    public static void inclusiveOnHost(long[] input, long[] output, ScanOperator operator) {
+        scanOnHost(input, output, operator, true);
+    }
+
+    /**
+     * Exclusive scan on the host, with the same results as
+     * {@link #exclusive(long[], long[], ScanOperator)}.
+     */
+    public static void exclusiveOnHost(long[] input, long[] output, ScanOperator operator) {
+        scanOnHost(input, output, operator, false);
+    }
+
+    private static void scanOnHost(long[] input, long[] output, ScanOperator operator, boolean inclusive) {
+        final int op = code(operator);
+        final int blockSize = blockSize(input.length);
+        final long[] blockSums = new long[numBlocks(input.length)];
+        IntStream.range(0, blockSums.length).parallel().forEach(b -> blockSums[b] = reduceBlock(input, b, blockSize, op));
+        scanBlockSums(blockSums, op);
+        if (inclusive) {
+            IntStream.range(0, blockSums.length / LANES).parallel().forEach(t -> scanTileInclusive(input, output, blockSums[t * LANES], t, blockSize, op));
+        } else {
+            IntStream.range(0, blockSums.length / LANES).parallel().forEach(t -> scanTileExclusive(input, output, blockSums[t * LANES], t, blockSize, op));
+        }
+    }
+
+    // ======================================================================
+    // float
+    // ======================================================================
+
+    private static float apply(int op, float a, float b) {
+        if (op == ADD) {
+            return a + b;
+        } else if (op == MUL) {
+            return a * b;
+        } else if (op == MIN) {
+            return Math.min(a, b);
+        } else {
+            return Math.max(a, b);
+        }
+    }
+
+    private static float floatIdentity(int op) {
+        if (op == ADD) {
+            return 0.0f;
+        } else if (op == MUL) {
+            return 1.0f;
+        } else if (op == MIN) {
+            return Float.POSITIVE_INFINITY;
+        } else {
+            return Float.NEGATIVE_INFINITY;
+        }
+    }
+
+    private static float reduceBlock(float[] input, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        float acc = floatIdentity(op);
+        for (int i = tileStart + lane; i < tileEnd; i += LANES) {
+            acc = apply(op, acc, input[i]);
+        }
+        return acc;
+    }
+
+    private static void scanBlockInclusive(float[] input, float[] output, float carry, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        float acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            float prefix = floatIdentity(op);
+            float total = prefix;
+            for (int i = row; i < rowEnd; i++) {
+                total = apply(op, total, input[i]);
+                if (i == row + lane) {
+                    prefix = total;
+                }
+            }
+            if (row + lane < rowEnd) {
+                output[row + lane] = apply(op, acc, prefix);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanBlockExclusive(float[] input, float[] output, float carry, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        float acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            float prefix = floatIdentity(op);
+            float total = prefix;
+            for (int i = row; i < rowEnd; i++) {
+                if (i == row + lane) {
+                    prefix = total;
+                }
+                total = apply(op, total, input[i]);
+            }
+            if (row + lane < rowEnd) {
+                output[row + lane] = apply(op, acc, prefix);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanTileInclusive(float[] input, float[] output, float carry, int tile, int blockSize, int op) {
+        final int tileStart = tile * LANES * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        float acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            float total = floatIdentity(op);
+            for (int i = row; i < rowEnd; i++) {
+                total = apply(op, total, input[i]);
+                output[i] = apply(op, acc, total);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanTileExclusive(float[] input, float[] output, float carry, int tile, int blockSize, int op) {
+        final int tileStart = tile * LANES * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        float acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            float total = floatIdentity(op);
+            for (int i = row; i < rowEnd; i++) {
+                final float value = input[i];
+                output[i] = apply(op, acc, total);
+                total = apply(op, total, value);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    /**
+     * First pass: each block reduces one lane of its tile, i.e., every
+     * eighth element, into {@code blockSums}.
+     */
+    public static void reduceBlocks(float[] input, float[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            blockSums[b] = reduceBlock(input, b, blockSize, op);
+        }
+    }
+
+    /**
+     * Second pass: exclusive scan of the tile reductions, in place. Every
+     * block of a tile receives the reduction of all the tiles before it.
+     */
+    public static void scanBlockSums(float[] blockSums, int op) {
+        float acc = floatIdentity(op);
+        for (int t = 0; t < blockSums.length; t += LANES) {
+            float total = blockSums[t];
+            for (int l = 1; l < LANES; l++) {
+                total = apply(op, total, blockSums[t + l]);
+            }
+            for (int l = 0; l < LANES; l++) {
+                blockSums[t + l] = acc;
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    /**
+     * Third pass of an inclusive scan, one lane of a tile per block.
+     * {@code output} must not be {@code input}.
+     */
+    public static void scanBlocksInclusive(float[] input, float[] output, float[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            scanBlockInclusive(input, output, blockSums[b], b, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an exclusive scan, one lane of a tile per block.
+     * {@code output} must not be {@code input}.
+     */
+    public static void scanBlocksExclusive(float[] input, float[] output, float[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            scanBlockExclusive(input, output, blockSums[b], b, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an in-place inclusive scan, one tile per thread.
+     */
+    public static void scanTilesInclusive(float[] input, float[] output, float[] blockSums, int op, int blockSize) {
+        for (@Parallel int t = 0; t < blockSums.length / LANES; t++) {
+            scanTileInclusive(input, output, blockSums[t * LANES], t, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an in-place exclusive scan, one tile per thread.
+     */
+    public static void scanTilesExclusive(float[] input, float[] output, float[] blockSums, int op, int blockSize) {
+        for (@Parallel int t = 0; t < blockSums.length / LANES; t++) {
+            scanTileExclusive(input, output, blockSums[t * LANES], t, blockSize, op);
+        }
+    }
+
+    /**
+     * Adds the tasks of a scan to a task-schedule. The tasks are named
+     * {@code <id>Reduce}, {@code <id>Sums} and {@code <id>Scan}.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param input
+     *            Input array.
+     * @param output
+     *            Output array, which can be the input array.
+     * @param blockSums
+     *            Temporary array of {@code numBlocks(input.length)} elements.
+     * @param operator
+     *            {@link ScanOperator}
+     * @param inclusive
+     *            True for an inclusive scan, false for an exclusive scan.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, float[] input, float[] output, float[] blockSums, ScanOperator operator, boolean inclusive) {
+        final int op = code(operator);
+        final int blockSize = blockSize(input.length);
+        schedule.task(id + "Reduce", Scan::reduceBlocks, input, blockSums, op, blockSize);
+        schedule.task(id + "Sums", Scan::scanBlockSums, blockSums, op);
+        // The blocks of a tile read each other's elements, so an in-place scan
+        // runs each tile on a single thread
+        if (input == output && inclusive) {
+            schedule.task(id + "Scan", Scan::scanTilesInclusive, input, output, blockSums, op, blockSize);
+        } else if (input == output) {
+            schedule.task(id + "Scan", Scan::scanTilesExclusive, input, output, blockSums, op, blockSize);
+        } else if (inclusive) {
+            schedule.task(id + "Scan", Scan::scanBlocksInclusive, input, output, blockSums, op, blockSize);
+        } else {
+            schedule.task(id + "Scan", Scan::scanBlocksExclusive, input, output, blockSums, op, blockSize);
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that scans {@code input} into {@code output}
+     * every time it is executed.
+     */
+    public static TaskSchedule createSchedule(String name, float[] input, float[] output, ScanOperator operator, boolean inclusive) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(input);
+        return addTasks(schedule, "scan", input, output, new float[numBlocks(input.length)], operator, inclusive).streamOut(output);
+    }
+
+    /**
+     * Inclusive scan on the default device: {@code output[i] = input[0] op ...
+     * op input[i]}.
+     */
+    public static void inclusive(float[] input, float[] output, ScanOperator operator) {
+        if (input.length > 0) {
+            createSchedule("scan", input, output, operator, true).execute();
+        }
+    }
+
+    /**
+     * Exclusive scan on the default device: {@code output[0]} is the identity
+     * of the operator and {@code output[i] = input[0] op ... op input[i - 1]}.
+     */
+    public static void exclusive(float[] input, float[] output, ScanOperator operator) {
+        if (input.length > 0) {
+            createSchedule("scan", input, output, operator, false).execute();
+        }
+    }
+
+    /**
+     * Inclusive scan on the host, with the same results as
+     * {@link #inclusive(float[], float[], ScanOperator)}.
+     */
+    public static void inclusiveOnHost(float[] input, float[] output, ScanOperator operator) {
+        scanOnHost(input, output, operator, true);
+    }
+
+    /**
+     * Exclusive scan on the host, with the same results as
+     * {@link #exclusive(float[], float[], ScanOperator)}.
+     */
+    public static void exclusiveOnHost(float[] input, float[] output, ScanOperator operator) {
+        scanOnHost(input, output, operator, false);
+    }
+
+    private static void scanOnHost(float[] input, float[] output, ScanOperator operator, boolean inclusive) {
+        final int op = code(operator);
+        final int blockSize = blockSize(input.length);
+        final float[] blockSums = new float[numBlocks(input.length)];
+        IntStream.range(0, blockSums.length).parallel().forEach(b -> blockSums[b] = reduceBlock(input, b, blockSize, op));
+        scanBlockSums(blockSums, op);
+        if (inclusive) {
+            IntStream.range(0, blockSums.length / LANES).parallel().forEach(t -> scanTileInclusive(input, output, blockSums[t * LANES], t, blockSize, op));
+        } else {
+            IntStream.range(0, blockSums.length / LANES).parallel().forEach(t -> scanTileExclusive(input, output, blockSums[t * LANES], t, blockSize, op));
+        }
+    }
+
+    // ======================================================================
+    // double
+    // ======================================================================
+
+    private static double apply(int op, double a, double b) {
+        if (op == ADD) {
+            return a + b;
+        } else if (op == MUL) {
+            return a * b;
+        } else if (op == MIN) {
+            return Math.min(a, b);
+        } else {
+            return Math.max(a, b);
+        }
+    }
+
+    private static double doubleIdentity(int op) {
+        if (op == ADD) {
+            return 0.0;
+        } else if (op == MUL) {
+            return 1.0;
+        } else if (op == MIN) {
+            return Double.POSITIVE_INFINITY;
+        } else {
+            return Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    private static double reduceBlock(double[] input, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        double acc = doubleIdentity(op);
+        for (int i = tileStart + lane; i < tileEnd; i += LANES) {
+            acc = apply(op, acc, input[i]);
+        }
+        return acc;
+    }
+
+    private static void scanBlockInclusive(double[] input, double[] output, double carry, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        double acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            double prefix = doubleIdentity(op);
+            double total = prefix;
+            for (int i = row; i < rowEnd; i++) {
+                total = apply(op, total, input[i]);
+                if (i == row + lane) {
+                    prefix = total;
+                }
+            }
+            if (row + lane < rowEnd) {
+                output[row + lane] = apply(op, acc, prefix);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanBlockExclusive(double[] input, double[] output, double carry, int block, int blockSize, int op) {
+        final int lane = block % LANES;
+        final int tileStart = (block - lane) * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        double acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            double prefix = doubleIdentity(op);
+            double total = prefix;
+            for (int i = row; i < rowEnd; i++) {
+                if (i == row + lane) {
+                    prefix = total;
+                }
+                total = apply(op, total, input[i]);
+            }
+            if (row + lane < rowEnd) {
+                output[row + lane] = apply(op, acc, prefix);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanTileInclusive(double[] input, double[] output, double carry, int tile, int blockSize, int op) {
+        final int tileStart = tile * LANES * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        double acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            double total = doubleIdentity(op);
+            for (int i = row; i < rowEnd; i++) {
+                total = apply(op, total, input[i]);
+                output[i] = apply(op, acc, total);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    private static void scanTileExclusive(double[] input, double[] output, double carry, int tile, int blockSize, int op) {
+        final int tileStart = tile * LANES * blockSize;
+        final int tileEnd = Math.min(tileStart + LANES * blockSize, input.length);
+        double acc = carry;
+        for (int row = tileStart; row < tileEnd; row += LANES) {
+            final int rowEnd = Math.min(row + LANES, tileEnd);
+            double total = doubleIdentity(op);
+            for (int i = row; i < rowEnd; i++) {
+                final double value = input[i];
+                output[i] = apply(op, acc, total);
+                total = apply(op, total, value);
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    /**
+     * First pass: each block reduces one lane of its tile, i.e., every
+     * eighth element, into {@code blockSums}.
+     */
+    public static void reduceBlocks(double[] input, double[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            blockSums[b] = reduceBlock(input, b, blockSize, op);
+        }
+    }
+
+    /**
+     * Second pass: exclusive scan of the tile reductions, in place. Every
+     * block of a tile receives the reduction of all the tiles before it.
+     */
+    public static void scanBlockSums(double[] blockSums, int op) {
+        double acc = doubleIdentity(op);
+        for (int t = 0; t < blockSums.length; t += LANES) {
+            double total = blockSums[t];
+            for (int l = 1; l < LANES; l++) {
+                total = apply(op, total, blockSums[t + l]);
+            }
+            for (int l = 0; l < LANES; l++) {
+                blockSums[t + l] = acc;
+            }
+            acc = apply(op, acc, total);
+        }
+    }
+
+    /**
+     * Third pass of an inclusive scan, one lane of a tile per block.
+     * {@code output} must not be {@code input}.
+     */
+    public static void scanBlocksInclusive(double[] input, double[] output, double[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            scanBlockInclusive(input, output, blockSums[b], b, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an exclusive scan, one lane of a tile per block.
+     * {@code output} must not be {@code input}.
+     */
+    public static void scanBlocksExclusive(double[] input, double[] output, double[] blockSums, int op, int blockSize) {
+        for (@Parallel int b = 0; b < blockSums.length; b++) {
+            scanBlockExclusive(input, output, blockSums[b], b, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an in-place inclusive scan, one tile per thread.
+     */
+    public static void scanTilesInclusive(double[] input, double[] output, double[] blockSums, int op, int blockSize) {
+        for (@Parallel int t = 0; t < blockSums.length / LANES; t++) {
+            scanTileInclusive(input, output, blockSums[t * LANES], t, blockSize, op);
+        }
+    }
+
+    /**
+     * Third pass of an in-place exclusive scan, one tile per thread.
+     */
+    public static void scanTilesExclusive(double[] input, double[] output, double[] blockSums, int op, int blockSize) {
+        for (@Parallel int t = 0; t < blockSums.length / LANES; t++) {
+            scanTileExclusive(input, output, blockSums[t * LANES], t, blockSize, op);
+        }
+    }
+
+    /**
+     * Adds the tasks of a scan to a task-schedule. The tasks are named
+     * {@code <id>Reduce}, {@code <id>Sums} and {@code <id>Scan}.
+     *
+     * @param schedule
+     *            {@link TaskSchedule} to extend.
+     * @param id
+     *            Prefix of the task names.
+     * @param input
+     *            Input array.
+     * @param output
+     *            Output array, which can be the input array.
+     * @param blockSums
+     *            Temporary array of {@code numBlocks(input.length)} elements.
+     * @param operator
+     *            {@link ScanOperator}
+     * @param inclusive
+     *            True for an inclusive scan, false for an exclusive scan.
+     * @return {@link TaskSchedule}
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, double[] input, double[] output, double[] blockSums, ScanOperator operator, boolean inclusive) {
+        final int op = code(operator);
+        final int blockSize = blockSize(input.length);
+        schedule.task(id + "Reduce", Scan::reduceBlocks, input, blockSums, op, blockSize);
+        schedule.task(id + "Sums", Scan::scanBlockSums, blockSums, op);
+        // The blocks of a tile read each other's elements, so an in-place scan
+        // runs each tile on a single thread
+        if (input == output && inclusive) {
+            schedule.task(id + "Scan", Scan::scanTilesInclusive, input, output, blockSums, op, blockSize);
+        } else if (input == output) {
+            schedule.task(id + "Scan", Scan::scanTilesExclusive, input, output, blockSums, op, blockSize);
+        } else if (inclusive) {
+            schedule.task(id + "Scan", Scan::scanBlocksInclusive, input, output, blockSums, op, blockSize);
+        } else {
+            schedule.task(id + "Scan", Scan::scanBlocksExclusive, input, output, blockSums, op, blockSize);
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that scans {@code input} into {@code output}
+     * every time it is executed.
+     */
+    public static TaskSchedule createSchedule(String name, double[] input, double[] output, ScanOperator operator, boolean inclusive) {
+        final TaskSchedule schedule = new TaskSchedule(name).streamIn(input);
+        return addTasks(schedule, "scan", input, output, new double[numBlocks(input.length)], operator, inclusive).streamOut(output);
+    }
+
+    /**
+     * Inclusive scan on the default device: {@code output[i] = input[0] op ...
+     * op input[i]}.
+     */
+    public static void inclusive(double[] input, double[] output, ScanOperator operator) {
+        if (input.length > 0) {
+            createSchedule("scan", input, output, operator, true).execute();
+        }
+    }
+
+    /**
+     * Exclusive scan on the default device: {@code output[0]} is the identity
+     * of the operator and {@code output[i] = input[0] op ... op input[i - 1]}.
+     */
+    public static void exclusive(double[] input, double[] output, ScanOperator operator) {
+        if (input.length > 0) {
+            createSchedule("scan", input, output, operator, false).execute();
+        }
+    }
+
+    /**
+     * Inclusive scan on the host, with the same results as
+     * {@link #inclusive(double[], double[], ScanOperator)}.
+     */
+    public static void inclusiveOnHost(double[] input, double[] output, ScanOperator operator) {
+        scanOnHost(input, output, operator, true);
+    }
+
+    /**
+     * Exclusive scan on the host, with the same results as
+     * {@link #exclusive(double[], double[], ScanOperator)}.
+     */
+    public static void exclusiveOnHost(double[] input, double[] output, ScanOperator operator) {
+        scanOnHost(input, output, operator, false);
+    }
+
+    private static void scanOnHost(double[] input, double[] output, ScanOperator operator, boolean inclusive) {
+        final int op = code(operator);
+        final int blockSize = blockSize(input.length);
+        final double[] blockSums = new double[numBlocks(input.length)];
+        IntStream.range(0, blockSums.length).parallel().forEach(b -> blockSums[b] = reduceBlock(input, b, blockSize, op));
+        scanBlockSums(blockSums, op);
+        if (inclusive) {
+            IntStream.range(0, blockSums.length / LANES).parallel().forEach(t -> scanTileInclusive(input, output, blockSums[t * LANES], t, blockSize, op));
+        } else {
+            IntStream.range(0, blockSums.length / LANES).parallel().forEach(t -> scanTileExclusive(input, output, blockSums[t * LANES], t, blockSize, op));
+        }
+    }
+}
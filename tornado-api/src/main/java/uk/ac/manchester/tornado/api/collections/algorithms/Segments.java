@@ -0,0 +1,385 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.algorithms;
+
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.collections.types.LargeVectorDouble;
+import uk.ac.manchester.tornado.api.collections.types.LargeVectorFloat;
+import uk.ac.manchester.tornado.api.collections.types.LargeVectorInt;
+import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task2;
+import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task3;
+
+/**
+ * Runs a kernel over the segments of a long-indexed vector
+ * ({@link LargeVectorFloat}, {@link LargeVectorDouble} or
+ * {@link LargeVectorInt}). Every segment is an ordinary Java array, so the
+ * kernel is compiled once and each segment gets its own task. The kernel
+ * receives the index of the first element of its segment and computes global
+ * indices as {@code offset + i}, a {@code long} expression:
+ *
+ * <pre>
+ * public static void ramp(float[] segment, long offset) {
+ *     for (&#64;Parallel int i = 0; i &lt; segment.length; i++) {
+ *         segment[i] = (offset + i) * 0.5f;
+ *     }
+ * }
+ * </pre>
+ *
+ * All the segments of a task-schedule stay on the device, so a single
+ * task-schedule can address a dataset as large as the device heap
+ * ({@code -Dtornado.heap.allocation}). Datasets that do not fit are processed
+ * in chunks of consecutive segments, each one with its own task-schedule (see
+ * the {@code firstSegment} and {@code numSegments} parameters).
+ */
+public final class Segments {
+
+    private Segments() {
+    }
+
+    private static void checkRange(int totalSegments, int firstSegment, int numSegments) {
+        if (firstSegment < 0 || numSegments < 0 || firstSegment + numSegments > totalSegments) {
+            throw new IllegalArgumentException("Segments [" + firstSegment + ", " + (firstSegment + numSegments) + ") out of [0, " + totalSegments + ")");
+        }
+    }
+
+    private static void checkShape(long length, int segmentLength, long otherLength, int otherSegmentLength) {
+        if (length != otherLength || segmentLength != otherSegmentLength) {
+            throw new IllegalArgumentException("Vectors with different lengths or segment sizes");
+        }
+    }
+
+    // ======================================================================
+    // float
+    // ======================================================================
+
+    /**
+     * Adds a task {@code id_<segment>} that applies {@code kernel} to each
+     * segment in {@code [firstSegment, firstSegment + numSegments)} of
+     * {@code vector}, passing the segment and its offset.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, Task2<float[], Long> kernel, LargeVectorFloat vector, int firstSegment, int numSegments) {
+        checkRange(vector.getNumSegments(), firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.task(id + "_" + s, kernel, vector.getSegment(s), vector.getSegmentOffset(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Adds a task {@code id_<segment>} that applies {@code kernel} to each
+     * segment in {@code [firstSegment, firstSegment + numSegments)} of
+     * {@code input} and the same segment of {@code output}, passing their
+     * offset.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, Task3<float[], float[], Long> kernel, LargeVectorFloat input, LargeVectorFloat output, int firstSegment,
+            int numSegments) {
+        checkShape(input.getLength(), input.getSegmentLength(), output.getLength(), output.getSegmentLength());
+        checkRange(input.getNumSegments(), firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.task(id + "_" + s, kernel, input.getSegment(s), output.getSegment(s), input.getSegmentOffset(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that copies the segments of {@code vector} to
+     * the device, applies {@code kernel} in place and copies them back.
+     */
+    public static TaskSchedule createSchedule(String id, Task2<float[], Long> kernel, LargeVectorFloat vector, int firstSegment, int numSegments) {
+        final TaskSchedule schedule = new TaskSchedule(id);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamIn(vector.getSegment(s));
+        }
+        addTasks(schedule, "t", kernel, vector, firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamOut(vector.getSegment(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that copies the segments of {@code input} to the
+     * device, applies {@code kernel} and copies back the segments of
+     * {@code output}.
+     */
+    public static TaskSchedule createSchedule(String id, Task3<float[], float[], Long> kernel, LargeVectorFloat input, LargeVectorFloat output, int firstSegment, int numSegments) {
+        final TaskSchedule schedule = new TaskSchedule(id);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamIn(input.getSegment(s));
+        }
+        addTasks(schedule, "t", kernel, input, output, firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamOut(output.getSegment(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Applies {@code kernel} in place to all the segments of {@code vector} on
+     * the default device.
+     */
+    public static void apply(Task2<float[], Long> kernel, LargeVectorFloat vector) {
+        createSchedule("segments", kernel, vector, 0, vector.getNumSegments()).execute();
+    }
+
+    /**
+     * Applies {@code kernel} to all the segments of {@code input} and
+     * {@code output} on the default device.
+     */
+    public static void apply(Task3<float[], float[], Long> kernel, LargeVectorFloat input, LargeVectorFloat output) {
+        createSchedule("segments", kernel, input, output, 0, input.getNumSegments()).execute();
+    }
+
+    /**
+     * Host version of {@link #apply(Task2, LargeVectorFloat)}: the segments are
+     * processed in parallel in the ForkJoin common pool.
+     */
+    public static void applyOnHost(Task2<float[], Long> kernel, LargeVectorFloat vector) {
+        IntStream.range(0, vector.getNumSegments()).parallel().forEach(s -> kernel.apply(vector.getSegment(s), vector.getSegmentOffset(s)));
+    }
+
+    /**
+     * Host version of {@link #apply(Task3, LargeVectorFloat, LargeVectorFloat)}.
+     */
+    public static void applyOnHost(Task3<float[], float[], Long> kernel, LargeVectorFloat input, LargeVectorFloat output) {
+        checkShape(input.getLength(), input.getSegmentLength(), output.getLength(), output.getSegmentLength());
+        IntStream.range(0, input.getNumSegments()).parallel().forEach(s -> kernel.apply(input.getSegment(s), output.getSegment(s), input.getSegmentOffset(s)));
+    }
+
+    // ======================================================================
+    // double
+    // ======================================================================
+
+    /**
+     * Adds a task {@code id_<segment>} that applies {@code kernel} to each
+     * segment in {@code [firstSegment, firstSegment + numSegments)} of
+     * {@code vector}, passing the segment and its offset.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, Task2<double[], Long> kernel, LargeVectorDouble vector, int firstSegment, int numSegments) {
+        checkRange(vector.getNumSegments(), firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.task(id + "_" + s, kernel, vector.getSegment(s), vector.getSegmentOffset(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Adds a task {@code id_<segment>} that applies {@code kernel} to each
+     * segment in {@code [firstSegment, firstSegment + numSegments)} of
+     * {@code input} and the same segment of {@code output}, passing their
+     * offset.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, Task3<double[], double[], Long> kernel, LargeVectorDouble input, LargeVectorDouble output, int firstSegment,
+            int numSegments) {
+        checkShape(input.getLength(), input.getSegmentLength(), output.getLength(), output.getSegmentLength());
+        checkRange(input.getNumSegments(), firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.task(id + "_" + s, kernel, input.getSegment(s), output.getSegment(s), input.getSegmentOffset(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that copies the segments of {@code vector} to
+     * the device, applies {@code kernel} in place and copies them back.
+     */
+    public static TaskSchedule createSchedule(String id, Task2<double[], Long> kernel, LargeVectorDouble vector, int firstSegment, int numSegments) {
+        final TaskSchedule schedule = new TaskSchedule(id);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamIn(vector.getSegment(s));
+        }
+        addTasks(schedule, "t", kernel, vector, firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamOut(vector.getSegment(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that copies the segments of {@code input} to the
+     * device, applies {@code kernel} and copies back the segments of
+     * {@code output}.
+     */
+    public static TaskSchedule createSchedule(String id, Task3<double[], double[], Long> kernel, LargeVectorDouble input, LargeVectorDouble output, int firstSegment, int numSegments) {
+        final TaskSchedule schedule = new TaskSchedule(id);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamIn(input.getSegment(s));
+        }
+        addTasks(schedule, "t", kernel, input, output, firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamOut(output.getSegment(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Applies {@code kernel} in place to all the segments of {@code vector} on
+     * the default device.
+     */
+    public static void apply(Task2<double[], Long> kernel, LargeVectorDouble vector) {
+        createSchedule("segments", kernel, vector, 0, vector.getNumSegments()).execute();
+    }
+
+    /**
+     * Applies {@code kernel} to all the segments of {@code input} and
+     * {@code output} on the default device.
+     */
+    public static void apply(Task3<double[], double[], Long> kernel, LargeVectorDouble input, LargeVectorDouble output) {
+        createSchedule("segments", kernel, input, output, 0, input.getNumSegments()).execute();
+    }
+
+    /**
+     * Host version of {@link #apply(Task2, LargeVectorDouble)}: the segments are
+     * processed in parallel in the ForkJoin common pool.
+     */
+    public static void applyOnHost(Task2<double[], Long> kernel, LargeVectorDouble vector) {
+        IntStream.range(0, vector.getNumSegments()).parallel().forEach(s -> kernel.apply(vector.getSegment(s), vector.getSegmentOffset(s)));
+    }
+
+    /**
+     * Host version of {@link #apply(Task3, LargeVectorDouble, LargeVectorDouble)}.
+     */
+    public static void applyOnHost(Task3<double[], double[], Long> kernel, LargeVectorDouble input, LargeVectorDouble output) {
+        checkShape(input.getLength(), input.getSegmentLength(), output.getLength(), output.getSegmentLength());
+        IntStream.range(0, input.getNumSegments()).parallel().forEach(s -> kernel.apply(input.getSegment(s), output.getSegment(s), input.getSegmentOffset(s)));
+    }
+
+    // ======================================================================
+    // int
+    // ======================================================================
+
+    /**
+     * Adds a task {@code id_<segment>} that applies {@code kernel} to each
+     * segment in {@code [firstSegment, firstSegment + numSegments)} of
+     * {@code vector}, passing the segment and its offset.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, Task2<int[], Long> kernel, LargeVectorInt vector, int firstSegment, int numSegments) {
+        checkRange(vector.getNumSegments(), firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.task(id + "_" + s, kernel, vector.getSegment(s), vector.getSegmentOffset(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Adds a task {@code id_<segment>} that applies {@code kernel} to each
+     * segment in {@code [firstSegment, firstSegment + numSegments)} of
+     * {@code input} and the same segment of {@code output}, passing their
+     * offset.
+     */
+    public static TaskSchedule addTasks(TaskSchedule schedule, String id, Task3<int[], int[], Long> kernel, LargeVectorInt input, LargeVectorInt output, int firstSegment,
+            int numSegments) {
+        checkShape(input.getLength(), input.getSegmentLength(), output.getLength(), output.getSegmentLength());
+        checkRange(input.getNumSegments(), firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.task(id + "_" + s, kernel, input.getSegment(s), output.getSegment(s), input.getSegmentOffset(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that copies the segments of {@code vector} to
+     * the device, applies {@code kernel} in place and copies them back.
+     */
+    public static TaskSchedule createSchedule(String id, Task2<int[], Long> kernel, LargeVectorInt vector, int firstSegment, int numSegments) {
+        final TaskSchedule schedule = new TaskSchedule(id);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamIn(vector.getSegment(s));
+        }
+        addTasks(schedule, "t", kernel, vector, firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamOut(vector.getSegment(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Creates a task-schedule that copies the segments of {@code input} to the
+     * device, applies {@code kernel} and copies back the segments of
+     * {@code output}.
+     */
+    public static TaskSchedule createSchedule(String id, Task3<int[], int[], Long> kernel, LargeVectorInt input, LargeVectorInt output, int firstSegment, int numSegments) {
+        final TaskSchedule schedule = new TaskSchedule(id);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamIn(input.getSegment(s));
+        }
+        addTasks(schedule, "t", kernel, input, output, firstSegment, numSegments);
+        for (int s = firstSegment; s < firstSegment + numSegments; s++) {
+            schedule.streamOut(output.getSegment(s));
+        }
+        return schedule;
+    }
+
+    /**
+     * Applies {@code kernel} in place to all the segments of {@code vector} on
+     * the default device.
+     */
+    public static void apply(Task2<int[], Long> kernel, LargeVectorInt vector) {
+        createSchedule("segments", kernel, vector, 0, vector.getNumSegments()).execute();
+    }
+
+    /**
+     * Applies {@code kernel} to all the segments of {@code input} and
+     * {@code output} on the default device.
+     */
+    public static void apply(Task3<int[], int[], Long> kernel, LargeVectorInt input, LargeVectorInt output) {
+        createSchedule("segments", kernel, input, output, 0, input.getNumSegments()).execute();
+    }
+
+    /**
+     * Host version of {@link #apply(Task2, LargeVectorInt)}: the segments are
+     * processed in parallel in the ForkJoin common pool.
+     */
+    public static void applyOnHost(Task2<int[], Long> kernel, LargeVectorInt vector) {
+        IntStream.range(0, vector.getNumSegments()).parallel().forEach(s -> kernel.apply(vector.getSegment(s), vector.getSegmentOffset(s)));
+    }
+
+    /**
+     * Host version of {@link #apply(Task3, LargeVectorInt, LargeVectorInt)}.
+     */
+    public static void applyOnHost(Task3<int[], int[], Long> kernel, LargeVectorInt input, LargeVectorInt output) {
+        checkShape(input.getLength(), input.getSegmentLength(), output.getLength(), output.getSegmentLength());
+        IntStream.range(0, input.getNumSegments()).parallel().forEach(s -> kernel.apply(input.getSegment(s), output.getSegment(s), input.getSegmentOffset(s)));
+    }
+}
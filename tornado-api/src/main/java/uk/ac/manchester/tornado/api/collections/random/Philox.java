@@ -0,0 +1,230 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.random;
+
+import java.util.stream.IntStream;
+
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.math.TornadoMath;
+
+/**
+ * Counter-based random number generator: Philox4x32-10 (Salmon et al.,
+ * "Parallel Random Numbers: As Easy as 1, 2, 3", SC'11). Every random value
+ * is a pure function of a 64-bit {@code seed} and a 64-bit {@code counter},
+ * without any state, so kernels generate their random numbers where they use
+ * them (e.g., with the index of the thread and of the sample as the counter)
+ * instead of reading them from an array copied from the host.
+ * <p>
+ * The seed is the key of the generator and the counter the first two words of
+ * its 128-bit input block. Each value uses the first 64 bits of the output
+ * block ({@link #bits(long, long)}). The bits and the uniform values are
+ * computed with integer operations and exact conversions, so they are
+ * identical on the device and in Java. The normal and exponential values use
+ * {@code log}, {@code sqrt} and {@code cos}, which may differ in the last
+ * bits between the device and Java.
+ * <p>
+ * The {@code fill...} kernels write {@code output[i]} with the value of
+ * counter {@code offset + i}, and their host versions
+ * ({@code fill...OnHost}) write the same values on the ForkJoin common pool.
+ */
+public final class Philox {
+
+    public static final int ROUNDS = 10;
+
+    private static final long M0 = 0xD2511F53L;
+    private static final long M1 = 0xCD9E8D57L;
+    private static final int W0 = 0x9E3779B9;
+    private static final int W1 = 0xBB67AE85;
+
+    private static final float FLOAT_UNIT = 0x1.0p-24f;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    private static final double INT_UNIT = 0x1.0p-32;
+
+    private Philox() {
+    }
+
+    /**
+     * Words 0 and 1 (low and high bits) of the Philox4x32-10 output block for
+     * the key {@code (seed, seed >>> 32)} and the counter
+     * {@code (counter, counter >>> 32, 0, 0)}.
+     */
+    public static long bits(long seed, long counter) {
+        int c0 = (int) counter;
+        int c1 = (int) (counter >>> 32);
+        int c2 = 0;
+        int c3 = 0;
+        int k0 = (int) seed;
+        int k1 = (int) (seed >>> 32);
+        for (int round = 0; round < ROUNDS; round++) {
+            final long p0 = M0 * (c0 & 0xFFFFFFFFL);
+            final long p1 = M1 * (c2 & 0xFFFFFFFFL);
+            c0 = ((int) (p1 >>> 32)) ^ c1 ^ k0;
+            c2 = ((int) (p0 >>> 32)) ^ c3 ^ k1;
+            c1 = (int) p1;
+            c3 = (int) p0;
+            k0 += W0;
+            k1 += W1;
+        }
+        return (c0 & 0xFFFFFFFFL) | ((long) c1 << 32);
+    }
+
+    /**
+     * Uniform {@code int} in {@code [0, bound)}, for a positive
+     * {@code bound}, from the high 32 bits (multiply-shift, without
+     * rejection).
+     */
+    public static int uniformInt(long seed, long counter, int bound) {
+        return (int) (((bits(seed, counter) >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Uniform {@code float} in {@code [0, 1)} with 24 random bits.
+     */
+    public static float uniformFloat(long seed, long counter) {
+        return (bits(seed, counter) >>> 40) * FLOAT_UNIT;
+    }
+
+    /**
+     * Uniform {@code double} in {@code [0, 1)} with 53 random bits.
+     */
+    public static double uniformDouble(long seed, long counter) {
+        return (bits(seed, counter) >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Standard normal {@code float} (Box-Muller transform of two 24-bit
+     * uniform values).
+     */
+    public static float normalFloat(long seed, long counter) {
+        final long bits = bits(seed, counter);
+        final float u1 = ((bits >>> 40) + 1) * FLOAT_UNIT;
+        final float u2 = ((bits >>> 8) & 0xFFFFFFL) * FLOAT_UNIT;
+        return TornadoMath.sqrt(-2.0f * TornadoMath.log(u1)) * TornadoMath.floatCos(2.0f * TornadoMath.floatPI() * u2);
+    }
+
+    /**
+     * Standard normal {@code double} (Box-Muller transform of two 32-bit
+     * uniform values).
+     */
+    public static double normalDouble(long seed, long counter) {
+        final long bits = bits(seed, counter);
+        final double u1 = ((bits >>> 32) + 1) * INT_UNIT;
+        final double u2 = (bits & 0xFFFFFFFFL) * INT_UNIT;
+        return TornadoMath.sqrt(-2.0 * TornadoMath.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+
+    /**
+     * Exponential {@code float} of rate {@code lambda}.
+     */
+    public static float exponentialFloat(long seed, long counter, float lambda) {
+        final float u = ((bits(seed, counter) >>> 40) + 1) * FLOAT_UNIT;
+        return -TornadoMath.log(u) / lambda;
+    }
+
+    /**
+     * Exponential {@code double} of rate {@code lambda}.
+     */
+    public static double exponentialDouble(long seed, long counter, double lambda) {
+        final double u = ((bits(seed, counter) >>> 11) + 1) * DOUBLE_UNIT;
+        return -TornadoMath.log(u) / lambda;
+    }
+
+    public static void fillUniform(float[] output, long seed, long offset) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = uniformFloat(seed, offset + i);
+        }
+    }
+
+    public static void fillUniform(double[] output, long seed, long offset) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = uniformDouble(seed, offset + i);
+        }
+    }
+
+    public static void fillNormal(float[] output, long seed, long offset) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = normalFloat(seed, offset + i);
+        }
+    }
+
+    public static void fillNormal(double[] output, long seed, long offset) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = normalDouble(seed, offset + i);
+        }
+    }
+
+    public static void fillExponential(float[] output, long seed, long offset, float lambda) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = exponentialFloat(seed, offset + i, lambda);
+        }
+    }
+
+    public static void fillExponential(double[] output, long seed, long offset, double lambda) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = exponentialDouble(seed, offset + i, lambda);
+        }
+    }
+
+    public static void fillUniformOnHost(float[] output, long seed, long offset) {
+        IntStream.range(0, output.length).parallel().forEach(i -> output[i] = uniformFloat(seed, offset + i));
+    }
+
+    public static void fillUniformOnHost(double[] output, long seed, long offset) {
+        IntStream.range(0, output.length).parallel().forEach(i -> output[i] = uniformDouble(seed, offset + i));
+    }
+
+    public static void fillNormalOnHost(float[] output, long seed, long offset) {
+        IntStream.range(0, output.length).parallel().forEach(i -> output[i] = normalFloat(seed, offset + i));
+    }
+
+    public static void fillNormalOnHost(double[] output, long seed, long offset) {
+        IntStream.range(0, output.length).parallel().forEach(i -> output[i] = normalDouble(seed, offset + i));
+    }
+
+    public static void fillExponentialOnHost(float[] output, long seed, long offset, float lambda) {
+        IntStream.range(0, output.length).parallel().forEach(i -> output[i] = exponentialFloat(seed, offset + i, lambda));
+    }
+
+    public static void fillExponentialOnHost(double[] output, long seed, long offset, double lambda) {
+        IntStream.range(0, output.length).parallel().forEach(i -> output[i] = exponentialDouble(seed, offset + i, lambda));
+    }
+}
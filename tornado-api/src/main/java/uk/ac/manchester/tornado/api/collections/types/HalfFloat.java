@@ -0,0 +1,194 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.types;
+
+/**
+ * IEEE 754 half-precision (16-bit) floating point number. Values are stored as
+ * their 16 bits in a {@code short} and computed in single precision, which
+ * halves the memory used and transferred for data that does not need more
+ * precision.
+ * <p>
+ * The conversions {@link #halfToFloat(short)} and {@link #floatToHalf(float)}
+ * are compiled to the OpenCL built-ins {@code vload_half} and
+ * {@code vstore_half}, which do not need the {@code cl_khr_fp16} extension.
+ * The Java implementation gives the same bits (rounding to the nearest even)
+ * when the code runs on the JVM.
+ */
+public final class HalfFloat {
+
+    public static final Class<HalfFloat> TYPE = HalfFloat.class;
+
+    private final short halfFloatValue;
+
+    public HalfFloat(float value) {
+        this.halfFloatValue = floatToHalf(value);
+    }
+
+    public HalfFloat(short halfFloatValue) {
+        this.halfFloatValue = halfFloatValue;
+    }
+
+    /**
+     * @return the 16 bits of this number.
+     */
+    public short getHalfFloatValue() {
+        return halfFloatValue;
+    }
+
+    /**
+     * @return this number in single precision.
+     */
+    public float getFloat32() {
+        return halfToFloat(halfFloatValue);
+    }
+
+    public static HalfFloat add(HalfFloat a, HalfFloat b) {
+        return new HalfFloat(a.getFloat32() + b.getFloat32());
+    }
+
+    public static HalfFloat sub(HalfFloat a, HalfFloat b) {
+        return new HalfFloat(a.getFloat32() - b.getFloat32());
+    }
+
+    public static HalfFloat mult(HalfFloat a, HalfFloat b) {
+        return new HalfFloat(a.getFloat32() * b.getFloat32());
+    }
+
+    public static HalfFloat div(HalfFloat a, HalfFloat b) {
+        return new HalfFloat(a.getFloat32() / b.getFloat32());
+    }
+
+    /**
+     * Converts the 16 bits of a half-precision number to single precision. The
+     * conversion is exact.
+     *
+     * @param halfFloatValue
+     *            16 bits of a half-precision number
+     * @return the number in single precision
+     */
+    public static float halfToFloat(short halfFloatValue) {
+        final int bits = halfFloatValue & 0xFFFF;
+        final int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+
+        if (exponent == 0x1F) {
+            // Infinity or NaN
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        } else if (exponent == 0) {
+            if (mantissa == 0) {
+                return Float.intBitsToFloat(sign);
+            }
+            // Subnormal half, normal in single precision
+            exponent = 1;
+            while ((mantissa & 0x400) == 0) {
+                mantissa <<= 1;
+                exponent--;
+            }
+            mantissa &= 0x3FF;
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+
+    /**
+     * Converts a single precision number to the 16 bits of the nearest
+     * half-precision number, rounding ties to even. Numbers too big for half
+     * precision become infinity.
+     *
+     * @param value
+     *            single precision number
+     * @return 16 bits of the half-precision number
+     */
+    public static short floatToHalf(float value) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int sign = (bits >>> 16) & 0x8000;
+        final int exponent = (bits >>> 23) & 0xFF;
+        final int mantissa = bits & 0x7FFFFF;
+
+        if (exponent == 0xFF) {
+            // Infinity or NaN, NaNs are kept quiet
+            return (short) (sign | 0x7C00 | ((mantissa != 0) ? 0x200 | (mantissa >>> 13) : 0));
+        }
+
+        final int halfExponent = exponent - 112;
+        if (halfExponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        } else if (halfExponent > 0) {
+            int result = (halfExponent << 10) | (mantissa >>> 13);
+            final int remainder = mantissa & 0x1FFF;
+            if (remainder > 0x1000 || (remainder == 0x1000 && (result & 1) != 0)) {
+                // A carry into the exponent gives the next power of two or infinity
+                result++;
+            }
+            return (short) (sign | result);
+        }
+
+        // Subnormal half, in units of 2^-24
+        final int shift = 126 - exponent;
+        if (shift > 24) {
+            return (short) sign;
+        }
+        final int significand = mantissa | 0x800000;
+        int result = significand >>> shift;
+        final int remainder = significand & ((1 << shift) - 1);
+        final int halfway = 1 << (shift - 1);
+        if (remainder > halfway || (remainder == halfway && (result & 1) != 0)) {
+            result++;
+        }
+        return (short) (sign | result);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof HalfFloat && ((HalfFloat) obj).halfFloatValue == halfFloatValue;
+    }
+
+    @Override
+    public int hashCode() {
+        return halfFloatValue;
+    }
+
+    @Override
+    public String toString() {
+        return Float.toString(getFloat32());
+    }
+}
@@ -43,11 +43,14 @@ package uk.ac.manchester.tornado.api.collections.types;
 
 import java.nio.FloatBuffer;
 
+import uk.ac.manchester.tornado.api.type.annotations.Interleaved;
+
 public class ImageFloat3 implements PrimitiveStorage<FloatBuffer> {
 
     /**
      * backing array
      */
+    @Interleaved(3)
     final protected float[] storage;
 
     /**
@@ -43,11 +43,14 @@ package uk.ac.manchester.tornado.api.collections.types;
 
 import java.nio.FloatBuffer;
 
+import uk.ac.manchester.tornado.api.type.annotations.Interleaved;
+
 public class ImageFloat8 implements PrimitiveStorage<FloatBuffer>, Container<Float8> {
 
     /**
      * backing array
      */
+    @Interleaved(8)
     final protected float[] storage;
 
     /**
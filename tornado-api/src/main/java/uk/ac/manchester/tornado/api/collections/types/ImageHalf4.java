@@ -0,0 +1,191 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.types;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Image of pixels with four half-precision channels. Channels are stored in 16
+ * bits (see {@link HalfFloat}), and pixels are read and written as
+ * {@link Float4}, so that kernels compute in single precision.
+ */
+public class ImageHalf4 implements PrimitiveStorage<ShortBuffer> {
+
+    /**
+     * backing array
+     */
+    final protected short[] storage;
+
+    /**
+     * number of elements in the storage
+     */
+    final private int numElements;
+    final private static int elementSize = 4;
+
+    /**
+     * Number of rows
+     */
+    final protected int Y;
+
+    /**
+     * Number of columns
+     */
+    final protected int X;
+
+    /**
+     * Storage format for matrix
+     *
+     * @param width
+     *            number of rows
+     * @param height
+     *            number of columns
+     * @param array
+     *            array reference which contains the 16 bits of each channel
+     */
+    public ImageHalf4(int width, int height, short[] array) {
+        storage = array;
+        X = width;
+        Y = height;
+        numElements = X * Y * elementSize;
+    }
+
+    /**
+     * Storage format for matrix
+     *
+     * @param width
+     *            number of rows
+     * @param height
+     *            number of column
+     */
+    public ImageHalf4(int width, int height) {
+        this(width, height, new short[width * height * elementSize]);
+    }
+
+    public short[] getArray() {
+        return storage;
+    }
+
+    private int toIndex(int x, int y) {
+        return elementSize * (x + (y * X));
+    }
+
+    public Float4 get(int x) {
+        return get(x, 0);
+    }
+
+    public void set(int x, Float4 value) {
+        set(x, 0, value);
+    }
+
+    public Float4 get(int x, int y) {
+        final int offset = toIndex(x, y);
+        return new Float4(HalfFloat.halfToFloat(storage[offset]), HalfFloat.halfToFloat(storage[offset + 1]), HalfFloat.halfToFloat(storage[offset + 2]),
+                HalfFloat.halfToFloat(storage[offset + 3]));
+    }
+
+    public void set(int x, int y, Float4 value) {
+        final int offset = toIndex(x, y);
+        storage[offset] = HalfFloat.floatToHalf(value.getX());
+        storage[offset + 1] = HalfFloat.floatToHalf(value.getY());
+        storage[offset + 2] = HalfFloat.floatToHalf(value.getZ());
+        storage[offset + 3] = HalfFloat.floatToHalf(value.getW());
+    }
+
+    public int X() {
+        return X;
+    }
+
+    public int Y() {
+        return Y;
+    }
+
+    public void fill(float value) {
+        Arrays.fill(storage, HalfFloat.floatToHalf(value));
+    }
+
+    public ImageHalf4 duplicate() {
+        ImageHalf4 matrix = new ImageHalf4(X, Y);
+        matrix.set(this);
+        return matrix;
+    }
+
+    public void set(ImageHalf4 m) {
+        System.arraycopy(m.storage, 0, storage, 0, storage.length);
+    }
+
+    public String toString(String fmt) {
+        String str = "";
+
+        for (int i = 0; i < Y; i++) {
+            for (int j = 0; j < X; j++) {
+                str += get(j, i).toString(fmt) + "\n";
+            }
+        }
+
+        return str;
+    }
+
+    @Override
+    public String toString() {
+        String result = String.format("ImageHalf4 <%d x %d>", X, Y);
+        if (X <= 8 && Y <= 8) {
+            result += "\n" + toString(FloatOps.fmt3);
+        }
+        return result;
+    }
+
+    @Override
+    public void loadFromBuffer(ShortBuffer buffer) {
+        asBuffer().put(buffer);
+    }
+
+    @Override
+    public ShortBuffer asBuffer() {
+        return ShortBuffer.wrap(storage);
+    }
+
+    @Override
+    public int size() {
+        return numElements;
+    }
+}
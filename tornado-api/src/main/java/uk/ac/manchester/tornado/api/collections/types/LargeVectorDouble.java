@@ -0,0 +1,182 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.types;
+
+import java.util.Arrays;
+
+/**
+ * Vector of {@code double} values indexed with {@code long}, so that it can hold
+ * more than {@code Integer.MAX_VALUE} elements. The values are stored in
+ * segments of {@code 2^segmentBits} elements, each one a Java array that can
+ * be passed to a task: a kernel processes one segment and receives the index
+ * of its first element (see {@link #getSegmentOffset(int)}) to compute global
+ * indices with 64-bit arithmetic.
+ */
+public class LargeVectorDouble {
+
+    /**
+     * 2^26 elements per segment by default, so that a single segment fits the
+     * maximum size of an OpenCL buffer on most devices.
+     */
+    public static final int DEFAULT_SEGMENT_BITS = 26;
+
+    private final long numElements;
+    private final int segmentBits;
+    private final double[][] segments;
+
+    /**
+     * Creates an empty vector with
+     * 
+     * @param numElements
+     *            Number of elements
+     */
+    public LargeVectorDouble(long numElements) {
+        this(numElements, DEFAULT_SEGMENT_BITS);
+    }
+
+    /**
+     * Creates an empty vector with
+     * 
+     * @param numElements
+     *            Number of elements
+     * @param segmentBits
+     *            log2 of the number of elements of each segment, between 1
+     *            and 30
+     */
+    public LargeVectorDouble(long numElements, int segmentBits) {
+        if (numElements < 0 || segmentBits < 1 || segmentBits > 30) {
+            throw new IllegalArgumentException("Invalid size " + numElements + " or segment bits " + segmentBits);
+        }
+        this.numElements = numElements;
+        this.segmentBits = segmentBits;
+        final long segmentLength = 1L << segmentBits;
+        final int numSegments = (int) ((numElements + segmentLength - 1) >>> segmentBits);
+        this.segments = new double[numSegments][];
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new double[(int) Math.min(segmentLength, numElements - ((long) i << segmentBits))];
+        }
+    }
+
+    public long getLength() {
+        return numElements;
+    }
+
+    public int getNumSegments() {
+        return segments.length;
+    }
+
+    /**
+     * Number of elements of every segment but the last one, which may be
+     * shorter.
+     */
+    public int getSegmentLength() {
+        return 1 << segmentBits;
+    }
+
+    public double[] getSegment(int segment) {
+        return segments[segment];
+    }
+
+    /**
+     * Returns the index of the first element of a segment in this vector
+     * 
+     * @param segment
+     *            Segment
+     * @return index
+     */
+    public long getSegmentOffset(int segment) {
+        return (long) segment << segmentBits;
+    }
+
+    /**
+     * Returns the double at the given index of this vector
+     * 
+     * @param index
+     *            Position
+     * @return value
+     */
+    public double get(long index) {
+        return segments[(int) (index >>> segmentBits)][(int) (index & ((1L << segmentBits) - 1))];
+    }
+
+    /**
+     * Sets the double at the given index of this vector
+     * 
+     * @param index
+     *            Position
+     * @param value
+     *            Value to be stored
+     */
+    public void set(long index, double value) {
+        segments[(int) (index >>> segmentBits)][(int) (index & ((1L << segmentBits) - 1))] = value;
+    }
+
+    /**
+     * Sets all elements to value
+     * 
+     * @param value
+     *            Fill input array with value
+     */
+    public void fill(double value) {
+        for (double[] segment : segments) {
+            Arrays.fill(segment, value);
+        }
+    }
+
+    /**
+     * Duplicates this vector
+     * 
+     * @return a new vector with the same segment size
+     */
+    public LargeVectorDouble duplicate() {
+        final LargeVectorDouble vector = new LargeVectorDouble(numElements, segmentBits);
+        for (int i = 0; i < segments.length; i++) {
+            System.arraycopy(segments[i], 0, vector.segments[i], 0, segments[i].length);
+        }
+        return vector;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LargeVectorDouble <%d elements, %d segments>", numElements, segments.length);
+    }
+}
@@ -45,11 +45,14 @@ import static uk.ac.manchester.tornado.api.collections.types.FloatOps.fmt3;
 
 import java.nio.DoubleBuffer;
 
+import uk.ac.manchester.tornado.api.type.annotations.Interleaved;
+
 public class VectorDouble2 implements PrimitiveStorage<DoubleBuffer> {
 
     /**
      * backing array
      */
+    @Interleaved(2)
     final protected double[] storage;
 
     /**
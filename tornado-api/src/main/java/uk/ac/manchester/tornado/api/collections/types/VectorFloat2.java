@@ -46,11 +46,14 @@ import static uk.ac.manchester.tornado.api.collections.types.FloatOps.fmt3;
 
 import java.nio.FloatBuffer;
 
+import uk.ac.manchester.tornado.api.type.annotations.Interleaved;
+
 public class VectorFloat2 implements PrimitiveStorage<FloatBuffer> {
 
     /**
      * backing array
      */
+    @Interleaved(2)
     final protected float[] storage;
 
     /**
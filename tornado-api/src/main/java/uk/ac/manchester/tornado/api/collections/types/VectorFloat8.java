@@ -50,11 +50,14 @@ import static uk.ac.manchester.tornado.api.collections.types.FloatOps.fmt4;
 
 import java.nio.FloatBuffer;
 
+import uk.ac.manchester.tornado.api.type.annotations.Interleaved;
+
 public class VectorFloat8 implements PrimitiveStorage<FloatBuffer> {
 
     /**
      * backing array
      */
+    @Interleaved(8)
     final protected float[] storage;
 
     /**
@@ -45,11 +45,14 @@ import static uk.ac.manchester.tornado.api.collections.types.Int3.loadFromArray;
 
 import java.nio.DoubleBuffer;
 
+import uk.ac.manchester.tornado.api.type.annotations.Interleaved;
+
 public class VectorInt3 implements PrimitiveStorage<DoubleBuffer> {
 
     /**
      * backing array
      */
+    @Interleaved(3)
     final protected int[] storage;
 
     /**
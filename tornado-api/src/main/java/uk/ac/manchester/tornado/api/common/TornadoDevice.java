@@ -145,6 +145,26 @@ public interface TornadoDevice {
      */
     int streamOutBlocking(Object object, long hostOffset, TornadoDeviceObjectState objectState, int[] events);
 
+    /**
+     * It copies a contiguous range of a device array to the host. Copies are
+     * blocking between the device and the host.
+     *
+     * @param object
+     *            array to be copied.
+     * @param offset
+     *            offset in bytes of the first element to copy, both on the
+     *            device buffer and on the host array
+     * @param bytes
+     *            number of bytes to copy
+     * @param objectState
+     *            state of the object in the target device
+     *            {@link TornadoDeviceObjectState}
+     * @param events
+     *            of pending events
+     * @return and event ID
+     */
+    int streamOutRangeBlocking(Object object, long offset, long bytes, TornadoDeviceObjectState objectState, int[] events);
+
     /**
      * It resolves an pending event.
      *
@@ -0,0 +1,96 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.enums;
+
+/**
+ * Floating-point precision policies that can be set per task. Each policy
+ * trades accuracy for speed: it selects whether multiply-add pairs are fused
+ * into {@code fma}, which options are passed to the OpenCL compiler, and
+ * whether math functions are mapped to the {@code native_*} built-ins.
+ * Policies are ordered from the most to the least accurate.
+ */
+public enum PrecisionPolicy {
+
+    /**
+     * No contraction of multiply-add pairs and no relaxed compiler options. The
+     * results follow the accuracy of the OpenCL built-in functions.
+     */
+    STRICT,
+
+    /**
+     * Multiply-add pairs are fused into {@code fma}, which rounds once instead
+     * of twice. This is the default unless {@code -Dtornado.enable.fma=False}.
+     */
+    FMA,
+
+    /**
+     * As {@link #FMA}, and the OpenCL compiler may use {@code mad} and ignore
+     * the sign of zero ({@code -cl-mad-enable -cl-no-signed-zeros}).
+     */
+    RELAXED,
+
+    /**
+     * As {@link #FMA}, and the OpenCL program is built with
+     * {@code -cl-fast-relaxed-math}: the compiler assumes finite values and may
+     * reassociate floating-point operations.
+     */
+    FAST_MATH,
+
+    /**
+     * As {@link #FAST_MATH}, and single-precision {@code sqrt}, {@code exp},
+     * {@code log}, {@code sin} and {@code cos} are mapped to their
+     * {@code native_*} versions, whose accuracy is defined by the device.
+     */
+    NATIVE;
+
+    /**
+     * Parses the name of a policy, ignoring case and accepting dashes, e.g.,
+     * {@code fast-math}.
+     *
+     * @param name
+     *            Name of the policy.
+     * @return {@link PrecisionPolicy}
+     */
+    public static PrecisionPolicy fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -60,6 +60,25 @@ public interface ObjectBuffer {
 
     int read(Object reference, long hostOffset, int[] events, boolean useDeps);
 
+    /**
+     * Reads a contiguous range of an array from the device. The range starts
+     * at the same offset on the device buffer and on the host array.
+     *
+     * @param reference
+     *            array in which the data are copied
+     * @param offset
+     *            offset, in bytes, of the first element to read
+     * @param bytes
+     *            number of bytes to read
+     * @param events
+     *            list of pending events
+     * @param useDeps
+     *            flag to indicate dependencies should be carried for the next
+     *            operation
+     * @return an event ID
+     */
+    int readRange(Object reference, long offset, long bytes, int[] events, boolean useDeps);
+
     void write(Object reference);
 
     int enqueueRead(Object reference, long hostOffset, int[] events, boolean useDeps);
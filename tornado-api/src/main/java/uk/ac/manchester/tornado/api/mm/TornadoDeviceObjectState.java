@@ -41,6 +41,8 @@
  */
 package uk.ac.manchester.tornado.api.mm;
 
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
+
 public interface TornadoDeviceObjectState {
 
     void setBuffer(ObjectBuffer value);
@@ -66,4 +68,8 @@ public interface TornadoDeviceObjectState {
     long getAddress();
 
     long getOffset();
+
+    TransferCodec getTransferCodec();
+
+    void setTransferCodec(TransferCodec codec);
 }
@@ -1,9 +1,11 @@
 open module tornado.unittests {
     requires transitive junit;
     requires transitive tornado.api;
+    requires tornado.matrices;
     requires lucene.core;
 
     exports uk.ac.manchester.tornado.unittests;
+    exports uk.ac.manchester.tornado.unittests.algorithms;
     exports uk.ac.manchester.tornado.unittests.api;
     exports uk.ac.manchester.tornado.unittests.arrays;
     exports uk.ac.manchester.tornado.unittests.atomics;
@@ -24,10 +26,12 @@ open module tornado.unittests {
     exports uk.ac.manchester.tornado.unittests.matrices;
     exports uk.ac.manchester.tornado.unittests.prebuilt;
     exports uk.ac.manchester.tornado.unittests.profiler;
+    exports uk.ac.manchester.tornado.unittests.random;
     exports uk.ac.manchester.tornado.unittests.reductions;
     exports uk.ac.manchester.tornado.unittests.slam.graphics;
     exports uk.ac.manchester.tornado.unittests.tasks;
     exports uk.ac.manchester.tornado.unittests.tools;
+    exports uk.ac.manchester.tornado.unittests.transfers;
     exports uk.ac.manchester.tornado.unittests.vectortypes;
     exports uk.ac.manchester.tornado.unittests.virtualization;
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.algorithms;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.algorithms.Compaction;
+import uk.ac.manchester.tornado.api.collections.algorithms.Scan;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Stream compaction on the device and on the host, compared against a
+ * sequential filter. Only the selected elements are copied back, so the tests
+ * also check that the rest of the output is left unchanged.
+ */
+public class TestCompaction extends TornadoTestBase {
+
+    private static final int UNTOUCHED = -1;
+
+    private static int[] randomInts(int size) {
+        Random random = new Random(7);
+        int[] values = new int[size];
+        IntStream.range(0, size).forEach(i -> values[i] = random.nextInt(1000));
+        return values;
+    }
+
+    private static int[] flagsOf(int[] values, int threshold) {
+        int[] flags = new int[values.length];
+        IntStream.range(0, values.length).forEach(i -> flags[i] = values[i] < threshold ? 1 : 0);
+        return flags;
+    }
+
+    private static int[] sequentialFilter(int[] values, int[] flags) {
+        return IntStream.range(0, values.length).filter(i -> flags[i] != 0).map(i -> values[i]).toArray();
+    }
+
+    public static void selectBelow(int[] input, int[] flags, int threshold) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            flags[i] = input[i] < threshold ? 1 : 0;
+        }
+    }
+
+    private static void testCompactInts(int size, int threshold) {
+        int[] input = randomInts(size);
+        int[] flags = flagsOf(input, threshold);
+        int[] output = new int[size];
+        int[] host = new int[size];
+        Arrays.fill(output, UNTOUCHED);
+        Arrays.fill(host, UNTOUCHED);
+
+        int count = Compaction.compact(input, flags, output);
+        int hostCount = Compaction.compactOnHost(input, flags, host);
+
+        int[] expected = sequentialFilter(input, flags);
+        assertEquals(expected.length, count);
+        assertEquals(expected.length, hostCount);
+        assertArrayEquals(expected, Arrays.copyOf(output, count));
+        assertArrayEquals(output, host);
+        for (int i = count; i < size; i++) {
+            assertEquals(UNTOUCHED, output[i]);
+        }
+    }
+
+    @Test
+    public void testCompactSingleBlock() {
+        testCompactInts(50, 500);
+    }
+
+    @Test
+    public void testCompactSelective() {
+        testCompactInts(100003, 10);
+    }
+
+    @Test
+    public void testCompactMaxBlocks() {
+        testCompactInts(Scan.MAX_BLOCKS * Scan.MIN_BLOCK_SIZE * 2 + 17, 500);
+    }
+
+    @Test
+    public void testCompactNone() {
+        testCompactInts(4096, 0);
+    }
+
+    @Test
+    public void testCompactAll() {
+        testCompactInts(4096, 1000);
+    }
+
+    @Test
+    public void testCompactDoubles() {
+        final int size = 8192;
+        double[] input = new double[size];
+        int[] flags = new int[size];
+        double[] output = new double[size];
+        IntStream.range(0, size).forEach(i -> {
+            input[i] = Math.sqrt(i);
+            flags[i] = (i % 3 == 0) ? 1 : 0;
+        });
+
+        int count = Compaction.compact(input, flags, output);
+
+        assertEquals((size + 2) / 3, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(Math.sqrt(i * 3), output[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testCompactIndices() {
+        final int size = 10000;
+        int[] flags = new int[size];
+        int[] output = new int[size];
+        int[] host = new int[size];
+        IntStream.range(0, size).forEach(i -> flags[i] = (i % 7 == 0) ? 1 : 0);
+
+        int count = Compaction.compactIndices(flags, output);
+        int hostCount = Compaction.compactIndicesOnHost(flags, host);
+
+        assertEquals((size + 6) / 7, count);
+        assertEquals(count, hostCount);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i * 7, output[i]);
+        }
+        assertArrayEquals(output, host);
+    }
+
+    /**
+     * The output is smaller than the number of selected elements: the
+     * elements that fit are written and the count reports the overflow.
+     */
+    @Test
+    public void testCompactBoundedOutput() {
+        final int size = 4096;
+        int[] input = randomInts(size);
+        int[] flags = flagsOf(input, 500);
+        int[] expected = sequentialFilter(input, flags);
+        int[] output = new int[expected.length / 2];
+
+        int count = Compaction.compact(input, flags, output);
+
+        assertEquals(expected.length, count);
+        assertArrayEquals(Arrays.copyOf(expected, output.length), output);
+    }
+
+    /**
+     * The flags are computed by a task of the same schedule and only the
+     * selected elements are copied back with a range synchronisation.
+     */
+    @Test
+    public void testCompactInSchedule() {
+        final int size = 65536;
+        final int threshold = 100;
+        int[] input = randomInts(size);
+        int[] flags = new int[size];
+        int[] output = new int[size];
+        int[] count = new int[1];
+        Arrays.fill(output, UNTOUCHED);
+
+        TaskSchedule schedule = new TaskSchedule("s0") //
+                .streamIn(input) //
+                .task("flags", TestCompaction::selectBelow, input, flags, threshold);
+        Compaction.addTasks(schedule, "compact", input, flags, new int[size], new int[Scan.numBlocks(size)], output, count) //
+                .streamOut(count) //
+                .execute();
+        schedule.syncObjectRange(output, 0, count[0]);
+
+        int[] expected = sequentialFilter(input, flagsOf(input, threshold));
+        assertEquals(expected.length, count[0]);
+        assertArrayEquals(expected, Arrays.copyOf(output, count[0]));
+        assertEquals(UNTOUCHED, output[count[0]]);
+    }
+}
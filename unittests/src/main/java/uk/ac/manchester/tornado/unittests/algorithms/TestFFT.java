@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.algorithms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.collections.algorithms.FFT;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat2;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Fast Fourier transforms on the device and on the host, compared against a
+ * direct DFT. The lengths cover radix-4 passes with an odd and an even number
+ * of passes, a radix-2 pass, and mixed radix-3 and radix-5 passes.
+ */
+public class TestFFT extends TornadoTestBase {
+
+    private static double[] randomComplex(int size) {
+        Random random = new Random(7);
+        double[] values = new double[2 * size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() - 0.5;
+        }
+        return values;
+    }
+
+    private static double[] dft(double[] input) {
+        final int n = input.length / 2;
+        double[] output = new double[2 * n];
+        for (int k = 0; k < n; k++) {
+            double sumReal = 0;
+            double sumImag = 0;
+            for (int t = 0; t < n; t++) {
+                double angle = (2 * Math.PI * ((long) t * k % n)) / n;
+                sumReal += input[2 * t] * Math.cos(angle) + input[2 * t + 1] * Math.sin(angle);
+                sumImag += -input[2 * t] * Math.sin(angle) + input[2 * t + 1] * Math.cos(angle);
+            }
+            output[2 * k] = sumReal;
+            output[2 * k + 1] = sumImag;
+        }
+        return output;
+    }
+
+    private static void testDoubles(int n) {
+        double[] input = randomComplex(n);
+        double[] expected = dft(input);
+        double[] data = input.clone();
+        double[] host = input.clone();
+
+        FFT.fft(data, false);
+        FFT.fftOnHost(host, false);
+
+        for (int i = 0; i < 2 * n; i++) {
+            assertEquals(expected[i], data[i], 1e-9);
+            assertEquals(expected[i], host[i], 1e-9);
+        }
+
+        FFT.fft(data, true);
+        for (int i = 0; i < 2 * n; i++) {
+            assertEquals(input[i], data[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void testRadix4() {
+        testDoubles(1024);
+    }
+
+    @Test
+    public void testRadix4OddPasses() {
+        testDoubles(4096);
+    }
+
+    @Test
+    public void testRadix2() {
+        testDoubles(2048);
+    }
+
+    @Test
+    public void testMixedRadix() {
+        testDoubles(3 * 5 * 5 * 8);
+    }
+
+    @Test
+    public void testFloats() {
+        final int n = 4096;
+        double[] input = randomComplex(n);
+        double[] expected = dft(input);
+        VectorFloat2 data = new VectorFloat2(n);
+        for (int i = 0; i < 2 * n; i++) {
+            data.getArray()[i] = (float) input[i];
+        }
+
+        FFT.fft(data, false);
+
+        for (int i = 0; i < 2 * n; i++) {
+            assertEquals(expected[i], data.getArray()[i], 1e-3);
+        }
+    }
+
+    @Test
+    public void testBatched() {
+        final int n = 240;
+        final int batchCount = 16;
+        double[] input = randomComplex(n * batchCount);
+        double[] data = input.clone();
+        double[] host = input.clone();
+
+        FFT.fftBatched(data, batchCount, false);
+        FFT.fftBatchedOnHost(host, batchCount, false);
+
+        for (int p = 0; p < batchCount; p++) {
+            double[] expected = dft(copyOf(input, p, n));
+            for (int i = 0; i < 2 * n; i++) {
+                assertEquals(expected[i], data[2 * n * p + i], 1e-9);
+                assertEquals(expected[i], host[2 * n * p + i], 1e-9);
+            }
+        }
+    }
+
+    private static double[] copyOf(double[] values, int p, int n) {
+        double[] copy = new double[2 * n];
+        System.arraycopy(values, 2 * n * p, copy, 0, 2 * n);
+        return copy;
+    }
+
+    @Test
+    public void test2D() {
+        final int rows = 48;
+        final int cols = 64;
+        double[] input = randomComplex(rows * cols);
+        double[] data = input.clone();
+        double[] host = input.clone();
+
+        FFT.fft2D(data, rows, cols, false);
+        FFT.fft2DOnHost(host, rows, cols, false);
+
+        // Transform of the rows, then of the columns
+        double[] expected = new double[input.length];
+        for (int row = 0; row < rows; row++) {
+            double[] transformed = dft(copyOf(input, row, cols));
+            System.arraycopy(transformed, 0, expected, 2 * cols * row, 2 * cols);
+        }
+        for (int col = 0; col < cols; col++) {
+            double[] column = new double[2 * rows];
+            for (int row = 0; row < rows; row++) {
+                column[2 * row] = expected[2 * (row * cols + col)];
+                column[2 * row + 1] = expected[2 * (row * cols + col) + 1];
+            }
+            double[] transformed = dft(column);
+            for (int row = 0; row < rows; row++) {
+                expected[2 * (row * cols + col)] = transformed[2 * row];
+                expected[2 * (row * cols + col) + 1] = transformed[2 * row + 1];
+            }
+        }
+
+        for (int i = 0; i < input.length; i++) {
+            assertEquals(expected[i], data[i], 1e-9);
+            assertEquals(expected[i], host[i], 1e-9);
+        }
+
+        FFT.fft2D(data, rows, cols, true);
+        for (int i = 0; i < input.length; i++) {
+            assertEquals(input[i], data[i], 1e-12);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedLength() {
+        FFT.fft(new double[2 * 14], false);
+    }
+}
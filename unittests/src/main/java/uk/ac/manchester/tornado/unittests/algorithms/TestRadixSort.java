@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.algorithms;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.collections.algorithms.RadixSort;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Radix sorts on the device and on the host, compared against
+ * {@link Arrays#sort}. The sizes cover a single block, multiple blocks with an
+ * incomplete last block, and the largest number of blocks.
+ */
+public class TestRadixSort extends TornadoTestBase {
+
+    private static int[] randomInts(int size) {
+        Random random = new Random(7);
+        int[] values = new int[size];
+        IntStream.range(0, size).forEach(i -> values[i] = random.nextInt());
+        return values;
+    }
+
+    private static void testSortInts(int size) {
+        int[] keys = randomInts(size);
+        int[] host = keys.clone();
+        int[] expected = keys.clone();
+        Arrays.sort(expected);
+
+        RadixSort.sort(keys);
+        RadixSort.sortOnHost(host);
+
+        assertArrayEquals(expected, keys);
+        assertArrayEquals(expected, host);
+    }
+
+    @Test
+    public void testSortSingleBlock() {
+        testSortInts(1000);
+    }
+
+    @Test
+    public void testSortIrregularSize() {
+        testSortInts(100003);
+    }
+
+    @Test
+    public void testSortMaxBlocks() {
+        testSortInts(RadixSort.MAX_BLOCKS * RadixSort.MIN_BLOCK_SIZE * 2 + 17);
+    }
+
+    @Test
+    public void testSortLongs() {
+        final int size = 65536;
+        Random random = new Random(7);
+        long[] keys = new long[size];
+        IntStream.range(0, size).forEach(i -> keys[i] = random.nextLong());
+        keys[0] = Long.MIN_VALUE;
+        keys[1] = Long.MAX_VALUE;
+        long[] host = keys.clone();
+        long[] expected = keys.clone();
+        Arrays.sort(expected);
+
+        RadixSort.sort(keys);
+        RadixSort.sortOnHost(host);
+
+        assertArrayEquals(expected, keys);
+        assertArrayEquals(expected, host);
+    }
+
+    @Test
+    public void testSortFloats() {
+        final int size = 65536;
+        Random random = new Random(7);
+        float[] keys = new float[size];
+        IntStream.range(0, size).forEach(i -> keys[i] = (random.nextFloat() - 0.5f) * 1e6f);
+        keys[0] = Float.NEGATIVE_INFINITY;
+        keys[1] = Float.POSITIVE_INFINITY;
+        keys[2] = -0.0f;
+        keys[3] = 0.0f;
+        keys[4] = -Float.MIN_VALUE;
+        keys[5] = Float.MAX_VALUE;
+        float[] host = keys.clone();
+        float[] expected = keys.clone();
+        Arrays.sort(expected);
+
+        RadixSort.sort(keys);
+        RadixSort.sortOnHost(host);
+
+        // Arrays.sort also orders -0.0f before 0.0f, compare the bits
+        for (int i = 0; i < size; i++) {
+            assertEquals(Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(keys[i]));
+            assertEquals(Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(host[i]));
+        }
+    }
+
+    /**
+     * Keys with many duplicates and their original indices as values: equal
+     * keys must keep the order of their indices.
+     */
+    @Test
+    public void testSortKeyValueStable() {
+        final int size = 100003;
+        Random random = new Random(7);
+        int[] keys = new int[size];
+        int[] values = new int[size];
+        IntStream.range(0, size).forEach(i -> {
+            keys[i] = random.nextInt(100) - 50;
+            values[i] = i;
+        });
+        int[] original = keys.clone();
+        int[] hostKeys = keys.clone();
+        int[] hostValues = values.clone();
+
+        RadixSort.sort(keys, values);
+        RadixSort.sortOnHost(hostKeys, hostValues);
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(original[values[i]], keys[i]);
+            if (i > 0) {
+                assertTrue(keys[i - 1] < keys[i] || (keys[i - 1] == keys[i] && values[i - 1] < values[i]));
+            }
+        }
+        assertArrayEquals(keys, hostKeys);
+        assertArrayEquals(values, hostValues);
+    }
+
+    @Test
+    public void testSortFloatKeyValue() {
+        final int size = 10000;
+        float[] keys = new float[size];
+        int[] values = new int[size];
+        IntStream.range(0, size).forEach(i -> {
+            keys[i] = (float) Math.sin(i);
+            values[i] = i;
+        });
+        float[] original = keys.clone();
+
+        RadixSort.sort(keys, values);
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(original[values[i]], keys[i], 0.0f);
+            if (i > 0) {
+                assertTrue(keys[i - 1] <= keys[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.algorithms;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.collections.algorithms.Scan;
+import uk.ac.manchester.tornado.api.collections.algorithms.ScanOperator;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Prefix scans on the device and on the host, compared against a sequential
+ * scan. The sizes cover a single block, multiple blocks with an incomplete
+ * last block, and the largest number of blocks.
+ */
+public class TestScan extends TornadoTestBase {
+
+    private static int[] randomInts(int size) {
+        Random random = new Random(7);
+        int[] values = new int[size];
+        IntStream.range(0, size).forEach(i -> values[i] = random.nextInt(100) - 50);
+        return values;
+    }
+
+    private static float[] randomFloats(int size) {
+        Random random = new Random(7);
+        float[] values = new float[size];
+        IntStream.range(0, size).forEach(i -> values[i] = random.nextFloat());
+        return values;
+    }
+
+    private static void sequentialInclusive(int[] values) {
+        for (int i = 1; i < values.length; i++) {
+            values[i] += values[i - 1];
+        }
+    }
+
+    private static void testInclusiveIntAdd(int size) {
+        int[] input = randomInts(size);
+        int[] output = new int[size];
+        int[] host = new int[size];
+
+        Scan.inclusive(input, output, ScanOperator.ADD);
+        Scan.inclusiveOnHost(input, host, ScanOperator.ADD);
+
+        int acc = 0;
+        for (int i = 0; i < size; i++) {
+            acc += input[i];
+            assertEquals(acc, output[i]);
+        }
+        assertArrayEquals(output, host);
+    }
+
+    @Test
+    public void testInclusiveSingleBlock() {
+        testInclusiveIntAdd(50);
+    }
+
+    @Test
+    public void testInclusiveIrregularSize() {
+        testInclusiveIntAdd(100003);
+    }
+
+    @Test
+    public void testInclusiveMaxBlocks() {
+        testInclusiveIntAdd(Scan.MAX_BLOCKS * Scan.MIN_BLOCK_SIZE * 2 + 17);
+    }
+
+    @Test
+    public void testExclusiveIntAdd() {
+        final int size = 65537;
+        int[] input = randomInts(size);
+        int[] output = new int[size];
+
+        Scan.exclusive(input, output, ScanOperator.ADD);
+
+        int acc = 0;
+        for (int i = 0; i < size; i++) {
+            assertEquals(acc, output[i]);
+            acc += input[i];
+        }
+    }
+
+    @Test
+    public void testInPlace() {
+        final int size = 10000;
+        int[] input = randomInts(size);
+        int[] expected = input.clone();
+        sequentialInclusive(expected);
+
+        Scan.inclusive(input, input, ScanOperator.ADD);
+        assertArrayEquals(expected, input);
+    }
+
+    @Test
+    public void testExclusiveLongMax() {
+        final int size = 20000;
+        long[] input = new long[size];
+        long[] output = new long[size];
+        Random random = new Random(11);
+        IntStream.range(0, size).forEach(i -> input[i] = random.nextLong());
+
+        Scan.exclusive(input, output, ScanOperator.MAX);
+
+        long acc = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            assertEquals(acc, output[i]);
+            acc = Math.max(acc, input[i]);
+        }
+    }
+
+    @Test
+    public void testExclusiveFloatMin() {
+        final int size = 20000;
+        float[] input = randomFloats(size);
+        float[] output = new float[size];
+
+        Scan.exclusive(input, output, ScanOperator.MIN);
+
+        float acc = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            assertEquals(acc, output[i], 0.0f);
+            acc = Math.min(acc, input[i]);
+        }
+    }
+
+    @Test
+    public void testFloatAddMatchesHost() {
+        final int size = 300000;
+        float[] input = randomFloats(size);
+        float[] output = new float[size];
+        float[] host = new float[size];
+
+        Scan.inclusive(input, output, ScanOperator.ADD);
+        Scan.inclusiveOnHost(input, host, ScanOperator.ADD);
+
+        // Same tiles on the device and on the host, so the sums are identical
+        assertArrayEquals(host, output, 0.0f);
+
+        double acc = 0;
+        for (int i = 0; i < size; i++) {
+            acc += input[i];
+            assertEquals(acc, output[i], acc * 1e-3);
+        }
+    }
+
+    @Test
+    public void testFloatAddInPlaceMatchesHost() {
+        final int size = 300000;
+        float[] input = randomFloats(size);
+        float[] output = new float[size];
+        float[] host = input.clone();
+
+        Scan.exclusive(input, output, ScanOperator.ADD);
+        Scan.exclusive(input, input, ScanOperator.ADD);
+        Scan.exclusiveOnHost(host, host, ScanOperator.ADD);
+
+        // The in-place scan runs each tile on a single thread with the same
+        // operations as the lanes of the out-of-place scan
+        assertArrayEquals(output, input, 0.0f);
+        assertArrayEquals(host, input, 0.0f);
+    }
+
+    @Test
+    public void testDoubleMul() {
+        final int size = 5000;
+        double[] input = new double[size];
+        double[] output = new double[size];
+        IntStream.range(0, size).forEach(i -> input[i] = (i % 2 == 0) ? 1.001 : 0.999);
+
+        Scan.inclusive(input, output, ScanOperator.MUL);
+
+        double acc = 1.0;
+        for (int i = 0; i < size; i++) {
+            acc *= input[i];
+            assertEquals(acc, output[i], 1e-9);
+        }
+    }
+}
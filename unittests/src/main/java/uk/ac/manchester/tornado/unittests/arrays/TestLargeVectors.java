@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.arrays;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.algorithms.Segments;
+import uk.ac.manchester.tornado.api.collections.types.LargeVectorDouble;
+import uk.ac.manchester.tornado.api.collections.types.LargeVectorFloat;
+import uk.ac.manchester.tornado.api.collections.types.LargeVectorInt;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Long-indexed vectors split into small segments, so that the tests cover
+ * several segments and a shorter last one without allocating more than 2^31
+ * elements.
+ */
+public class TestLargeVectors extends TornadoTestBase {
+
+    private static final int SEGMENT_BITS = 12;
+    private static final long SIZE = 10 * (1L << SEGMENT_BITS) + 123;
+
+    public static void ramp(float[] segment, long offset) {
+        for (@Parallel int i = 0; i < segment.length; i++) {
+            segment[i] = (offset + i) * 0.5f;
+        }
+    }
+
+    public static void globalIndex(int[] segment, long offset) {
+        for (@Parallel int i = 0; i < segment.length; i++) {
+            // 64-bit index arithmetic, folded back into 32 bits
+            final long index = (offset + i) * 3_000_000_000L;
+            segment[i] = (int) (index >>> 32);
+        }
+    }
+
+    public static void linear(double[] x, double[] y, long offset) {
+        for (@Parallel int i = 0; i < x.length; i++) {
+            y[i] = 2.0 * x[i] + 1.0;
+        }
+    }
+
+    @Test
+    public void testHostAccess() {
+        LargeVectorFloat vector = new LargeVectorFloat(SIZE, SEGMENT_BITS);
+        assertEquals(11, vector.getNumSegments());
+        assertEquals(123, vector.getSegment(10).length);
+
+        for (long i = 0; i < SIZE; i++) {
+            vector.set(i, i);
+        }
+        assertEquals(4096.0f, vector.getSegment(1)[0], 0.0f);
+        assertEquals(SIZE - 1, vector.get(SIZE - 1), 0.0f);
+        assertEquals(vector.get(5000), vector.duplicate().get(5000), 0.0f);
+    }
+
+    @Test
+    public void testInPlace() {
+        LargeVectorFloat vector = new LargeVectorFloat(SIZE, SEGMENT_BITS);
+
+        Segments.apply(TestLargeVectors::ramp, vector);
+
+        for (long i = 0; i < SIZE; i++) {
+            assertEquals(i * 0.5f, vector.get(i), 0.0f);
+        }
+    }
+
+    @Test
+    public void test64BitIndices() {
+        LargeVectorInt vector = new LargeVectorInt(SIZE, SEGMENT_BITS);
+        LargeVectorInt expected = new LargeVectorInt(SIZE, SEGMENT_BITS);
+
+        Segments.apply(TestLargeVectors::globalIndex, vector);
+        Segments.applyOnHost(TestLargeVectors::globalIndex, expected);
+
+        for (long i = 0; i < SIZE; i++) {
+            assertEquals(expected.get(i), vector.get(i));
+        }
+    }
+
+    @Test
+    public void testChunks() {
+        LargeVectorDouble x = new LargeVectorDouble(SIZE, SEGMENT_BITS);
+        LargeVectorDouble y = new LargeVectorDouble(SIZE, SEGMENT_BITS);
+        for (long i = 0; i < SIZE; i++) {
+            x.set(i, i);
+        }
+
+        // Three segments per task-schedule
+        for (int first = 0; first < x.getNumSegments(); first += 3) {
+            final int segments = Math.min(3, x.getNumSegments() - first);
+            TaskSchedule schedule = Segments.createSchedule("s" + first, TestLargeVectors::linear, x, y, first, segments);
+            schedule.execute();
+        }
+
+        for (long i = 0; i < SIZE; i++) {
+            assertEquals(2.0 * i + 1.0, y.get(i), 0.0);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.codegen;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.ForceInline;
+import uk.ac.manchester.tornado.api.annotations.NoInline;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.types.Float3;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat3;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Kernels that call helper methods which are inlined or compiled as separate
+ * OpenCL functions, as requested with {@link ForceInline} and
+ * {@link NoInline}, or as decided by the register budget. tornado-test.py runs
+ * this class with a budget of 4 registers, so that helpers without
+ * annotations go over it. The decisions are printed with
+ * {@code -Dtornado.inlining.print=True}.
+ */
+public class TestInlining extends TornadoTestBase {
+
+    @NoInline
+    public static float polynomial(float x) {
+        float result = 0.0f;
+        for (int i = 0; i < 8; i++) {
+            result = result * x + (i + 1);
+        }
+        return result;
+    }
+
+    @ForceInline
+    public static float clamp(float x, float min, float max) {
+        return Math.min(Math.max(x, min), max);
+    }
+
+    public static void outlined(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = polynomial(input[i]);
+        }
+    }
+
+    public static void inlined(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = clamp(input[i], 0.25f, 0.75f);
+        }
+    }
+
+    public static void mixed(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = clamp(polynomial(input[i]), 2.0f, 5.0f);
+        }
+    }
+
+    public static float horner(float x, float a, float b) {
+        float result = a;
+        for (int i = 0; i < 16; i++) {
+            result = result * x + b * (i % 3);
+        }
+        return result;
+    }
+
+    public static Float3 lerp(Float3 a, Float3 b, float t) {
+        return Float3.add(a, Float3.mult(Float3.sub(b, a), t));
+    }
+
+    public static void overBudget(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            float x = input[i];
+            output[i] = horner(x, 1.0f, 0.5f) - horner(x * 0.5f, 2.0f, 0.25f);
+        }
+    }
+
+    public static void interpolate(VectorFloat3 a, VectorFloat3 b, VectorFloat3 output) {
+        for (@Parallel int i = 0; i < output.getLength(); i++) {
+            output.set(i, lerp(a.get(i), b.get(i), 0.25f));
+        }
+    }
+
+    private static float[] createInput(int size) {
+        float[] input = new float[size];
+        IntStream.range(0, size).forEach(i -> input[i] = (i % 100) / 100.0f);
+        return input;
+    }
+
+    @Test
+    public void testNoInline() {
+        final int size = 1024;
+        float[] input = createInput(size);
+        float[] output = new float[size];
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestInlining::outlined, input, output)
+                .streamOut(output)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(polynomial(input[i]), output[i], 0.001f);
+        }
+    }
+
+    @Test
+    public void testForceInline() {
+        final int size = 1024;
+        float[] input = createInput(size);
+        float[] output = new float[size];
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestInlining::inlined, input, output)
+                .streamOut(output)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(clamp(input[i], 0.25f, 0.75f), output[i], 0.001f);
+        }
+    }
+
+    @Test
+    public void testInlineAndOutline() {
+        final int size = 1024;
+        float[] input = createInput(size);
+        float[] output = new float[size];
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestInlining::mixed, input, output)
+                .streamOut(output)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(clamp(polynomial(input[i]), 2.0f, 5.0f), output[i], 0.001f);
+        }
+    }
+
+    /**
+     * The helper has primitive parameters, so it is compiled as a separate
+     * function when it goes over the register budget.
+     */
+    @Test
+    public void testOverRegisterBudget() {
+        final int size = 1024;
+        float[] input = createInput(size);
+        float[] output = new float[size];
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestInlining::overBudget, input, output)
+                .streamOut(output)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            float x = input[i];
+            assertEquals(horner(x, 1.0f, 0.5f) - horner(x * 0.5f, 2.0f, 0.25f), output[i], 0.001f);
+        }
+    }
+
+    /**
+     * The helpers take and return {@link Float3}, so they are inlined even when
+     * they go over the register budget.
+     */
+    @Test
+    public void testVectorTypesOverRegisterBudget() {
+        final int size = 256;
+        VectorFloat3 a = new VectorFloat3(size);
+        VectorFloat3 b = new VectorFloat3(size);
+        VectorFloat3 output = new VectorFloat3(size);
+
+        for (int i = 0; i < size; i++) {
+            a.set(i, new Float3(i, 2 * i, 3 * i));
+            b.set(i, new Float3(-i, i, 0.5f * i));
+        }
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestInlining::interpolate, a, b, output)
+                .streamOut(output)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            Float3 expected = lerp(a.get(i), b.get(i), 0.25f);
+            assertEquals(expected.getX(), output.get(i).getX(), 0.001f);
+            assertEquals(expected.getY(), output.get(i).getY(), 0.001f);
+            assertEquals(expected.getZ(), output.get(i).getZ(), 0.001f);
+        }
+    }
+}
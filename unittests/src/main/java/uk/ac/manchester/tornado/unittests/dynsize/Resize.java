@@ -126,4 +126,36 @@ public class Resize {
             assertEquals(20.0f, v, 0.001f);
         }
     }
+
+    @Test
+    public void testDynamicSizeAlternating() {
+        float[] a = createArray(256);
+        float[] b = createArray(256);
+        float[] c = createArray(512);
+        float[] d = createArray(512);
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .streamIn(a) //
+                .task("t0", Resize::resize02, a, b) //
+                .streamOut(b); //
+
+        // Alternate between two shapes. After the first two, the specialised
+        // kernels are taken from the cache instead of being recompiled
+        for (int i = 0; i < 4; i++) {
+            ts.execute();
+            for (float v : b) {
+                assertEquals(20.0f, v, 0.001f);
+            }
+            ts.updateReference(a, c);
+            ts.updateReference(b, d);
+            ts.execute();
+            for (float v : d) {
+                assertEquals(20.0f, v, 0.001f);
+            }
+            ts.updateReference(c, a);
+            ts.updateReference(d, b);
+            IntStream.range(0, b.length).forEach(k -> b[k] = 0);
+            IntStream.range(0, d.length).forEach(k -> d[k] = 0);
+        }
+    }
 }
@@ -19,6 +19,7 @@
 package uk.ac.manchester.tornado.unittests.loops;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Random;
 import java.util.stream.IntStream;
@@ -28,6 +29,7 @@ import org.junit.Test;
 import uk.ac.manchester.tornado.api.TaskSchedule;
 import uk.ac.manchester.tornado.api.TornadoDriver;
 import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.mm.TaskMetaDataInterface;
 import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
 import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
 
@@ -164,4 +166,41 @@ public class TestLoopTransformations extends TornadoTestBase {
             }
         }
     }
+
+    /**
+     * The indices of the matrix-vector multiplication are bounded by the
+     * parallel and sequential loops, so the kernel runs with exceptions enabled
+     * without reading the exception state back.
+     */
+    @Test
+    public void testBoundsChecksWithExceptions() {
+        final int size = 256;
+        float[] matrixA = new float[size * size];
+        float[] matrixB = new float[size];
+        float[] matrixC = new float[size];
+        float[] resultSeq = new float[size];
+
+        Random r = new Random();
+        IntStream.range(0, size * size).parallel().forEach(idx -> matrixA[idx] = r.nextFloat());
+        IntStream.range(0, size).parallel().forEach(idx -> matrixB[idx] = r.nextFloat());
+
+        TornadoRuntime.setProperty("s1.t0.exceptions.enable", "True");
+
+        //@formatter:off
+        TaskSchedule t = new TaskSchedule("s1")
+                .task("t0", TestLoopTransformations::matrixVectorMultiplication, matrixA, matrixB, matrixC, size)
+                .streamOut(matrixC);
+        //@formatter:on
+
+        t.execute();
+
+        matrixVectorMultiplication(matrixA, matrixB, resultSeq, size);
+        for (int i = 0; i < size; i++) {
+            assertEquals(resultSeq[i], matrixC[i], 0.01f);
+        }
+
+        TaskMetaDataInterface meta = t.getTask("t0").meta();
+        assertTrue(meta.isProvenSafe());
+        assertEquals(0, meta.getExceptionStateReads());
+    }
 }
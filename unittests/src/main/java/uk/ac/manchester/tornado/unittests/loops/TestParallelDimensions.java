@@ -18,6 +18,7 @@
 package uk.ac.manchester.tornado.unittests.loops;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 
@@ -154,4 +155,81 @@ public class TestParallelDimensions extends TornadoTestBase {
             }
         }
     }
+
+    public static void stencil2D(float[] a, float[] b, int size) {
+        for (@Parallel int i = 1; i < size - 1; i++) {
+            for (@Parallel int j = 1; j < size - 1; j++) {
+                b[i * size + j] = 0.2f * (a[i * size + j] + a[(i - 1) * size + j] + a[(i + 1) * size + j] + a[i * size + j - 1] + a[i * size + j + 1]);
+            }
+        }
+    }
+
+    @Test
+    public void test2DStencil() {
+        final int size = 102;
+
+        float[] a = new float[size * size];
+        float[] b = new float[size * size];
+        float[] expected = new float[size * size];
+
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i % 17;
+        }
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestParallelDimensions::stencil2D, a, b, size)
+                .streamOut(b)
+                .execute();
+        //@formatter:on
+
+        stencil2D(a, expected, size);
+
+        for (int i = 0; i < b.length; i++) {
+            assertEquals(expected[i], b[i], 0.01f);
+        }
+    }
+
+    public static void scaleColumnsFirst(float[] a, float[] b, int rows, int columns) {
+        for (@Parallel int j = 0; j < columns; j++) {
+            for (@Parallel int i = 0; i < rows; i++) {
+                b[i * columns + j] = 2 * a[i * columns + j];
+            }
+        }
+    }
+
+    /**
+     * The loop over the columns is mapped to the first dimension of the thread
+     * space. Rows and columns have different sizes to check that the domain
+     * follows the interchanged loops.
+     */
+    @Test
+    public void test2DInterchange() {
+        final int rows = 64;
+        final int columns = 200;
+
+        float[] a = new float[rows * columns];
+        float[] b = new float[rows * columns];
+
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i % 31;
+        }
+
+        //@formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .task("t0", TestParallelDimensions::scaleColumnsFirst, a, b, rows, columns)
+                .streamOut(b);
+        //@formatter:on
+        s0.execute();
+
+        for (int i = 0; i < b.length; i++) {
+            assertEquals(2 * a[i], b[i], 0.01f);
+        }
+
+        // The columns are in the first dimension of the thread space. It may be
+        // rounded up to a multiple of the warp size.
+        long[] globalWork = s0.getTask("t0").meta().getGlobalWork();
+        assertTrue(globalWork[0] >= columns);
+        assertEquals(rows, globalWork[1]);
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.math;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.math.TornadoMath;
+import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task2;
+import uk.ac.manchester.tornado.api.enums.PrecisionPolicy;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Runs the same kernels under each {@link PrecisionPolicy} and reports the
+ * maximum ULP error against the Java version of the kernel. The accurate
+ * policies are checked against the bounds of the OpenCL built-in functions;
+ * the relaxed policies are only reported, as their accuracy depends on the
+ * device.
+ */
+public class TestPrecisionPolicies extends TornadoTestBase {
+
+    private static final int SIZE = 8192;
+
+    public static void polynomial(float[] x, float[] y) {
+        for (@Parallel int i = 0; i < y.length; i++) {
+            y[i] = x[i] * x[i] * 0.5f + x[i] * 1.5f + 0.25f;
+        }
+    }
+
+    public static void transcendental(float[] x, float[] y) {
+        for (@Parallel int i = 0; i < y.length; i++) {
+            y[i] = TornadoMath.sqrt(x[i]) + TornadoMath.exp(x[i] * 0.5f) + TornadoMath.log(x[i] + 1.0f) + TornadoMath.floatCos(x[i]) + 2.0f;
+        }
+    }
+
+    private static float[] createInput() {
+        float[] x = new float[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> x[i] = 0.01f + (i * 4.0f) / SIZE);
+        return x;
+    }
+
+    /**
+     * Runs a kernel in Java and on the device with every precision policy, and
+     * prints the maximum ULP error of each policy.
+     *
+     * @return Maximum ULP error per policy.
+     */
+    private static Map<PrecisionPolicy, Float> validate(String name, Task2<float[], float[]> kernel, float[] input) {
+        final float[] expected = new float[input.length];
+        kernel.apply(input, expected);
+
+        final Map<PrecisionPolicy, Float> report = new EnumMap<>(PrecisionPolicy.class);
+        for (PrecisionPolicy policy : PrecisionPolicy.values()) {
+            final float[] output = new float[input.length];
+
+            //@formatter:off
+            new TaskSchedule("s0")
+                    .task("t0", kernel, input, output)
+                    .usePrecisionPolicy("t0", policy)
+                    .streamOut(output)
+                    .execute();
+            //@formatter:on
+
+            report.put(policy, TornadoMath.findULPDistance(output, expected));
+        }
+
+        report.forEach((policy, ulp) -> System.out.printf("%s - %-9s max ULP error: %.2f%n", name, policy, ulp));
+        return report;
+    }
+
+    private static void check(Map<PrecisionPolicy, Float> report, float maxULP) {
+        assertTrue(report.get(PrecisionPolicy.STRICT) <= maxULP);
+        assertTrue(report.get(PrecisionPolicy.FMA) <= maxULP);
+        report.values().forEach(ulp -> assertFalse(Float.isNaN(ulp)));
+    }
+
+    @Test
+    public void testPolynomial() {
+        check(validate("polynomial", TestPrecisionPolicies::polynomial, createInput()), 4.0f);
+    }
+
+    @Test
+    public void testTranscendental() {
+        check(validate("transcendental", TestPrecisionPolicies::transcendental, createInput()), 8.0f);
+    }
+}
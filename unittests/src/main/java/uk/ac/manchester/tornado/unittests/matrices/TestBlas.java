@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.matrices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DDouble;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DFloat;
+import uk.ac.manchester.tornado.api.collections.types.VectorDouble;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat;
+import uk.ac.manchester.tornado.matrix.Blas;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * BLAS routines on the device and on the host, compared against sequential
+ * loops. The matrices are not square, their number of columns is not a
+ * multiple of {@link Blas#GEMM_BLOCK}, and {@code alpha} and {@code beta} are
+ * different from one.
+ */
+public class TestBlas extends TornadoTestBase {
+
+    private static final int M = 37;
+    private static final int N = 29;
+    private static final int K = 23;
+
+    private static final float ALPHA = 1.5f;
+    private static final float BETA = -0.75f;
+
+    private static final float DELTA = 1e-3f;
+    private static final double DOUBLE_DELTA = 1e-9;
+
+    private static float[] randomFloats(int size, long seed) {
+        final Random random = new Random(seed);
+        final float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextFloat() - 0.5f;
+        }
+        return values;
+    }
+
+    private static double[] randomDoubles(int size, long seed) {
+        final Random random = new Random(seed);
+        final double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextDouble() - 0.5;
+        }
+        return values;
+    }
+
+    /**
+     * Sequential {@code C = alpha * op(A) * op(B) + beta * C}, where
+     * {@code op(A)} is {@code m x k} and {@code op(B)} is {@code k x n}, and
+     * the matrices are stored in row-major order.
+     */
+    private static void gemm(boolean transA, boolean transB, int m, int n, int k, double alpha, double[] a, double[] b, double beta, double[] c) {
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                double sum = 0;
+                for (int l = 0; l < k; l++) {
+                    final double x = transA ? a[l * m + i] : a[i * k + l];
+                    final double y = transB ? b[j * k + l] : b[l * n + j];
+                    sum += x * y;
+                }
+                c[i * n + j] = (beta == 0) ? alpha * sum : alpha * sum + beta * c[i * n + j];
+            }
+        }
+    }
+
+    private static void gemv(boolean transA, int m, int k, double alpha, double[] a, double[] x, double beta, double[] y) {
+        for (int i = 0; i < m; i++) {
+            double sum = 0;
+            for (int l = 0; l < k; l++) {
+                sum += (transA ? a[l * m + i] : a[i * k + l]) * x[l];
+            }
+            y[i] = (beta == 0) ? alpha * sum : alpha * sum + beta * y[i];
+        }
+    }
+
+    private static double[] toDouble(float[] values) {
+        final double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+
+    private static float[] toFloat(double[] values) {
+        final float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Double matrix of {@code rows x cols}: unlike {@link Matrix2DFloat}, the
+     * constructor of {@link Matrix2DDouble} takes the number of columns first.
+     */
+    private static Matrix2DDouble doubleMatrix(int rows, int cols, double[] array) {
+        return new Matrix2DDouble(cols, rows, array);
+    }
+
+    private interface FloatGemm {
+        void run(boolean transA, boolean transB, float alpha, Matrix2DFloat a, Matrix2DFloat b, float beta, Matrix2DFloat c);
+    }
+
+    private interface DoubleGemm {
+        void run(boolean transA, boolean transB, double alpha, Matrix2DDouble a, Matrix2DDouble b, double beta, Matrix2DDouble c);
+    }
+
+    private static void testSgemm(FloatGemm routine, boolean transA, boolean transB, float alpha, float beta) {
+        final float[] a = randomFloats(M * K, 1);
+        final float[] b = randomFloats(K * N, 2);
+        final float[] c = randomFloats(M * N, 3);
+        final double[] expected = toDouble(c);
+        gemm(transA, transB, M, N, K, alpha, toDouble(a), toDouble(b), beta, expected);
+
+        final Matrix2DFloat matrixA = transA ? new Matrix2DFloat(K, M, a) : new Matrix2DFloat(M, K, a);
+        final Matrix2DFloat matrixB = transB ? new Matrix2DFloat(N, K, b) : new Matrix2DFloat(K, N, b);
+        routine.run(transA, transB, alpha, matrixA, matrixB, beta, new Matrix2DFloat(M, N, c));
+        assertArrayEquals(toFloat(expected), c, DELTA);
+    }
+
+    private static void testDgemm(DoubleGemm routine, boolean transA, boolean transB, double alpha, double beta) {
+        final double[] a = randomDoubles(M * K, 1);
+        final double[] b = randomDoubles(K * N, 2);
+        final double[] c = randomDoubles(M * N, 3);
+        final double[] expected = c.clone();
+        gemm(transA, transB, M, N, K, alpha, a, b, beta, expected);
+
+        final Matrix2DDouble matrixA = transA ? doubleMatrix(K, M, a) : doubleMatrix(M, K, a);
+        final Matrix2DDouble matrixB = transB ? doubleMatrix(N, K, b) : doubleMatrix(K, N, b);
+        routine.run(transA, transB, alpha, matrixA, matrixB, beta, doubleMatrix(M, N, c));
+        assertArrayEquals(expected, c, DOUBLE_DELTA);
+    }
+
+    @Test
+    public void testSgemm() {
+        testSgemm(Blas::sgemm, false, false, ALPHA, BETA);
+        testSgemm(Blas::sgemm, true, false, ALPHA, BETA);
+        testSgemm(Blas::sgemm, false, true, ALPHA, BETA);
+        testSgemm(Blas::sgemm, true, true, ALPHA, BETA);
+    }
+
+    @Test
+    public void testSgemmOnHost() {
+        testSgemm(Blas::sgemmOnHost, false, false, ALPHA, BETA);
+        testSgemm(Blas::sgemmOnHost, true, false, ALPHA, BETA);
+        testSgemm(Blas::sgemmOnHost, false, true, ALPHA, BETA);
+        testSgemm(Blas::sgemmOnHost, true, true, ALPHA, BETA);
+    }
+
+    @Test
+    public void testDgemm() {
+        testDgemm(Blas::dgemm, false, false, ALPHA, BETA);
+        testDgemm(Blas::dgemm, true, true, ALPHA, BETA);
+    }
+
+    @Test
+    public void testDgemmOnHost() {
+        testDgemm(Blas::dgemmOnHost, false, false, ALPHA, BETA);
+        testDgemm(Blas::dgemmOnHost, true, true, ALPHA, BETA);
+    }
+
+    @Test
+    public void testSgemmScalars() {
+        // The same operands with new scalars reuse the cached task-schedule
+        final float[] a = randomFloats(M * K, 1);
+        final float[] b = randomFloats(K * N, 2);
+        final float[] c = randomFloats(M * N, 3);
+        final double[] expected = toDouble(c);
+        final Matrix2DFloat matrixA = new Matrix2DFloat(M, K, a);
+        final Matrix2DFloat matrixB = new Matrix2DFloat(K, N, b);
+        final Matrix2DFloat matrixC = new Matrix2DFloat(M, N, c);
+        final float[][] scalars = { { ALPHA, BETA }, { -0.5f, 2.0f }, { 2.0f, 0.0f } };
+        for (float[] s : scalars) {
+            gemm(false, false, M, N, K, s[0], toDouble(a), toDouble(b), s[1], expected);
+            Blas.sgemm(false, false, s[0], matrixA, matrixB, s[1], matrixC);
+            assertArrayEquals(toFloat(expected), c, DELTA);
+        }
+    }
+
+    @Test
+    public void testSgemmZeroBeta() {
+        // C is not read when beta is zero, so NaNs in C are overwritten
+        final float[] a = randomFloats(M * K, 1);
+        final float[] b = randomFloats(K * N, 2);
+        final float[] c = new float[M * N];
+        Arrays.fill(c, Float.NaN);
+        final double[] expected = new double[M * N];
+        gemm(false, false, M, N, K, ALPHA, toDouble(a), toDouble(b), 0, expected);
+
+        Blas.sgemm(false, false, ALPHA, new Matrix2DFloat(M, K, a), new Matrix2DFloat(K, N, b), 0.0f, new Matrix2DFloat(M, N, c));
+        assertArrayEquals(toFloat(expected), c, DELTA);
+
+        Arrays.fill(c, Float.NaN);
+        Blas.sgemmOnHost(false, false, ALPHA, new Matrix2DFloat(M, K, a), new Matrix2DFloat(K, N, b), 0.0f, new Matrix2DFloat(M, N, c));
+        assertArrayEquals(toFloat(expected), c, DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSgemmShapes() {
+        Blas.sgemm(false, false, ALPHA, new Matrix2DFloat(M, K), new Matrix2DFloat(N, K), BETA, new Matrix2DFloat(M, N));
+    }
+
+    private static void testSgemv(boolean transA, boolean onHost) {
+        final float[] a = randomFloats(M * K, 1);
+        final int m = transA ? K : M;
+        final int k = transA ? M : K;
+        final float[] x = randomFloats(k, 2);
+        final float[] y = randomFloats(m, 3);
+        final double[] expected = toDouble(y);
+        gemv(transA, m, k, ALPHA, toDouble(a), toDouble(x), BETA, expected);
+
+        final Matrix2DFloat matrix = new Matrix2DFloat(M, K, a);
+        if (onHost) {
+            Blas.sgemvOnHost(transA, ALPHA, matrix, new VectorFloat(x), BETA, new VectorFloat(y));
+        } else {
+            Blas.sgemv(transA, ALPHA, matrix, new VectorFloat(x), BETA, new VectorFloat(y));
+        }
+        assertArrayEquals(toFloat(expected), y, DELTA);
+    }
+
+    private static void testDgemv(boolean transA, boolean onHost) {
+        final double[] a = randomDoubles(M * K, 1);
+        final int m = transA ? K : M;
+        final int k = transA ? M : K;
+        final double[] x = randomDoubles(k, 2);
+        final double[] y = randomDoubles(m, 3);
+        final double[] expected = y.clone();
+        gemv(transA, m, k, ALPHA, a, x, BETA, expected);
+
+        final Matrix2DDouble matrix = doubleMatrix(M, K, a);
+        if (onHost) {
+            Blas.dgemvOnHost(transA, ALPHA, matrix, new VectorDouble(x), BETA, new VectorDouble(y));
+        } else {
+            Blas.dgemv(transA, ALPHA, matrix, new VectorDouble(x), BETA, new VectorDouble(y));
+        }
+        assertArrayEquals(expected, y, DOUBLE_DELTA);
+    }
+
+    @Test
+    public void testSgemv() {
+        testSgemv(false, false);
+        testSgemv(true, false);
+    }
+
+    @Test
+    public void testSgemvOnHost() {
+        testSgemv(false, true);
+        testSgemv(true, true);
+    }
+
+    @Test
+    public void testDgemv() {
+        testDgemv(false, false);
+        testDgemv(true, false);
+    }
+
+    @Test
+    public void testDgemvOnHost() {
+        testDgemv(false, true);
+        testDgemv(true, true);
+    }
+
+    @Test
+    public void testAxpy() {
+        final int size = 10007;
+        final float[] x = randomFloats(size, 1);
+        final float[] y = randomFloats(size, 2);
+        final double[] dx = randomDoubles(size, 1);
+        final double[] dy = randomDoubles(size, 2);
+        final float[] expected = new float[size];
+        final double[] dexpected = new double[size];
+        for (int i = 0; i < size; i++) {
+            expected[i] = ALPHA * x[i] + y[i];
+            dexpected[i] = ALPHA * dx[i] + dy[i];
+        }
+
+        Blas.saxpy(ALPHA, new VectorFloat(x), new VectorFloat(y));
+        Blas.daxpy(ALPHA, new VectorDouble(dx), new VectorDouble(dy));
+        assertArrayEquals(expected, y, DELTA);
+        assertArrayEquals(dexpected, dy, DOUBLE_DELTA);
+    }
+
+    @Test
+    public void testAxpyOnHost() {
+        final int size = 10007;
+        final float[] x = randomFloats(size, 1);
+        final float[] y = randomFloats(size, 2);
+        final double[] dx = randomDoubles(size, 1);
+        final double[] dy = randomDoubles(size, 2);
+        final float[] expected = new float[size];
+        final double[] dexpected = new double[size];
+        for (int i = 0; i < size; i++) {
+            expected[i] = ALPHA * x[i] + y[i];
+            dexpected[i] = ALPHA * dx[i] + dy[i];
+        }
+
+        Blas.saxpyOnHost(ALPHA, new VectorFloat(x), new VectorFloat(y));
+        Blas.daxpyOnHost(ALPHA, new VectorDouble(dx), new VectorDouble(dy));
+        assertArrayEquals(expected, y, DELTA);
+        assertArrayEquals(dexpected, dy, DOUBLE_DELTA);
+    }
+
+    private static double dot(double[] x, double[] y) {
+        double sum = 0;
+        for (int i = 0; i < x.length; i++) {
+            sum += x[i] * y[i];
+        }
+        return sum;
+    }
+
+    @Test
+    public void testDot() {
+        final int size = 10007;
+        final float[] x = randomFloats(size, 1);
+        final float[] y = randomFloats(size, 2);
+        final double[] dx = randomDoubles(size, 1);
+        final double[] dy = randomDoubles(size, 2);
+
+        assertEquals(dot(toDouble(x), toDouble(y)), Blas.sdot(new VectorFloat(x), new VectorFloat(y)), DELTA);
+        assertEquals(dot(dx, dy), Blas.ddot(new VectorDouble(dx), new VectorDouble(dy)), DOUBLE_DELTA);
+    }
+
+    @Test
+    public void testDotOnHost() {
+        final int size = 10007;
+        final float[] x = randomFloats(size, 1);
+        final float[] y = randomFloats(size, 2);
+        final double[] dx = randomDoubles(size, 1);
+        final double[] dy = randomDoubles(size, 2);
+
+        assertEquals(dot(toDouble(x), toDouble(y)), Blas.sdotOnHost(new VectorFloat(x), new VectorFloat(y)), DELTA);
+        assertEquals(dot(dx, dy), Blas.ddotOnHost(new VectorDouble(dx), new VectorDouble(dy)), DOUBLE_DELTA);
+    }
+
+    @Test
+    public void testNrm2() {
+        final int size = 10007;
+        final float[] x = randomFloats(size, 1);
+        final double[] dx = randomDoubles(size, 1);
+
+        assertEquals(Math.sqrt(dot(toDouble(x), toDouble(x))), Blas.snrm2(new VectorFloat(x)), DELTA);
+        assertEquals(Math.sqrt(dot(dx, dx)), Blas.dnrm2(new VectorDouble(dx)), DOUBLE_DELTA);
+    }
+
+    @Test
+    public void testNrm2OnHost() {
+        final int size = 10007;
+        final float[] x = randomFloats(size, 1);
+        final double[] dx = randomDoubles(size, 1);
+
+        assertEquals(Math.sqrt(dot(toDouble(x), toDouble(x))), Blas.snrm2OnHost(new VectorFloat(x)), DELTA);
+        assertEquals(Math.sqrt(dot(dx, dx)), Blas.dnrm2OnHost(new VectorDouble(dx)), DOUBLE_DELTA);
+    }
+
+    /**
+     * Sequential batched GEMM: every matrix of the batch is multiplied with
+     * {@link #gemm}.
+     */
+    private static void gemmBatched(int batchCount, int m, int n, int k, double alpha, double[] a, double[] b, double beta, double[] c) {
+        for (int p = 0; p < batchCount; p++) {
+            final double[] pa = Arrays.copyOfRange(a, p * m * k, (p + 1) * m * k);
+            final double[] pb = Arrays.copyOfRange(b, p * k * n, (p + 1) * k * n);
+            final double[] pc = Arrays.copyOfRange(c, p * m * n, (p + 1) * m * n);
+            gemm(false, false, m, n, k, alpha, pa, pb, beta, pc);
+            System.arraycopy(pc, 0, c, p * m * n, m * n);
+        }
+    }
+
+    private static void testGemmBatched(boolean onHost) {
+        final int batchCount = 13;
+        final int m = 5;
+        final int n = 7;
+        final int k = 3;
+        final float[] a = randomFloats(batchCount * m * k, 1);
+        final float[] b = randomFloats(batchCount * k * n, 2);
+        final float[] c = randomFloats(batchCount * m * n, 3);
+        final double[] da = randomDoubles(batchCount * m * k, 1);
+        final double[] db = randomDoubles(batchCount * k * n, 2);
+        final double[] dc = randomDoubles(batchCount * m * n, 3);
+        final double[] expected = toDouble(c);
+        final double[] dexpected = dc.clone();
+        gemmBatched(batchCount, m, n, k, ALPHA, toDouble(a), toDouble(b), BETA, expected);
+        gemmBatched(batchCount, m, n, k, ALPHA, da, db, BETA, dexpected);
+
+        if (onHost) {
+            Blas.sgemmBatchedOnHost(batchCount, m, n, k, ALPHA, a, b, BETA, c);
+            Blas.dgemmBatchedOnHost(batchCount, m, n, k, ALPHA, da, db, BETA, dc);
+        } else {
+            Blas.sgemmBatched(batchCount, m, n, k, ALPHA, a, b, BETA, c);
+            Blas.dgemmBatched(batchCount, m, n, k, ALPHA, da, db, BETA, dc);
+        }
+        assertArrayEquals(toFloat(expected), c, DELTA);
+        assertArrayEquals(dexpected, dc, DOUBLE_DELTA);
+    }
+
+    @Test
+    public void testGemmBatched() {
+        testGemmBatched(false);
+    }
+
+    @Test
+    public void testGemmBatchedOnHost() {
+        testGemmBatched(true);
+    }
+}
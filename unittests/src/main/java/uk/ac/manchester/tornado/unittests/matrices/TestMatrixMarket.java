@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.matrices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.ac.manchester.tornado.matrix.MatrixMarket;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.CSRMatrix;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Tests of the Matrix Market loader on the host: small matrices with every
+ * supported header, a matrix large enough to be parsed in several chunks, and
+ * the binary cache.
+ */
+public class TestMatrixMarket extends TornadoTestBase {
+
+    /**
+     * Size of the smallest chunk that the loader parses in parallel.
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int[] GENERAL_ROWS = { 0, 2, 2, 4, 6 };
+    private static final int[] GENERAL_COLS = { 0, 3, 1, 4, 0, 4 };
+    private static final double[] GENERAL_VALUES = { 1.5, -0.2, 1000, 325, -7, 0.0025 };
+
+    private static final int[] INTEGER_ROWS = { 0, 1, 3 };
+    private static final int[] INTEGER_COLS = { 2, 0, 1 };
+    private static final double[] INTEGER_VALUES = { -12, 7, 3 };
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream stream = TestMatrixMarket.class.getResourceAsStream(name)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static CSRMatrix<float[]> loadFloatResource(String name) throws IOException {
+        try (InputStream stream = TestMatrixMarket.class.getResourceAsStream(name)) {
+            return MatrixMarket.loadFloat(stream);
+        }
+    }
+
+    private static CSRMatrix<double[]> loadDoubleResource(String name) throws IOException {
+        try (InputStream stream = TestMatrixMarket.class.getResourceAsStream(name)) {
+            return MatrixMarket.loadDouble(stream);
+        }
+    }
+
+    private Path writeFile(String name, byte[] content) throws IOException {
+        return Files.write(folder.getRoot().toPath().resolve(name), content);
+    }
+
+    private static float[] toFloat(double[] values) {
+        final float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    private static void assertMatrix(int[] rows, int[] cols, double[] values, CSRMatrix<float[]> matrix) {
+        assertEquals(rows.length - 1, matrix.size);
+        assertEquals(cols.length, matrix.n);
+        assertArrayEquals(rows, matrix.rows);
+        assertArrayEquals(cols, matrix.cols);
+        assertArrayEquals(toFloat(values), matrix.vals, 0.0f);
+    }
+
+    private static void assertDoubleMatrix(int[] rows, int[] cols, double[] values, CSRMatrix<double[]> matrix) {
+        assertEquals(rows.length - 1, matrix.size);
+        assertEquals(cols.length, matrix.n);
+        assertArrayEquals(rows, matrix.rows);
+        assertArrayEquals(cols, matrix.cols);
+        assertArrayEquals(values, matrix.vals, 0.0);
+    }
+
+    @Test
+    public void testGeneral() throws IOException {
+        assertMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, loadFloatResource("general.mtx"));
+        assertDoubleMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, loadDoubleResource("general.mtx"));
+    }
+
+    @Test
+    public void testSymmetric() throws IOException {
+        final int[] rows = { 0, 3, 5, 6, 8 };
+        final int[] cols = { 0, 1, 3, 0, 2, 1, 0, 3 };
+        final double[] values = { 4, -1, 0.5, -1, -1, -1, 0.5, 2 };
+        assertMatrix(rows, cols, values, loadFloatResource("symmetric.mtx"));
+        assertDoubleMatrix(rows, cols, values, loadDoubleResource("symmetric.mtx"));
+    }
+
+    @Test
+    public void testSkewSymmetric() throws IOException {
+        final int[] rows = { 0, 2, 4, 6 };
+        final int[] cols = { 1, 2, 0, 2, 0, 1 };
+        final double[] values = { -1, 2, 1, -3, -2, 3 };
+        assertMatrix(rows, cols, values, loadFloatResource("skew-symmetric.mtx"));
+        assertDoubleMatrix(rows, cols, values, loadDoubleResource("skew-symmetric.mtx"));
+    }
+
+    @Test
+    public void testInteger() throws IOException {
+        assertMatrix(INTEGER_ROWS, INTEGER_COLS, INTEGER_VALUES, loadFloatResource("integer.mtx"));
+        assertDoubleMatrix(INTEGER_ROWS, INTEGER_COLS, INTEGER_VALUES, loadDoubleResource("integer.mtx"));
+    }
+
+    @Test
+    public void testPattern() throws IOException {
+        final CSRMatrix<float[]> matrix = loadFloatResource("pattern.mtx");
+        final CSRMatrix<double[]> doubleMatrix = loadDoubleResource("pattern.mtx");
+        assertArrayEquals(new int[] { 0, 2, 3, 4 }, matrix.rows);
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, matrix.cols);
+        assertArrayEquals(matrix.rows, doubleMatrix.rows);
+        assertArrayEquals(matrix.cols, doubleMatrix.cols);
+
+        // Values are pseudo-random, but the same in every load and exact as floats
+        assertArrayEquals(matrix.vals, loadFloatResource("pattern.mtx").vals, 0.0f);
+        for (int i = 0; i < matrix.n; i++) {
+            assertTrue(matrix.vals[i] >= 0 && matrix.vals[i] < 256);
+            assertEquals(matrix.vals[i], (float) doubleMatrix.vals[i], 0.0f);
+        }
+    }
+
+    @Test
+    public void testCRLF() throws IOException {
+        final String content = new String(readResource("general.mtx"), StandardCharsets.US_ASCII);
+        final Path path = writeFile("crlf.mtx", content.replace("\n", "\r\n").getBytes(StandardCharsets.US_ASCII));
+        assertMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, MatrixMarket.loadFloat(path.toString(), false));
+        assertDoubleMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, MatrixMarket.loadDouble(path.toString(), false));
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        final int numRows = 3000;
+        final int numCols = 1000;
+        final Random random = new Random(7);
+
+        // Each row has distinct columns, so that the sorted order is unique
+        final List<String> lines = new ArrayList<>();
+        final int[] rows = new int[numRows + 1];
+        final List<int[]> entries = new ArrayList<>();
+        for (int r = 0; r < numRows; r++) {
+            final int length = (r % 97 == 0) ? 0 : 1 + random.nextInt(12);
+            final int first = random.nextInt(numCols - length);
+            for (int j = 0; j < length; j++) {
+                entries.add(new int[] { r, first + j });
+            }
+            rows[r + 1] = rows[r] + length;
+        }
+        final int[] cols = new int[entries.size()];
+        final String[] values = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            cols[i] = entries.get(i)[1];
+            values[i] = String.format("%.6e", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(9) - 4));
+        }
+
+        // Entries are written in a random order, with comments and blank lines
+        final int[] order = new int[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        lines.add("%%MatrixMarket matrix coordinate real general");
+        lines.add(numRows + " " + numCols + " " + entries.size());
+        for (int i : order) {
+            if (random.nextInt(50) == 0) {
+                lines.add(random.nextBoolean() ? "% comment" : "");
+            }
+            lines.add((entries.get(i)[0] + 1) + " " + (cols[i] + 1) + " " + values[i]);
+        }
+        final byte[] content = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.US_ASCII);
+        assertTrue(content.length > 4 * MIN_CHUNK_SIZE);
+
+        final CSRMatrix<float[]> matrix = MatrixMarket.loadFloat(writeFile("chunks.mtx", content).toString(), false);
+        final CSRMatrix<double[]> doubleMatrix = MatrixMarket.loadDouble(folder.getRoot().toPath().resolve("chunks.mtx").toString(), false);
+        assertArrayEquals(rows, matrix.rows);
+        assertArrayEquals(cols, matrix.cols);
+        assertArrayEquals(rows, doubleMatrix.rows);
+        assertArrayEquals(cols, doubleMatrix.cols);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Float.parseFloat(values[i]), matrix.vals[i], 0.0f);
+            assertEquals(Double.parseDouble(values[i]), doubleMatrix.vals[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        final Path path = writeFile("cached.mtx", readResource("general.mtx"));
+        final Path cache = MatrixMarket.cachePath(path, false);
+        final Path doubleCache = MatrixMarket.cachePath(path, true);
+        assertEquals("cached.f32.csr", cache.getFileName().toString());
+        assertEquals("cached.f64.csr", doubleCache.getFileName().toString());
+
+        MatrixMarket.loadFloat(path.toString(), false);
+        assertFalse(Files.exists(cache));
+
+        // The first load writes the cache, and the second one reads it
+        assertMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, MatrixMarket.loadFloat(path.toString()));
+        assertDoubleMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, MatrixMarket.loadDouble(path.toString()));
+        assertTrue(Files.isRegularFile(cache));
+        assertTrue(Files.isRegularFile(doubleCache));
+        assertMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, MatrixMarket.loadFloat(path.toString()));
+        assertDoubleMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, MatrixMarket.loadDouble(path.toString()));
+
+        // A matrix older than its cache is not parsed again
+        final FileTime cacheTime = Files.getLastModifiedTime(cache);
+        Files.write(path, readResource("integer.mtx"));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(cacheTime.toMillis() - 60_000));
+        assertMatrix(GENERAL_ROWS, GENERAL_COLS, GENERAL_VALUES, MatrixMarket.loadFloat(path.toString()));
+
+        // A matrix newer than its cache is parsed again, and the cache is replaced
+        final FileTime staleTime = FileTime.fromMillis(cacheTime.toMillis() - 120_000);
+        Files.setLastModifiedTime(cache, staleTime);
+        Files.setLastModifiedTime(doubleCache, staleTime);
+        assertMatrix(INTEGER_ROWS, INTEGER_COLS, INTEGER_VALUES, MatrixMarket.loadFloat(path.toString()));
+        assertDoubleMatrix(INTEGER_ROWS, INTEGER_COLS, INTEGER_VALUES, MatrixMarket.loadDouble(path.toString()));
+        assertTrue(Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(path)) >= 0);
+        assertTrue(Files.getLastModifiedTime(doubleCache).compareTo(Files.getLastModifiedTime(path)) >= 0);
+        assertMatrix(INTEGER_ROWS, INTEGER_COLS, INTEGER_VALUES, MatrixMarket.loadFloat(path.toString()));
+        assertDoubleMatrix(INTEGER_ROWS, INTEGER_COLS, INTEGER_VALUES, MatrixMarket.loadDouble(path.toString()));
+    }
+
+    @Test
+    public void testStreamAndFile() throws IOException {
+        final Path path = writeFile("stream.mtx", readResource("symmetric.mtx"));
+        final CSRMatrix<double[]> fromFile = MatrixMarket.loadDouble(path.toString(), false);
+        final CSRMatrix<double[]> fromStream = loadDoubleResource("symmetric.mtx");
+        assertArrayEquals(fromStream.rows, fromFile.rows);
+        assertArrayEquals(fromStream.cols, fromFile.cols);
+        assertArrayEquals(fromStream.vals, fromFile.vals, 0.0);
+    }
+}
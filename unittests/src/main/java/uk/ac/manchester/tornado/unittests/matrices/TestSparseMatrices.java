@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.matrices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.matrix.SparseFormat;
+import uk.ac.manchester.tornado.matrix.SparseMatrixMath;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.COOMatrix;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.CSRMatrix;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.ELLMatrix;
+import uk.ac.manchester.tornado.matrix.SparseMatrixUtils.SELLMatrix;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Sparse matrix-vector multiplications in every {@link SparseFormat},
+ * compared against a sequential CSR multiplication. The matrix has empty rows,
+ * one row much longer than the others, which spans several chunks of the
+ * coordinate format, and a number of rows that is not a multiple of the slice
+ * height.
+ */
+public class TestSparseMatrices extends TornadoTestBase {
+
+    private static final int NUM_ROWS = 203;
+    private static final int NUM_COLS = 400;
+    private static final int LONG_ROW = 37;
+    private static final int LONG_ROW_LENGTH = 300;
+
+    private static final float DELTA = 1e-3f;
+
+    /**
+     * Matrix in which every fifth row is empty, row {@code longRow} has
+     * {@code longRowLength} entries and the other rows have up to six.
+     */
+    private static CSRMatrix<float[]> createMatrix(int numRows, int numCols, int longRow, int longRowLength) {
+        final Random random = new Random(7);
+        final int[] lengths = new int[numRows];
+        for (int i = 0; i < numRows; i++) {
+            if (i == longRow) {
+                lengths[i] = longRowLength;
+            } else if (i % 5 != 3) {
+                lengths[i] = 1 + random.nextInt(6);
+            }
+        }
+        return createMatrix(lengths, numCols, random);
+    }
+
+    /**
+     * Matrix with the given row lengths, distinct columns in increasing order
+     * and random values.
+     */
+    private static CSRMatrix<float[]> createMatrix(int[] lengths, int numCols, Random random) {
+        final CSRMatrix<float[]> matrix = new CSRMatrix<>();
+        matrix.size = lengths.length;
+        matrix.rows = new int[lengths.length + 1];
+        for (int i = 0; i < lengths.length; i++) {
+            matrix.rows[i + 1] = matrix.rows[i] + lengths[i];
+        }
+        matrix.n = matrix.rows[lengths.length];
+        matrix.cols = new int[matrix.n];
+        matrix.vals = new float[matrix.n];
+        for (int i = 0; i < lengths.length; i++) {
+            // Selection sampling of lengths[i] columns out of numCols
+            int needed = lengths[i];
+            int k = matrix.rows[i];
+            for (int col = 0; col < numCols && needed > 0; col++) {
+                if (random.nextInt(numCols - col) < needed) {
+                    matrix.cols[k] = col;
+                    matrix.vals[k] = random.nextFloat() - 0.5f;
+                    k++;
+                    needed--;
+                }
+            }
+        }
+        return matrix;
+    }
+
+    private static CSRMatrix<float[]> createMatrix() {
+        return createMatrix(NUM_ROWS, NUM_COLS, LONG_ROW, LONG_ROW_LENGTH);
+    }
+
+    private static float[] createVector(int size) {
+        final Random random = new Random(11);
+        final float[] x = new float[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextFloat();
+        }
+        return x;
+    }
+
+    private static float[] spmvHost(CSRMatrix<float[]> matrix, float[] x) {
+        final float[] y = new float[matrix.size];
+        for (int i = 0; i < matrix.size; i++) {
+            float sum = 0.0f;
+            for (int k = matrix.rows[i]; k < matrix.rows[i + 1]; k++) {
+                sum += matrix.vals[k] * x[matrix.cols[k]];
+            }
+            y[i] = sum;
+        }
+        return y;
+    }
+
+    private static void assertSpmv(CSRMatrix<float[]> matrix, float[] x, float[] y) {
+        final float[] expected = spmvHost(matrix, x);
+        assertArrayEquals(expected, y, DELTA);
+        for (int i = 0; i < matrix.size; i++) {
+            if (matrix.rows[i] == matrix.rows[i + 1]) {
+                assertEquals(0.0f, y[i], 0.0f);
+            }
+        }
+    }
+
+    private static void testSpmv(SparseFormat format) {
+        final CSRMatrix<float[]> matrix = createMatrix();
+        final float[] x = createVector(NUM_COLS);
+        final float[] y = new float[NUM_ROWS];
+
+        // Each execution must overwrite the previous result
+        final TaskSchedule schedule = SparseMatrixMath.createSchedule("s0", matrix, format, x, y);
+        schedule.execute();
+        assertSpmv(matrix, x, y);
+
+        final float[] previous = y.clone();
+        for (int i = 0; i < NUM_COLS; i++) {
+            x[i] = 1.0f - x[i];
+        }
+        schedule.execute();
+        assertSpmv(matrix, x, y);
+        assertFalse(Arrays.equals(previous, y));
+    }
+
+    @Test
+    public void testSpmvCSR() {
+        testSpmv(SparseFormat.CSR);
+    }
+
+    @Test
+    public void testSpmvELL() {
+        testSpmv(SparseFormat.ELL);
+    }
+
+    @Test
+    public void testSpmvSELL() {
+        testSpmv(SparseFormat.SELL);
+    }
+
+    @Test
+    public void testSpmvCOO() {
+        testSpmv(SparseFormat.COO);
+    }
+
+    @Test
+    public void testSpmvSELLSmallSlices() {
+        // 203 rows: the last slice of 8 rows is incomplete, and rows are only
+        // sorted within windows of 16, so the long row is not in the first slice
+        final CSRMatrix<float[]> matrix = createMatrix();
+        final SELLMatrix<float[]> sell = SparseMatrixUtils.toSELL(matrix, 8, 16);
+        final float[] x = createVector(NUM_COLS);
+        final float[] y = new float[NUM_ROWS];
+
+        final TaskSchedule schedule = new TaskSchedule("s0").streamIn(x);
+        SparseMatrixMath.addTasks(schedule, "spmv", sell, x, y).streamOut(y);
+        schedule.execute();
+        assertSpmv(matrix, x, y);
+    }
+
+    @Test
+    public void testSpmvSelected() {
+        final CSRMatrix<float[]> matrix = createMatrix(2000, NUM_COLS, LONG_ROW, LONG_ROW_LENGTH);
+        assertEquals(SparseFormat.COO, SparseFormat.select(matrix));
+
+        final float[] x = createVector(NUM_COLS);
+        final float[] y = new float[matrix.size];
+        SparseMatrixMath.createSchedule("s0", matrix, x, y).execute();
+        assertSpmv(matrix, x, y);
+    }
+
+    @Test
+    public void testToELL() {
+        final CSRMatrix<float[]> matrix = createMatrix();
+        final ELLMatrix<float[]> ell = SparseMatrixUtils.toELL(matrix);
+        assertEquals(NUM_ROWS, ell.size);
+        assertEquals(matrix.n, ell.n);
+        assertEquals(LONG_ROW_LENGTH, ell.width);
+        assertEquals(LONG_ROW_LENGTH * NUM_ROWS, ell.vals.length);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            final int length = matrix.rows[i + 1] - matrix.rows[i];
+            for (int j = 0; j < ell.width; j++) {
+                final int index = j * NUM_ROWS + i;
+                assertEquals(j < length ? matrix.vals[matrix.rows[i] + j] : 0.0f, ell.vals[index], 0.0f);
+                assertEquals(j < length ? matrix.cols[matrix.rows[i] + j] : 0, ell.cols[index]);
+            }
+        }
+
+        // The kernel, run sequentially, on the converted matrix
+        final float[] x = createVector(NUM_COLS);
+        final float[] y = new float[NUM_ROWS];
+        SparseMatrixMath.spmvELL(ell.vals, ell.cols, ell.width, x, ell.size, y);
+        assertSpmv(matrix, x, y);
+    }
+
+    @Test
+    public void testToSELL() {
+        final CSRMatrix<float[]> matrix = createMatrix();
+        final int sliceHeight = 8;
+        final int sigma = 16;
+        final SELLMatrix<float[]> sell = SparseMatrixUtils.toSELL(matrix, sliceHeight, sigma);
+        final int numSlices = (NUM_ROWS + sliceHeight - 1) / sliceHeight;
+        assertEquals(numSlices + 1, sell.sliceOffsets.length);
+
+        // The rows are a permutation, sorted by decreasing length within each window
+        final boolean[] seen = new boolean[NUM_ROWS];
+        for (int k = 0; k < NUM_ROWS; k++) {
+            final int row = sell.perm[k];
+            assertTrue(!seen[row] && row / sigma == k / sigma);
+            seen[row] = true;
+            if (k % sigma != 0) {
+                final int previous = sell.perm[k - 1];
+                assertTrue(matrix.rows[previous + 1] - matrix.rows[previous] >= matrix.rows[row + 1] - matrix.rows[row]);
+            }
+        }
+
+        // Each slice is padded to its longest row
+        for (int s = 0; s < numSlices; s++) {
+            int width = 0;
+            for (int k = s * sliceHeight; k < Math.min(NUM_ROWS, (s + 1) * sliceHeight); k++) {
+                width = Math.max(width, matrix.rows[sell.perm[k] + 1] - matrix.rows[sell.perm[k]]);
+            }
+            assertEquals(width * sliceHeight, sell.sliceOffsets[s + 1] - sell.sliceOffsets[s]);
+        }
+        for (int k = 0; k < NUM_ROWS; k++) {
+            final int row = sell.perm[k];
+            final int base = sell.sliceOffsets[k / sliceHeight] + k % sliceHeight;
+            for (int j = 0; j < matrix.rows[row + 1] - matrix.rows[row]; j++) {
+                assertEquals(matrix.vals[matrix.rows[row] + j], sell.vals[base + j * sliceHeight], 0.0f);
+                assertEquals(matrix.cols[matrix.rows[row] + j], sell.cols[base + j * sliceHeight]);
+            }
+        }
+
+        final float[] x = createVector(NUM_COLS);
+        final float[] y = new float[NUM_ROWS];
+        SparseMatrixMath.spmvSELL(sell.vals, sell.cols, sell.sliceOffsets, sell.perm, sell.sliceHeight, x, sell.size, y);
+        assertSpmv(matrix, x, y);
+    }
+
+    @Test
+    public void testToCOO() {
+        final CSRMatrix<float[]> matrix = createMatrix();
+        final COOMatrix<float[]> coo = SparseMatrixUtils.toCOO(matrix);
+        assertEquals(NUM_ROWS, coo.size);
+        assertArrayEquals(matrix.cols, coo.cols);
+        assertArrayEquals(matrix.vals, coo.vals, 0.0f);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int k = matrix.rows[i]; k < matrix.rows[i + 1]; k++) {
+                assertEquals(i, coo.rows[k]);
+            }
+        }
+
+        // The long row spans several chunks, whose partial sums are carried
+        assertTrue(LONG_ROW_LENGTH > 2 * SparseMatrixMath.COO_CHUNK_SIZE);
+        final int numChunks = SparseMatrixMath.numChunks(coo.vals.length);
+        final int[] carryRows = new int[2 * numChunks];
+        final float[] carryVals = new float[2 * numChunks];
+        final float[] x = createVector(NUM_COLS);
+        final float[] y = new float[NUM_ROWS];
+        SparseMatrixMath.clear(y);
+        SparseMatrixMath.spmvCOOChunks(coo.vals, coo.cols, coo.rows, x, SparseMatrixMath.COO_CHUNK_SIZE, numChunks, y, carryRows, carryVals);
+        SparseMatrixMath.spmvCOOCarries(carryRows, carryVals, numChunks, y);
+        assertSpmv(matrix, x, y);
+    }
+
+    @Test
+    public void testSelect() {
+        final Random random = new Random(7);
+
+        // Rows of the same length: no padding
+        final int[] uniform = new int[100];
+        Arrays.fill(uniform, 4);
+        assertEquals(SparseFormat.ELL, SparseFormat.select(createMatrix(uniform, NUM_COLS, random)));
+
+        // One row much longer than the mean
+        assertEquals(SparseFormat.COO, SparseFormat.select(createMatrix(2000, NUM_COLS, LONG_ROW, LONG_ROW_LENGTH)));
+
+        // Long and short rows interleaved: sorting them gives slices without padding
+        final int[] interleaved = new int[64];
+        for (int i = 0; i < interleaved.length; i++) {
+            interleaved[i] = (i % 2 == 0) ? 8 : 1;
+        }
+        final CSRMatrix<float[]> matrix = createMatrix(interleaved, NUM_COLS, random);
+        assertEquals(SparseFormat.SELL, SparseFormat.select(matrix, 32, 1024));
+
+        // Without sorting, every slice is padded to 8 entries per row
+        assertEquals(SparseFormat.CSR, SparseFormat.select(matrix, 32, 1));
+
+        // Empty matrix
+        assertEquals(SparseFormat.CSR, SparseFormat.select(createMatrix(new int[10], NUM_COLS, random)));
+    }
+}
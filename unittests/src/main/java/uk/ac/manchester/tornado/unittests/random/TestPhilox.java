@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.random.Philox;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Counter-based random numbers generated on the device, compared with the
+ * values generated in Java for the same seeds and counters.
+ */
+public class TestPhilox extends TornadoTestBase {
+
+    private static final int SIZE = 1 << 20;
+    private static final long SEED = 0x123456789ABCDEFL;
+
+    public static void randomBits(long[] output, long seed) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = Philox.bits(seed, i);
+        }
+    }
+
+    @Test
+    public void testKnownAnswer() {
+        // Philox4x32-10 with a zero key and a zero counter (Random123)
+        assertEquals(0xE169C58D6627E8D5L, Philox.bits(0, 0));
+    }
+
+    @Test
+    public void testBits() {
+        long[] output = new long[SIZE];
+        long[] expected = new long[SIZE];
+
+        new TaskSchedule("s0") //
+                .task("t0", TestPhilox::randomBits, output, SEED) //
+                .streamOut(output) //
+                .execute();
+
+        randomBits(expected, SEED);
+        assertArrayEquals(expected, output);
+    }
+
+    @Test
+    public void testUniformFloats() {
+        float[] output = new float[SIZE];
+        float[] expected = new float[SIZE];
+
+        new TaskSchedule("s0") //
+                .task("t0", Philox::fillUniform, output, SEED, 1000L) //
+                .streamOut(output) //
+                .execute();
+
+        Philox.fillUniformOnHost(expected, SEED, 1000L);
+        assertArrayEquals(expected, output, 0.0f);
+
+        double sum = 0;
+        for (float value : output) {
+            sum += value;
+        }
+        assertEquals(0.5, sum / SIZE, 0.01);
+    }
+
+    @Test
+    public void testUniformDoubles() {
+        double[] output = new double[SIZE];
+        double[] expected = new double[SIZE];
+
+        new TaskSchedule("s0") //
+                .task("t0", Philox::fillUniform, output, SEED, 0L) //
+                .streamOut(output) //
+                .execute();
+
+        Philox.fillUniformOnHost(expected, SEED, 0L);
+        assertArrayEquals(expected, output, 0.0);
+    }
+
+    @Test
+    public void testNormalFloats() {
+        float[] output = new float[SIZE];
+        float[] expected = new float[SIZE];
+
+        new TaskSchedule("s0") //
+                .task("t0", Philox::fillNormal, output, SEED, 0L) //
+                .streamOut(output) //
+                .execute();
+
+        Philox.fillNormalOnHost(expected, SEED, 0L);
+        assertArrayEquals(expected, output, 1e-4f);
+
+        double sum = 0;
+        double squares = 0;
+        for (float value : output) {
+            sum += value;
+            squares += value * value;
+        }
+        assertEquals(0.0, sum / SIZE, 0.01);
+        assertEquals(1.0, squares / SIZE, 0.01);
+    }
+
+    @Test
+    public void testExponentialDoubles() {
+        final double lambda = 4.0;
+        double[] output = new double[SIZE];
+        double[] expected = new double[SIZE];
+
+        new TaskSchedule("s0") //
+                .task("t0", Philox::fillExponential, output, SEED, 0L, lambda) //
+                .streamOut(output) //
+                .execute();
+
+        Philox.fillExponentialOnHost(expected, SEED, 0L, lambda);
+        assertArrayEquals(expected, output, 1e-9);
+
+        double sum = 0;
+        for (double value : output) {
+            sum += value;
+        }
+        assertEquals(1.0 / lambda, sum / SIZE, 0.01);
+    }
+}
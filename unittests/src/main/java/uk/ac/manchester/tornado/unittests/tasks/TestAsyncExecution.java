@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Runs task-schedules with {@link TaskSchedule#executeAsync()}.
+ */
+public class TestAsyncExecution extends TornadoTestBase {
+
+    private static final int SIZE = 4096;
+    private static final int ITERATIONS = 8;
+
+    public static void add(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    @Test
+    public void testExecuteAsync() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> {
+            a[i] = i;
+            b[i] = 2 * i;
+        });
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(a, b)
+                .task("t0", TestAsyncExecution::add, a, b, c)
+                .streamOut(c);
+        // @formatter:on
+
+        s0.executeAsync().join();
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(3 * i, c[i]);
+        }
+    }
+
+    @Test
+    public void testExecuteAsyncRepeated() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> b[i] = i);
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestAsyncExecution::add, a, b, c)
+                .streamOut(c);
+        // @formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final int value = iteration;
+            IntStream.range(0, SIZE).forEach(i -> a[i] = value);
+            s0.executeAsync().join();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(i + iteration, c[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testMultipleSchedulesInFlight() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        int[] e = new int[SIZE];
+        int[] f = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> {
+            a[i] = i;
+            b[i] = 1;
+            d[i] = 2 * i;
+            e[i] = 2;
+        });
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(a, b)
+                .task("t0", TestAsyncExecution::add, a, b, c)
+                .streamOut(c);
+
+        TaskSchedule s1 = new TaskSchedule("s1")
+                .streamIn(d, e)
+                .task("t0", TestAsyncExecution::add, d, e, f)
+                .streamOut(f);
+        // @formatter:on
+
+        CompletableFuture<Void> f0 = s0.executeAsync();
+        CompletableFuture<Void> f1 = s1.executeAsync();
+        CompletableFuture.allOf(f0, f1).join();
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(i + 1, c[i]);
+            assertEquals(2 * i + 2, f[i]);
+        }
+    }
+
+}
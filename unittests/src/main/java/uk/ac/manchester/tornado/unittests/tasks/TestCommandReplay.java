@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Executes the same task-schedule several times. When the command capture is
+ * enabled (-Dtornado.vm.capture=True, as in tornado-test.py), executions after
+ * the second one are replayed from the captured command graph.
+ */
+public class TestCommandReplay extends TornadoTestBase {
+
+    private static final int SIZE = 4096;
+    private static final int ITERATIONS = 8;
+
+    public static void add(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    public static void scale(int[] c, int[] d) {
+        for (@Parallel int i = 0; i < d.length; i++) {
+            d[i] = c[i] * 2;
+        }
+    }
+
+    public static void accumulate(int[] a, int[] sum) {
+        for (@Parallel int i = 0; i < sum.length; i++) {
+            sum[i] += a[i];
+        }
+    }
+
+    private static class Filler {
+        int[] output;
+        int value;
+
+        Filler(int elements) {
+            output = new int[elements];
+        }
+
+        public void fill() {
+            for (@Parallel int i = 0; i < output.length; i++) {
+                output[i] = value;
+            }
+        }
+    }
+
+    @Test
+    public void testReplayStreamIn() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> b[i] = i);
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestCommandReplay::add, a, b, c)
+                .streamOut(c);
+        // @formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final int value = iteration;
+            IntStream.range(0, SIZE).forEach(i -> a[i] = value);
+            s0.execute();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(i + iteration, c[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testReplayMultipleTasks() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> b[i] = i);
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestCommandReplay::add, a, b, c)
+                .task("t1", TestCommandReplay::scale, c, d)
+                .streamOut(d);
+        // @formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final int value = iteration;
+            IntStream.range(0, SIZE).forEach(i -> a[i] = value);
+            s0.execute();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals((i + iteration) * 2, d[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testReplayAccumulate() {
+        int[] a = new int[SIZE];
+        int[] sum = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> a[i] = i);
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .task("t0", TestCommandReplay::accumulate, a, sum)
+                .streamOut(sum);
+        // @formatter:on
+
+        // Every execution, replayed or not, must run the kernel exactly once
+        for (int iteration = 1; iteration <= ITERATIONS; iteration++) {
+            s0.execute();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(i * iteration, sum[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testReplaySharedKernel() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        int[] e = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> {
+            b[i] = i;
+            d[i] = 2 * i;
+        });
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestCommandReplay::add, a, b, c)
+                .streamOut(c);
+
+        TaskSchedule s1 = new TaskSchedule("s1")
+                .streamIn(a)
+                .task("t0", TestCommandReplay::add, a, d, e)
+                .streamOut(e);
+        // @formatter:on
+
+        // Both task-schedules launch the same kernel, with their own arguments
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final int value = iteration;
+            IntStream.range(0, SIZE).forEach(i -> a[i] = value);
+            s0.execute();
+            s1.execute();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(i + iteration, c[i]);
+                assertEquals(2 * i + iteration, e[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testReplayObjectFields() {
+        Filler filler = new Filler(SIZE);
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(filler)
+                .task("t0", filler::fill)
+                .streamOut(filler.output);
+        // @formatter:on
+
+        // The scalar field is serialised on every execution, so it is never replayed
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            filler.value = iteration;
+            s0.execute();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(iteration, filler.output[i]);
+            }
+        }
+    }
+
+}
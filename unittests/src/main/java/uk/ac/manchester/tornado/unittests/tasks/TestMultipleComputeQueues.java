@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+/**
+ * The tests of {@link TestMultipleQueues}, run by tornado-test.py with two
+ * compute queues and no copy queue per device
+ * ({@code -Dtornado.vm.queues.compute=2 -Dtornado.vm.queues.copy=0}). The
+ * copies into the device are then enqueued on the first compute queue, and the
+ * copies out of the device on the queue of the task that produces the data, so
+ * the host has to wait for both compute queues.
+ */
+public class TestMultipleComputeQueues extends TestMultipleQueues {
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Task-schedules with several tasks, run by tornado-test.py with two compute
+ * queues and one copy queue per device
+ * ({@code -Dtornado.vm.queues.compute=2 -Dtornado.vm.queues.copy=1}).
+ * Independent tasks are launched on different queues, and the waits between
+ * queues order the tasks and the copies that share an object, also across
+ * executions.
+ */
+public class TestMultipleQueues extends TornadoTestBase {
+
+    private static final int SIZE = 4096;
+    private static final int ITERATIONS = 8;
+
+    public static void initialise(int[] a, int value) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = value;
+        }
+    }
+
+    public static void scale(int[] a, int alpha) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i] * alpha;
+        }
+    }
+
+    public static void add(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    public static void saxpy(int[] a, int[] b, int[] c, int alpha) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = alpha * a[i] + b[i];
+        }
+    }
+
+    @Test
+    public void testIndependentTasks() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+
+        //@formatter:off
+        new TaskSchedule("s0")
+            .task("t0", TestMultipleQueues::initialise, a, 10)
+            .task("t1", TestMultipleQueues::initialise, b, 20)
+            .task("t2", TestMultipleQueues::scale, a, 3)
+            .task("t3", TestMultipleQueues::scale, b, 5)
+            .streamOut(a, b)
+            .execute();
+        //@formatter:on
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(30, a[i]);
+            assertEquals(100, b[i]);
+        }
+    }
+
+    @Test
+    public void testDependentTasks() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+
+        //@formatter:off
+        new TaskSchedule("s0")
+            .task("t0", TestMultipleQueues::initialise, a, 10)
+            .task("t1", TestMultipleQueues::initialise, b, 1)
+            .task("t2", TestMultipleQueues::scale, a, 12)
+            .task("t3", TestMultipleQueues::saxpy, a, b, c, 2)
+            .task("t4", TestMultipleQueues::saxpy, c, a, b, 3)
+            .streamOut(b, c)
+            .execute();
+        //@formatter:on
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(241, c[i]);
+            assertEquals(843, b[i]);
+        }
+    }
+
+    /**
+     * t1 and t2 only depend on t0 and can run on different queues, t3 waits for
+     * both of them.
+     */
+    @Test
+    public void testDiamond() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> a[i] = i);
+
+        //@formatter:off
+        new TaskSchedule("s0")
+            .streamIn(a)
+            .task("t0", TestMultipleQueues::scale, a, 2)
+            .task("t1", TestMultipleQueues::saxpy, a, a, b, 3)
+            .task("t2", TestMultipleQueues::add, a, a, c)
+            .task("t3", TestMultipleQueues::add, b, c, d)
+            .streamOut(d)
+            .execute();
+        //@formatter:on
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(12 * i, d[i]);
+        }
+    }
+
+    /**
+     * The copies of a new execution must not overwrite the inputs that the tasks
+     * of the previous execution are still reading.
+     */
+    @Test
+    public void testRepeatedExecutions() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+
+        //@formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+            .streamIn(a, b)
+            .task("t0", TestMultipleQueues::add, a, b, c)
+            .task("t1", TestMultipleQueues::saxpy, a, b, d, 2)
+            .streamOut(c, d);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final int value = iteration;
+            IntStream.range(0, SIZE).forEach(i -> {
+                a[i] = i + value;
+                b[i] = value;
+            });
+
+            s0.execute();
+
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(i + 2 * value, c[i]);
+                assertEquals(2 * (i + value) + value, d[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testExecuteAsync() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> a[i] = i);
+
+        //@formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+            .streamIn(a)
+            .task("t0", TestMultipleQueues::initialise, b, 7)
+            .task("t1", TestMultipleQueues::add, a, b, c)
+            .streamOut(c);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            s0.executeAsync().join();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(i + 7, c[i]);
+            }
+        }
+    }
+}
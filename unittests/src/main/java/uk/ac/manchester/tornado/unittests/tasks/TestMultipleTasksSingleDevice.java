@@ -149,4 +149,30 @@ public class TestMultipleTasksSingleDevice extends TornadoTestBase {
         }
     }
 
+    /**
+     * The tasks of the schedule are compiled in parallel on the first execution.
+     * The multiplications are specialised for different values of alpha.
+     */
+    @Test
+    public void testTenTasks() {
+        final int numElements = 1024;
+        int[] a = new int[numElements];
+        int[] c = new int[numElements];
+
+        TaskSchedule ts = new TaskSchedule("s0");
+        ts.task("t0", TestMultipleTasksSingleDevice::task0Initialization, a);
+        for (int i = 1; i < 9; i++) {
+            ts.task("t" + i, TestMultipleTasksSingleDevice::task1Multiplication, a, (i % 2) + 1);
+        }
+        ts.task("t9", TestMultipleTasksSingleDevice::task3Copy, a, c, 0);
+        ts.streamOut(c);
+
+        for (int run = 0; run < 2; run++) {
+            ts.execute();
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(10 * 16, c[i]);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Runs the same method from several task-schedules, which share the compiled
+ * kernel when their arguments have the same shapes.
+ */
+public class TestSharedCompilation extends TornadoTestBase {
+
+    private static final int SIZE = 2048;
+    private static final int THREADS = 4;
+
+    public static void add(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    private static void check(int[] a, int[] b, int[] c) {
+        for (int i = 0; i < c.length; i++) {
+            assertEquals(a[i] + b[i], c[i]);
+        }
+    }
+
+    @Test
+    public void testSharedAcrossSchedules() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> {
+            a[i] = i;
+            b[i] = 2 * i;
+        });
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .task("t0", TestSharedCompilation::add, a, b, c)
+                .streamOut(c);
+
+        TaskSchedule s1 = new TaskSchedule("s1")
+                .task("t1", TestSharedCompilation::add, b, a, d)
+                .streamOut(d);
+        // @formatter:on
+
+        s0.execute();
+        s1.execute();
+
+        check(a, b, c);
+        check(b, a, d);
+    }
+
+    @Test
+    public void testAlternatingSchedules() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        int[] e = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> {
+            a[i] = i;
+            b[i] = 2 * i;
+            d[i] = 3 * i;
+        });
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestSharedCompilation::add, a, b, c)
+                .streamOut(c);
+
+        TaskSchedule s1 = new TaskSchedule("s1")
+                .task("t0", TestSharedCompilation::add, b, d, e)
+                .streamOut(e);
+        // @formatter:on
+
+        // The second execution of s0 must not use the arguments set by s1
+        s0.execute();
+        s1.execute();
+        IntStream.range(0, SIZE).forEach(i -> a[i] = -i);
+        s0.execute();
+
+        check(a, b, c);
+        check(b, d, e);
+    }
+
+    @Test
+    public void testSharedWithinSchedule() {
+        int[] a = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> {
+            a[i] = i;
+            b[i] = 2 * i;
+        });
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestSharedCompilation::add, a, b, c)
+                .task("t1", TestSharedCompilation::add, c, b, d)
+                .streamOut(c, d);
+        // @formatter:on
+
+        // Both tasks launch the same kernel, with their own arguments, in every execution
+        for (int iteration = 0; iteration < 3; iteration++) {
+            final int offset = iteration;
+            IntStream.range(0, SIZE).forEach(i -> a[i] = i + offset);
+            s0.execute();
+            check(a, b, c);
+            check(c, b, d);
+        }
+    }
+
+    @Test
+    public void testConcurrentSchedules() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final int offset = thread;
+                results.add(executor.submit(() -> {
+                    int[] a = new int[SIZE];
+                    int[] b = new int[SIZE];
+                    int[] c = new int[SIZE];
+                    IntStream.range(0, SIZE).forEach(i -> {
+                        a[i] = i + offset;
+                        b[i] = i;
+                    });
+
+                    // @formatter:off
+                    TaskSchedule schedule = new TaskSchedule("s" + offset)
+                            .task("t0", TestSharedCompilation::add, a, b, c)
+                            .streamOut(c);
+                    // @formatter:on
+
+                    schedule.execute();
+                    check(a, b, c);
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
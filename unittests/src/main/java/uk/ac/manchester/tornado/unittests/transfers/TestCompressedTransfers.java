@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.transfers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.enums.TransferCodec;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+public class TestCompressedTransfers extends TornadoTestBase {
+
+    private static final int SIZE = 1 << 20;
+
+    public static void copy(int[] input, int[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[i];
+        }
+    }
+
+    public static void copy(byte[] input, byte[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[i];
+        }
+    }
+
+    public static void copy(short[] input, short[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[i];
+        }
+    }
+
+    public static void copy(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[i];
+        }
+    }
+
+    private static long getEncodedTransfers(TaskSchedule schedule) {
+        return schedule.getDevice().getDeviceContext().getEncodedTransfers();
+    }
+
+    /**
+     * Executes the schedule and returns the number of copies that have been
+     * encoded.
+     */
+    private static long execute(TaskSchedule schedule) {
+        final long before = getEncodedTransfers(schedule);
+        schedule.execute();
+        return getEncodedTransfers(schedule) - before;
+    }
+
+    private static long run(TransferCodec codec, int[] input, int[] output) {
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+            .streamIn(input)
+            .useTransferCodec(codec, input)
+            .task("t0", TestCompressedTransfers::copy, input, output)
+            .streamOut(output);
+        // @formatter:on
+        return execute(s0);
+    }
+
+    @Test
+    public void testRunLengthMask() {
+        int[] input = new int[SIZE];
+        int[] output = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> input[i] = ((i / 4096) % 3 == 0) ? 1 : 0);
+
+        assertEquals(1, run(TransferCodec.RLE, input, output));
+        assertArrayEquals(input, output);
+    }
+
+    @Test
+    public void testDeltaSorted() {
+        int[] input = new int[SIZE];
+        int[] output = new int[SIZE];
+        Random r = new Random(7);
+        input[0] = -1000;
+        for (int i = 1; i < SIZE; i++) {
+            input[i] = input[i - 1] + r.nextInt(16);
+        }
+
+        assertEquals(1, run(TransferCodec.DELTA, input, output));
+        assertArrayEquals(input, output);
+    }
+
+    @Test
+    public void testBitPackInts() {
+        int[] input = new int[SIZE];
+        int[] output = new int[SIZE];
+        Random r = new Random(11);
+        IntStream.range(0, SIZE).forEach(i -> input[i] = 5000 + r.nextInt(255));
+
+        assertEquals(1, run(TransferCodec.BITPACK, input, output));
+        assertArrayEquals(input, output);
+    }
+
+    @Test
+    public void testIncompressible() {
+        int[] input = new int[SIZE];
+        int[] output = new int[SIZE];
+        Random r = new Random(13);
+        IntStream.range(0, SIZE).forEach(i -> input[i] = r.nextInt());
+
+        // The encoded stream is larger than the array, it falls back to a raw copy
+        assertEquals(0, run(TransferCodec.RLE, input, output));
+        assertArrayEquals(input, output);
+    }
+
+    @Test
+    public void testBitPackBytes() {
+        byte[] input = new byte[SIZE];
+        byte[] output = new byte[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> input[i] = (byte) (i & 0x7));
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+            .streamIn(input)
+            .useTransferCodec(TransferCodec.BITPACK, input)
+            .task("t0", TestCompressedTransfers::copy, input, output)
+            .streamOut(output);
+        // @formatter:on
+
+        assertEquals(1, execute(s0));
+        assertArrayEquals(input, output);
+    }
+
+    @Test
+    public void testDeltaShorts() {
+        short[] input = new short[SIZE];
+        short[] output = new short[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> input[i] = (short) (i % 2048 - 1024));
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+            .streamIn(input)
+            .useTransferCodec(TransferCodec.DELTA, input)
+            .task("t0", TestCompressedTransfers::copy, input, output)
+            .streamOut(output);
+        // @formatter:on
+
+        assertEquals(1, execute(s0));
+        assertArrayEquals(input, output);
+    }
+
+    @Test
+    public void testRunLengthFloats() {
+        float[] input = new float[SIZE];
+        float[] output = new float[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> input[i] = (i < SIZE / 2) ? 0.0f : 3.5f);
+
+        // @formatter:off
+        TaskSchedule s0 = new TaskSchedule("s0")
+            .streamIn(input)
+            .useTransferCodec(TransferCodec.RLE, input)
+            .task("t0", TestCompressedTransfers::copy, input, output)
+            .streamOut(output);
+        // @formatter:on
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            input[iteration] = iteration;
+            assertEquals(1, execute(s0));
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(input[i], output[i], 0.0f);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.vectortypes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Loops over arrays of scalars that are vectorised by the compiler on devices
+ * that prefer vector types (e.g., CPUs). The sizes cover widths that divide
+ * the number of iterations and loops that are left scalar.
+ */
+public class TestAutoVectorisation extends TornadoTestBase {
+
+    public static void saxpy(float alpha, float[] x, float[] y, float[] z) {
+        for (@Parallel int i = 0; i < z.length; i++) {
+            z[i] = alpha * x[i] + y[i];
+        }
+    }
+
+    public static void vectorDivision(float[] a, float[] b, float[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = (a[i] - b[i]) / b[i];
+        }
+    }
+
+    public static void vectorAddInt(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i] * 3;
+        }
+    }
+
+    private static void testSaxpy(int size) {
+        float[] x = new float[size];
+        float[] y = new float[size];
+        float[] z = new float[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            x[i] = i;
+            y[i] = size - i;
+        });
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestAutoVectorisation::saxpy, 2.0f, x, y, z)
+                .streamOut(z)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(2.0f * x[i] + y[i], z[i], 0.001f);
+        }
+    }
+
+    @Test
+    public void testSaxpy() {
+        testSaxpy(4096);
+    }
+
+    @Test
+    public void testSaxpyIrregularSize() {
+        testSaxpy(4102);
+    }
+
+    @Test
+    public void testSaxpyOddSize() {
+        testSaxpy(1001);
+    }
+
+    @Test
+    public void testDivision() {
+        final int size = 2048;
+        float[] a = new float[size];
+        float[] b = new float[size];
+        float[] c = new float[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i * 3;
+            b[i] = i + 1;
+        });
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestAutoVectorisation::vectorDivision, a, b, c)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals((a[i] - b[i]) / b[i], c[i], 0.001f);
+        }
+    }
+
+    @Test
+    public void testIntegers() {
+        final int size = 2048;
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i;
+            b[i] = size - i;
+        });
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestAutoVectorisation::vectorAddInt, a, b, c)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(a[i] + b[i] * 3, c[i]);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.vectortypes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.types.Float4;
+import uk.ac.manchester.tornado.api.collections.types.HalfFloat;
+import uk.ac.manchester.tornado.api.collections.types.ImageHalf4;
+import uk.ac.manchester.tornado.api.collections.types.VectorHalf;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Half-precision storage with single precision computation. The conversions
+ * on the device must give the same bits as {@link HalfFloat} on the JVM.
+ */
+public class TestHalfFloats extends TornadoTestBase {
+
+    public static void halfToFloat(short[] input, float[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = HalfFloat.halfToFloat(input[i]);
+        }
+    }
+
+    public static void floatToHalf(float[] input, short[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = HalfFloat.floatToHalf(input[i]);
+        }
+    }
+
+    public static void saxpy(float alpha, VectorHalf x, VectorHalf y, VectorHalf z) {
+        for (@Parallel int i = 0; i < z.size(); i++) {
+            z.set(i, alpha * x.get(i) + y.get(i));
+        }
+    }
+
+    public static void scale(ImageHalf4 image, float factor) {
+        for (@Parallel int y = 0; y < image.Y(); y++) {
+            for (@Parallel int x = 0; x < image.X(); x++) {
+                image.set(x, y, Float4.mult(image.get(x, y), factor));
+            }
+        }
+    }
+
+    @Test
+    public void testHalfToFloat() {
+        final int size = 1 << 16;
+        short[] input = new short[size];
+        float[] output = new float[size];
+        for (int i = 0; i < size; i++) {
+            input[i] = (short) i;
+        }
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestHalfFloats::halfToFloat, input, output)
+                .streamOut(output)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            final float expected = HalfFloat.halfToFloat(input[i]);
+            if (Float.isNaN(expected)) {
+                assertEquals(Float.NaN, output[i], 0.0f);
+            } else {
+                assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(output[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testFloatToHalf() {
+        final int size = 8192;
+        float[] input = new float[size];
+        short[] output = new short[size];
+        short[] expected = new short[size];
+
+        Random r = new Random(7);
+        for (int i = 0; i < size; i++) {
+            // Normal, subnormal and out of range values for half precision
+            input[i] = (float) (r.nextGaussian() * Math.pow(2, r.nextInt(48) - 30));
+            expected[i] = HalfFloat.floatToHalf(input[i]);
+        }
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestHalfFloats::floatToHalf, input, output)
+                .streamOut(output)
+                .execute();
+        //@formatter:on
+
+        assertArrayEquals(expected, output);
+    }
+
+    @Test
+    public void testVectorHalf() {
+        final int size = 4096;
+        VectorHalf x = new VectorHalf(size);
+        VectorHalf y = new VectorHalf(size);
+        VectorHalf z = new VectorHalf(size);
+        VectorHalf sequential = new VectorHalf(size);
+
+        for (int i = 0; i < size; i++) {
+            x.set(i, i / 16.0f);
+            y.set(i, size - i);
+        }
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestHalfFloats::saxpy, 1.5f, x, y, z)
+                .streamOut(z)
+                .execute();
+        //@formatter:on
+
+        saxpy(1.5f, x, y, sequential);
+        assertArrayEquals(sequential.getArray(), z.getArray());
+    }
+
+    @Test
+    public void testImageHalf4() {
+        final int width = 64;
+        final int height = 32;
+        ImageHalf4 image = new ImageHalf4(width, height);
+        ImageHalf4 sequential = new ImageHalf4(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.set(x, y, new Float4(x, y, x * 0.5f, y * 0.25f));
+            }
+        }
+        sequential.set(image);
+
+        //@formatter:off
+        new TaskSchedule("s0")
+                .task("t0", TestHalfFloats::scale, image, 0.75f)
+                .streamOut(image)
+                .execute();
+        //@formatter:on
+
+        scale(sequential, 0.75f);
+        assertArrayEquals(sequential.getArray(), image.getArray());
+    }
+}
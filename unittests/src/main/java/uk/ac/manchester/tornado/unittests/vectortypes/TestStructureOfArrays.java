@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.vectortypes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.types.Float3;
+import uk.ac.manchester.tornado.api.collections.types.Float4;
+import uk.ac.manchester.tornado.api.collections.types.ImageFloat;
+import uk.ac.manchester.tornado.api.collections.types.ImageFloat3;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat3;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat4;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Kernels over collections of interleaved components. With
+ * {@code -Dtornado.soa=True} their storage is transposed into a structure of
+ * arrays on the device, and the results must not change:
+ *
+ * <code>
+ *     tornado-test.py -V -J"-Dtornado.soa=True" uk.ac.manchester.tornado.unittests.vectortypes.TestStructureOfArrays
+ * </code>
+ */
+public class TestStructureOfArrays extends TornadoTestBase {
+
+    private static final int SIZE = 4096;
+
+    public static void scale(VectorFloat3 input, VectorFloat3 output) {
+        for (@Parallel int i = 0; i < input.getLength(); i++) {
+            output.set(i, Float3.mult(input.get(i), 2.0f));
+        }
+    }
+
+    public static void addVectors(VectorFloat4 a, VectorFloat4 b, VectorFloat4 c) {
+        for (@Parallel int i = 0; i < c.getLength(); i++) {
+            c.set(i, Float4.add(a.get(i), b.get(i)));
+        }
+    }
+
+    public static void dotImage(ImageFloat3 a, ImageFloat3 b, ImageFloat c) {
+        for (@Parallel int y = 0; y < a.Y(); y++) {
+            for (@Parallel int x = 0; x < a.X(); x++) {
+                c.set(x, y, Float3.dot(a.get(x, y), b.get(x, y)));
+            }
+        }
+    }
+
+    public static void sumComponents(VectorFloat3 input, float[] output) {
+        final float[] storage = input.getArray();
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = storage[3 * i] + storage[3 * i + 1] + storage[3 * i + 2];
+        }
+    }
+
+    public static void reverse(VectorFloat3 input, float[] output) {
+        final float[] storage = input.getArray();
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = storage[output.length - 1 - i];
+        }
+    }
+
+    private static VectorFloat3 createVector(Random random) {
+        VectorFloat3 vector = new VectorFloat3(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            vector.set(i, new Float3(random.nextFloat(), random.nextFloat(), random.nextFloat()));
+        }
+        return vector;
+    }
+
+    @Test
+    public void testVectorFloat3() {
+        VectorFloat3 input = createVector(new Random(7));
+        VectorFloat3 output = new VectorFloat3(SIZE);
+
+        new TaskSchedule("s0") //
+                .task("t0", TestStructureOfArrays::scale, input, output) //
+                .streamOut(output) //
+                .execute();
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(input.get(i).getX() * 2.0f, output.get(i).getX(), 0.001f);
+            assertEquals(input.get(i).getY() * 2.0f, output.get(i).getY(), 0.001f);
+            assertEquals(input.get(i).getZ() * 2.0f, output.get(i).getZ(), 0.001f);
+        }
+    }
+
+    @Test
+    public void testVectorFloat4() {
+        VectorFloat4 a = new VectorFloat4(SIZE);
+        VectorFloat4 b = new VectorFloat4(SIZE);
+        VectorFloat4 c = new VectorFloat4(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            a.set(i, new Float4(i, i + 1, i + 2, i + 3));
+            b.set(i, new Float4(-i, 2 * i, 3 * i, 4 * i));
+        }
+
+        new TaskSchedule("s0") //
+                .task("t0", TestStructureOfArrays::addVectors, a, b, c) //
+                .streamOut(c) //
+                .execute();
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(0, c.get(i).getX(), 0.001f);
+            assertEquals(3 * i + 1, c.get(i).getY(), 0.001f);
+            assertEquals(4 * i + 2, c.get(i).getZ(), 0.001f);
+            assertEquals(5 * i + 3, c.get(i).getW(), 0.001f);
+        }
+    }
+
+    @Test
+    public void testImageFloat3() {
+        final int width = 64;
+        final int height = 48;
+        Random random = new Random(11);
+        ImageFloat3 a = new ImageFloat3(width, height);
+        ImageFloat3 b = new ImageFloat3(width, height);
+        ImageFloat c = new ImageFloat(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                a.set(x, y, new Float3(random.nextFloat(), random.nextFloat(), random.nextFloat()));
+                b.set(x, y, new Float3(random.nextFloat(), random.nextFloat(), random.nextFloat()));
+            }
+        }
+
+        new TaskSchedule("s0") //
+                .task("t0", TestStructureOfArrays::dotImage, a, b, c) //
+                .streamOut(c) //
+                .execute();
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(Float3.dot(a.get(x, y), b.get(x, y)), c.get(x, y), 0.001f);
+            }
+        }
+    }
+
+    @Test
+    public void testScalarAccesses() {
+        VectorFloat3 input = createVector(new Random(13));
+        float[] sums = new float[SIZE];
+        float[] reversed = new float[SIZE * 3];
+
+        new TaskSchedule("s0") //
+                .task("t0", TestStructureOfArrays::sumComponents, input, sums) //
+                .task("t1", TestStructureOfArrays::reverse, input, reversed) //
+                .streamOut(sums, reversed) //
+                .execute();
+
+        final float[] storage = input.getArray();
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(storage[3 * i] + storage[3 * i + 1] + storage[3 * i + 2], sums[i], 0.001f);
+        }
+        for (int i = 0; i < reversed.length; i++) {
+            assertEquals(storage[reversed.length - 1 - i], reversed[i], 0.0f);
+        }
+    }
+}